@@ -0,0 +1,98 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Finds the answers to a conjunctive query of facts whose goals fall into groups that share no variables
+ * Each group is solved as its own query at the same time as the others (see OrParallelTask), and the answers to the
+ * whole query are every combination of one answer from each group. The query takes as long as its slowest group,
+ * instead of solving every later group again for each answer of the earlier ones.
+ */
+@SuppressWarnings("serial")
+public class AndParallelTask extends RecursiveTask<ArrayList<Answer>> {
+    private PredicateTable program;  //The program being queried
+    private ArrayList<Clause> groups;  //The compiled query of each group, in the order their first goals were written
+    private String[] names;  //The names of the whole query's variables, in the order they first appear
+    private long limit;  //The largest number of answers to return
+    private int parallelism;  //The number of threads searching
+
+    /*
+     * A constructor that creates an AndParallelTask
+     * @param program the program being queried
+     * @param groups the compiled query of each group of goals
+     * @param names the names of the whole query's variables, in the order they first appear
+     * @param limit the largest number of answers to return
+     * @param parallelism the number of threads searching
+     */
+    public AndParallelTask(PredicateTable program, ArrayList<Clause> groups, String[] names, long limit, int parallelism) {
+        this.program = program;
+        this.groups = groups;
+        this.names = names;
+        this.limit = limit;
+        this.parallelism = parallelism;
+    }
+
+    /*
+     * Solves every group at once and combines their answers
+     * @return the answers, where the answers of the first group change slowest
+     */
+    @Override
+    protected ArrayList<Answer> compute() {
+        ArrayList<OrParallelTask> tasks = new ArrayList<>();
+        for (Clause group : groups) {  //The first answers of the whole query only need the first answers of each group
+            tasks.add(new OrParallelTask(program, group, limit, parallelism));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        ArrayList<ArrayList<Answer>> answers = new ArrayList<>();
+        int[][] positions = new int[groups.size()][];  //The position of each group variable within the whole query's variables
+        for (int g = 0; g < groups.size(); g++) {
+            answers.add(tasks.get(g).join());
+            Clause group = groups.get(g);
+            positions[g] = new int[group.getNumberOfVariables()];
+            for (int i = 0; i < positions[g].length; i++) {
+                positions[g][i] = indexOf(group.getVariableName(i));
+            }
+        }
+        ArrayList<Answer> combined = new ArrayList<>();
+        int[] choice = new int[groups.size()];  //The answer chosen from each group, counted like the digits of a number
+        for (ArrayList<Answer> group : answers) {
+            if (group.isEmpty()) {  //If a group has no answers, neither does the query
+                return combined;
+            }
+        }
+        while (combined.size() < limit) {  //Build each combination in order
+            String[] values = new String[names.length];
+            for (int g = 0; g < choice.length; g++) {  //Copy in the values from each group's chosen answer
+                Answer answer = answers.get(g).get(choice[g]);
+                for (int i = 0; i < positions[g].length; i++) {
+                    values[positions[g][i]] = answer.getValue(i);
+                }
+            }
+            combined.add(new Answer(names, values));
+            int g = choice.length - 1;
+            while (g >= 0 && choice[g] == answers.get(g).size() - 1) {  //Move to the next combination, last group first
+                choice[g] = 0;
+                g--;
+            }
+            if (g < 0) {  //If every combination has been built
+                break;
+            }
+            choice[g]++;
+        }
+        return combined;
+    }
+
+    /*
+     * Gets the position of the variable with the given name within the whole query's variables
+     * @param name the name of the variable
+     * @return the position of the variable
+     */
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * One solution to a query: the value of each of the query's variables
+ */
+public class Answer {
+    private String[] names;  //The names of the query's variables, in the order they first appear
+    private String[] values;  //The value of each variable in this solution
+
+    /*
+     * A constructor that creates an Answer given the names and values of the variables
+     * @param names the names of the variables
+     * @param values the value of each variable
+     */
+    public Answer(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    /*
+     * Gets the number of variables in the answer
+     * @return the number of variables
+     */
+    public int getNumberOfVariables() {
+        return names.length;
+    }
+
+    /*
+     * Gets the name of the variable at the given index
+     * @param index the index of the variable
+     * @return the variable's name
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /*
+     * Gets the value of the variable at the given index
+     * @param index the index of the variable
+     * @return the variable's value
+     */
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    /*
+     * Gets the value of the variable with the given name
+     * @param name the name of the variable
+     * @return the variable's value, or null if the query doesn't contain the variable
+     */
+    public String getValue(String name) {
+        for (int i = 0; i < names.length; i++) {  //Iterate through the variables
+            if (names[i].equals(name)) {  //If the names match
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Writes the answer the way it's printed for the user
+     * @return each variable and its value, as in X = a, Y = b, or true if the query has no variables
+     */
+    @Override
+    public String toString() {
+        if (names.length == 0) {  //If the query is ground
+            return "true";
+        }
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {  //Iterate through the variables
+            if (i > 0) {  //If this isn't the first variable
+                output.append(", ");
+            }
+            output.append(names[i]).append(" = ").append(values[i]);
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * An iterator over the solutions to a query that only searches for the next solution when it's asked for
+ */
+public class AnswerIterator implements Iterator<Answer> {
+    private Resolver resolver;  //Searches for the solutions
+    private String[] names;  //The names of the query's variables, shared by every answer
+    private long remaining;  //The number of answers that can still be returned
+    private Answer next;  //The solution found by hasNext that hasn't been returned yet
+    private boolean done;  //Indicates if there are no solutions left
+    private QueryBudget budget;  //The budget of the query, told how the search ended, or null if the query is unlimited
+
+    /*
+     * A constructor that creates an AnswerIterator given a resolver
+     * @param resolver the resolver for the query
+     * @param limit the largest number of answers to return
+     */
+    public AnswerIterator(Resolver resolver, long limit) {
+        this(resolver, limit, null);
+    }
+
+    /*
+     * A constructor that creates an AnswerIterator given a resolver and the budget it was given
+     * @param resolver the resolver for the query
+     * @param limit the largest number of answers to return
+     * @param budget the budget the resolver was given, which is told when the search ends, or null
+     */
+    public AnswerIterator(Resolver resolver, long limit, QueryBudget budget) {
+        this.resolver = resolver;
+        this.names = new String[resolver.getNumberOfVariables()];
+        for (int i = 0; i < names.length; i++) {  //Get the names of the variables
+            names[i] = resolver.getVariableName(i);
+        }
+        this.remaining = limit;
+        this.next = null;
+        this.done = false;
+        this.budget = budget;
+    }
+
+    /*
+     * Determines if the query has another solution, searching for it if it hasn't been found yet
+     * @return true if another answer can be returned
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {  //If the next solution hasn't been searched for
+            if (remaining > 0 && resolver.next()) {  //If there's another solution
+                String[] values = new String[names.length];
+                for (int i = 0; i < values.length; i++) {  //Save the value of each variable before the resolver moves on
+                    values[i] = resolver.getValue(i);
+                }
+                next = new Answer(names, values);
+                remaining--;
+            } else {  //If there are no solutions left, or the limit has been reached
+                done = true;
+                if (budget != null) {
+                    end();
+                }
+            }
+        }
+        return next != null;
+    }
+
+    /*
+     * Tells the budget how the search ended. When the answer limit was reached, the search looks for one more solution,
+     * held to the budget's other limits, so the answers are only called partial if the limit kept one from being returned.
+     * With a limit of 0 the search hasn't started, so that solution is the first one.
+     */
+    private void end() {
+        if (remaining == 0 && resolver.hasAlternatives() && resolver.next()) {  //If the limit kept a solution back
+            budget.stop("answer limit");
+        } else {  //Only marks the query complete if the resolver wasn't stopped
+            budget.finish();
+        }
+    }
+
+    /*
+     * Gets the next solution to the query
+     * @return the next answer
+     */
+    @Override
+    public Answer next() {
+        if (!hasNext()) {  //If there are no solutions left
+            throw new NoSuchElementException();
+        }
+        Answer answer = next;
+        next = null;
+        return answer;
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.ArrayList;
+
+/*
+ * The answers found so far for one call variant of a tabled procedure
+ */
+public class AnswerTable {
+    private Procedure procedure;  //The procedure being called
+    private Clause call;  //The call's arguments, compiled so they can be placed in a new TermStore
+    private ArrayList<Clause> answers;  //The answers in the order they were found
+    private RowSet found;  //The templates of the answers that have been found, so duplicates aren't added
+    private boolean complete;  //Indicates if every answer has been found
+    private int depth;  //The position of the table on the evaluation stack, or -1 if it isn't being evaluated
+    private int leader;  //The lowest position on the evaluation stack of a table whose answers this table depends on
+
+    /*
+     * A constructor that creates an empty AnswerTable
+     * @param procedure the procedure being called
+     * @param call the template of the call's arguments
+     */
+    public AnswerTable(Procedure procedure, int[] call) {
+        this.procedure = procedure;
+        this.call = new Clause(call, procedure.getArity());
+        this.answers = new ArrayList<>();
+        this.found = new RowSet();
+        this.complete = false;
+        this.depth = -1;
+        this.leader = -1;
+    }
+
+    /*
+     * Adds the given answer if it hasn't been found before
+     * @param answer the template of the answer's arguments
+     * @return true if the answer is new
+     */
+    public boolean add(int[] answer) {
+        if (!found.add(answer)) {  //If the answer has already been found
+            return false;
+        }
+        answers.add(new Clause(answer, procedure.getArity()));
+        return true;
+    }
+
+    /*
+     * Gets the answer at the given index
+     * @param index the index of the answer, in the order it was found
+     * @return a clause with no body whose head is the answer
+     */
+    public Clause getAnswer(int index) {
+        return answers.get(index);
+    }
+
+    /*
+     * Gets the number of answers found so far
+     * @return the number of answers
+     */
+    public int size() {
+        return answers.size();
+    }
+
+    /*
+     * Gets the procedure being called
+     * @return the procedure
+     */
+    public Procedure getProcedure() {
+        return procedure;
+    }
+
+    /*
+     * Gets the call's arguments
+     * @return a clause with no body whose head is the call
+     */
+    public Clause getCall() {
+        return call;
+    }
+
+    /*
+     * Determines if every answer has been found
+     * @return true if the table is complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /*
+     * Marks the table as holding every answer
+     */
+    public void complete() {
+        complete = true;
+    }
+
+    /*
+     * Gets the position of the table on the evaluation stack
+     * @return the position, or -1 if the table isn't being evaluated
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /*
+     * Sets the position of the table on the evaluation stack
+     * @param depth the position, or -1 once the evaluation is over
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /*
+     * Gets the lowest position on the evaluation stack of a table whose answers this table depends on
+     * @return the position of the table's leader
+     */
+    public int getLeader() {
+        return leader;
+    }
+
+    /*
+     * Sets the position of the table's leader
+     * @param leader the lowest position on the evaluation stack this table depends on
+     */
+    public void setLeader(int leader) {
+        this.leader = leader;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * A hash index on one argument position of a range of a Fact's predicates
+ * An index isn't changed once it's built, so it can be shared by every snapshot of the fact that holds its range
+ */
+public class ArgumentIndex {
+    private int position;  //The argument position this index is built on
+    private int from;  //The index of the first predicate in the range
+    private int to;  //The index after the last predicate in the range
+    private IntMap<IntList> buckets;  //Maps the id of an atom to the indices of the predicates that hold it at this position
+    private IntList unindexed;  //The indices of the predicates that can match any atom at this position (variables and lists)
+
+    /*
+     * A constructor that indexes the given argument position of a range of predicates
+     * @param columns the atom ids of the predicates, which must hold every predicate in the range
+     * @param position the argument position being indexed
+     * @param from the index of the first predicate in the range
+     * @param to the index after the last predicate in the range
+     */
+    public ArgumentIndex(ColumnStore columns, int position, int from, int to) {
+        this.position = position;  //Initializes the position
+        this.from = from;
+        this.to = to;
+        buckets = new IntMap<>();  //Create the map of buckets
+        unindexed = new IntList();  //Create the list of unindexed predicates
+        for (int i = from; i < to; i++) {  //Scan the position's column
+            add(i, columns.get(i, position));  //Add each predicate to the index
+        }
+    }
+
+    /*
+     * Adds the predicate at the given index to the index
+     * Predicates must be added in increasing index order so every bucket stays sorted
+     * @param index the index of the predicate within its fact
+     * @param atom the id of the atom the predicate holds at the indexed position
+     */
+    private void add(int index, int atom) {
+        if (SymbolTable.isVariable(atom)) {  //If the predicate could match any atom at this position (lists are marked with a negative id too)
+            unindexed.add(index);  //Add it to the unindexed predicates
+        } else {  //If the atom is a constant
+            IntList bucket = buckets.get(atom);  //Get the bucket for the atom
+            if (bucket == null) {  //If this is the first predicate with this atom
+                bucket = new IntList();  //Create the bucket
+                buckets.put(atom, bucket);  //Add it to the map
+            }
+            bucket.add(index);  //Add the predicate to the bucket
+        }
+    }
+
+    /*
+     * Gets the indices of the predicates that could match the given atom at this position, in clause order
+     * @param atom the id of a constant at this position within a query
+     * @return a sorted list of predicate indices
+     */
+    public IntList lookup(int atom) {
+        IntList bucket = buckets.get(atom);  //Get the bucket for the atom
+        if (unindexed.size() == 0) {  //If every predicate is indexed
+            return bucket == null ? new IntList() : bucket;  //The bucket holds every candidate
+        } else if (bucket == null) {  //If only unindexed predicates can match
+            return unindexed;
+        }
+        IntList merged = new IntList();  //Merge the bucket and the unindexed predicates so the clause order is kept
+        int i = 0;
+        int j = 0;
+        while (i < bucket.size() || j < unindexed.size()) {  //While either list has predicates left
+            if (j == unindexed.size() || (i < bucket.size() && bucket.get(i) < unindexed.get(j))) {  //If the bucket's next predicate comes first
+                merged.add(bucket.get(i));
+                i++;
+            } else {  //If the unindexed list's next predicate comes first
+                merged.add(unindexed.get(j));
+                j++;
+            }
+        }
+        return merged;
+    }
+
+    /*
+     * Gets the number of predicates that could match the given atom at this position
+     * @param atom the id of a constant at this position within a query
+     * @return the number of candidate predicates
+     */
+    public int count(int atom) {
+        IntList bucket = buckets.get(atom);  //Get the bucket for the atom
+        return (bucket == null ? 0 : bucket.size()) + unindexed.size();
+    }
+
+    /*
+     * Gets the number of predicates before the given index that could match the given atom at this position
+     * @param atom the id of a constant at this position within a query
+     * @param limit the index after the last predicate counted, such as the number of predicates in a snapshot
+     * @return the number of candidate predicates with a smaller index than limit
+     */
+    public int count(int atom, int limit) {
+        IntList bucket = buckets.get(atom);  //Get the bucket for the atom
+        return (bucket == null ? 0 : countBelow(bucket, limit)) + countBelow(unindexed, limit);
+    }
+
+    /*
+     * Counts the indices in the given sorted list that are smaller than the given limit, by binary search
+     * @param indices a sorted list of predicate indices
+     * @param limit the index after the last one counted
+     * @return the number of indices smaller than limit
+     */
+    private static int countBelow(IntList indices, int limit) {
+        int low = 0;
+        int high = indices.size();
+        while (low < high) {  //Find the first index that isn't smaller than the limit
+            int middle = (low + high) >>> 1;
+            if (indices.get(middle) < limit) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Gets the argument position of this index
+     * @return the indexed position
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /*
+     * Gets the index of the first predicate in the range
+     * @return the first index covered
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /*
+     * Gets the index after the last predicate in the range
+     * @return the first index not covered
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /*
+     * Gets the number of distinct atoms at this position
+     * @return the number of buckets
+     */
+    public int getNumberOfKeys() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,223 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * Computes every row implied by a program's rules with semi-naive iteration, and returns a table of facts holding them
+ * The first round runs every rule over the facts. After that, a rule is only run with one of its goals limited to the
+ * rows found in the previous round (the delta), since a row that doesn't use a new row was already found. The rounds
+ * stop when one finds nothing new.
+ */
+public class BottomUpEvaluator {
+    private PredicateTable program;  //The program being evaluated
+    private ArrayList<DatalogRule> rules;  //The program's rules, compiled
+    private HashMap<Procedure, TupleSet> all;  //Every row found so far for each procedure that has rules
+    private HashMap<Procedure, TupleSet> delta;  //The rows found in the previous round for each procedure that has rules
+    private HashMap<Procedure, TupleSet> next;  //The rows found in the current round
+
+    /*
+     * A constructor that creates a BottomUpEvaluator for the given program
+     * @param program the program being evaluated
+     */
+    public BottomUpEvaluator(PredicateTable program) {
+        this.program = program;
+        rules = new ArrayList<>();
+        all = new HashMap<>();
+        delta = new HashMap<>();
+        next = new HashMap<>();
+    }
+
+    /*
+     * Determines if the given program can be evaluated bottom up: every fact is ground and every rule is a Datalog rule
+     * @param program the program being checked
+     * @return true if the program can be evaluated bottom up
+     */
+    public static boolean isDatalog(PredicateTable program) {
+        for (int i = 0; i < program.getNumberOfProcedures(); i++) {  //Iterate through the procedures
+            Procedure procedure = program.getProcedure(i);
+            if (procedure.containsFacts()) {  //Make sure every fact is ground
+                Fact fact = procedure.getFact();
+                for (int j = 0; j < fact.getNumberOfPredicates(); j++) {
+                    if (!fact.isGround(j)) {
+                        return false;
+                    }
+                }
+            }
+            for (PrologRule rule : procedure.getRules()) {  //Make sure every rule is a Datalog rule
+                if (!DatalogRule.isDatalog(rule)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Computes every row implied by the program's rules
+     * @return a table holding the program's procedures, where every procedure that had rules is replaced by one holding
+     *         its facts and every row its rules imply
+     */
+    public PredicateTable evaluate() {
+        for (int i = 0; i < program.getNumberOfProcedures(); i++) {  //Start each procedure that has rules with its facts
+            Procedure procedure = program.getProcedure(i);
+            if (!procedure.containsRules()) {
+                continue;
+            }
+            TupleSet rows = new TupleSet(procedure.getArity());
+            if (procedure.containsFacts()) {
+                Fact fact = procedure.getFact();
+                for (int j = 0; j < fact.getNumberOfPredicates(); j++) {
+                    int[] row = new int[procedure.getArity()];
+                    for (int k = 0; k < row.length; k++) {
+                        row[k] = fact.getValue(j, k);
+                    }
+                    rows.add(row);
+                }
+            }
+            all.put(procedure, rows);
+            for (PrologRule rule : procedure.getRules()) {
+                rules.add(new DatalogRule(program, rule));
+            }
+        }
+
+        startRound();
+        for (DatalogRule rule : rules) {  //Run every rule over everything once
+            join(rule, 0, new int[rule.getNumberOfVariables()], -1);
+        }
+        while (endRound()) {  //While the last round found new rows
+            startRound();
+            for (DatalogRule rule : rules) {  //Run each rule once for every goal that can use a new row
+                for (int goal = 0; goal < rule.getNumberOfGoals(); goal++) {
+                    TupleSet rows = delta.get(rule.getGoal(goal));
+                    if (rows != null && rows.size() > 0) {
+                        join(rule, 0, new int[rule.getNumberOfVariables()], goal);
+                    }
+                }
+            }
+        }
+
+        PredicateTable result = new PredicateTable();
+        for (int i = 0; i < program.getNumberOfProcedures(); i++) {  //Build the table of facts
+            Procedure procedure = program.getProcedure(i);
+            if (!procedure.containsRules()) {  //Procedures without rules are shared as they are
+                result.addProcedure(procedure);
+                continue;
+            }
+            Procedure materialized = new Procedure(procedure.getFunctor(), procedure.getArity());
+            TupleSet rows = all.get(procedure);
+            for (int j = 0; j < rows.size(); j++) {  //Store each row as a fact
+                int[] row = new int[rows.getArity()];
+                for (int k = 0; k < row.length; k++) {
+                    row[k] = rows.getValue(j, k);
+                }
+                materialized.addRow(row);
+            }
+            result.addProcedure(materialized);
+        }
+        return result;
+    }
+
+    /*
+     * Creates an empty set of new rows for each procedure that has rules
+     */
+    private void startRound() {
+        next = new HashMap<>();
+        for (Procedure procedure : all.keySet()) {
+            next.put(procedure, new TupleSet(procedure.getArity()));
+        }
+    }
+
+    /*
+     * Adds the rows found in the current round to every row found, and makes them the delta of the next round
+     * @return true if the round found any new rows
+     */
+    private boolean endRound() {
+        boolean found = false;
+        for (Procedure procedure : all.keySet()) {
+            TupleSet rows = next.get(procedure);
+            TupleSet known = all.get(procedure);
+            int[] row = new int[rows.getArity()];
+            for (int i = 0; i < rows.size(); i++) {  //Add each new row
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = rows.getValue(i, j);
+                }
+                known.add(row);  //The set copies the row, so the array can be reused
+                found = true;
+            }
+        }
+        delta = next;
+        return found;
+    }
+
+    /*
+     * Finds every way to satisfy the goals of the given rule from the given goal on, and records the head of each one
+     * @param rule the rule being run
+     * @param goal the index of the next goal to satisfy
+     * @param binding the atom bound to each of the rule's variables, or zero if the variable is unbound (ids are stored plus one)
+     * @param deltaGoal the goal limited to the previous round's new rows, or -1 to use every row for every goal
+     */
+    private void join(DatalogRule rule, int goal, int[] binding, int deltaGoal) {
+        if (goal == rule.getNumberOfGoals()) {  //If every goal is satisfied, record the head
+            int[] terms = rule.getHeadTerms();
+            int[] row = new int[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                row[i] = terms[i] >= 0 ? terms[i] : binding[-terms[i] - 1] - 1;
+            }
+            if (!all.get(rule.getHead()).contains(row)) {  //If the row is new
+                next.get(rule.getHead()).add(row);
+            }
+            return;
+        }
+        Relation relation = getRelation(rule.getGoal(goal), goal == deltaGoal);
+        if (relation == null) {  //If nothing can satisfy the goal
+            return;
+        }
+        int[] terms = rule.getGoalTerms(goal);
+        int[] atoms = new int[terms.length];  //The atom bound to each argument, used to narrow the rows
+        for (int i = 0; i < terms.length; i++) {
+            atoms[i] = terms[i] >= 0 ? terms[i] : binding[-terms[i] - 1] - 1;
+        }
+        IntList candidates = relation.getCandidates(atoms);
+        int[] bound = new int[terms.length];  //The variables bound by the current row
+        for (int c = 0; c < candidates.size(); c++) {  //Iterate through the rows that could match
+            int row = candidates.get(c);
+            int count = 0;
+            boolean matches = true;
+            for (int i = 0; i < terms.length && matches; i++) {  //Match each argument
+                int value = relation.getValue(row, i);
+                if (atoms[i] >= 0) {  //If the argument was bound before this goal
+                    matches = atoms[i] == value;
+                } else {
+                    int slot = -terms[i] - 1;
+                    if (binding[slot] == 0) {  //If the variable is still unbound, bind it to the row's atom
+                        binding[slot] = value + 1;
+                        bound[count] = slot;
+                        count++;
+                    } else {  //If the variable appears twice in the goal, the atoms must match
+                        matches = binding[slot] - 1 == value;
+                    }
+                }
+            }
+            if (matches) {
+                join(rule, goal + 1, binding, deltaGoal);
+            }
+            for (int i = 0; i < count; i++) {  //Unbind the variables bound by the row
+                binding[bound[i]] = 0;
+            }
+        }
+    }
+
+    /*
+     * Gets the rows a goal is matched against
+     * @param procedure the procedure the goal calls
+     * @param useDelta true to use only the rows found in the previous round
+     * @return the rows, or null if the procedure has none
+     */
+    private Relation getRelation(Procedure procedure, boolean useDelta) {
+        if (procedure == null) {  //If no clause has the goal's functor and arity
+            return null;
+        } else if (procedure.containsRules()) {  //If the procedure's rows are being derived
+            return useDelta ? delta.get(procedure) : all.get(procedure);
+        }
+        return procedure.getFact();  //The procedure only has facts, which are searched through their own indexes
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * The answer to a query kept by a QueryCache: "true" or "false" for a ground query, or the values of each solution of a
+ * non ground query. A query that only differs in the names of its variables shares the entry, so a value that still
+ * holds one of the query's unbound variables is rewritten with the name the asking query gives the variable at the
+ * same position.
+ */
+public class CachedAnswer {
+    private String atom;  //The answer of a ground query, or "false" if a non ground query has no solutions, otherwise null
+    private ArrayList<String[]> solutions;  //The value of each variable in each solution of a non ground query
+    private String[] names;  //The names of the variables of the query the answer was found for, in the order they first appear
+    private long[] predicates;  //The functor and arity of every procedure the answer depends on (see QueryCache.predicateKey)
+    private long version;  //The number of the program version the answer was computed against
+    private long validFrom;  //The first version the answer holds for, set when it's kept by a cache
+
+    /*
+     * A constructor that keeps the given answer
+     * @param answer the holder returned by resolve, holding an atom or a list of substitutions
+     * @param predicates the procedures the answer depends on
+     * @param version the number of the program version the answer was computed against
+     */
+    public CachedAnswer(PrologHolder answer, long[] predicates, long version) {
+        this.predicates = predicates;
+        this.version = version;
+        validFrom = version;
+        if (answer.getType().equals("atom")) {  //If the answer is true or false
+            atom = answer.getAtom();
+            return;
+        }
+        ArrayList<Substitution> substitutions = answer.getSubstitutions();
+        names = new String[substitutions.size()];
+        for (int j = 0; j < names.length; j++) {
+            names[j] = substitutions.get(j).getName();
+        }
+        solutions = new ArrayList<>();
+        for (int i = 0; i < substitutions.get(0).getSize(); i++) {  //Turn each solution into a row of values
+            String[] values = new String[substitutions.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = substitutions.get(j).getSubstitution(i);
+            }
+            solutions.add(values);
+        }
+    }
+
+    /*
+     * Rebuilds the answer for a query with the given variables
+     * @param names the names of the query's variables, in the order they first appear
+     * @return a new holder equal to the one the answer was made from, using the given names
+     */
+    public PrologHolder toHolder(String[] names) {
+        if (atom != null) {  //If the answer is true or false
+            return new PrologHolder(atom);
+        }
+        boolean renamed = !Arrays.equals(names, this.names);  //Values only need rewriting if the names changed
+        ArrayList<Substitution> substitutions = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {  //Create a substitution for each variable
+            Substitution substitution = new Substitution(names[i]);
+            substitution.setIndex(i);
+            for (String[] values : solutions) {
+                substitution.addSubstitution(renamed ? rename(values[i], names) : values[i]);
+            }
+            substitutions.add(substitution);
+        }
+        return new PrologHolder(substitutions);
+    }
+
+    /*
+     * Rewrites every variable of the query the answer was found for that appears in the given value with the name the
+     * variable at the same position has in another query
+     * A name is only replaced where it's a whole word, so a longer variable, an atom, or a fresh variable such as _G12 is
+     * left alone, and every name is replaced at once, so queries that swap names get the right values.
+     * @param value the value of a variable, as written by the resolver
+     * @param names the names the asking query gives its variables, in the order they first appear
+     * @return the value written with the asking query's names
+     */
+    private String rename(String value, String[] names) {
+        StringBuilder renamed = new StringBuilder();
+        int i = 0;
+        while (i < value.length()) {
+            int end = i;
+            while (end < value.length() && (Character.isLetterOrDigit(value.charAt(end)) || value.charAt(end) == '_')) {  //Find the end of the word
+                end++;
+            }
+            if (end == i) {  //If the character isn't part of a word, copy it
+                renamed.append(value.charAt(i));
+                i++;
+                continue;
+            }
+            String word = value.substring(i, end);
+            int position = -1;
+            for (int j = 0; j < this.names.length && position < 0; j++) {  //Look for a variable of the original query
+                if (this.names[j].equals(word)) {
+                    position = j;
+                }
+            }
+            renamed.append(position < 0 ? word : names[position]);
+            i = end;
+        }
+        return renamed.toString();
+    }
+
+    /*
+     * Gets the procedures the answer depends on
+     * @return the key of each procedure, made by QueryCache.predicateKey
+     */
+    public long[] getPredicates() {
+        return predicates;
+    }
+
+    /*
+     * Gets the number of the program version the answer was computed against
+     * @return the version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /*
+     * Gets the first version the answer holds for
+     * @return the oldest version number a query can be answered from this entry at
+     */
+    public long getValidFrom() {
+        return validFrom;
+    }
+
+    /*
+     * Sets the first version the answer holds for
+     * @param validFrom the newest version that changed a procedure the answer depends on
+     */
+    public void setValidFrom(long validFrom) {
+        this.validFrom = validFrom;
+    }
+}
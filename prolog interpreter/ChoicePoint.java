@@ -0,0 +1,181 @@
+/*
+ * Remembers a goal that has clauses left to try, and the state of the TermStore to return to before trying them
+ */
+public class ChoicePoint {
+    private Procedure procedure;  //The procedure whose clauses are being tried
+    private int[] arguments;  //The goal's arguments within the TermStore
+    private IntList candidates;  //The indices of the fact predicates that could match, or null if the procedure has no facts
+    private AnswerTable answers;  //The answers being tried instead of the clauses when the procedure is tabled, otherwise null
+    private int alternatives;  //The number of clauses to try: the candidate facts followed by every rule
+    private int alternative;  //The index of the next clause to try
+    private Continuation next;  //The goals to solve once a clause succeeds
+    private int top;  //The top of the TermStore when the goal was called
+    private int trailTop;  //The top of the trail when the goal was called
+    private ChoicePoint previous;  //The choice point that was the newest before this one
+    private ProfileNode node;  //The profile node of the goal, or null if the resolver isn't profiling
+
+    /*
+     * A constructor that creates a ChoicePoint for a goal
+     * @param procedure the procedure whose clauses are tried
+     * @param arguments the goal's arguments within the TermStore
+     * @param candidates the indices of the fact predicates that could match, or null if the procedure has no facts
+     * @param next the goals to solve once a clause succeeds
+     * @param top the top of the TermStore
+     * @param trailTop the top of the trail
+     * @param previous the newest choice point before this one, or null if there are none
+     */
+    public ChoicePoint(Procedure procedure, int[] arguments, IntList candidates, Continuation next, int top, int trailTop, ChoicePoint previous) {
+        this.procedure = procedure;
+        this.arguments = arguments;
+        this.candidates = candidates;
+        this.answers = null;
+        this.alternatives = (candidates == null ? 0 : candidates.size()) + procedure.getRules().size();
+        this.alternative = 0;
+        this.next = next;
+        this.top = top;
+        this.trailTop = trailTop;
+        this.previous = previous;
+    }
+
+    /*
+     * A constructor that creates a ChoicePoint that tries the answers found so far for a tabled call
+     * @param procedure the tabled procedure
+     * @param arguments the goal's arguments within the TermStore
+     * @param answers the answer table of the call
+     * @param next the goals to solve once an answer matches
+     * @param top the top of the TermStore
+     * @param trailTop the top of the trail
+     * @param previous the newest choice point before this one, or null if there are none
+     */
+    public ChoicePoint(Procedure procedure, int[] arguments, AnswerTable answers, Continuation next, int top, int trailTop, ChoicePoint previous) {
+        this(procedure, arguments, (IntList) null, next, top, trailTop, previous);
+        this.answers = answers;
+        this.alternatives = 0;  //The answers are counted as they're tried, since the table can grow while it's being used
+    }
+
+    /*
+     * Gets the procedure whose clauses are being tried
+     * @return the procedure
+     */
+    public Procedure getProcedure() {
+        return procedure;
+    }
+
+    /*
+     * Gets the goal's arguments
+     * @return the arguments within the TermStore
+     */
+    public int[] getArguments() {
+        return arguments;
+    }
+
+    /*
+     * Gets the indices of the fact predicates that could match the goal
+     * @return the candidates, or null if the procedure has no facts
+     */
+    public IntList getCandidates() {
+        return candidates;
+    }
+
+    /*
+     * Gets the answer table being tried
+     * @return the answer table, or null if the procedure's clauses are being tried
+     */
+    public AnswerTable getAnswers() {
+        return answers;
+    }
+
+    /*
+     * Determines if there's another clause to try
+     * @return true if not every clause has been tried
+     */
+    public boolean hasAlternative() {
+        if (answers != null) {  //If the choice point tries answers, include any found since it was created
+            return alternative < answers.size();
+        }
+        return alternative < alternatives;
+    }
+
+    /*
+     * Limits the clauses tried to the given range, so the rest can be tried by another resolver
+     * @param from the index of the first clause to try
+     * @param to the index after the last clause to try
+     */
+    public void restrict(int from, int to) {
+        alternative = from;
+        alternatives = Math.min(alternatives, to);
+    }
+
+    /*
+     * Gets the number of clauses the choice point tries
+     * @return the number of candidate facts and rules, or the number of answers found so far for a tabled call
+     */
+    public int getNumberOfAlternatives() {
+        return answers != null ? answers.size() : alternatives;
+    }
+
+    /*
+     * Gets the index of the next clause to try without moving past it
+     * @return the index of the clause, counting the candidate facts first and then the rules
+     */
+    public int peekAlternative() {
+        return alternative;
+    }
+
+    /*
+     * Gets the index of the next clause to try and moves past it
+     * @return the index of the clause, counting the candidate facts first and then the rules
+     */
+    public int nextAlternative() {
+        alternative++;
+        return alternative - 1;
+    }
+
+    /*
+     * Gets the goals to solve once a clause succeeds
+     * @return the continuation, or null if the query is solved once a clause succeeds
+     */
+    public Continuation getNext() {
+        return next;
+    }
+
+    /*
+     * Gets the top of the TermStore when the goal was called
+     * @return the store top to return to
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /*
+     * Gets the top of the trail when the goal was called
+     * @return the trail top to return to
+     */
+    public int getTrailTop() {
+        return trailTop;
+    }
+
+    /*
+     * Gets the choice point that was the newest before this one
+     * @return the previous choice point, or null if there are none
+     */
+    public ChoicePoint getPrevious() {
+        return previous;
+    }
+
+    /*
+     * Gets the profile node of the goal
+     * @return the node, or null if the resolver isn't profiling
+     */
+    public ProfileNode getNode() {
+        return node;
+    }
+
+    /*
+     * Sets the profile node of the goal
+     * @param node the node the goal's clauses are counted in
+     */
+    public void setNode(ProfileNode node) {
+        this.node = node;
+    }
+}
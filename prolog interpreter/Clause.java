@@ -0,0 +1,453 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * The compiled form of a fact, rule, or query, used by the Resolver
+ * The arguments are stored as TermStore terms in a template: atoms are stored as they are, a variable is a REF whose value
+ * is its slot within the clause (so every use of a clause gets its own copy of the variables), and a list is a LIST whose
+ * value is the index of its head and tail cells within the template
+ */
+public class Clause {
+    private static final int LINKED_TABLES = 4;  //The most tables a clause keeps the links of, so queries against a few versions at once don't keep replacing each other's
+
+    private int[] cells;  //The template: the head's arguments, then each goal's arguments, then the cells of any lists
+    private int size;  //The number of cells in use
+    private int arity;  //The number of arguments in the head (zero for a query)
+    private int[] goalFunctors;  //The functor id of each goal in the body
+    private int[] goalArities;  //The arity of each goal in the body
+    private int[] goalOffsets;  //The index of each goal's first argument within the template
+    private IntList variableIds;  //The SymbolTable id of the variable in each slot
+    private int variableCount;  //The number of distinct variables
+    private int[] spans;  //For each argument that is a list whose pairs are consecutive, the number of cells they take up, otherwise 0
+    private boolean[] firstUses;  //For each head argument, true if it's a variable no earlier head argument uses
+    private volatile GoalLinks[] links;  //The procedure each goal calls within each of the tables the clause last ran against, newest first
+
+    /*
+     * A constructor that compiles a clause from a head and a body
+     * @param head the predicate of the head, or null if the clause is a query
+     * @param body the queries that make up the body, in order
+     */
+    public Clause(Predicate head, ArrayList<Query> body) {
+        this(head, body, new ArrayList<>());
+    }
+
+    /*
+     * A constructor that compiles a clause whose goals may have been reordered
+     * @param head the predicate of the head, or null if the clause is a query
+     * @param body the queries that make up the body, in the order they're solved
+     * @param written the queries in the order they were written, whose variables are numbered first so a query's answers
+     *                list its variables in the same order no matter how its goals are solved
+     */
+    public Clause(Predicate head, ArrayList<Query> body, ArrayList<Query> written) {
+        cells = new int[8];
+        size = 0;
+        variableIds = new IntList();
+        for (Query query : written) {  //Number the variables in the order they were written
+            IntList ids = query.getVariableIds();
+            for (int i = 0; i < ids.size(); i++) {
+                compileSymbol(ids.get(i));
+            }
+        }
+        arity = head == null ? 0 : head.getArity();
+        int argumentCount = arity;  //Count every argument so the lists can be placed after them
+        for (Query query : body) {
+            argumentCount += query.getArity();
+        }
+        reserve(argumentCount);
+        size = argumentCount;  //The arguments take up the first cells, the lists go after them
+        if (head != null) {  //If the clause has a head
+            compileArguments(head, 0);
+        }
+        goalFunctors = new int[body.size()];
+        goalArities = new int[body.size()];
+        goalOffsets = new int[body.size()];
+        int offset = arity;
+        for (int i = 0; i < body.size(); i++) {  //Iterate through the goals
+            Query query = body.get(i);
+            goalFunctors[i] = query.getFunctorId();
+            goalArities[i] = query.getArity();
+            goalOffsets[i] = offset;
+            compileArguments(query.getPredicate(), offset);
+            offset += query.getArity();
+        }
+        variableCount = variableIds.size();
+        links = new GoalLinks[0];  //The goals are linked the first time the clause runs
+        link(offset);
+    }
+
+    /*
+     * A constructor that creates a clause with no body from a template made by TermStore.export
+     * @param template the template, whose first cells are the head's arguments
+     * @param arity the number of arguments in the head
+     */
+    public Clause(int[] template, int arity) {
+        cells = template;
+        size = template.length;
+        this.arity = arity;
+        variableIds = new IntList();  //The variables of an exported template have no names
+        variableCount = 0;
+        for (int i = 0; i < size; i++) {  //Count the variables, which are numbered from zero
+            if (TermStore.getTag(cells[i]) == TermStore.REF) {
+                variableCount = Math.max(variableCount, TermStore.getValue(cells[i]) + 1);
+            }
+        }
+        goalFunctors = new int[0];
+        goalArities = new int[0];
+        goalOffsets = new int[0];
+        links = new GoalLinks[0];
+        link(arity);
+    }
+
+    /*
+     * A constructor that copies the given clause with some of its arguments replaced by atoms
+     * @param clause the clause being copied, which isn't changed
+     * @param positions the index of each replaced argument within the template
+     * @param atoms the id of the atom each argument is replaced with
+     */
+    private Clause(Clause clause, int[] positions, int[] atoms) {
+        cells = Arrays.copyOf(clause.cells, clause.size);
+        size = clause.size;
+        arity = clause.arity;
+        goalFunctors = clause.goalFunctors;  //The goals and variables are the same, so they're shared
+        goalArities = clause.goalArities;
+        goalOffsets = clause.goalOffsets;
+        variableIds = clause.variableIds;
+        variableCount = clause.variableCount;
+        spans = clause.spans;  //Only atoms are replaced, so the lists and head variables are the same
+        firstUses = clause.firstUses;
+        links = clause.links;
+        for (int i = 0; i < positions.length; i++) {
+            cells[positions[i]] = TermStore.makeAtom(atoms[i]);
+        }
+    }
+
+    /*
+     * Works out how each argument is built and matched, so resolving a goal doesn't have to look through the template
+     * A list whose pairs are consecutive is copied into the store as one block, and a head variable's first use is bound
+     * to the goal's argument directly instead of being unified with it
+     * @param argumentCount the number of argument cells at the start of the template
+     */
+    private void link(int argumentCount) {
+        spans = new int[argumentCount];
+        for (int i = 0; i < argumentCount; i++) {  //Measure each list
+            if (TermStore.getTag(cells[i]) == TermStore.LIST) {
+                spans[i] = span(TermStore.getValue(cells[i]));
+            }
+        }
+        firstUses = new boolean[arity];
+        boolean[] seen = new boolean[variableCount];  //The slots used by the head arguments checked so far
+        for (int i = 0; i < arity; i++) {  //Iterate through the head's arguments
+            int term = cells[i];
+            if (TermStore.getTag(term) == TermStore.REF) {  //If the argument is a variable
+                firstUses[i] = !seen[TermStore.getValue(term)];
+                seen[TermStore.getValue(term)] = true;
+            } else if (TermStore.getTag(term) == TermStore.LIST) {  //Every variable of a list is used by it
+                markVariables(term, seen);
+            }
+        }
+    }
+
+    /*
+     * Measures the pairs of the list starting at the given cell, if they can be copied as one block
+     * @param first the index of the list's first head cell within the template
+     * @return the number of cells the pairs take up, or 0 if they aren't consecutive or an element is a list
+     */
+    private int span(int first) {
+        int cell = first;
+        while (true) {
+            if (TermStore.getTag(cells[cell]) == TermStore.LIST) {  //If an element is a list it isn't within the block
+                return 0;
+            }
+            int tail = cells[cell + 1];
+            if (TermStore.getTag(tail) != TermStore.LIST) {  //If this is the last pair
+                return cell + 2 - first;
+            } else if (TermStore.getValue(tail) != cell + 2) {  //If the next pair isn't the next two cells
+                return 0;
+            }
+            cell += 2;
+        }
+    }
+
+    /*
+     * Marks the slot of every variable within the given template term
+     * @param term a term from the template
+     * @param seen the slots marked so far
+     */
+    private void markVariables(int term, boolean[] seen) {
+        while (TermStore.getTag(term) == TermStore.LIST) {  //Walk along the tails
+            int cell = TermStore.getValue(term);
+            markVariables(cells[cell], seen);
+            term = cells[cell + 1];
+        }
+        if (TermStore.getTag(term) == TermStore.REF) {
+            seen[TermStore.getValue(term)] = true;
+        }
+    }
+
+    /*
+     * Copies this clause with some of its arguments replaced by atoms, which is how a prepared query is given its parameters
+     * @param positions the index of each replaced argument within the template
+     * @param atoms the id of the atom each argument is replaced with
+     * @return the new clause
+     */
+    public Clause bind(int[] positions, int[] atoms) {
+        return new Clause(this, positions, atoms);
+    }
+
+    /*
+     * Makes sure the template has room for the given number of new cells
+     * @param amount the number of cells about to be used
+     */
+    private void reserve(int amount) {
+        if (size + amount > cells.length) {  //If the template would overflow
+            cells = Arrays.copyOf(cells, Math.max(cells.length * 2, size + amount));
+        }
+    }
+
+    /*
+     * Compiles the arguments of the given predicate into the template
+     * @param predicate the predicate whose arguments are compiled
+     * @param offset the index of the first argument within the template
+     */
+    private void compileArguments(Predicate predicate, int offset) {
+        for (int i = 0; i < predicate.getArity(); i++) {  //Iterate through the arguments
+            int term;
+            if (predicate.isList(i)) {  //If the argument is a list
+                term = compileList(predicate.getList(i), predicate.hasTail(i));
+            } else {  //If the argument is an atom or variable
+                term = compileSymbol(predicate.getAtomId(i));
+            }
+            cells[offset + i] = term;
+        }
+    }
+
+    /*
+     * Compiles the given list into cells at the end of the template
+     * @param list the elements of the list
+     * @param tail true if the last element is the rest of the list
+     * @return the LIST term for the list, or NIL if the list is empty
+     */
+    private int compileList(ListTerm list, boolean tail) {
+        int elements = tail ? list.size() - 1 : list.size();  //The tail isn't an element
+        int end = tail ? compileSymbol(list.get(elements)) : TermStore.NIL;  //What the last cell points to
+        if (elements == 0) {  //If there are no elements
+            return end;
+        }
+        reserve(elements * 2);
+        int first = size;
+        for (int i = 0; i < elements; i++) {  //Iterate through the elements, stopping before the tail
+            cells[first + i * 2] = compileSymbol(list.get(i));  //The head cell
+            cells[first + i * 2 + 1] = i == elements - 1 ? end : TermStore.makeList(first + i * 2 + 2);  //The tail cell points to the next pair
+        }
+        size += elements * 2;
+        return TermStore.makeList(first);
+    }
+
+    /*
+     * Compiles the given atom or variable into a term
+     * @param id the SymbolTable id of the atom or variable
+     * @return an ATOM term, or a REF term holding the variable's slot
+     */
+    private int compileSymbol(int id) {
+        if (!SymbolTable.isVariable(id)) {  //If the id is an atom
+            return TermStore.makeAtom(id);
+        }
+        for (int slot = 0; slot < variableIds.size(); slot++) {  //Look for the variable's slot
+            if (variableIds.get(slot) == id) {
+                return TermStore.makeRef(slot);
+            }
+        }
+        variableIds.add(id);  //Give the variable the next slot
+        return TermStore.makeRef(variableIds.size() - 1);
+    }
+
+    /*
+     * Copies the template term at the given index into the store
+     * @param store the store the term is built in
+     * @param index the index of the term within the template
+     * @param frame the index of the first of this clause's variable cells within the store
+     * @return the term within the store
+     */
+    public int instantiate(TermStore store, int index, int frame) {
+        int term = cells[index];
+        if (index < spans.length && spans[index] > 0) {  //If the argument is a list whose pairs are consecutive, copy them in one block
+            return TermStore.makeList(store.copyCells(cells, TermStore.getValue(term), spans[index], frame));
+        }
+        return copy(store, term, frame);
+    }
+
+    /*
+     * Copies the given template term into the store
+     * @param store the store the term is built in
+     * @param term a term from the template
+     * @param frame the index of the first of this clause's variable cells within the store
+     * @return the term within the store
+     */
+    private int copy(TermStore store, int term, int frame) {
+        int tag = TermStore.getTag(term);
+        if (tag == TermStore.REF) {  //If the term is a variable
+            return TermStore.makeRef(frame + TermStore.getValue(term));  //Point to the variable's cell in the frame
+        } else if (tag == TermStore.LIST) {  //If the term is a list, walk along its tails instead of recursing so long lists fit on the stack
+            IntList heads = new IntList();
+            int cell = TermStore.getValue(term);
+            while (true) {
+                heads.add(copy(store, cells[cell], frame));
+                if (TermStore.getTag(cells[cell + 1]) != TermStore.LIST) {  //If this is the last pair
+                    break;
+                }
+                cell = TermStore.getValue(cells[cell + 1]);
+            }
+            int list = copy(store, cells[cell + 1], frame);  //The empty list or the variable that ends the list
+            for (int i = heads.size() - 1; i >= 0; i--) {  //Build the pairs from the last one back
+                list = store.newList(heads.get(i), list);
+            }
+            return list;
+        }
+        return term;  //Atoms and the empty list are the same everywhere
+    }
+
+    /*
+     * Unifies the head of this clause with the given arguments
+     * @param store the store the arguments are in
+     * @param arguments the arguments of the goal being resolved
+     * @param frame the index of the first of this clause's variable cells within the store
+     * @return true if the head unifies with the arguments
+     */
+    public boolean unifyHead(TermStore store, int[] arguments, int frame) {
+        for (int i = 0; i < arity; i++) {  //Iterate through the head's arguments
+            int term = cells[i];
+            if (TermStore.getTag(term) == TermStore.ATOM) {  //If the argument is an atom, check it without copying
+                int argument = store.deref(arguments[i]);
+                if (argument == term) {  //If the atoms are the same
+                    continue;
+                } else if (TermStore.getTag(argument) == TermStore.REF) {  //If the goal's argument is unbound
+                    store.bind(argument, term);
+                    continue;
+                }
+                return false;
+            } else if (firstUses[i]) {  //If the argument is a variable used for the first time, its cell is new so it can simply be bound
+                store.bind(TermStore.makeRef(frame + TermStore.getValue(term)), store.deref(arguments[i]));  //Bound past any chain, so chains don't grow with each call
+                continue;
+            }
+            if (!store.unify(instantiate(store, i, frame), arguments[i])) {  //If the argument doesn't unify
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Checks the first head argument against a goal's first argument without binding anything, so a clause that can't
+     * match is skipped before a choice point is kept for it
+     * @param first the goal's first argument, dereferenced
+     * @return false if the arguments are different atoms, or an atom, a list, and the empty list that can't be the same
+     */
+    public boolean mightMatch(int first) {
+        if (arity == 0) {  //If the head has no arguments
+            return true;
+        }
+        int term = cells[0];
+        int tag = TermStore.getTag(term);
+        if (tag == TermStore.REF || TermStore.getTag(first) == TermStore.REF) {  //A variable matches anything
+            return true;
+        } else if (tag == TermStore.ATOM) {  //An atom only matches the same atom
+            return term == first;
+        }
+        return tag == TermStore.getTag(first);  //A list matches a list and the empty list matches the empty list
+    }
+
+    /*
+     * Gets the number of arguments in the head
+     * @return the arity of the head, or zero if the clause is a query
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /*
+     * Gets the number of goals in the body
+     * @return the number of goals, or zero if the clause is a fact
+     */
+    public int getNumberOfGoals() {
+        return goalFunctors.length;
+    }
+
+    /*
+     * Gets the functor id of the goal at the given index
+     * @param goal the index of the goal within the body
+     * @return the SymbolTable id of the goal's functor
+     */
+    public int getGoalFunctor(int goal) {
+        return goalFunctors[goal];
+    }
+
+    /*
+     * Gets the arity of the goal at the given index
+     * @param goal the index of the goal within the body
+     * @return the number of arguments of the goal
+     */
+    public int getGoalArity(int goal) {
+        return goalArities[goal];
+    }
+
+    /*
+     * Gets the procedure the goal at the given index calls, linking every goal to its procedure the first time the clause
+     * runs against a table
+     * @param program the table the clause is being solved against
+     * @param goal the index of the goal within the body
+     * @return the procedure, or null if no clause has the goal's functor and arity
+     */
+    public Procedure getGoalProcedure(PredicateTable program, int goal) {
+        GoalLinks[] linked = links;
+        GoalLinks current = null;
+        for (int i = 0; i < linked.length && current == null; i++) {  //Find the links made for this table
+            if (linked[i].isFor(program)) {
+                current = linked[i];
+            }
+        }
+        if (current == null) {  //If the goals haven't been looked up in this table, link them and forget the oldest table
+            current = new GoalLinks(program, this);
+            GoalLinks[] newer = new GoalLinks[Math.min(linked.length + 1, LINKED_TABLES)];  //The array is replaced rather than changed, since other threads may be reading it
+            newer[0] = current;
+            int kept = 1;
+            for (int i = 0; i < linked.length && kept < newer.length; i++) {  //Keep the newest links whose tables are still in use
+                if (!linked[i].isStale()) {
+                    newer[kept] = linked[i];
+                    kept++;
+                }
+            }
+            links = kept == newer.length ? newer : Arrays.copyOf(newer, kept);  //A thread linking another table at the same time may lose these links, which are made again when needed
+        }
+        int index = current.getIndex(goal);
+        if (index < 0) {  //The procedure may have been added since the links were made
+            return program.getProcedure(goalFunctors[goal], goalArities[goal]);
+        }
+        return program.getProcedure(index);
+    }
+
+    /*
+     * Gets the index of the first argument of the goal at the given index within the template
+     * @param goal the index of the goal within the body
+     * @return the index to pass to instantiate for the goal's first argument
+     */
+    public int getGoalOffset(int goal) {
+        return goalOffsets[goal];
+    }
+
+    /*
+     * Gets the number of distinct variables in the clause
+     * @return the number of variable cells each use of the clause needs
+     */
+    public int getNumberOfVariables() {
+        return variableCount;
+    }
+
+    /*
+     * Gets the name of the variable in the given slot
+     * @param slot the slot of the variable
+     * @return the variable's name
+     */
+    public String getVariableName(int slot) {
+        return SymbolTable.getName(variableIds.get(slot));
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/*
+ * Holds rows of ints of a fixed arity as one column per argument, so a row costs only its ints
+ * Each column is split into chunks of CHUNK_SIZE ints, so adding rows never copies a whole column. The first chunk starts
+ * small and doubles until it's full, so a relation with a few rows doesn't pay for a whole chunk.
+ * Adding a row never changes a cell or a chunk another row can be read from (a chunk that grows, or a column that gains
+ * a chunk, is replaced by a copy), so a view made by view keeps seeing the rows it was made with while rows are added.
+ */
+public class ColumnStore {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;  //The number of ints in every chunk but a growing first one
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int arity;  //The number of columns
+    private int[][][] chunks;  //The chunks of each column: chunks[column][chunk][offset]
+    private int size;  //The number of rows
+
+    /*
+     * A constructor that creates an empty ColumnStore
+     * @param arity the number of columns
+     */
+    public ColumnStore(int arity) {
+        this.arity = arity;
+        chunks = new int[arity][1][4];  //Start with room for a few rows
+        size = 0;
+    }
+
+    /*
+     * A constructor that creates a view of another store's rows
+     * @param store the store being viewed
+     */
+    private ColumnStore(ColumnStore store) {
+        arity = store.arity;
+        chunks = store.chunks.clone();  //Share the chunks of each column, but not the array the store replaces them in
+        size = store.size;
+    }
+
+    /*
+     * Adds a row
+     * @param row the value of each column
+     */
+    public void add(int[] row) {
+        int chunk = size >>> CHUNK_BITS;
+        int offset = size & CHUNK_MASK;
+        for (int column = 0; column < arity; column++) {  //Store each value at the end of its column
+            int[][] columnChunks = chunks[column];
+            if (chunk == columnChunks.length) {  //If every chunk is full, add a new one
+                columnChunks = Arrays.copyOf(columnChunks, chunk + 1);
+                columnChunks[chunk] = new int[CHUNK_SIZE];
+                chunks[column] = columnChunks;
+            } else if (offset == columnChunks[chunk].length) {  //If the first chunk is full but still growing
+                columnChunks = columnChunks.clone();  //Views keep the old chunk
+                columnChunks[chunk] = Arrays.copyOf(columnChunks[chunk], offset * 2);
+                chunks[column] = columnChunks;
+            }
+            columnChunks[chunk][offset] = row[column];
+        }
+        size++;
+    }
+
+    /*
+     * Creates a read only view of the rows added so far, which rows added later don't change
+     * The view can be read by other threads once it's safely published, while rows are still being added to this store
+     * @return the view
+     */
+    public ColumnStore view() {
+        return new ColumnStore(this);
+    }
+
+    /*
+     * Gets the value at the given row and column
+     * @param row the index of the row
+     * @param column the index of the column
+     * @return the value
+     */
+    public int get(int row, int column) {
+        return chunks[column][row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    /*
+     * Gets the number of rows
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Gets the number of columns
+     * @return the arity of the rows
+     */
+    public int getArity() {
+        return arity;
+    }
+}
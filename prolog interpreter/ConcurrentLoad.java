@@ -0,0 +1,148 @@
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Runs reader threads that query a PrologInterpreter while a writer thread adds facts to it, for the concurrent benchmark
+ * Each reader asks for the grandchildren of random people and counts the answers, remembering the count it saw for
+ * each person: since parent facts are only ever added, a later query can never see fewer answers than an earlier one.
+ */
+public class ConcurrentLoad implements Runnable {
+    private PrologInterpreter interpreter;  //The interpreter being queried
+    private int people;  //The number of people in the family tree
+    private int readers;  //The number of reader threads
+    private long duration;  //The number of milliseconds to run for
+    private String role;  //"load" for the object that starts the threads, otherwise "reader" or "writer"
+    private ConcurrentLoad load;  //The object that started this thread, which holds the counts
+    private int seed;  //Seeds the random people this thread picks
+    private volatile boolean stopped;  //Indicates if the threads should finish
+    private AtomicLong queries;  //The number of queries answered by every reader
+    private AtomicLong facts;  //The number of facts added by the writer
+    private AtomicLong errors;  //The number of times a reader saw fewer answers than before
+
+    /*
+     * A constructor that creates a ConcurrentLoad given the interpreter and the shape of the load
+     * @param interpreter the interpreter, holding parent facts and a grandparent rule
+     * @param people the number of people in the family tree
+     * @param readers the number of reader threads
+     * @param duration the number of milliseconds to run for
+     */
+    public ConcurrentLoad(PrologInterpreter interpreter, int people, int readers, long duration) {
+        this.interpreter = interpreter;
+        this.people = people;
+        this.readers = readers;
+        this.duration = duration;
+        this.role = "load";
+        this.load = this;
+        this.queries = new AtomicLong();
+        this.facts = new AtomicLong();
+        this.errors = new AtomicLong();
+    }
+
+    /*
+     * A constructor that creates one of the threads of a load
+     * @param load the object that starts the threads
+     * @param role "reader" or "writer"
+     * @param seed seeds the random people the thread picks
+     */
+    private ConcurrentLoad(ConcurrentLoad load, String role, int seed) {
+        this.interpreter = load.interpreter;
+        this.people = load.people;
+        this.role = role;
+        this.load = load;
+        this.seed = seed;
+    }
+
+    /*
+     * Starts the readers and the writer and waits for them to finish, or does the work of one thread
+     */
+    public void run() {
+        if (role.equals("reader")) {
+            read();
+        } else if (role.equals("writer")) {
+            write();
+        } else {
+            Thread[] threads = new Thread[readers + 1];
+            threads[0] = new Thread(new ConcurrentLoad(this, "writer", 0));
+            for (int i = 1; i < threads.length; i++) {
+                threads[i] = new Thread(new ConcurrentLoad(this, "reader", i));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            try {
+                Thread.sleep(duration);
+                stopped = true;
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+            }
+        }
+    }
+
+    /*
+     * Queries the grandchildren of random people until the load is stopped
+     */
+    private void read() {
+        Random random = new Random(seed);
+        long[] seen = new long[people];  //The number of answers last seen for each person
+        long answered = 0;
+        while (!load.stopped) {
+            int person = random.nextInt(people);
+            PrologHolder query = PrologBenchmark.query("grandparent", PrologBenchmark.atomName(person), "Z");
+            long count = 0;
+            for (Iterator<Answer> answers = interpreter.answers(query); answers.hasNext(); answers.next()) {
+                count++;
+            }
+            if (count < seen[person]) {  //If facts the reader saw before are gone
+                load.errors.incrementAndGet();
+            }
+            seen[person] = count;
+            answered++;
+        }
+        load.queries.addAndGet(answered);
+    }
+
+    /*
+     * Adds parent facts between random people until the load is stopped
+     */
+    private void write() {
+        Random random = new Random(seed);
+        long added = 0;
+        while (!load.stopped) {
+            PrologBenchmark.assertFact(interpreter, "parent", PrologBenchmark.atomName(random.nextInt(people)), PrologBenchmark.atomName(random.nextInt(people)));
+            added++;
+            if (added % 100 == 0) {  //Give the readers room to run on machines with few cores
+                Thread.yield();
+            }
+        }
+        load.facts.addAndGet(added);
+    }
+
+    /*
+     * Gets the number of queries answered by every reader
+     * @return the number of queries
+     */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /*
+     * Gets the number of facts the writer added
+     * @return the number of facts
+     */
+    public long getFacts() {
+        return facts.get();
+    }
+
+    /*
+     * Gets the number of times a reader saw fewer answers than before
+     * @return the number of errors, which is zero when every query sees a consistent version of the program
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+}
@@ -27,6 +27,14 @@ public class ConjunctiveQuery {
         return queries.get(index);
     }
 
+    /*
+     * Gets the list of queries
+     * @return the queries in the order they were added
+     */
+    public ArrayList<Query> getQueries() {
+        return queries;
+    }
+
     /*
      * Gets the arity of the conjunctive query
      * @return the number queries within the list
@@ -0,0 +1,122 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Loads a program file into a PrologInterpreter in one pass
+ * The file is read in chunks of lines. Worker threads parse the chunks at the same time, each with its own reusable
+ * ConsultParser, while the calling thread adds each parsed chunk to the program as one batch, in the order the chunks
+ * appear in the file. Only a few chunks are in flight at once, so the whole file is never held in memory.
+ */
+public class ConsultLoader {
+    private static final int CHUNK_LINES = 4096;  //The number of lines parsed as one chunk
+    private static final int CHUNKS_PER_THREAD = 2;  //The number of chunks each worker can have waiting, so workers don't wait for the reader
+
+    private PrologInterpreter interpreter;  //The interpreter the program is loaded into
+    private int threads;  //The number of threads that parse chunks
+    private long clauses;  //The number of clauses loaded so far
+
+    /*
+     * A constructor that creates a ConsultLoader
+     * @param interpreter the interpreter the program is loaded into
+     * @param threads the number of threads that parse chunks, or 1 to parse on the calling thread
+     */
+    public ConsultLoader(PrologInterpreter interpreter, int threads) {
+        if (threads < 1) {  //If there wouldn't be any threads
+            throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+        }
+        this.interpreter = interpreter;
+        this.threads = threads;
+        this.clauses = 0;
+    }
+
+    /*
+     * Loads every fact and rule in the given file. Queries in the file are skipped.
+     * @param path the path of the program file
+     * @return the number of facts and rules added
+     * @throws IOException if the file can't be read
+     */
+    public long consult(String path) throws IOException {
+        clauses = 0;
+        if (threads == 1) {  //If the chunks are parsed on the calling thread
+            ConsultParser parser = new ConsultParser(interpreter);
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(path))) {
+                String chunk;
+                while ((chunk = readChunk(reader)) != null) {
+                    add(parser.parse(chunk));
+                }
+            }
+            return clauses;
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ThreadLocal<ConsultParser> parsers = ThreadLocal.withInitial(() -> new ConsultParser(interpreter));  //One parser per worker
+        ArrayDeque<Future<ArrayList<PrologHolder>>> pending = new ArrayDeque<>();  //The chunks being parsed, oldest first
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path))) {
+            String chunk;
+            while ((chunk = readChunk(reader)) != null) {  //Hand each chunk to a worker
+                String text = chunk;
+                pending.add(workers.submit(() -> parsers.get().parse(text)));
+                if (pending.size() >= threads * CHUNKS_PER_THREAD) {  //If enough chunks are in flight, add the oldest
+                    add(await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {  //Add the chunks that are left
+                add(await(pending.poll()));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return clauses;
+    }
+
+    /*
+     * Reads the next chunk of lines from the given reader
+     * @param reader the reader of the program file
+     * @return up to CHUNK_LINES lines, or null if the file has been read
+     * @throws IOException if the file can't be read
+     */
+    private String readChunk(BufferedReader reader) throws IOException {
+        StringBuilder chunk = new StringBuilder();
+        String line = null;
+        for (int i = 0; i < CHUNK_LINES && (line = reader.readLine()) != null; i++) {
+            chunk.append(line).append('\n');
+        }
+        return chunk.length() == 0 && line == null ? null : chunk.toString();
+    }
+
+    /*
+     * Waits for a worker to finish parsing a chunk
+     * @param parsed the chunk being parsed
+     * @return the holders of the chunk's clauses
+     * @throws IOException if the loading thread is interrupted
+     */
+    private ArrayList<PrologHolder> await(Future<ArrayList<PrologHolder>> parsed) throws IOException {
+        try {
+            return parsed.get();
+        } catch (InterruptedException e) {  //If the loading thread was interrupted
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading");
+        } catch (ExecutionException e) {  //If the worker threw, rethrow its exception on this thread
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /*
+     * Adds the facts and rules of a parsed chunk to the program
+     * @param holders the holders of the chunk's clauses
+     */
+    private void add(ArrayList<PrologHolder> holders) {
+        clauses += interpreter.addClauses(holders);
+    }
+}
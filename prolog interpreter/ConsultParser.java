@@ -0,0 +1,97 @@
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+
+/*
+ * Parses many clauses at once with one lexer, parser and GrammarInterpreter that are reused for every chunk of a file
+ * A chunk is first parsed with ANTLR's faster SLL prediction, giving up at the first error. If that fails, each line
+ * of the chunk is parsed on its own with full LL prediction and error recovery, so a bad line only loses its own clause,
+ * as it would if it were given to evaluateInput. Not thread safe: each loading thread has its own ConsultParser.
+ */
+public class ConsultParser {
+    private PrologInterpreter interpreter;  //Marks the holders of rules and queries that contain variables
+    private PrologLexer lexer;  //Reused for every chunk, null until the first chunk is parsed
+    private CommonTokenStream tokens;
+    private PrologParser parser;
+    private GrammarInterpreter visitor;
+
+    /*
+     * A constructor that creates a ConsultParser
+     * @param interpreter the interpreter the clauses are loaded into
+     */
+    public ConsultParser(PrologInterpreter interpreter) {
+        this.interpreter = interpreter;
+        visitor = new GrammarInterpreter();
+    }
+
+    /*
+     * Parses every clause in the given text
+     * @param text one or more clauses, usually one per line
+     * @return a holder for each clause, in the order they're written
+     */
+    public ArrayList<PrologHolder> parse(String text) {
+        ArrayList<PrologHolder> holders = new ArrayList<>();
+        try {
+            reset(text);
+            lexer.removeErrorListeners();  //Errors are only reported when the lines are parsed again
+            parser.removeErrorListeners();
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());  //Give up at the first error instead of recovering
+            interpret(parser.program(), holders);
+        } catch (ParseCancellationException e) {  //If SLL prediction wasn't enough or the text has an error
+            holders.clear();
+            lexer.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());  //Report errors and recover the way evaluateInput does
+            for (String line : text.split("\n")) {  //Parse each line on its own
+                reset(line);
+                interpret(parser.program(), holders);
+            }
+        }
+        return holders;
+    }
+
+    /*
+     * Interprets every clause of the given parse tree
+     * @param program the parse tree of one or more clauses
+     * @param holders the list the holder of each clause is added to
+     */
+    private void interpret(PrologParser.ProgramContext program, ArrayList<PrologHolder> holders) {
+        for (PrologParser.InputContext input : program.input()) {  //Interpret each clause
+            PrologHolder holder;
+            try {
+                holder = visitor.visit(input);
+            } catch (IllegalArgumentException e) {  //If the clause parsed but isn't allowed, it's skipped and reported like a syntax error
+                System.err.println(e.getMessage());
+                continue;
+            }
+            if (holder != null) {  //If the clause could be interpreted
+                interpreter.markVariables(holder);
+                holders.add(holder);
+            }
+        }
+    }
+
+    /*
+     * Points the lexer and parser at the given text, creating them the first time
+     * @param text the text to parse
+     */
+    private void reset(String text) {
+        if (lexer == null) {  //If this is the first chunk
+            lexer = new PrologLexer(CharStreams.fromString(text));
+            tokens = new CommonTokenStream(lexer);
+            parser = new PrologParser(tokens);
+        } else {
+            lexer.setInputStream(CharStreams.fromString(text));
+            tokens.setTokenSource(lexer);
+            parser.setInputStream(tokens);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The goals that are left to solve, stored as a linked list that shares its tail with the goals of the clause that called it
+ */
+public class Continuation {
+    private Clause clause;  //The clause whose body holds the goal
+    private int goal;  //The index of the goal within the clause's body
+    private int frame;  //The index of the first of the clause's variable cells within the TermStore
+    private Continuation next;  //The goals to solve once every goal of this clause is solved
+    private ProfileNode node;  //The profile node of the call the clause was chosen for, or null if the resolver isn't profiling
+
+    /*
+     * A constructor that creates a Continuation
+     * @param clause the clause whose body holds the goal
+     * @param goal the index of the goal within the clause's body
+     * @param frame the index of the first of the clause's variable cells within the TermStore
+     * @param next the goals to solve after the rest of this clause's body, or null if there are none
+     */
+    public Continuation(Clause clause, int goal, int frame, Continuation next) {
+        this(clause, goal, frame, next, null);
+    }
+
+    /*
+     * A constructor that creates a Continuation whose goals are profiled as calls from the given node
+     * @param clause the clause whose body holds the goal
+     * @param goal the index of the goal within the clause's body
+     * @param frame the index of the first of the clause's variable cells within the TermStore
+     * @param next the goals to solve after the rest of this clause's body, or null if there are none
+     * @param node the profile node of the call the clause was chosen for, or null if the resolver isn't profiling
+     */
+    public Continuation(Clause clause, int goal, int frame, Continuation next, ProfileNode node) {
+        this.clause = clause;
+        this.goal = goal;
+        this.frame = frame;
+        this.next = next;
+        this.node = node;
+    }
+
+    /*
+     * Gets the clause whose body holds the goal
+     * @return the clause
+     */
+    public Clause getClause() {
+        return clause;
+    }
+
+    /*
+     * Gets the index of the goal within the clause's body
+     * @return the index of the goal
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    /*
+     * Gets the index of the first of the clause's variable cells
+     * @return the clause's frame within the TermStore
+     */
+    public int getFrame() {
+        return frame;
+    }
+
+    /*
+     * Gets the goals to solve after the rest of this clause's body
+     * @return the next continuation, or null if there are none
+     */
+    public Continuation getNext() {
+        return next;
+    }
+
+    /*
+     * Gets the profile node the clause's goals are called from
+     * @return the node of the call the clause was chosen for, or null if the resolver isn't profiling
+     */
+    public ProfileNode getNode() {
+        return node;
+    }
+}
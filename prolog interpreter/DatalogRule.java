@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+
+/*
+ * A rule compiled for the BottomUpEvaluator
+ * Every argument is stored as an int: an atom is its id, and a variable is a negative number, -1 for the rule's first
+ * variable, -2 for its second, and so on
+ */
+public class DatalogRule {
+    private Procedure head;  //The procedure the rule derives rows for
+    private int[] headTerms;  //The arguments of the head
+    private Procedure[] goals;  //The procedure each goal calls, or null if no clause has the goal's functor and arity
+    private int[][] goalTerms;  //The arguments of each goal
+    private int variableCount;  //The number of distinct variables in the rule
+
+    /*
+     * A constructor that compiles a rule whose arguments are all atoms and variables
+     * @param program the program holding the rule
+     * @param rule the rule being compiled
+     */
+    public DatalogRule(PredicateTable program, PrologRule rule) {
+        IntList variables = new IntList();  //The id of each variable, in the order they're numbered
+        Predicate headPredicate = rule.getHead().getPredicate(0);
+        head = program.getProcedure(rule.getHead().getFunctorId(), headPredicate.getArity());
+        headTerms = compile(headPredicate, variables);
+        ArrayList<Query> body = new ArrayList<>();
+        if (rule.getType().equals("simple query")) {  //If the body is a single query
+            body.add(rule.getSimpleBody());
+        } else {  //If the body is a conjunctive query
+            body = rule.getConjunctiveBody().getQueries();
+        }
+        goals = new Procedure[body.size()];
+        goalTerms = new int[body.size()][];
+        for (int i = 0; i < body.size(); i++) {  //Compile each goal
+            Query query = body.get(i);
+            goals[i] = program.getProcedure(query.getFunctorId(), query.getArity());
+            goalTerms[i] = compile(query.getPredicate(), variables);
+        }
+        variableCount = variables.size();
+    }
+
+    /*
+     * Compiles the arguments of the given predicate
+     * @param predicate the predicate being compiled
+     * @param variables the ids of the variables numbered so far, which new variables are added to
+     * @return the compiled arguments
+     */
+    private static int[] compile(Predicate predicate, IntList variables) {
+        int[] terms = new int[predicate.getArity()];
+        for (int i = 0; i < terms.length; i++) {  //Iterate through the arguments
+            int id = predicate.getAtomId(i);
+            if (!SymbolTable.isVariable(id)) {  //If the argument is an atom
+                terms[i] = id;
+                continue;
+            }
+            int slot = 0;
+            while (slot < variables.size() && variables.get(slot) != id) {  //Look for the variable's number
+                slot++;
+            }
+            if (slot == variables.size()) {  //If this is the variable's first use
+                variables.add(id);
+            }
+            terms[i] = -slot - 1;
+        }
+        return terms;
+    }
+
+    /*
+     * Determines if the given rule can be evaluated bottom up: it holds no lists, and every variable in its head also
+     * appears in its body, so every row it derives is made of atoms
+     * @param rule the rule being checked
+     * @return true if the rule is a Datalog rule
+     */
+    public static boolean isDatalog(PrologRule rule) {
+        Predicate headPredicate = rule.getHead().getPredicate(0);
+        ArrayList<Query> body = new ArrayList<>();
+        if (rule.getType().equals("simple query")) {
+            body.add(rule.getSimpleBody());
+        } else {
+            body = rule.getConjunctiveBody().getQueries();
+        }
+        IntList bodyVariables = new IntList();
+        for (Query query : body) {  //Collect the body's variables and make sure it holds no lists
+            if (query.getPredicate().containsList()) {
+                return false;
+            }
+            IntList ids = query.getVariableIds();
+            for (int i = 0; i < ids.size(); i++) {
+                bodyVariables.add(ids.get(i));
+            }
+        }
+        if (headPredicate.containsList()) {  //If the head holds a list
+            return false;
+        }
+        for (int i = 0; i < headPredicate.getArity(); i++) {  //Make sure every head variable is bound by the body
+            int id = headPredicate.getAtomId(i);
+            if (SymbolTable.isVariable(id)) {
+                boolean bound = false;
+                for (int j = 0; j < bodyVariables.size() && !bound; j++) {
+                    bound = bodyVariables.get(j) == id;
+                }
+                if (!bound) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Gets the procedure the rule derives rows for
+     * @return the head's procedure
+     */
+    public Procedure getHead() {
+        return head;
+    }
+
+    /*
+     * Gets the arguments of the head
+     * @return the compiled head arguments
+     */
+    public int[] getHeadTerms() {
+        return headTerms;
+    }
+
+    /*
+     * Gets the number of goals in the body
+     * @return the number of goals
+     */
+    public int getNumberOfGoals() {
+        return goals.length;
+    }
+
+    /*
+     * Gets the procedure the goal at the given index calls
+     * @param goal the index of the goal
+     * @return the procedure, or null if no clause has the goal's functor and arity
+     */
+    public Procedure getGoal(int goal) {
+        return goals[goal];
+    }
+
+    /*
+     * Gets the arguments of the goal at the given index
+     * @param goal the index of the goal
+     * @return the compiled goal arguments
+     */
+    public int[] getGoalTerms(int goal) {
+        return goalTerms[goal];
+    }
+
+    /*
+     * Gets the number of distinct variables in the rule
+     * @return the number of variables
+     */
+    public int getNumberOfVariables() {
+        return variableCount;
+    }
+}
@@ -1,8 +1,23 @@
-import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * Holds the predicates of a fact clause by clause
+ * Every predicate is stored as a row of atom ids in a ColumnStore, one column per argument, so a ground predicate costs
+ * only its ids. The few predicates that hold variables or lists (or whose arity differs from the first one) also keep
+ * their Predicate, since their ids alone don't describe them.
+ * Predicates are only ever added to the end, so a snapshot of a fact is a view of the predicates it held when it was
+ * taken. A snapshot can be searched by any number of threads while predicates are added to the fact it was taken from.
+ */
+public class Fact implements Relation {
+    private static final int INDEX_THRESHOLD = 8;  //Facts with fewer predicates than this are scanned instead of indexed
 
-public class Fact {
     private String functor;
-    private ArrayList<Predicate> predicates;
+    private int functorId;  //The id of the functor in the SymbolTable
+    private ColumnStore columns;  //The atom ids of every predicate (variables and lists are negative), null until the first predicate is added
+    private IntList complexRows;  //The index of each predicate that isn't a ground predicate of the usual arity, in order
+    private Predicate[] complexPredicates;  //The predicate at each of those indices
+    private IntList allPredicates;  //The index of every predicate, used when no argument index applies
+    private FactIndex indexes;  //The argument indexes, shared with every snapshot of the fact
 
     /*
      * A constructor that creates a Fact given a functor
@@ -10,7 +25,34 @@ public class Fact {
      */
     public Fact(String functor) {
         this.functor = functor;  //initializes the functor
-        this.predicates = new ArrayList<Predicate>();  //Creates an array list of Predicates
+        this.functorId = SymbolTable.intern(functor);  //Interns the functor
+        this.columns = null;  //The arity is taken from the first predicate
+        this.complexRows = new IntList();  //Creates the list of predicates that can't be stored as ids alone
+        this.complexPredicates = new Predicate[0];
+        this.allPredicates = new IntList();  //Creates the list of every predicate index
+        this.indexes = new FactIndex();  //No argument has been indexed yet
+    }
+
+    /*
+     * A constructor that creates a snapshot of the given fact
+     * @param fact the fact the snapshot is taken of
+     */
+    private Fact(Fact fact) {
+        functor = fact.functor;
+        functorId = fact.functorId;
+        columns = fact.columns == null ? null : fact.columns.view();
+        complexRows = fact.complexRows.view();
+        complexPredicates = fact.complexPredicates;  //Only slots past the view's predicates are ever written
+        allPredicates = fact.allPredicates.view();
+        indexes = fact.indexes;
+    }
+
+    /*
+     * Takes a snapshot of the predicates added so far, which predicates added later don't change
+     * @return a fact holding the same predicates, which must not be added to
+     */
+    public Fact snapshot() {
+        return new Fact(this);
     }
 
     /*
@@ -18,25 +60,251 @@ public class Fact {
      * @param predicate the predicate being added to the list
      */
     public void addPredicate(Predicate predicate) {
-        predicates.add(predicate);
+        if (columns == null) {  //If this is the first predicate, it sets the arity of the columns
+            columns = new ColumnStore(predicate.getArity());
+        }
+        int[] row = new int[columns.getArity()];
+        for (int i = 0; i < row.length; i++) {  //Copy the ids, padding a shorter predicate with LIST so it's never matched by an atom
+            row[i] = i < predicate.getArity() ? predicate.getAtomId(i) : Predicate.LIST;
+        }
+        if (!predicate.isGround() || predicate.getArity() != row.length) {  //If the ids alone don't describe the predicate
+            if (complexRows.size() == complexPredicates.length) {  //If the array is full, replace it so snapshots keep the old one
+                complexPredicates = Arrays.copyOf(complexPredicates, Math.max(4, complexRows.size() * 2));
+            }
+            complexPredicates[complexRows.size()] = predicate;  //Keep the predicate itself
+            complexRows.add(columns.size());
+        }
+        addRow(row);
+    }
+
+    /*
+     * Adds a ground predicate given the ids of its atoms, without creating a Predicate
+     * @param row the id of the atom at each argument position, which must hold as many ids as the first predicate added
+     */
+    public void addRow(int[] row) {
+        if (columns == null) {  //If this is the first predicate, it sets the arity of the columns
+            columns = new ColumnStore(row.length);
+        }
+        int index = columns.size();  //The index the predicate will be placed at
+        columns.add(row);  //Store its ids (the argument indexes catch up the next time they're used)
+        allPredicates.add(index);  //Add its index to the list of every predicate
+    }
+
+    /*
+     * Gets the indices of the predicates that could match the given query, in clause order
+     * @param query a query with the same functor and arity as this fact
+     * @return a sorted list of the indices of the candidate predicates
+     */
+    public IntList getCandidates(Query query) {
+        int[] atoms = new int[query.getArity()];  //The id of each argument (variables and lists are negative)
+        for (int i = 0; i < atoms.length; i++) {  //Iterate through the query's arguments
+            atoms[i] = query.getAtomId(i);
+        }
+        return getCandidates(atoms);
+    }
+
+    /*
+     * Gets the indices of the predicates that could match a goal whose arguments are the given atoms, in clause order
+     * The argument indexes are probed for every position bound to an atom (starting with the first argument),
+     * and the smallest candidate list is returned. An index is built the first time a goal binds its position, and
+     * extended when predicates have been added since.
+     * @param atoms the id of the atom bound to each argument, or a negative number if the argument isn't bound to an atom
+     * @return a sorted list of the indices of the candidate predicates
+     */
+    @Override
+    public IntList getCandidates(int[] atoms) {
+        IntList candidates = allPredicates;  //Start with every predicate
+        if (getNumberOfPredicates() < INDEX_THRESHOLD || atoms.length != columns.getArity()) {  //If the fact is too small to index or the arity doesn't match
+            return candidates;  //Scan every predicate
+        }
+        for (int i = 0; i < atoms.length; i++) {  //Iterate through the arguments
+            int atom = atoms[i];  //Get the id of the atom at index i
+            if (atom < 0) {  //If the argument is unbound or isn't an atom
+                continue;  //It can't be used to narrow the search
+            }
+            ArgumentIndex[] segments = getSegments(i);  //Get the index for this position, building it if needed
+            if (count(segments, atom) < candidates.size()) {  //If this position narrows the search further
+                candidates = lookup(segments, atom);  //Use its candidates
+                if (candidates.size() <= 1) {  //If there's at most one candidate left
+                    break;  //No other position can do better
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /*
+     * Estimates how many predicates match a goal that binds the given argument positions, assuming the atoms at each
+     * position are spread evenly across the predicates
+     * @param bound indicates which argument positions the goal binds
+     * @return the estimated number of matching predicates
+     */
+    public long estimate(boolean[] bound) {
+        long estimate = getNumberOfPredicates();  //With nothing bound, every predicate matches
+        if (estimate < INDEX_THRESHOLD) {  //If the fact is too small to index, it's scanned anyway
+            return estimate;
+        }
+        for (int i = 0; i < bound.length; i++) {  //Iterate through the bound positions
+            if (bound[i]) {
+                int keys = 0;  //Get the number of distinct atoms at the position, as seen by its largest segment
+                for (ArgumentIndex segment : getSegments(i)) {
+                    keys = Math.max(keys, segment.getNumberOfKeys());
+                }
+                if (keys > 0) {
+                    estimate = Math.min(estimate, (getNumberOfPredicates() + keys - 1) / keys);  //The average number of predicates per atom
+                }
+            }
+        }
+        return estimate;
+    }
+
+    /*
+     * Gets the index segments for the given argument position, indexing any predicates they don't cover yet (see FactIndex)
+     * The last segment can cover predicates added after this snapshot was taken, which lookup leaves out
+     * @param position the argument position being indexed
+     * @return the segments of the argument position, in order
+     */
+    public ArgumentIndex[] getSegments(int position) {
+        return indexes.getSegments(position, columns);
+    }
+
+    /*
+     * Determines if the hash index for the given argument position has been built
+     * @param position the argument position
+     * @return true if a query has bound the position since the fact was created
+     */
+    public boolean isIndexed(int position) {
+        return indexes.isIndexed(position);
+    }
+
+    /*
+     * Counts the predicates of this snapshot the given segments hold for the given atom
+     * The count leaves out predicates added after this snapshot, which the last segment can cover once a newer snapshot
+     * has extended the index, so every search of the snapshot picks the same position however far the index has grown
+     * @param segments the segments of an argument position
+     * @param atom the id of a constant at the position
+     * @return the number of candidate predicates, the size of the list lookup returns
+     */
+    private int count(ArgumentIndex[] segments, int atom) {
+        int size = columns.size();
+        int count = 0;
+        for (ArgumentIndex segment : segments) {
+            if (segment.getFrom() >= size) {  //If the rest were added after this snapshot
+                break;
+            }
+            count += segment.getTo() <= size ? segment.count(atom) : segment.count(atom, size);
+        }
+        return count;
+    }
+
+    /*
+     * Gets the indices of the predicates of this snapshot the given segments hold for the given atom, in clause order
+     * @param segments the segments of an argument position
+     * @param atom the id of a constant at the position
+     * @return a sorted list of predicate indices
+     */
+    private IntList lookup(ArgumentIndex[] segments, int atom) {
+        int size = columns.size();
+        if (segments.length == 1 && segments[0].getTo() == size) {  //If one segment covers exactly this snapshot
+            return segments[0].lookup(atom);
+        }
+        IntList candidates = new IntList();
+        for (ArgumentIndex segment : segments) {  //The segments are in order, so joining them keeps the candidates sorted
+            if (segment.getFrom() >= size) {  //If the rest were added after this snapshot
+                break;
+            }
+            IntList bucket = segment.lookup(atom);
+            for (int i = 0; i < bucket.size() && bucket.get(i) < size; i++) {
+                candidates.add(bucket.get(i));
+            }
+        }
+        return candidates;
+    }
+
+    /*
+     * Gets the id of the atom at the given argument position of the predicate at the given index
+     * @param row the index of the predicate
+     * @param column the argument position
+     * @return the atom id, or a negative number if the predicate holds a variable or list there
+     */
+    @Override
+    public int getValue(int row, int column) {
+        return columns.get(row, column);
+    }
+
+    /*
+     * Determines if the predicate at the given index only holds atoms, so its ids can be matched directly
+     * @param index the index of the predicate
+     * @return true if the predicate is ground and has the same arity as the columns
+     */
+    public boolean isGround(int index) {
+        return complexRows.size() == 0 || getComplex(index) == null;
+    }
+
+    /*
+     * Gets the predicate kept for the given index, if it isn't a ground predicate of the usual arity
+     * @param index the index of the predicate
+     * @return the predicate, or null if its ids describe it
+     */
+    private Predicate getComplex(int index) {
+        int low = 0;
+        int high = complexRows.size() - 1;
+        while (low <= high) {  //Search the sorted indices
+            int middle = (low + high) >>> 1;
+            int row = complexRows.get(middle);
+            if (row < index) {
+                low = middle + 1;
+            } else if (row > index) {
+                high = middle - 1;
+            } else {
+                return complexPredicates[middle];
+            }
+        }
+        return null;
     }
 
     /*
      * Gets the predicate at the given index
+     * A ground predicate is rebuilt from its ids, so each call returns a new Predicate
      * @param index the index of the desired predicate
      * @return the predicate at the given index
      */
     public Predicate getPredicate(int index) {
-        return predicates.get(index);
+        Predicate predicate = complexRows.size() == 0 ? null : getComplex(index);
+        if (predicate != null) {  //If the predicate was kept as it was added
+            return predicate;
+        }
+        predicate = new Predicate();
+        for (int i = 0; i < columns.getArity(); i++) {  //Copy its ids out of the columns
+            predicate.addAtomId(columns.get(index, i));
+        }
+        return predicate;
     }
 
     /*
-     * Gets the index of a given predicate
+     * Gets the index of the first predicate that holds the same arguments as the given predicate
      * @param predicate the predicate whose index will be found
-     * @return the index of the predicate
+     * @return the index of the predicate, or -1 if no predicate matches
      */
     public int getIndex(Predicate predicate) {
-        return predicates.indexOf(predicate);
+        for (int i = 0; i < getNumberOfPredicates(); i++) {  //Iterate through the predicates
+            if (!isGround(i)) {  //If the predicate was kept, compare it as a whole
+                if (getComplex(i) == predicate) {
+                    return i;
+                }
+                continue;
+            }
+            if (predicate.isGround() && predicate.getArity() == columns.getArity()) {  //If the ids can be compared
+                int j = 0;
+                while (j < columns.getArity() && columns.get(i, j) == predicate.getAtomId(j)) {
+                    j++;
+                }
+                if (j == columns.getArity()) {  //If every id matched
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
 
     /*
@@ -47,8 +315,21 @@ public class Fact {
         return functor;
     }
 
+    /*
+     * Gets the id of the functor
+     * @return the functor's id in the SymbolTable
+     */
+    public int getFunctorId() {
+        return functorId;
+    }
+
+    /*
+     * Gets the arity of the predicate at the given index
+     * @param index the index of the predicate
+     * @return the number of arguments of the predicate
+     */
     public int getArity(int index) {
-        return predicates.get(index).getArity();
+        return isGround(index) ? columns.getArity() : getComplex(index).getArity();
     }
 
     /*
@@ -56,6 +337,6 @@ public class Fact {
      * @return the number of predicates within the list
      */
     public int getNumberOfPredicates() {
-        return predicates.size();
+        return columns == null ? 0 : columns.size();
     }
 }
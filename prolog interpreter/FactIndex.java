@@ -0,0 +1,92 @@
+/*
+ * The argument indexes of a fact, shared by the fact and every snapshot of it
+ * Each argument position is indexed by a list of ArgumentIndex segments that cover consecutive ranges of predicates
+ * from the first one. Predicates are only ever added to the end of a fact, so a segment stays correct for every snapshot
+ * that holds its range, and a snapshot that holds more predicates than the segments cover adds a segment for the rest.
+ * Whenever the newest segment is at least half the size of the one before it the two are rebuilt as one, so a position
+ * has a logarithmic number of segments and each predicate is only indexed a logarithmic number of times, however the
+ * predicates and the queries are interleaved.
+ */
+public class FactIndex {
+    private volatile ArgumentIndex[][] segments;  //The segments of each argument position in order, null until a query binds that position (replaced, never changed)
+
+    /*
+     * A constructor that creates a FactIndex with no segments
+     */
+    public FactIndex() {
+        segments = new ArgumentIndex[0][];
+    }
+
+    /*
+     * Gets the segments of the given argument position, indexing any predicates of the given columns they don't cover
+     * @param position the argument position
+     * @param columns the atom ids of the predicates the caller can see
+     * @return the segments in order, which cover at least every predicate of the columns
+     */
+    public ArgumentIndex[] getSegments(int position, ColumnStore columns) {
+        ArgumentIndex[][] current = segments;
+        if (position < current.length && current[position] != null) {  //If the position has been indexed
+            ArgumentIndex[] indexed = current[position];
+            if (indexed[indexed.length - 1].getTo() >= columns.size()) {  //If the segments cover the caller's predicates
+                return indexed;
+            }
+        }
+        return extend(position, columns);
+    }
+
+    /*
+     * Adds a segment for the predicates the given position's segments don't cover, merges segments of similar sizes,
+     * and publishes the result in a new copy of the array of segments, so a thread reading them never sees a segment
+     * that's only partly built
+     * @param position the argument position
+     * @param columns the atom ids of the predicates the caller can see
+     * @return the segments in order, which cover every predicate of the columns
+     */
+    private synchronized ArgumentIndex[] extend(int position, ColumnStore columns) {
+        ArgumentIndex[] indexed = position < segments.length ? segments[position] : null;
+        int covered = indexed == null ? 0 : indexed[indexed.length - 1].getTo();
+        if (covered >= columns.size()) {  //If another thread covered them first
+            return indexed;
+        }
+        int count = indexed == null ? 0 : indexed.length;
+        ArgumentIndex[] grown = new ArgumentIndex[count + 1];
+        if (indexed != null) {
+            System.arraycopy(indexed, 0, grown, 0, count);
+        }
+        grown[count] = new ArgumentIndex(columns, position, covered, columns.size());  //Index the rest
+        count++;
+        while (count > 1 && size(grown[count - 2]) <= 2 * size(grown[count - 1])) {  //Merge the newest segments while they're a similar size
+            grown[count - 2] = new ArgumentIndex(columns, position, grown[count - 2].getFrom(), grown[count - 1].getTo());
+            count--;
+        }
+        if (count < grown.length) {
+            ArgumentIndex[] merged = new ArgumentIndex[count];
+            System.arraycopy(grown, 0, merged, 0, count);
+            grown = merged;
+        }
+        ArgumentIndex[][] published = new ArgumentIndex[Math.max(segments.length, position + 1)][];  //Create a copy with room for this position
+        System.arraycopy(segments, 0, published, 0, segments.length);
+        published[position] = grown;
+        segments = published;  //Replace the array
+        return grown;
+    }
+
+    /*
+     * Gets the number of predicates a segment covers
+     * @param segment the segment
+     * @return the size of its range
+     */
+    private static int size(ArgumentIndex segment) {
+        return segment.getTo() - segment.getFrom();
+    }
+
+    /*
+     * Determines if the given argument position has been indexed
+     * @param position the argument position
+     * @return true if a query has bound the position
+     */
+    public boolean isIndexed(int position) {
+        ArgumentIndex[][] current = segments;
+        return position < current.length && current[position] != null;
+    }
+}
@@ -0,0 +1,52 @@
+import java.lang.ref.WeakReference;
+
+/*
+ * The procedure each goal of a clause calls within one table, looked up once so calling a goal doesn't search the table
+ * A table never moves a procedure it holds to another index, so a link stays correct for as long as the table is used.
+ * A goal whose procedure doesn't exist yet has no link and is looked up again when it's called. Links are never changed
+ * once they're made, so threads solving against the same table can share them. The table is only held weakly and each
+ * procedure is linked by its index, so links left on a clause don't keep an old version of the program in memory.
+ */
+public class GoalLinks {
+    private WeakReference<PredicateTable> program;  //The table the goals were looked up in, cleared once nothing else uses it
+    private int[] indexes;  //The index in the table of the procedure each goal calls, or -1 if the table doesn't hold it
+
+    /*
+     * A constructor that looks up the procedure of every goal of the given clause
+     * @param program the table the clause is being solved against
+     * @param clause the clause whose goals are linked
+     */
+    public GoalLinks(PredicateTable program, Clause clause) {
+        this.program = new WeakReference<>(program);
+        indexes = new int[clause.getNumberOfGoals()];
+        for (int i = 0; i < indexes.length; i++) {  //Look up each goal
+            indexes[i] = program.indexOf(clause.getGoalFunctor(i), clause.getGoalArity(i));
+        }
+    }
+
+    /*
+     * Determines if the links were made for the given table
+     * @param program the table a goal is being solved against
+     * @return true if the goals were looked up in the same table
+     */
+    public boolean isFor(PredicateTable program) {
+        return this.program.get() == program;
+    }
+
+    /*
+     * Determines if the table the links were made for is gone, so they can't be used again
+     * @return true if the table has been garbage collected
+     */
+    public boolean isStale() {
+        return program.get() == null;
+    }
+
+    /*
+     * Gets the index of the procedure the goal at the given index calls
+     * @param goal the index of the goal within the body
+     * @return the index of the procedure in the table, or -1 if the table didn't hold it when the links were made
+     */
+    public int getIndex(int goal) {
+        return indexes[goal];
+    }
+}
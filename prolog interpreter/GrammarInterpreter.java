@@ -1,14 +1,39 @@
-import java.util.ArrayList;
-import java.util.LinkedList;
+import org.antlr.v4.runtime.Token;
 
 public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
+    private boolean parameters;  //Indicates if a question mark can be a parameter, which is only true for prepared queries
+
+    /*
+     * A constructor that creates a GrammarInterpreter that rejects parameters
+     */
+    public GrammarInterpreter() {
+        this(false);
+    }
+
+    /*
+     * A constructor that creates a GrammarInterpreter
+     * @param parameters true if question marks are parameters, as in the template of a prepared query
+     */
+    public GrammarInterpreter(boolean parameters) {
+        this.parameters = parameters;
+    }
+
+    /*
+     * Interns the given atom or variable in the SymbolTable
+     * @param name the text of an atom or variable
+     * @return a holder with the table's copy of the name, so every occurrence of a name shares one String, and its id
+     */
+    private PrologHolder intern(String name) {
+        int id = SymbolTable.intern(name);
+        return new PrologHolder(SymbolTable.getName(id), id);
+    }
 
     /*
      * Interprets an atom within a list
      * @return an atom within a prologHolder
      */
     public PrologHolder visitListAtom(PrologParser.ListAtomContext ctx) {
-        return new PrologHolder(ctx.ATOM().getText());  //Returns the atom within a holder
+        return intern(ctx.ATOM().getText());  //Returns the interned atom within a holder
     }
 
     /*
@@ -16,7 +41,7 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return a variable within a prologHolder
      */
     public PrologHolder visitListVariable(PrologParser.ListVariableContext ctx) {
-        PrologHolder holder = new PrologHolder(ctx.VARIABLE().getText());  //Gets the variable and places it into a holder
+        PrologHolder holder = intern(ctx.VARIABLE().getText());  //Gets the interned variable and places it into a holder
         holder.changeToVariable();  //Change the holder to indicate that it's holding a variable
         return holder;  //Returns the variable within a holder
     }
@@ -26,7 +51,7 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return an atom within a prologHolder
      */
     public PrologHolder visitMiddleListAtom(PrologParser.MiddleListAtomContext ctx) {
-        return new PrologHolder(ctx.ATOM().getText());  //Returns the atom within a holder
+        return intern(ctx.ATOM().getText());  //Returns the interned atom within a holder
     }
 
     /*
@@ -34,17 +59,17 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return a variable within a prologHolder
      */
     public PrologHolder visitMiddleListVariable(PrologParser.MiddleListVariableContext ctx) {
-        PrologHolder holder = new PrologHolder(ctx.VARIABLE().getText());  //Gets the variable and places it into a holder
+        PrologHolder holder = intern(ctx.VARIABLE().getText());  //Gets the interned variable and places it into a holder
         holder.changeToVariable();  //Change the holder to indicate that it's holding a variable
         return holder;  //Returns the variable within a holder
     }
 
     /*
      * Interprets an empty list
-     * @return null to signify an empty list
+     * @return an empty list within a prologHolder
      */
     public PrologHolder visitEmptyList(PrologParser.EmptyListContext ctx) {
-        return null;
+        return new PrologHolder(ListTerm.EMPTY);
     }
 
     /*
@@ -52,16 +77,12 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return a list within a prologHolder
      */
     public PrologHolder visitSoloDividerList(PrologParser.SoloDividerListContext ctx) {
-        LinkedList<String> list = new LinkedList<>();  //Create a new list
         PrologHolder headHolder = visit(ctx.getChild(1));  //Get the holder fom the child
-        String head = headHolder.getAtom();  //Get the head of the list
-        list.add(head);  //Add the head to the list
-
         PrologHolder restHolder = visit(ctx.getChild(3));  //Get the holder from the child
-        String rest = restHolder.getAtom();  //Get the rest of the list
-        list.add(rest);  //Add the rest to the list
+        int[] list = {headHolder.getAtomId(), restHolder.getAtomId()};  //The head of the list, then the rest of the list
 
-        PrologHolder listHolder = new PrologHolder(list);  //Place the list in a prologHolder
+        PrologHolder listHolder = new PrologHolder(new ListTerm(list));  //Place the list in a prologHolder
+        listHolder.changeToTail();  //The last element of the list is the rest of the list
         if (headHolder.isVariable() || restHolder.isVariable()) {  //If head or rest is a variable
             listHolder.changeToVariable();  //Change the holder to indicate that it contains a variable
         }
@@ -73,19 +94,19 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return a list within a prologHolder
      */
     public PrologHolder visitMiddleDividerList(PrologParser.MiddleDividerListContext ctx) {
-        LinkedList<String> list = new LinkedList<>();  //Create a new list
+        IntList list = new IntList();  //Create a new list of ids
         boolean variable = false;  //Indicates if this list contains a variable
         for (int i = 1; i < ctx.getChildCount() - 1; i++) {  //Visit every child
             if (i != ctx.getChildCount() - 3) {  //Ignore the divider
                 PrologHolder atomHolder = visit(ctx.getChild(i));  //Get the holder from the child
-                String atom = atomHolder.getAtom();  //Get the atom in the holder
-                list.add(atom);  //Add the atom to the list
+                list.add(atomHolder.getAtomId());  //Add the atom's id to the list
                 if (atomHolder.isVariable()) {  //If the atom is a variable
                     variable = true;  ///Set variable to true
                 }
             }
         }
-        PrologHolder listHolder = new PrologHolder(list);  //Place the list in a prologHolder
+        PrologHolder listHolder = new PrologHolder(ListTerm.of(list));  //Place the list in a prologHolder
+        listHolder.changeToTail();  //The last element of the list is the rest of the list
         if (variable) {  //If the list contains a variable
             listHolder.changeToVariable();  //Change the holder to indicate that it contains a variable
         }
@@ -97,17 +118,16 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return a list within a prologHolder
      */
     public PrologHolder visitNormalList(PrologParser.NormalListContext ctx) {
-        LinkedList<String> list = new LinkedList<>();  //Create a new list
+        IntList list = new IntList();  //Create a new list of ids
         boolean variable = false;  //Initialize variable to false
         for (int i = 1; i < ctx.getChildCount() - 1; i++) {  //Visit each child
             PrologHolder atomHolder = visit(ctx.getChild(i));  //Get the holder from the child
-            String atom = atomHolder.getAtom();  //Get the atom in the holder
-            list.add(atom);  //Add the atom to the list
+            list.add(atomHolder.getAtomId());  //Add the atom's id to the list
             if (atomHolder.isVariable()) {  //If the holder contains a variable
                 variable = true;  //Set variable equal to true
             }
         }
-        PrologHolder listHolder = new PrologHolder(list);  //Place the list in a prologHolder
+        PrologHolder listHolder = new PrologHolder(ListTerm.of(list));  //Place the list in a prologHolder
         if (variable) {  //If variable is true
             listHolder.changeToVariable();  //Change the holder to indicate that it contains a variable
         }
@@ -119,7 +139,7 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return an atom within a PrologHolder
      */
     public PrologHolder visitAtom(PrologParser.AtomContext ctx) {
-        return new PrologHolder(ctx.ATOM().getText());  //Returns the atom within a holder
+        return intern(ctx.ATOM().getText());  //Returns the interned atom within a holder
     }
 
     /*
@@ -127,7 +147,7 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return an atom within a PrologHolder
      */
     public PrologHolder visitVariable(PrologParser.VariableContext ctx) {
-        PrologHolder holder = new PrologHolder(ctx.VARIABLE().getText());  //Gets the variable and places it into a holder
+        PrologHolder holder = intern(ctx.VARIABLE().getText());  //Gets the interned variable and places it into a holder
         holder.changeToVariable();  //Change the holder to indicate that it's holding a variable
         return holder;  //Returns the variable within a holder
     }
@@ -145,7 +165,7 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return an atom within a PrologHolder
      */
     public PrologHolder visitMidAtom(PrologParser.MidAtomContext ctx) {
-        return new PrologHolder(ctx.ATOM().getText());  //Returns the atom within a holder
+        return intern(ctx.ATOM().getText());  //Returns the interned atom within a holder
     }
 
     /*
@@ -153,11 +173,42 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
      * @return a variable within a PrologHolder
      */
     public PrologHolder visitMidVariable(PrologParser.MidVariableContext ctx) {
-        PrologHolder holder = new PrologHolder(ctx.VARIABLE().getText());  //Gets the variable and places it into a holder
+        PrologHolder holder = intern(ctx.VARIABLE().getText());  //Gets the interned variable and places it into a holder
         holder.changeToVariable();  //Change the holder to indicate that it's holding a variable
         return holder;  //Returns the variable within a holder
     }
 
+    /*
+     * Interprets a startTerm, which is a parameter of a prepared query
+     * @return the parameter atom within a PrologHolder
+     */
+    public PrologHolder visitParameter(PrologParser.ParameterContext ctx) {
+        return parameter(ctx.QUESTION().getSymbol());
+    }
+
+    /*
+     * Interprets a midTerm
+     * @return the parameter atom within a PrologHolder
+     */
+    public PrologHolder visitMidParameter(PrologParser.MidParameterContext ctx) {
+        return parameter(ctx.QUESTION().getSymbol());
+    }
+
+    /*
+     * Interprets a question mark in place of a term, which is only allowed in the template of a prepared query
+     * Anywhere else the whole input is rejected with an exception the caller reports, so a query doesn't silently fail
+     * and a fact doesn't store the placeholder atom
+     * @param question the question mark's token
+     * @return the parameter atom within a PrologHolder
+     * @throws IllegalArgumentException if parameters aren't allowed
+     */
+    private PrologHolder parameter(Token question) {
+        if (!parameters) {
+            throw new IllegalArgumentException("line " + question.getLine() + ":" + question.getCharPositionInLine() + " parameter '?' outside of a prepared query");
+        }
+        return intern(PreparedQuery.PARAMETER);  //A placeholder atom that execute replaces with the parameter's value
+    }
+
     /*
      * Interprets a list that is preceded by a comma
      * @return a list within a prologHolder
@@ -173,18 +224,15 @@ public class GrammarInterpreter extends PrologBaseVisitor<PrologHolder> {
     public PrologHolder visitPredicate(PrologParser.PredicateContext ctx) {
         Predicate predicate = new Predicate();  //Creates a predicate
         for (int i = 0; i < ctx.getChildCount(); i++) {  //Visits each child
-            if (visit(ctx.getChild(i)) != null) {
-                PrologHolder atomHolder = visit(ctx.getChild(i));  //Get the holder from the child
+            PrologHolder atomHolder = visit(ctx.getChild(i));  //Get the holder from the child (visited once, since visiting builds new objects)
+            if (atomHolder != null) {
                 if (atomHolder.getType().equals("atom")) {
-                    String atom = atomHolder.getAtom();  //Get the atom within the holder
-                    predicate.addAtom(atom);  //Add the atom to the predicate
+                    predicate.addAtomId(atomHolder.getAtomId());  //Add the atom's id to the predicate
                     if (atomHolder.isVariable()) {  //If the holder contains a variable
                         predicate.enableVariable();  //Change the predicate to indicate that it's holding a variable
                     }
                 } else if (atomHolder.getType().equals("list")) {
-                    ArrayList<LinkedList<String>> lists = predicate.getLists();
-                    LinkedList<String> list = atomHolder.getList();
-                    lists.add(list);
+                    predicate.addList(atomHolder.getList(), atomHolder.hasTail());  //Add the list to the predicate
                     if (atomHolder.isVariable()) {  //If the holder contains a variable
                         predicate.enableVariable();  //Change the predicate to indicate that it's holding a variable
                     }
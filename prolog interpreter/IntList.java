@@ -0,0 +1,66 @@
+import java.util.Arrays;
+
+/*
+ * A growable list of ints that avoids boxing every element into an Integer
+ * Adding a value never changes a value another list can see (a full array is replaced by a copy), so a view keeps seeing
+ * the values it was made with while values are added.
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    /*
+     * A constructor that creates an empty IntList
+     */
+    public IntList() {
+        values = new int[4];  //Start with room for a few values
+        size = 0;  //The list is empty
+    }
+
+    /*
+     * A constructor that creates a list holding the first values of the given array
+     * @param values the array, which is shared rather than copied
+     * @param size the number of values
+     */
+    private IntList(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    /*
+     * Creates a read only view of the values added so far, which values added later don't change
+     * @return the view, which must not be added to
+     */
+    public IntList view() {
+        return new IntList(values, size);
+    }
+
+    /*
+     * Adds the given value to the end of the list
+     * @param value the value being added
+     */
+    public void add(int value) {
+        if (size == values.length) {  //If the array is full
+            values = Arrays.copyOf(values, size * 2);  //Double the size of the array
+        }
+        values[size] = value;  //Place the value at the end
+        size++;  //Increment the size
+    }
+
+    /*
+     * Gets the value at the given index
+     * @param index the index of the desired value
+     * @return the value at the given index
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /*
+     * Gets the number of values within the list
+     * @return the size of the list
+     */
+    public int size() {
+        return size;
+    }
+}
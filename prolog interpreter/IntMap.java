@@ -0,0 +1,115 @@
+/*
+ * A hash map from int keys to values that uses open addressing, so keys are never boxed
+ */
+public class IntMap<V> {
+    private int[] keys;
+    private Object[] values;  //A null value marks an empty slot
+    private int size;
+
+    /*
+     * A constructor that creates an empty IntMap
+     */
+    public IntMap() {
+        keys = new int[16];  //Start with room for a few entries (the capacity is always a power of two)
+        values = new Object[16];
+        size = 0;
+    }
+
+    /*
+     * A constructor that creates a copy of another map, sharing its values
+     * @param map the map being copied
+     */
+    private IntMap(IntMap<V> map) {
+        keys = map.keys.clone();
+        values = map.values.clone();
+        size = map.size;
+    }
+
+    /*
+     * Creates a copy of this map, so one of them can be changed while the other is read by other threads
+     * @return a map holding the same entries
+     */
+    public IntMap<V> copy() {
+        return new IntMap<>(this);
+    }
+
+    /*
+     * Spreads the bits of the given key so nearby keys land in different slots
+     * @param key the key being hashed
+     * @return the hash of the key
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;  //Multiply by the golden ratio
+        return h ^ (h >>> 16);  //Mix the high bits into the low bits
+    }
+
+    /*
+     * Gets the value associated with the given key
+     * @param key the key being looked up
+     * @return the value, or null if the key isn't in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;  //Get the first slot the key could be in
+        while (values[slot] != null) {  //While the slot is in use
+            if (keys[slot] == key) {  //If the key is found
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;  //Check the next slot
+        }
+        return null;
+    }
+
+    /*
+     * Associates the given value with the given key, replacing any previous value
+     * @param key the key
+     * @param value the value, which can't be null
+     */
+    public void put(int key, V value) {
+        if ((size + 1) * 4 > keys.length * 3) {  //If the map would become more than three quarters full
+            grow();  //Double the capacity
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;  //Get the first slot the key could be in
+        while (values[slot] != null) {  //While the slot is in use
+            if (keys[slot] == key) {  //If the key is already in the map
+                values[slot] = value;  //Replace its value
+                return;
+            }
+            slot = (slot + 1) & mask;  //Check the next slot
+        }
+        keys[slot] = key;  //Place the entry in the empty slot
+        values[slot] = value;
+        size++;
+    }
+
+    /*
+     * Doubles the capacity of the map and places every entry into its new slot
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {  //Iterate through the old slots
+            if (oldValues[i] != null) {  //If the slot is in use
+                int slot = hash(oldKeys[i]) & mask;  //Find the entry's new slot
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /*
+     * Gets the number of entries within the map
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/*
+ * Loads a program into a PrologInterpreter and measures how long it took, the heap it uses, and the time of each query
+ * in a query file, for the files KnowledgeBaseGenerator writes or any other program
+ * Every query is parsed once, run once to warm up, and then timed over the given number of passes. A non ground query
+ * is timed until its last answer. The latencies are reported for each kind of query, named after the functors of its
+ * goals and whether it's ground, and over every query.
+ * Usage: java KnowledgeBaseDriver <program file> <query file> [passes]
+ */
+public class KnowledgeBaseDriver {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {  //If the program or the queries weren't given
+            System.out.println("Usage: java KnowledgeBaseDriver <program file> <query file> [passes]");
+            return;
+        }
+        int passes = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long before = PrologBenchmark.usedHeap();
+        long start = System.nanoTime();
+        PrologInterpreter interpreter = new PrologInterpreter();
+        long clauses = interpreter.consult(args[0]);
+        long loading = System.nanoTime() - start;
+        long heap = PrologBenchmark.usedHeap() - before;
+        System.out.println("clauses\tload ms\tclauses/s\theap MB\tbytes/clause");
+        System.out.println(clauses + "\t" + loading / 1000000 + "\t" + (long) (clauses / (loading / 1e9)) + "\t" + heap / 1048576 + "\t" + heap / Math.max(1, clauses));
+
+        ArrayList<PrologHolder> queries = new ArrayList<>();
+        ArrayList<String> kinds = new ArrayList<>();  //The kind of each query
+        for (String line : Files.readAllLines(Paths.get(args[1]))) {
+            if (!line.isBlank()) {
+                PrologHolder query = interpreter.evaluateInput(line.trim());
+                queries.add(query);
+                kinds.add(kind(line.trim(), query.isVariable()));
+            }
+        }
+        long[] latencies = new long[queries.size() * passes];  //The nanoseconds of each timed query, pass after pass
+        long[] answers = new long[queries.size()];  //The number of answers of each query
+        for (int pass = -1; pass < passes; pass++) {  //Pass -1 warms up
+            for (int i = 0; i < queries.size(); i++) {
+                PrologHolder query = queries.get(i);
+                long queryStart = System.nanoTime();
+                long found;
+                if (query.isVariable()) {
+                    found = 0;
+                    for (Iterator<Answer> it = interpreter.answers(query); it.hasNext(); it.next()) {
+                        found++;
+                    }
+                } else {
+                    found = interpreter.resolve(query).getAtom().equals("true") ? 1 : 0;
+                }
+                long elapsed = System.nanoTime() - queryStart;
+                if (pass >= 0) {
+                    latencies[pass * queries.size() + i] = elapsed;
+                }
+                answers[i] = found;
+            }
+        }
+
+        System.out.println("");
+        System.out.println("query\tcount\tanswers/query\tp50 us\tp90 us\tp99 us\tmax us");
+        ArrayList<String> names = new ArrayList<>();  //The kinds of query, in the order they first appear
+        for (String kind : kinds) {
+            if (!names.contains(kind)) {
+                names.add(kind);
+            }
+        }
+        names.add("all");
+        for (String name : names) {
+            long[] times = new long[latencies.length];
+            int count = 0;
+            long found = 0;
+            for (int i = 0; i < queries.size(); i++) {
+                if (name.equals("all") || kinds.get(i).equals(name)) {  //Gather the query's time in every pass
+                    for (int pass = 0; pass < passes; pass++) {
+                        times[count] = latencies[pass * queries.size() + i];
+                        count++;
+                    }
+                    found += answers[i] * passes;
+                }
+            }
+            Arrays.sort(times, 0, count);
+            System.out.println(name + "\t" + count + "\t" + (double) found / Math.max(1, count) + "\t" + percentile(times, count, 50) + "\t" + percentile(times, count, 90) + "\t" + percentile(times, count, 99) + "\t" + percentile(times, count, 100));
+        }
+    }
+
+    /*
+     * Names the kind of a query after the functors of its goals
+     * @param line the text of the query
+     * @param variable true if the query is non ground
+     * @return the functors separated by commas, followed by "ground" if the query has no variables
+     */
+    private static String kind(String line, boolean variable) {
+        StringBuilder kind = new StringBuilder();
+        int depth = 0;  //The number of parentheses and brackets the scan is inside
+        int start = 0;  //The index of the current goal's functor
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '(' || c == '[') {
+                if (depth == 0) {  //The functor ends at the goal's parenthesis
+                    kind.append(kind.length() > 0 ? "," : "").append(line.substring(start, i).trim());
+                }
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {  //The next goal starts after the comma
+                start = i + 1;
+            }
+        }
+        return variable ? kind.toString() : kind + " ground";
+    }
+
+    /*
+     * Gets a percentile of the given sorted times
+     * @param sorted the times in nanoseconds, smallest first
+     * @param count the number of times in use
+     * @param percentile the percentile, from 0 to 100
+     * @return the time at the percentile in microseconds, or 0 if there are no times
+     */
+    private static long percentile(long[] sorted, int count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))] / 1000;
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+
+/*
+ * Writes a synthetic program and a file of queries against it, for testing how the interpreter scales
+ * The same arguments and seed always write the same files. The program has two relations and two rules:
+ *   edge(X, Y) - a layered graph with depth layers, where every node has fanout edges to nodes of the next layer
+ *   item(K, V, ...) - facts of the given arity whose keys are nodes, with skewed keys repeated more than others
+ *   pair(X, Y) :- edge(X, Z), edge(Z, Y).  - a join where every node has fanout * fanout answers
+ *   reach(X, Y) :- edge(X, Y).  reach(X, Y) :- edge(X, Z), reach(Z, Y).  - recursion as deep as the graph
+ * Half of the facts are edges and half are items. With a skew of 0 every key is equally likely, and with a skew of s the
+ * key of rank k is picked in proportion to 1 / k^s, so a skew of 1 or more gives a few very hot keys. The queries are
+ * ground item lookups, item enumerations by key (picked with the same skew), pair and reach queries, and conjunctive
+ * joins of edge and item, in turn. Every line is written in the grammar Prolog.g4 accepts, so the program can be
+ * loaded with PrologInterpreter.consult and the queries run with KnowledgeBaseDriver.
+ * Usage: java KnowledgeBaseGenerator <output prefix> <facts> [seed] [arity] [skew] [fanout] [depth] [queries]
+ */
+public class KnowledgeBaseGenerator {
+    private long facts;  //The number of facts to write
+    private long seed;  //The seed of the random numbers, so the files can be written again
+    private int arity;  //The number of arguments of each item fact
+    private double skew;  //The exponent of the distribution of item keys, where 0 is uniform
+    private int fanout;  //The number of edges from each node that isn't in the last layer
+    private int depth;  //The number of layers of the graph
+    private int queries;  //The number of queries to write
+    private int width;  //The number of nodes in each layer
+    private Random random;  //Picks the edges, keys, and values
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {  //If the output or the size weren't given
+            System.out.println("Usage: java KnowledgeBaseGenerator <output prefix> <facts> [seed] [arity] [skew] [fanout] [depth] [queries]");
+            return;
+        }
+        long facts = Long.parseLong(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int arity = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        double skew = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+        int fanout = args.length > 5 ? Integer.parseInt(args[5]) : 3;
+        int depth = args.length > 6 ? Integer.parseInt(args[6]) : 4;
+        int queries = args.length > 7 ? Integer.parseInt(args[7]) : 1000;
+        KnowledgeBaseGenerator generator = new KnowledgeBaseGenerator(facts, seed, arity, skew, fanout, depth, queries);
+        generator.write(args[0] + ".pl", args[0] + ".queries");
+        System.out.println("Wrote " + args[0] + ".pl and " + args[0] + ".queries: " + generator.getWidth() + " nodes in each of " + depth + " layers");
+    }
+
+    /*
+     * A constructor that creates a KnowledgeBaseGenerator of the given shape
+     * @param facts the number of facts, from a thousand to tens of millions
+     * @param seed the seed of the random numbers
+     * @param arity the number of arguments of each item fact, from 2 to 26
+     * @param skew the exponent of the distribution of item keys, 0 or more
+     * @param fanout the number of edges from each node, 1 or more
+     * @param depth the number of layers of the graph, which is the deepest a reach query recurses, 2 or more
+     * @param queries the number of queries
+     * @throws IllegalArgumentException if an argument is out of range
+     */
+    public KnowledgeBaseGenerator(long facts, long seed, int arity, double skew, int fanout, int depth, int queries) {
+        if (facts < 2 || arity < 2 || arity > 26 || skew < 0 || fanout < 1 || depth < 2 || queries < 0) {
+            throw new IllegalArgumentException("Facts must be at least 2, arity from 2 to 26, skew at least 0, fanout at least 1, depth at least 2, and queries at least 0");
+        }
+        this.facts = facts;
+        this.seed = seed;
+        this.arity = arity;
+        this.skew = skew;
+        this.fanout = fanout;
+        this.depth = depth;
+        this.queries = queries;
+        long edges = facts / 2;  //Half of the facts are edges
+        width = (int) Math.max(fanout, edges / ((long) fanout * (depth - 1)));  //Every edge from a node goes to a different node
+    }
+
+    /*
+     * Gets the number of nodes in each layer of the graph
+     * @return the width of the graph
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /*
+     * Writes the program and the queries
+     * @param programPath the path of the program file, which is replaced if it exists
+     * @param queryPath the path of the query file, which is replaced if it exists
+     * @throws IOException if a file can't be written
+     */
+    public void write(String programPath, String queryPath) throws IOException {
+        random = new Random(seed);
+        long nodes = (long) width * depth;
+        ArrayList<String> lookups = new ArrayList<>();  //Item facts that were written, for the ground queries
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(programPath))) {
+            out.write("pair(X, Y) :- edge(X, Z), edge(Z, Y).");
+            out.newLine();
+            out.write("reach(X, Y) :- edge(X, Y).");
+            out.newLine();
+            out.write("reach(X, Y) :- edge(X, Z), reach(Z, Y).");
+            out.newLine();
+            long written = 0;
+            for (int layer = 0; layer + 1 < depth && written < facts / 2; layer++) {  //Link each layer to the next
+                for (int node = 0; node < width && written < facts / 2; node++) {
+                    int first = random.nextInt(width);  //The edges go to consecutive nodes, so they're all different
+                    for (int i = 0; i < fanout; i++) {
+                        out.write("edge(" + node(layer, node) + ", " + node(layer + 1, (first + i) % width) + ").");
+                        out.newLine();
+                        written++;
+                    }
+                }
+            }
+            long items = facts - written;
+            int wanted = Math.max(1, queries / 5);  //The number of ground lookups
+            for (long i = 0; i < items; i++) {
+                StringBuilder item = new StringBuilder("item(").append(key(nodes));
+                for (int j = 1; j < arity; j++) {  //The values are spread evenly over the nodes
+                    item.append(", ").append(PrologBenchmark.atomName((int) (random.nextDouble() * nodes)));
+                }
+                item.append(")");
+                out.write(item.toString());
+                out.write(".");
+                out.newLine();
+                if (lookups.size() < wanted && random.nextDouble() * items < wanted) {  //Keep about as many facts as there are lookups
+                    lookups.add(item.toString());
+                }
+            }
+        }
+        String variables = "";  //The variables of an item query after its key
+        for (int j = 1; j < arity; j++) {
+            variables += ", " + (char) ('A' + j - 1);
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(queryPath))) {
+            for (int i = 0; i < queries; i++) {
+                int layer = random.nextInt(depth - 1);  //A node with edges
+                String node = node(layer, random.nextInt(width));
+                String query;
+                if (i % 5 == 0 && !lookups.isEmpty()) {
+                    query = lookups.get(random.nextInt(lookups.size())) + "?";
+                } else if (i % 5 == 1 || i % 5 == 0) {
+                    query = "item(" + key(nodes) + variables + ")?";
+                } else if (i % 5 == 2) {
+                    query = "pair(" + node(random.nextInt(Math.max(1, depth - 2)), random.nextInt(width)) + ", Y)?";
+                } else if (i % 5 == 3) {
+                    query = "reach(" + node + ", Y)?";
+                } else {
+                    query = "edge(" + node + ", Y), item(Y" + variables + ")?";
+                }
+                out.write(query);
+                out.newLine();
+            }
+        }
+    }
+
+    /*
+     * Gets the atom of a node
+     * @param layer the layer of the node
+     * @param index the index of the node within its layer
+     * @return the atom, where the nodes of each layer follow those of the layer before
+     */
+    private String node(int layer, int index) {
+        return PrologBenchmark.atomName((int) ((long) layer * width + index));
+    }
+
+    /*
+     * Picks the key of an item, skewed toward the first nodes
+     * The rank is drawn from a continuous power law with the given exponent and rounded down, which is close to a Zipf
+     * distribution without keeping a table of every rank's probability
+     * @param nodes the number of nodes
+     * @return the atom of the key's node
+     */
+    private String key(long nodes) {
+        double u = random.nextDouble();
+        double rank;
+        if (skew == 0) {  //Every key is equally likely
+            rank = u * nodes;
+        } else if (skew == 1) {
+            rank = Math.pow(nodes + 1, u) - 1;
+        } else {
+            rank = Math.pow(u * (Math.pow(nodes + 1, 1 - skew) - 1) + 1, 1 / (1 - skew)) - 1;
+        }
+        return PrologBenchmark.atomName((int) Math.min(nodes - 1, (long) rank));
+    }
+}
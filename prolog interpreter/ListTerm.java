@@ -0,0 +1,127 @@
+/*
+ * An immutable list of atoms and variables, stored as their SymbolTable ids in an array
+ * A list is a range of an array that's never written once the list is made, so getting an element is O(1) and splitting
+ * a list into its head and tail ([H|T]) is O(1): the tail is a new view of the same array that starts one element later,
+ * and every tail of a list shares its elements.
+ */
+public class ListTerm {
+    public static final ListTerm EMPTY = new ListTerm(new int[0]);  //The empty list, []
+
+    private int[] elements;  //The ids of the elements, shared by every tail of the list
+    private int from;  //The index of the list's first element within the array
+
+    /*
+     * A constructor that creates a ListTerm holding the given ids
+     * @param elements the ids of the elements in order, which must not be changed afterwards
+     */
+    public ListTerm(int[] elements) {
+        this(elements, 0);
+    }
+
+    /*
+     * A constructor that creates a view of the elements of an array from the given index onwards
+     * @param elements the ids shared with the list the view is taken of
+     * @param from the index of the view's first element
+     */
+    private ListTerm(int[] elements, int from) {
+        this.elements = elements;
+        this.from = from;
+    }
+
+    /*
+     * Creates a ListTerm holding the ids in the given IntList
+     * @param ids the ids of the elements in order
+     * @return the list, or EMPTY if there are no ids
+     */
+    public static ListTerm of(IntList ids) {
+        if (ids.size() == 0) {
+            return EMPTY;
+        }
+        int[] elements = new int[ids.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = ids.get(i);
+        }
+        return new ListTerm(elements);
+    }
+
+    /*
+     * Gets the number of elements
+     * @return the length of the list
+     */
+    public int size() {
+        return elements.length - from;
+    }
+
+    /*
+     * Determines if the list has no elements
+     * @return true if the list is []
+     */
+    public boolean isEmpty() {
+        return from == elements.length;
+    }
+
+    /*
+     * Gets the id of the element at the given index
+     * @param index the index of the element
+     * @return the SymbolTable id of the atom or variable
+     */
+    public int get(int index) {
+        if (index < 0 || from + index >= elements.length) {  //If the index is outside the list
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+        }
+        return elements[from + index];
+    }
+
+    /*
+     * Gets the name of the element at the given index
+     * @param index the index of the element
+     * @return the atom or variable
+     */
+    public String getName(int index) {
+        return SymbolTable.getName(get(index));
+    }
+
+    /*
+     * Gets the id of the first element, H in [H|T]
+     * @return the id of the head
+     */
+    public int head() {
+        return get(0);
+    }
+
+    /*
+     * Gets every element after the first, T in [H|T], sharing them with this list
+     * @return the tail of the list
+     */
+    public ListTerm tail() {
+        if (isEmpty()) {  //The empty list has no tail
+            throw new IndexOutOfBoundsException("The empty list has no tail");
+        }
+        return new ListTerm(elements, from + 1);
+    }
+
+    /*
+     * Writes the list the way it appears in a program
+     * @param tail true if the last element is the rest of the list, as in [H|T]
+     * @return the elements within brackets
+     */
+    public String toString(boolean tail) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size(); i++) {  //Iterate through the elements
+            if (i > 0) {  //If this isn't the first element
+                builder.append(i == size() - 1 && tail ? "|" : ", ");  //The tail is separated by a divider
+            }
+            builder.append(getName(i));
+        }
+        return builder.append("]").toString();
+    }
+
+    /*
+     * Writes the list the way it appears in a program, without a tail
+     * @return the elements within brackets
+     */
+    @Override
+    public String toString() {
+        return toString(false);
+    }
+}
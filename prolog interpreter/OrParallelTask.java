@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Finds the answers to a query in one part of its search tree, splitting the part between fork join tasks
+ * A part is named by a path that fixes the clause tried by each of the first choice points, and a range of clauses for
+ * the choice point after them. A range is split in half until it's small enough, and a range of one clause is followed
+ * down to the next choice point that has more than one. Splitting stops while the pool has enough queued tasks to keep
+ * every thread busy, since each split replays the path from the root. Every task searches with its own Resolver, so bindings are
+ * never shared between threads, and the answers are joined in clause order, the order a single resolver finds them in.
+ * Every resolver of the same program picks the same candidate facts for a goal (see Fact.getCandidates), so a range of
+ * clauses names the same clauses in every task, even while facts are added to the newest version of the program.
+ */
+@SuppressWarnings("serial")
+public class OrParallelTask extends RecursiveTask<ArrayList<Answer>> {
+    private static final int MAX_DEPTH = 8;  //The deepest choice point the search is split at
+    private static final int TASKS_PER_THREAD = 4;  //The number of tasks each range is split into per thread, to balance uneven clauses
+    private static final int SURPLUS_TASKS = 2;  //A task searches its part itself once its thread has this many more queued tasks than idle threads can take
+
+    private PredicateTable program;  //The program being queried
+    private Clause query;  //The compiled query
+    private int[] path;  //The clause tried by each of the first choice points
+    private int from;  //The first clause tried by the choice point after the path, or -1 to find the next choice point worth splitting
+    private int to;  //The index after the last clause tried by the choice point after the path
+    private int chunk;  //The largest range that's searched without being split
+    private long limit;  //The largest number of answers to return
+    private int parallelism;  //The number of threads searching
+
+    /*
+     * A constructor that creates a task that searches the whole search tree of the given query
+     * @param program the program being queried
+     * @param query the compiled query
+     * @param limit the largest number of answers to return
+     * @param parallelism the number of threads searching
+     */
+    public OrParallelTask(PredicateTable program, Clause query, long limit, int parallelism) {
+        this(program, query, new int[0], -1, -1, 1, limit, parallelism);
+    }
+
+    /*
+     * A constructor that creates a task that searches part of the search tree of the given query
+     * @param program the program being queried
+     * @param query the compiled query
+     * @param path the clause tried by each of the first choice points
+     * @param from the first clause tried by the choice point after the path, or -1 to find the next choice point worth splitting
+     * @param to the index after the last clause tried by the choice point after the path
+     * @param chunk the largest range that's searched without being split
+     * @param limit the largest number of answers to return
+     * @param parallelism the number of threads searching
+     */
+    private OrParallelTask(PredicateTable program, Clause query, int[] path, int from, int to, int chunk, long limit, int parallelism) {
+        this.program = program;
+        this.query = query;
+        this.path = path;
+        this.from = from;
+        this.to = to;
+        this.chunk = chunk;
+        this.limit = limit;
+        this.parallelism = parallelism;
+    }
+
+    /*
+     * Finds the answers in this task's part of the search tree
+     * @return the answers, in the order a single resolver would find them
+     */
+    @Override
+    protected ArrayList<Answer> compute() {
+        if (getSurplusQueuedTaskCount() > SURPLUS_TASKS) {  //If the other threads have enough work already
+            return from < 0 ? collect(path, 0, Integer.MAX_VALUE) : collect(path, from, to);
+        } else if (from < 0) {  //If the choice point to split at hasn't been found yet
+            return descend(path);
+        } else if (to - from > chunk) {  //If the range is too big for one task, search each half in parallel
+            int middle = (from + to) >>> 1;
+            OrParallelTask first = new OrParallelTask(program, query, path, from, middle, chunk, limit, parallelism);
+            first.fork();
+            ArrayList<Answer> second = new OrParallelTask(program, query, path, middle, to, chunk, limit, parallelism).compute();
+            ArrayList<Answer> answers = first.join();
+            for (int i = 0; i < second.size() && answers.size() < limit; i++) {  //The first half's answers come first
+                answers.add(second.get(i));
+            }
+            return answers;
+        } else if (to - from == 1) {  //If the range is a single clause, look for more choices below it
+            return descend(append(path, from));
+        }
+        return collect(path, from, to);
+    }
+
+    /*
+     * Follows the given path down to the next choice point with more than one clause, and splits the search there
+     * @param path the clause tried by each of the first choice points
+     * @return the answers below the path
+     */
+    private ArrayList<Answer> descend(int[] path) {
+        while (path.length < MAX_DEPTH) {  //While the search can be split deeper
+            Resolver probe = new Resolver(program, null, query);
+            probe.split(path, 0, 0);  //Stop at the choice point after the path without trying any of its clauses
+            probe.next();
+            int size = probe.getSplitSize();
+            if (size > 1) {  //If the choice point has several clauses, split them between tasks
+                int chunk = Math.max(1, size / (parallelism * TASKS_PER_THREAD));
+                return new OrParallelTask(program, query, path, 0, size, chunk, limit, parallelism).compute();
+            } else if (size < 1) {  //If the path has no choice point after it, or one with no clauses
+                break;
+            }
+            path = append(path, 0);  //The choice point only has one clause, so follow it
+        }
+        return collect(path, 0, Integer.MAX_VALUE);
+    }
+
+    /*
+     * Finds every answer in the given part of the search tree with a single resolver
+     * @param path the clause tried by each of the first choice points
+     * @param from the first clause tried by the choice point after the path
+     * @param to the index after the last clause tried by the choice point after the path
+     * @return the answers, up to the limit
+     */
+    private ArrayList<Answer> collect(int[] path, int from, int to) {
+        Resolver resolver = new Resolver(program, null, query);  //Each task has its own store, so nothing is shared
+        resolver.split(path, from, to);
+        ArrayList<Answer> answers = new ArrayList<>();
+        AnswerIterator iterator = new AnswerIterator(resolver, limit);
+        while (iterator.hasNext()) {
+            answers.add(iterator.next());
+        }
+        return answers;
+    }
+
+    /*
+     * Creates a path one choice point longer than the given path
+     * @param path the path
+     * @param alternative the clause tried by the new choice point
+     * @return the longer path
+     */
+    private static int[] append(int[] path, int alternative) {
+        int[] longer = Arrays.copyOf(path, path.length + 1);
+        longer[path.length] = alternative;
+        return longer;
+    }
+}
@@ -1,18 +1,26 @@
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 
 public class Predicate {
-    private ArrayList<String> atoms;
+    public static final int LIST = Integer.MIN_VALUE;  //Marks an argument that holds a list instead of an atom or variable
+    private static final ArrayList<ListTerm> NO_LISTS = new ArrayList<>(0);  //Shared by every predicate that doesn't hold a list
+
+    private int[] atoms;  //The ids of the arguments in order, interned in the SymbolTable (LIST marks a list argument)
+    private int size;  //The number of arguments within the array
     private boolean variable;
-    private ArrayList<LinkedList<String>> lists;
+    private ArrayList<ListTerm> lists;  //The list arguments in order
+    private ArrayList<Boolean> tails;  //Indicates if the last element of each list is the rest of the list ([H|T])
+    private volatile Clause clause;  //The compiled form of this predicate when it's a fact that needs one, built on first use (volatile so a parallel search sees it whole)
 
     /*
      * A constructor that creates a Predicate object
      */
     public Predicate() {
-        atoms = new ArrayList<>();  //Creates an array list of Strings
+        atoms = new int[2];  //Creates an array of ids with room for a binary predicate
+        size = 0;  //The predicate doesn't have any arguments yet
         variable = false;  //Initialize variable to false, indicating that this predicate doesn't contain any variables
-        lists = new ArrayList<>();  //Initialize the list of linked lists
+        lists = NO_LISTS;  //The list of lists is only created once a list is added
+        tails = null;
     }
 
     /*
@@ -20,7 +28,19 @@ public class Predicate {
      * @param atom the atom being added to the list of atoms
      */
     public void addAtom(String atom) {
-        atoms.add(atom);
+        addAtomId(SymbolTable.intern(atom));  //Intern the atom and add its id
+    }
+
+    /*
+     * Adds the atom with the given id to the list
+     * @param id the id of the atom being added to the list of atoms
+     */
+    public void addAtomId(int id) {
+        if (size == atoms.length) {  //If the array is full
+            atoms = Arrays.copyOf(atoms, size * 2);  //Double the size of the array
+        }
+        atoms[size] = id;  //Place the id at the end
+        size++;  //Increment the size
     }
 
     /*
@@ -29,7 +49,19 @@ public class Predicate {
      * @return the atom at the given index
      */
     public String getAtom(int index) {
-        return atoms.get(index);
+        return SymbolTable.getName(getAtomId(index));
+    }
+
+    /*
+     * Gets the id of the atom at the given index within the list
+     * @param index the index of the desired atom
+     * @return the id of the atom at the given index, or LIST if the argument is a list
+     */
+    public int getAtomId(int index) {
+        if (index >= size) {  //If the index is past the end of the list
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return atoms[index];
     }
 
     /*
@@ -38,16 +70,23 @@ public class Predicate {
      * @return the index of the given atom
      */
     public int getIndex(String atom) {
-        return atoms.indexOf(atom);
+        Integer id = SymbolTable.lookup(atom);  //Get the atom's id
+        if (id != null) {  //If the atom has been interned
+            for (int i = 0; i < size; i++) {  //Iterate through the ids
+                if (atoms[i] == id) {  //If the ids match
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
 
     /*
      * Gets the arity of the predicate
-     * @return the number of atoms within the list
+     * @return the number of arguments, counting atoms, variables and lists
      */
     public int getArity() {
-        //  return atoms.size() + lists.size();
-        return atoms.size();
+        return size;
     }
 
     /*
@@ -66,25 +105,106 @@ public class Predicate {
     }
 
     /*
-     * Gets the list of linked lists
-     * @return the list of linked lists
+     * Gets the list arguments
+     * @return the lists in order (read only, use addList to add a list)
      */
-    public ArrayList<LinkedList<String>> getLists() {
+    public ArrayList<ListTerm> getLists() {
         return lists;
     }
 
+    /*
+     * Adds the given list as the next argument
+     * @param list the elements of the list
+     * @param tail true if the last element is the rest of the list, as in [H|T]
+     */
+    public void addList(ListTerm list, boolean tail) {
+        if (lists == NO_LISTS) {  //If this is the first list
+            lists = new ArrayList<>(1);  //Create the list of lists
+            tails = new ArrayList<>(1);  //Create the list of tail flags
+        }
+        addAtomId(LIST);  //Mark the argument as a list
+        lists.add(list);  //Save the list
+        tails.add(tail);  //Save whether it has a tail
+    }
+
+    /*
+     * Determines if the argument at the given index is a list
+     * @param index the index of the argument
+     * @return true if the argument is a list
+     */
+    public boolean isList(int index) {
+        return getAtomId(index) == LIST;
+    }
+
+    /*
+     * Gets the position of the list argument at the given index within the list of lists
+     * @param index the index of a list argument
+     * @return the position of the list within getLists()
+     */
+    private int getListNumber(int index) {
+        int number = 0;  //Counts the lists before the index
+        for (int i = 0; i < index; i++) {  //Iterate through the arguments before the index
+            if (atoms[i] == LIST) {  //If the argument is a list
+                number++;
+            }
+        }
+        return number;
+    }
+
+    /*
+     * Gets the list argument at the given index
+     * @param index the index of a list argument
+     * @return the elements of the list
+     */
+    public ListTerm getList(int index) {
+        return lists.get(getListNumber(index));
+    }
+
+    /*
+     * Determines if the list argument at the given index ends with the rest of the list, as in [H|T]
+     * @param index the index of a list argument
+     * @return true if the last element of the list is its tail
+     */
+    public boolean hasTail(int index) {
+        return tails.get(getListNumber(index));
+    }
+
     /*
      * Determines if the predicate contains a list
      * @return true if the predicate contains a list
      */
     public boolean containsList() {
-        boolean contains = false;  //Initialize contains to false
-        for (LinkedList<String> list : lists) {  //Iterate through the list of linked lists
-            if (list.size() > 0) {  //If the size of the list is greater than 0
-                contains = true;  //Set contains to true
-                break;  //Exit the loop
-            }
+        return !lists.isEmpty();
+    }
+
+    /*
+     * Determines if the predicate only holds atoms, so it can be matched without being compiled
+     * @return true if the predicate has no variables and no lists
+     */
+    public boolean isGround() {
+        return !variable && lists.isEmpty();
+    }
+
+    /*
+     * Gets the compiled form of this predicate as a fact, compiling it the first time it's needed
+     * @return a clause whose head is this predicate and whose body is empty
+     */
+    public Clause getClause() {
+        if (clause == null) {  //If the predicate hasn't been compiled yet
+            clause = new Clause(this, new ArrayList<>());  //Compile it as a fact
+        }
+        return clause;
+    }
+
+    /*
+     * Gets the argument at the given index written the way it appears in a program
+     * @param index the index of the argument
+     * @return the atom, variable, or list at the index
+     */
+    public String getArgument(int index) {
+        if (!isList(index)) {  //If the argument is an atom or variable
+            return getAtom(index);
         }
-        return contains;
+        return getList(index).toString(hasTail(index));
     }
 }
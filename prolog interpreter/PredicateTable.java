@@ -0,0 +1,214 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+ * A table that holds the program's clauses, indexed by functor and arity
+ * The procedures are kept in chunks of CHUNK_SIZE in the order they were first added, and the table remembers which of
+ * them changed since its last snapshot. A new snapshot only takes snapshots of those procedures, and shares every other
+ * chunk and the map of functors with the snapshot before it, so publishing a change costs the procedures it touched
+ * rather than the size of the program.
+ */
+public class PredicateTable {
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;  //The number of procedures in each chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private IntMap<int[]> procedures;  //Maps the id of a functor to the index of each of its procedures (one per arity)
+    private Procedure[][] chunks;  //Every procedure in the order it was first added: chunks[chunk][offset]
+    private int size;  //The number of procedures
+    private BitSet dirty;  //The index of each procedure that may have changed since the last snapshot
+    private PredicateTable last;  //The last snapshot taken of this table, or null if none has been taken
+    private boolean shared;  //Indicates if the map of functors is shared with a snapshot, so it's copied before it's changed
+
+    /*
+     * A constructor that creates an empty PredicateTable
+     */
+    public PredicateTable() {
+        procedures = new IntMap<>();  //Create the map of functors
+        chunks = new Procedure[1][];  //Chunks are created when their first procedure is added
+        size = 0;
+        dirty = new BitSet();
+        last = null;
+        shared = false;
+    }
+
+    /*
+     * Gets the procedure for the given functor and arity
+     * @param functor the name of the procedure
+     * @param arity the number of arguments of the procedure
+     * @return the procedure, or null if no clause with that functor and arity has been added
+     */
+    public Procedure getProcedure(String functor, int arity) {
+        Integer functorId = SymbolTable.lookup(functor);  //Get the id of the functor
+        if (functorId == null) {  //If the functor has never been interned
+            return null;  //No clause can use it
+        }
+        return getProcedure(functorId, arity);
+    }
+
+    /*
+     * Gets the procedure for the given functor id and arity
+     * @param functorId the id of the procedure's name in the SymbolTable
+     * @param arity the number of arguments of the procedure
+     * @return the procedure, or null if no clause with that functor and arity has been added
+     */
+    public Procedure getProcedure(int functorId, int arity) {
+        int index = indexOf(functorId, arity);
+        return index < 0 ? null : getProcedure(index);
+    }
+
+    /*
+     * Gets the index of the procedure for the given functor id and arity
+     * @param functorId the id of the procedure's name in the SymbolTable
+     * @param arity the number of arguments of the procedure
+     * @return the index of the procedure, or -1 if no clause with that functor and arity has been added
+     */
+    public int indexOf(int functorId, int arity) {
+        int[] arities = procedures.get(functorId);  //Get the procedures that share the functor
+        if (arities != null) {  //If the functor is in the table
+            for (int i = 0; i < arities.length; i++) {  //Iterate through the procedures (usually only one)
+                if (getProcedure(arities[i]).getArity() == arity) {  //If the arities match
+                    return arities[i];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Gets the procedure for the given functor and arity, creating it if it doesn't exist yet
+     * The procedure is taken to be changed, so the next snapshot takes a new snapshot of it
+     * @param functor the name of the procedure
+     * @param arity the number of arguments of the procedure
+     * @return the procedure for the functor and arity
+     */
+    public Procedure getOrCreateProcedure(String functor, int arity) {
+        int functorId = SymbolTable.intern(functor);  //Get the id of the functor
+        int index = indexOf(functorId, arity);  //Look for an existing procedure
+        if (index < 0) {  //If it doesn't exist
+            addProcedure(new Procedure(functor, arity));  //Create the procedure
+            return getProcedure(size - 1);
+        }
+        dirty.set(index);
+        return getProcedure(index);
+    }
+
+    /*
+     * Adds the given procedure to the table, which must not already hold one with the same functor and arity
+     * @param procedure the procedure being added
+     */
+    public void addProcedure(Procedure procedure) {
+        int functorId = SymbolTable.intern(procedure.getFunctor());  //Get the id of the functor
+        if (shared) {  //If a snapshot holds the map, leave its copy as it is
+            procedures = procedures.copy();
+            shared = false;
+        }
+        int[] arities = procedures.get(functorId);  //Get the procedures that share the functor
+        if (arities == null) {  //If this is the first procedure with this functor
+            arities = new int[] {size};
+        } else {  //The old array is never changed, since snapshots can share it
+            arities = Arrays.copyOf(arities, arities.length + 1);
+            arities[arities.length - 1] = size;
+        }
+        procedures.put(functorId, arities);
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.length) {  //If every chunk is in use, make room for another
+            chunks = Arrays.copyOf(chunks, chunk * 2);
+        }
+        if (chunks[chunk] == null) {  //If this is the first procedure of its chunk
+            chunks[chunk] = new Procedure[CHUNK_SIZE];
+        }
+        chunks[chunk][size & CHUNK_MASK] = procedure;
+        dirty.set(size);
+        size++;
+    }
+
+    /*
+     * Adds every predicate of the given fact to the procedure that matches its functor and arity
+     * @param fact the fact being added
+     */
+    public void addFact(Fact fact) {
+        for (int i = 0; i < fact.getNumberOfPredicates(); i++) {  //Iterate through the fact's predicates
+            Predicate predicate = fact.getPredicate(i);  //Get the predicate at index i
+            getOrCreateProcedure(fact.getFunctor(), predicate.getArity()).addFact(predicate);  //Add it to its procedure
+        }
+    }
+
+    /*
+     * Adds the given rule to the procedure that matches the functor and arity of its head
+     * @param rule the rule being added
+     */
+    public void addRule(PrologRule rule) {
+        Fact head = rule.getHead();  //Get the head of the rule
+        getOrCreateProcedure(head.getFunctor(), head.getArity(0)).addRule(rule);  //Add the rule to its procedure
+    }
+
+    /*
+     * Takes a snapshot of every procedure, reusing the procedures of an older snapshot that haven't changed since
+     * When the older snapshot is the last one taken of this table, only the procedures changed since are visited, and
+     * the snapshot shares the older one's other chunks and its map of functors. Otherwise every procedure is compared.
+     * @param previous an older snapshot of this table, or an empty table
+     * @return a table holding snapshots of the same procedures in the same order, which must not be added to
+     */
+    public PredicateTable snapshot(PredicateTable previous) {
+        if (previous != last) {  //If the changes since the older snapshot weren't recorded
+            return compare(previous);
+        }
+        PredicateTable snapshot = new PredicateTable();
+        snapshot.procedures = procedures;  //The writer copies the map before its next change
+        shared = true;
+        snapshot.chunks = Arrays.copyOf(previous.chunks, chunks.length);  //Share the older snapshot's chunks for now
+        snapshot.size = size;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {  //Take a new snapshot of each changed procedure
+            int chunk = i >>> CHUNK_BITS;
+            Procedure[] slots = snapshot.chunks[chunk];
+            if (slots == null || (chunk < previous.chunks.length && slots == previous.chunks[chunk])) {  //If the chunk is still the older snapshot's, copy it first
+                slots = slots == null ? new Procedure[CHUNK_SIZE] : slots.clone();
+                snapshot.chunks[chunk] = slots;
+            }
+            slots[i & CHUNK_MASK] = getProcedure(i).snapshot();
+        }
+        dirty.clear();
+        last = snapshot;
+        return snapshot;
+    }
+
+    /*
+     * Takes a snapshot of every procedure by comparing each one with the procedure at the same index of an older snapshot
+     * @param previous an older snapshot of this table, or an empty table
+     * @return a table holding snapshots of the same procedures in the same order, which must not be added to
+     */
+    private PredicateTable compare(PredicateTable previous) {
+        PredicateTable snapshot = new PredicateTable();
+        for (int i = 0; i < size; i++) {  //Iterate through the procedures in the order they were added
+            Procedure procedure = getProcedure(i);
+            Procedure old = i < previous.size ? previous.getProcedure(i) : null;
+            if (old != null && old.getChanges() == procedure.getChanges() && old.getArity() == procedure.getArity() && old.getFunctor().equals(procedure.getFunctor())) {
+                snapshot.addProcedure(old);  //The procedure hasn't changed since the older snapshot
+            } else {
+                snapshot.addProcedure(procedure.snapshot());
+            }
+        }
+        snapshot.dirty.clear();  //A snapshot is never added to
+        dirty.clear();
+        last = snapshot;
+        return snapshot;
+    }
+
+    /*
+     * Gets the procedure at the given index
+     * @param index the index of the desired procedure, in the order procedures were added
+     * @return the procedure at the given index
+     */
+    public Procedure getProcedure(int index) {
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /*
+     * Gets the number of procedures within the table
+     * @return the number of distinct functor and arity pairs
+     */
+    public int getNumberOfProcedures() {
+        return size;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * The goals of a PreparedQuery compiled against one version of the program, along with where its parameters are
+ * A plan is never changed once it's made, so threads running the same prepared query can share it.
+ */
+public class PreparedPlan {
+    private PredicateTable program;  //The table the goals were planned against
+    private boolean planned;  //Indicates if the goals were reordered by the QueryPlanner
+    private Clause clause;  //The compiled goals, with the placeholder atom for each parameter
+    private int[] positions;  //The index of each parameter within the clause's template, in the order they're written
+
+    /*
+     * A constructor that creates a PreparedPlan
+     * @param program the table the goals were planned against
+     * @param planned true if the goals were reordered by the QueryPlanner
+     * @param clause the compiled goals
+     * @param positions the index of each parameter within the clause's template
+     */
+    public PreparedPlan(PredicateTable program, boolean planned, Clause clause, int[] positions) {
+        this.program = program;
+        this.planned = planned;
+        this.clause = clause;
+        this.positions = positions;
+    }
+
+    /*
+     * Determines if the plan can be used to run a query against the given table
+     * @param program the table the query will be solved against
+     * @param planning true if goals are being reordered by the QueryPlanner
+     * @return true if the plan was made for the same table the same way
+     */
+    public boolean isFor(PredicateTable program, boolean planning) {
+        return this.program == program && planned == planning;
+    }
+
+    /*
+     * Compiles a run of the query with the given parameter values
+     * @param atoms the id of each parameter's value, in the order the parameters are written
+     * @return the clause to give a Resolver
+     */
+    public Clause bind(int[] atoms) {
+        return clause.bind(positions, atoms);
+    }
+}
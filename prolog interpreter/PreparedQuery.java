@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+
+/*
+ * A query parsed once and run many times with different atoms in place of its parameters
+ * A template is written like any other query with a question mark for each parameter, as in parent(?, X)?. The
+ * parameters become a placeholder atom when the template is parsed, and each run replaces them within the compiled query
+ * in the order they're written, so running a prepared query never builds a lexer, a parser, or a Predicate. The goals are
+ * planned the first time the query runs against a version of the program, and the plan is reused until the program
+ * changes. A PreparedQuery can be run by any number of threads at once.
+ */
+public class PreparedQuery {
+    public static final String PARAMETER = "?";  //The name of the placeholder atom a parameter is parsed as
+
+    private String template;  //The text the query was prepared from
+    private ArrayList<Query> goals;  //The goals in the order they're written, with the placeholder atom for each parameter
+    private int parameterCount;  //The number of parameters
+    private volatile PreparedPlan plan;  //The goals compiled against the version of the program they last ran against, or null
+
+    /*
+     * A constructor that creates a PreparedQuery given its parsed goals
+     * @param template the text the query was prepared from
+     * @param goals the goals in the order they're written
+     */
+    public PreparedQuery(String template, ArrayList<Query> goals) {
+        this.template = template;
+        this.goals = goals;
+        this.plan = null;
+        int parameter = SymbolTable.intern(PARAMETER);
+        parameterCount = 0;
+        for (Query goal : goals) {  //Count the parameters
+            for (int i = 0; i < goal.getArity(); i++) {
+                if (!goal.getPredicate().isList(i) && goal.getAtomId(i) == parameter) {
+                    parameterCount++;
+                }
+            }
+        }
+    }
+
+    /*
+     * Interns the values of the parameters, checking there's one atom for each parameter
+     * @param parameters the value of each parameter, in the order the parameters are written
+     * @return the id of each value
+     */
+    public int[] bind(String... parameters) {
+        if (parameters.length != parameterCount) {  //If there are too many or too few values
+            throw new IllegalArgumentException("Expected " + parameterCount + " parameters but got " + parameters.length + ": " + template);
+        }
+        int[] atoms = new int[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isEmpty() || !Character.isLowerCase(parameters[i].charAt(0))) {  //Only atoms can be bound, so a parameter can't add a variable
+                throw new IllegalArgumentException("Parameter " + (i + 1) + " isn't an atom: " + parameters[i]);
+            }
+            atoms[i] = SymbolTable.intern(parameters[i]);
+        }
+        return atoms;
+    }
+
+    /*
+     * Gets the text the query was prepared from
+     * @return the template
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /*
+     * Gets the goals of the query
+     * @return the goals in the order they're written, which must not be changed
+     */
+    public ArrayList<Query> getGoals() {
+        return goals;
+    }
+
+    /*
+     * Gets the number of parameters
+     * @return the number of values each run needs
+     */
+    public int getNumberOfParameters() {
+        return parameterCount;
+    }
+
+    /*
+     * Gets the plan the query last ran with
+     * @return the plan, or null if the query hasn't run yet
+     */
+    public PreparedPlan getPlan() {
+        return plan;
+    }
+
+    /*
+     * Sets the plan the query runs with until the program changes
+     * @param plan the goals compiled against the version of the program the query is running against
+     */
+    public void setPlan(PreparedPlan plan) {
+        this.plan = plan;
+    }
+}
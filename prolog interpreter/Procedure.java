@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+
+/*
+ * A class that holds every clause of the program that shares a functor and an arity
+ * A snapshot of a procedure holds the clauses it had when it was taken, and can be searched by other threads while
+ * clauses are added to the procedure it was taken from
+ */
+public class Procedure {
+    private String functor;
+    private int arity;
+    private Fact fact;  //Holds the fact clauses, null until the first fact is added
+    private ArrayList<PrologRule> rules;  //Holds the rule clauses in the order they were added
+    private boolean tabled;  //Indicates if calls to this procedure are answered from answer tables
+    private int changes;  //The number of times a clause was added or the procedure was tabled, which tells a snapshot if it's out of date
+
+    /*
+     * A constructor that creates an empty Procedure given a functor and an arity
+     * @param functor the name shared by every clause in this procedure
+     * @param arity the number of arguments shared by every clause in this procedure
+     */
+    public Procedure(String functor, int arity) {
+        this.functor = functor;  //Initializes the functor
+        this.arity = arity;  //Initializes the arity
+        this.fact = null;  //No facts have been added yet
+        this.rules = new ArrayList<>();  //Creates an array list of rules
+        this.tabled = false;  //Procedures aren't tabled unless asked for
+        this.changes = 0;
+    }
+
+    /*
+     * Takes a snapshot of the clauses added so far, which clauses added later don't change
+     * @return a procedure holding the same clauses, which must not be added to
+     */
+    public Procedure snapshot() {
+        Procedure snapshot = new Procedure(functor, arity);
+        snapshot.fact = fact == null ? null : fact.snapshot();
+        snapshot.rules = new ArrayList<>(rules);  //Rules are few, so they're copied
+        snapshot.tabled = tabled;
+        snapshot.changes = changes;
+        return snapshot;
+    }
+
+    /*
+     * Adds the given predicate to the fact clauses of this procedure
+     * @param predicate the predicate being added
+     */
+    public void addFact(Predicate predicate) {
+        if (fact == null) {  //If this is the first fact clause
+            fact = new Fact(functor);  //Create the fact that holds every fact clause
+        }
+        fact.addPredicate(predicate);  //Add the predicate to the fact
+        changes++;
+    }
+
+    /*
+     * Adds a ground fact clause given the ids of its atoms
+     * @param row the id of the atom at each argument position
+     */
+    public void addRow(int[] row) {
+        if (fact == null) {  //If this is the first fact clause
+            fact = new Fact(functor);  //Create the fact that holds every fact clause
+        }
+        fact.addRow(row);  //Add the ids to the fact
+        changes++;
+    }
+
+    /*
+     * Adds the given rule to the rule clauses of this procedure
+     * @param rule the rule being added
+     */
+    public void addRule(PrologRule rule) {
+        rules.add(rule);
+        changes++;
+    }
+
+    /*
+     * Determines if this procedure has any fact clauses
+     * @return true if at least one fact has been added
+     */
+    public boolean containsFacts() {
+        return fact != null;
+    }
+
+    /*
+     * Determines if this procedure has any rule clauses
+     * @return true if at least one rule has been added
+     */
+    public boolean containsRules() {
+        return !rules.isEmpty();
+    }
+
+    /*
+     * Gets the fact that holds every fact clause of this procedure
+     * @return the fact, or null if no facts have been added
+     */
+    public Fact getFact() {
+        return fact;
+    }
+
+    /*
+     * Gets the rule clauses of this procedure
+     * @return the list of rules
+     */
+    public ArrayList<PrologRule> getRules() {
+        return rules;
+    }
+
+    /*
+     * Gets the functor of this procedure
+     * @return the name shared by every clause
+     */
+    public String getFunctor() {
+        return functor;
+    }
+
+    /*
+     * Gets the arity of this procedure
+     * @return the number of arguments shared by every clause
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /*
+     * Sets whether calls to this procedure are answered from answer tables
+     * @param tabled true to table the procedure
+     */
+    public void setTabled(boolean tabled) {
+        this.tabled = tabled;
+        changes++;
+    }
+
+    /*
+     * Gets the number of changes made to this procedure, which a snapshot shares with the procedure it was taken from
+     * @return the number of clauses added plus the number of times the procedure was tabled
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /*
+     * Determines if calls to this procedure are answered from answer tables
+     * @return true if the procedure is tabled
+     */
+    public boolean isTabled() {
+        return tabled;
+    }
+}
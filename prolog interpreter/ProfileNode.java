@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+
+/*
+ * The counters of one procedure called along one path of calls from a query, a node of the tree a Profiler builds
+ * A procedure that calls itself, directly or through others, is counted in the node it already has on the path instead
+ * of a new one, so deep recursion doesn't make the tree as deep as the recursion.
+ */
+public class ProfileNode {
+    private String name;  //The functor and arity of the procedure, as in parent/2, or null for the root
+    private int functorId;  //The id of the procedure's functor in the SymbolTable
+    private int arity;  //The number of arguments of the procedure
+    private ProfileNode parent;  //The node of the caller, or null for the root
+    private IntMap<ArrayList<ProfileNode>> callees;  //Maps the functor id of each procedure called from here to its nodes (one per arity)
+    private ArrayList<ProfileNode> children;  //The nodes made for calls from here, in the order they were first called
+    private long calls;  //The number of times the procedure was called
+    private long redos;  //The number of times a call was backtracked into to try another clause
+    private long tries;  //The number of clauses, or tabled answers, tried
+    private long unifications;  //The number of clauses whose head unified with the call
+    private long time;  //The wall time spent in the procedure's own clauses, in nanoseconds, not counting its callees
+
+    /*
+     * A constructor that creates a ProfileNode
+     * @param functorId the id of the procedure's functor, or -1 for the root
+     * @param arity the number of arguments of the procedure
+     * @param parent the node of the caller, or null for the root
+     */
+    public ProfileNode(int functorId, int arity, ProfileNode parent) {
+        this.name = parent == null ? null : SymbolTable.getName(functorId) + "/" + arity;
+        this.functorId = functorId;
+        this.arity = arity;
+        this.parent = parent;
+        callees = new IntMap<>();
+        children = new ArrayList<>();
+    }
+
+    /*
+     * Gets the node of the given procedure called from this one, making it the first time it's called from here
+     * @param functorId the id of the called procedure's functor
+     * @param arity the number of arguments of the called procedure
+     * @return the callee's node, or the node of the same procedure further up the path if the call is recursive
+     */
+    public ProfileNode getCallee(int functorId, int arity) {
+        ArrayList<ProfileNode> arities = callees.get(functorId);
+        if (arities != null) {
+            for (ProfileNode callee : arities) {  //Find the callee with the same arity
+                if (callee.arity == arity) {
+                    return callee;
+                }
+            }
+        } else {
+            arities = new ArrayList<>(1);
+            callees.put(functorId, arities);
+        }
+        ProfileNode callee = null;
+        for (ProfileNode node = this; node.parent != null && callee == null; node = node.parent) {  //Look for a recursive call
+            if (node.functorId == functorId && node.arity == arity) {
+                callee = node;
+            }
+        }
+        if (callee == null) {  //If the procedure isn't on the path yet
+            callee = new ProfileNode(functorId, arity, this);
+            children.add(callee);
+        }
+        arities.add(callee);  //Remember the callee so later calls find it straight away
+        return callee;
+    }
+
+    /*
+     * Adds the given counts to the node
+     * @param calls the number of calls
+     * @param redos the number of times a call was backtracked into
+     * @param tries the number of clauses tried
+     * @param unifications the number of clauses whose head unified
+     * @param time the wall time spent, in nanoseconds
+     */
+    public void add(long calls, long redos, long tries, long unifications, long time) {
+        this.calls += calls;
+        this.redos += redos;
+        this.tries += tries;
+        this.unifications += unifications;
+        this.time += time;
+    }
+
+    /*
+     * Gets the functor and arity of the procedure
+     * @return the name of the procedure, as in parent/2, or null for the root
+     */
+    public String getName() {
+        return name;
+    }
+
+    /*
+     * Gets the node of the caller
+     * @return the parent node, or null for the root
+     */
+    public ProfileNode getParent() {
+        return parent;
+    }
+
+    /*
+     * Gets the nodes made for calls from this node, leaving out recursive calls counted further up the path
+     * @return the children in the order they were first called
+     */
+    public ArrayList<ProfileNode> getChildren() {
+        return children;
+    }
+
+    /*
+     * Gets the number of times the procedure was called
+     * @return the number of calls
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /*
+     * Gets the number of times a call was backtracked into to try another clause
+     * @return the number of redos
+     */
+    public long getRedos() {
+        return redos;
+    }
+
+    /*
+     * Gets the number of clauses, or tabled answers, tried
+     * @return the number of tries
+     */
+    public long getTries() {
+        return tries;
+    }
+
+    /*
+     * Gets the number of clauses whose head unified with the call
+     * @return the number of unifications
+     */
+    public long getUnifications() {
+        return unifications;
+    }
+
+    /*
+     * Gets the wall time spent in the procedure's own clauses, not counting its callees
+     * @return the self time in nanoseconds
+     */
+    public long getTime() {
+        return time;
+    }
+}
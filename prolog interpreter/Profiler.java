@@ -0,0 +1,234 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * Counts what the Resolver does for each procedure while profiling is on (see PrologInterpreter.setProfiling)
+ * The counts are kept in a tree with a node for each path of calls from a query, so the time of a procedure can be told
+ * apart by who called it. For each procedure it counts calls, redos (a call backtracked into to try another clause),
+ * clauses tried, clauses whose head unified, and the wall time spent in its own clauses. A logical inference is a call or
+ * a redo. The tree can be written as collapsed stacks, one line per path with its self time in microseconds, which
+ * flame graph tools read directly. Resolvers on any number of threads can record into the same profiler.
+ */
+public class Profiler {
+    private ProfileNode root;  //The node the goals of every query are called from
+
+    /*
+     * A constructor that creates an empty Profiler
+     */
+    public Profiler() {
+        root = new ProfileNode(-1, 0, null);
+    }
+
+    /*
+     * Gets the node the goals of a query are called from
+     * @return the root of the tree
+     */
+    public synchronized ProfileNode getRoot() {
+        return root;
+    }
+
+    /*
+     * Records a call, charging the time since the last event to the node that was running
+     * @param caller the node of the clause whose goal is called
+     * @param functorId the id of the called procedure's functor
+     * @param arity the number of arguments of the called procedure
+     * @param running the node that was running before the call
+     * @param time the wall time since the last event, in nanoseconds
+     * @return the node of the called procedure
+     */
+    public synchronized ProfileNode call(ProfileNode caller, int functorId, int arity, ProfileNode running, long time) {
+        running.add(0, 0, 0, 0, time);
+        ProfileNode callee = caller.getCallee(functorId, arity);
+        callee.add(1, 0, 0, 0, 0);
+        return callee;
+    }
+
+    /*
+     * Records a call being backtracked into, charging the time since the last event to the node that was running
+     * @param node the node of the call
+     * @param running the node that was running before backtracking
+     * @param time the wall time since the last event, in nanoseconds
+     */
+    public synchronized void redo(ProfileNode node, ProfileNode running, long time) {
+        running.add(0, 0, 0, 0, time);
+        node.add(0, 1, 0, 0, 0);
+    }
+
+    /*
+     * Records a clause or tabled answer being tried
+     * @param node the node of the call
+     * @param unified true if the head unified with the call
+     */
+    public synchronized void tried(ProfileNode node, boolean unified) {
+        node.add(0, 0, 1, unified ? 1 : 0, 0);
+    }
+
+    /*
+     * Charges time to the given node
+     * @param node the node that was running
+     * @param time the wall time, in nanoseconds
+     */
+    public synchronized void spend(ProfileNode node, long time) {
+        node.add(0, 0, 0, 0, time);
+    }
+
+    /*
+     * Removes every count, so profiling starts over
+     */
+    public synchronized void reset() {
+        root = new ProfileNode(-1, 0, null);
+    }
+
+    /*
+     * Adds up the counts of every node of the given procedure
+     * @param functor the name of the procedure
+     * @param arity the number of arguments of the procedure
+     * @return a node holding the totals, which is all zeros if the procedure wasn't called
+     */
+    public synchronized ProfileNode getTotals(String functor, int arity) {
+        String name = functor + "/" + arity;
+        ProfileNode totals = new ProfileNode(SymbolTable.intern(functor), arity, root);
+        ArrayList<ProfileNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+        for (ProfileNode node : nodes) {
+            if (name.equals(node.getName())) {
+                totals.add(node.getCalls(), node.getRedos(), node.getTries(), node.getUnifications(), node.getTime());
+            }
+        }
+        return totals;
+    }
+
+    /*
+     * Gets the number of logical inferences made while profiling
+     * @return the number of calls and redos of every procedure
+     */
+    public synchronized long getInferences() {
+        ArrayList<ProfileNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+        long inferences = 0;
+        for (ProfileNode node : nodes) {
+            inferences += node.getCalls() + node.getRedos();
+        }
+        return inferences;
+    }
+
+    /*
+     * Gets the wall time the resolvers spent solving while profiling, added up across threads
+     * @return the time in nanoseconds
+     */
+    public synchronized long getTime() {
+        ArrayList<ProfileNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+        long time = 0;
+        for (ProfileNode node : nodes) {
+            time += node.getTime();
+        }
+        return time;
+    }
+
+    /*
+     * Gets the number of logical inferences per second while profiling
+     * @return the inferences divided by the time spent solving, or 0 if nothing was timed
+     */
+    public synchronized long getInferencesPerSecond() {
+        long time = getTime();
+        return time == 0 ? 0 : (long) (getInferences() * 1e9 / time);
+    }
+
+    /*
+     * Writes a table of the counts of each procedure, the ones that took the most time first, followed by the totals
+     * @return the table, one procedure per line
+     */
+    public synchronized String report() {
+        ArrayList<ProfileNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+        HashMap<String, long[]> totals = new HashMap<>();  //The calls, redos, tries, unifications, and time of each procedure, added up across its nodes
+        ArrayList<String> procedures = new ArrayList<>();  //The procedures, the one that took the most time first
+        for (ProfileNode node : nodes) {
+            if (node.getParent() == null) {  //The root isn't a procedure
+                continue;
+            }
+            long[] total = totals.get(node.getName());
+            if (total == null) {
+                total = new long[5];
+                totals.put(node.getName(), total);
+                procedures.add(node.getName());
+            }
+            total[0] += node.getCalls();
+            total[1] += node.getRedos();
+            total[2] += node.getTries();
+            total[3] += node.getUnifications();
+            total[4] += node.getTime();
+        }
+        for (int i = 1; i < procedures.size(); i++) {  //Sort the procedures by time, most first
+            String procedure = procedures.get(i);
+            int j = i;
+            while (j > 0 && totals.get(procedures.get(j - 1))[4] < totals.get(procedure)[4]) {
+                procedures.set(j, procedures.get(j - 1));
+                j--;
+            }
+            procedures.set(j, procedure);
+        }
+        StringBuilder output = new StringBuilder("predicate\tcalls\tredos\ttries\tunifications\tinferences\tself ms\n");
+        for (String procedure : procedures) {
+            long[] total = totals.get(procedure);
+            output.append(procedure).append('\t').append(total[0]).append('\t').append(total[1]).append('\t').append(total[2]);
+            output.append('\t').append(total[3]).append('\t').append(total[0] + total[1]).append('\t').append(total[4] / 1000000.0).append('\n');
+        }
+        output.append(getInferences()).append(" inferences in ").append(getTime() / 1000000.0).append(" ms, ");
+        output.append(getInferencesPerSecond()).append(" inferences per second");
+        return output.toString();
+    }
+
+    /*
+     * Writes the tree as collapsed stacks: each path of calls with its functors separated by semicolons, followed by a
+     * space and the self time of the path's last procedure in microseconds. Paths that took no measurable time are left out
+     * @return the stacks, one per line
+     */
+    public synchronized String getCollapsedStacks() {
+        StringBuilder output = new StringBuilder();
+        ArrayList<ProfileNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+        for (ProfileNode node : nodes) {
+            long micros = node.getTime() / 1000;
+            if (node.getParent() == null || micros == 0) {
+                continue;
+            }
+            StringBuilder stack = new StringBuilder(node.getName());
+            for (ProfileNode caller = node.getParent(); caller.getParent() != null; caller = caller.getParent()) {  //Walk up to the query
+                stack.insert(0, ';').insert(0, caller.getName());
+            }
+            output.append(stack).append(' ').append(micros).append('\n');
+        }
+        return output.toString();
+    }
+
+    /*
+     * Writes the tree as collapsed stacks to the given file (see getCollapsedStacks)
+     * @param path the file to write, which is replaced if it exists
+     * @throws IOException if the file can't be written
+     */
+    public void writeCollapsedStacks(String path) throws IOException {
+        String stacks = getCollapsedStacks();
+        try (BufferedWriter out = Files.newBufferedWriter(Path.of(path))) {
+            out.write(stacks);
+        }
+    }
+
+    /*
+     * Adds every node of the tree below the given node to the given list, the node first, without recursing so deep trees fit on the stack
+     * @param node the node to start from
+     * @param nodes the list the nodes are added to
+     */
+    private static void collect(ProfileNode node, ArrayList<ProfileNode> nodes) {
+        int start = nodes.size();
+        nodes.add(node);
+        for (int i = start; i < nodes.size(); i++) {  //Add the children of each node added so far
+            nodes.addAll(nodes.get(i).getChildren());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * One published version of a program: a snapshot of its clauses, the answer tables of its tabled procedures, and
+ * the facts its rules imply when it's solved bottom up
+ * Queries run against the version that was published when they started, so clauses added while a query runs never
+ * change its answers, and any number of queries can read a version at once without locking.
+ */
+public class ProgramVersion {
+    private PredicateTable table;  //The snapshot of the program's clauses
+    private long number;  //The number of changes made to the program before the snapshot was taken
+    private TableSpace tables;  //The answer tables of this version's tabled procedures
+    private PredicateTable materialized;  //Every fact implied by the snapshot (or the snapshot itself if it isn't Datalog), or null until it's needed
+
+    /*
+     * A constructor that creates a ProgramVersion given a snapshot of the program
+     * @param table the snapshot of the program's clauses, which must not be added to
+     * @param number the number of changes made to the program before the snapshot was taken
+     */
+    public ProgramVersion(PredicateTable table, long number) {
+        this.table = table;
+        this.number = number;
+        this.tables = new TableSpace();
+        this.materialized = null;
+    }
+
+    /*
+     * Gets the snapshot of the program's clauses
+     * @return the table of procedures, which must not be added to
+     */
+    public PredicateTable getTable() {
+        return table;
+    }
+
+    /*
+     * Gets the number of changes made to the program before this version was published
+     * @return the version number
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /*
+     * Gets the answer tables of this version's tabled procedures
+     * @return the table space
+     */
+    public TableSpace getTables() {
+        return tables;
+    }
+
+    /*
+     * Gets every fact this version's rules imply, computing them the first time they're needed
+     * @return a table holding the facts, or the snapshot itself if the program can't be solved bottom up
+     */
+    public synchronized PredicateTable getMaterialized() {
+        if (materialized == null) {  //If the implied facts haven't been computed yet
+            if (BottomUpEvaluator.isDatalog(table)) {
+                materialized = new BottomUpEvaluator(table).evaluate();
+            } else {  //Programs outside Datalog are solved top down
+                materialized = table;
+            }
+        }
+        return materialized;
+    }
+}
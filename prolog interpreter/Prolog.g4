@@ -18,10 +18,12 @@ list        : BRACKET BRACKET
 startTerm   : ATOM          #atom       //A single atom
             | VARIABLE      #variable   //A single variable
             | list          #soloList
+            | QUESTION      #parameter  //A parameter of a prepared query
             ;
 midTerm     : COMMA ATOM        #midAtom        //A comma followed by an atom
             | COMMA VARIABLE    #midVariable    //A comma followed by a variable
             | COMMA list        #midList
+            | COMMA QUESTION    #midParameter   //A comma followed by a parameter of a prepared query
             ;
 
 predicate   : startTerm midTerm*      //A startTerm followed by zero or more midTerms
@@ -39,7 +41,7 @@ head        : ATOM PAREN predicate PAREN ;                  //An atom followed b
 startBody   : ATOM PAREN predicate PAREN ;                  //An atom followed by a predicate in parenthesis
 midBody     : COMMA ATOM PAREN predicate PAREN ;            //A comma followed by an atom and a predicate in parenthesis
 endBody     : COMMA ATOM PAREN predicate PAREN PERIOD ;     //A comma followed by an atom, a predicate in parenthesis, and a period
-simplePrologRule        : head BACK_ARROW startBody ;                    //A head followed by a back arrow and a startBody
+simplePrologRule        : head BACK_ARROW startBody PERIOD? ;            //A head followed by a back arrow, a startBody, and a period (which used to be left unread)
 conjunctivePrologRule   : head BACK_ARROW startBody midBody* endBody ;   //A head followed by a back arrow, startBody, zero or more midBodies, and an endBody
 
 input   : fact                      //#inputFact                  //The input is a fact
@@ -49,6 +51,8 @@ input   : fact                      //#inputFact                  //The input is
         | conjunctivePrologRule     //conjunctiveRule
         ;
 
+program : input* EOF ;      //Every clause of a program file, read in one pass
+
 /*
  * Lexer Rules
  */
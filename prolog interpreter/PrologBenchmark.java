@@ -0,0 +1,1096 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Random;
+
+/*
+ * A command line benchmark for the PrologInterpreter
+ * Usage: java PrologBenchmark [workload]
+ */
+public class PrologBenchmark {
+    private static final int WARMUP_ROUNDS = 3;  //The number of untimed rounds run before measuring
+    private static final int MEASURED_ROUNDS = 5;  //The number of timed rounds that are averaged
+
+    public static void main(String[] args) {
+        String workload = "lookup";  //The workload to run if none is given
+        if (args.length > 0) {  //If a workload was given
+            workload = args[0];  //Run the given workload
+        }
+        if (workload.equals("lookup")) {  //If the workload is the predicate lookup benchmark
+            benchmarkLookup();
+        } else if (workload.equals("index")) {  //If the workload is the argument indexing benchmark
+            benchmarkIndex();
+        } else if (workload.equals("heap")) {  //If the workload is the memory and join benchmark
+            benchmarkHeap();
+        } else if (workload.equals("resolve")) {  //If the workload is the non-ground resolution benchmark
+            benchmarkResolve();
+        } else if (workload.equals("stream")) {  //If the workload is the streaming answer benchmark
+            benchmarkStream();
+        } else if (workload.equals("tabling")) {  //If the workload is the tabled reachability benchmark
+            benchmarkTabling();
+        } else if (workload.equals("join")) {  //If the workload is the planned join benchmark
+            benchmarkJoin();
+        } else if (workload.equals("datalog")) {  //If the workload is the bottom up transitive closure benchmark
+            benchmarkDatalog();
+        } else if (workload.equals("parallel")) {  //If the workload is the OR-parallel search benchmark
+            benchmarkParallel();
+        } else if (workload.equals("conjunction")) {  //If the workload is the independent conjunct benchmark
+            benchmarkConjunction();
+        } else if (workload.equals("consult")) {  //If the workload is the bulk loading benchmark
+            benchmarkConsult();
+        } else if (workload.equals("snapshot")) {  //If the workload is the snapshot loading benchmark
+            benchmarkSnapshot();
+        } else if (workload.equals("cache")) {  //If the workload is the repeated query benchmark
+            benchmarkCache();
+        } else if (workload.equals("concurrent")) {  //If the workload is the concurrent readers benchmark
+            benchmarkConcurrent();
+        } else if (workload.equals("server")) {  //If the workload is the query server benchmark
+            benchmarkServer();
+        } else if (workload.equals("prepared")) {  //If the workload is the prepared query benchmark
+            benchmarkPrepared();
+        } else if (workload.equals("lists")) {  //If the workload is the long list benchmark
+            benchmarkLists();
+        } else if (workload.equals("answers")) {  //If the workload is the large answer set benchmark
+            benchmarkAnswers();
+        } else if (workload.equals("rules")) {  //If the workload is the naive reverse benchmark
+            benchmarkRules();
+        } else if (workload.equals("suite")) {  //If the workload is the baseline of the classic workloads
+            benchmarkSuite();
+        } else {  //If the workload is unknown
+            System.out.println("Unknown workload: " + workload);
+            System.out.println("Workloads: lookup, index, heap, resolve, stream, tabling, join, datalog, parallel, conjunction, consult, snapshot, cache, concurrent, server, prepared, lists, answers, rules, suite");
+        }
+    }
+
+    /*
+     * Converts the given number into a name made of lowercase letters, since the grammar doesn't allow digits in atoms
+     * @param number a non-negative number
+     * @return a unique atom for the number
+     */
+    public static String atomName(int number) {
+        StringBuilder name = new StringBuilder();  //Holds the letters of the name
+        do {
+            name.append((char) ('a' + number % 26));  //Add the next base 26 digit as a letter
+            number = number / 26;  //Move to the next digit
+        } while (number > 0);
+        return name.toString();
+    }
+
+    /*
+     * Adds the given fact or rule to the interpreter
+     * @param interpreter the interpreter being loaded
+     * @param input a single fact or rule
+     */
+    public static void consult(PrologInterpreter interpreter, String input) {
+        interpreter.resolve(interpreter.evaluateInput(input));  //Parse the input and add it to the program
+    }
+
+    /*
+     * Creates a predicate holding the given atoms without going through the parser
+     * @param atoms the atoms and variables of the predicate
+     * @return the predicate
+     */
+    public static Predicate predicate(String... atoms) {
+        Predicate predicate = new Predicate();  //Create the predicate
+        for (String atom : atoms) {  //Iterate through the atoms
+            predicate.addAtom(atom);  //Add the atom to the predicate
+            if (Character.isUpperCase(atom.charAt(0))) {  //If the atom is a variable
+                predicate.enableVariable();  //Mark the predicate as holding a variable
+            }
+        }
+        return predicate;
+    }
+
+    /*
+     * Creates a query holder without going through the parser, marked the same way evaluateInput would mark it
+     * @param functor the name of the query
+     * @param atoms the atoms and variables of the query
+     * @return a holder containing the query
+     */
+    public static PrologHolder query(String functor, String... atoms) {
+        Query query = new Query(functor, predicate(atoms));  //Create the query
+        PrologHolder holder = new PrologHolder(query);  //Place it in a holder
+        if (query.getPredicate().isVariable()) {  //If the query holds a variable
+            holder.changeToVariable();  //Mark the holder as non-ground
+        }
+        return holder;
+    }
+
+    /*
+     * Adds a fact to the interpreter without going through the parser
+     * @param interpreter the interpreter being loaded
+     * @param functor the name of the fact
+     * @param atoms the atoms of the fact
+     */
+    public static void assertFact(PrologInterpreter interpreter, String functor, String... atoms) {
+        Fact fact = new Fact(functor);  //Create the fact
+        fact.addPredicate(predicate(atoms));  //Add the predicate to it
+        interpreter.resolve(new PrologHolder(fact));  //Add the fact to the program
+    }
+
+    /*
+     * Measures the average time of a ground query lookup as the number of distinct predicates grows
+     * Each predicate has one fact and one rule, so both the fact and rule tables are exercised
+     */
+    public static void benchmarkLookup() {
+        int[] sizes = {10, 100, 1000, 10000, 100000};  //The numbers of distinct predicates to test
+        int lookups = 100000;  //The number of queries in a single round
+        System.out.println("predicates\tns/lookup");
+        for (int size : sizes) {  //Iterate through the sizes
+            PrologInterpreter interpreter = new PrologInterpreter();  //Create a new interpreter
+            for (int i = 0; i < size; i++) {  //Add a fact and a rule for every predicate
+                String name = atomName(i);  //Get the name of the predicate
+                consult(interpreter, "p" + name + "(a).");  //Add the fact
+                consult(interpreter, "r" + name + "(X) :- p" + name + "(X).");  //Add the rule
+            }
+
+            Random random = new Random(42);  //Use a fixed seed so every run asks the same queries
+            PrologHolder[] queries = new PrologHolder[1024];  //Parse the queries ahead of time so only the lookup is timed
+            for (int i = 0; i < queries.length; i++) {  //Create the queries
+                String name = atomName(random.nextInt(size));  //Pick a random predicate
+                queries[i] = interpreter.evaluateInput("r" + name + "(a)?");  //Query the rule, which then looks up the fact
+            }
+
+            long total = 0;  //The total time of the measured rounds
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+                long start = System.nanoTime();  //Start the timer
+                for (int i = 0; i < lookups; i++) {  //Run the lookups
+                    interpreter.resolve(queries[i & (queries.length - 1)]);  //Resolve the next query
+                }
+                long elapsed = System.nanoTime() - start;  //Stop the timer
+                if (round >= WARMUP_ROUNDS) {  //If this round is measured
+                    total += elapsed;  //Add the time to the total
+                }
+            }
+            System.out.println(size + "\t" + (total / ((long) MEASURED_ROUNDS * lookups)));  //Print the average time per lookup
+        }
+    }
+
+    /*
+     * Measures the average time of queries that bind one argument of a large binary relation
+     * The first-argument queries use the first-argument index and the second-argument queries use an index built on demand
+     */
+    public static void benchmarkIndex() {
+        int[] sizes = {1000, 10000, 100000, 1000000};  //The numbers of facts to test
+        int queries = 20000;  //The number of queries in a single round
+        System.out.println("facts\tfirst ns/query\tsecond ns/query");
+        for (int size : sizes) {  //Iterate through the sizes
+            PrologInterpreter interpreter = new PrologInterpreter();  //Create a new interpreter
+            Random random = new Random(42);  //Use a fixed seed so every run loads the same facts
+            int people = size / 4;  //Every person has four children on average
+            for (int i = 0; i < size; i++) {  //Add the facts
+                assertFact(interpreter, "parent", atomName(random.nextInt(people)), atomName(random.nextInt(people)));
+            }
+            String[] names = new String[1024];  //Pick the people that will be queried ahead of time
+            for (int i = 0; i < names.length; i++) {
+                names[i] = atomName(random.nextInt(people));
+            }
+            long first = 0;  //The total time of the measured first-argument rounds
+            long second = 0;  //The total time of the measured second-argument rounds
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+                long start = System.nanoTime();  //Start the timer
+                for (int i = 0; i < queries; i++) {  //Ask who the children of someone are
+                    interpreter.resolve(query("parent", names[i & (names.length - 1)], "X"));
+                }
+                long middle = System.nanoTime();  //Split the timer
+                for (int i = 0; i < queries; i++) {  //Ask who the parents of someone are
+                    interpreter.resolve(query("parent", "X", names[i & (names.length - 1)]));
+                }
+                long end = System.nanoTime();  //Stop the timer
+                if (round >= WARMUP_ROUNDS) {  //If this round is measured
+                    first += middle - start;  //Add the times to the totals
+                    second += end - middle;
+                }
+            }
+            long total = (long) MEASURED_ROUNDS * queries;  //The number of measured queries of each kind
+            System.out.println(size + "\t" + (first / total) + "\t" + (second / total));  //Print the average time per query
+        }
+    }
+
+    /*
+     * Gets the number of bytes in use on the heap after a garbage collection
+     * @return the number of bytes in use
+     */
+    public static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {  //Collect a few times so the measurement settles
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /*
+     * Measures the heap used per fact and the time of ground join queries on a knowledge base of one million facts
+     * Every fact is parsed from text, the same way PrologRunner loads a program
+     */
+    public static void benchmarkHeap() {
+        int size = 1000000;  //The number of facts
+        int people = size / 4;  //Every person has four children on average
+        Random random = new Random(42);  //Use a fixed seed so every run loads the same facts
+        String[] parents = new String[size];  //The parent in each fact, kept so the joins can be built from real facts
+        String[] children = new String[size];  //The child in each fact
+        for (int i = 0; i < size; i++) {  //Pick the facts
+            parents[i] = atomName(random.nextInt(people));
+            children[i] = atomName(random.nextInt(people));
+            SymbolTable.intern(parents[i]);  //Intern the names up front so only the facts themselves are measured
+            SymbolTable.intern(children[i]);
+        }
+        long before = usedHeap();  //Measure the heap before loading
+        PrologInterpreter interpreter = new PrologInterpreter();  //Create a new interpreter
+        for (int i = 0; i < size; i++) {  //Add the facts
+            consult(interpreter, "parent(" + parents[i] + ", " + children[i] + ").");
+        }
+        consult(interpreter, "grandparent(X, Z) :- parent(X, Y), parent(Y, Z).");  //Add a rule that joins the relation with itself
+        long after = usedHeap();  //Measure the heap after loading
+        System.out.println("bytes/fact\t" + ((after - before) / size));  //The names and the arrays holding them were already on the heap
+
+        PrologHolder[] joins = new PrologHolder[1024];  //Ground join queries that follow real parent links
+        for (int i = 0; i < joins.length; i++) {
+            int first = random.nextInt(size);  //Pick a fact
+            joins[i] = query("parent", parents[first], children[first]);  //Ask for the fact itself
+            if ((i & 1) == 1) {  //Every other query goes through the rule instead
+                joins[i] = query("grandparent", parents[first], children[random.nextInt(size)]);
+            }
+        }
+        int queries = 20000;  //The number of queries in a single round
+        long total = 0;  //The total time of the measured rounds
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+            long start = System.nanoTime();  //Start the timer
+            for (int i = 0; i < queries; i++) {
+                interpreter.resolve(joins[i & (joins.length - 1)]);
+            }
+            if (round >= WARMUP_ROUNDS) {  //If this round is measured
+                total += System.nanoTime() - start;
+            }
+        }
+        System.out.println("ns/query\t" + (total / ((long) MEASURED_ROUNDS * queries)));  //Print the average time per query
+        System.out.println("kept\t" + interpreter.getPredicateTable().getNumberOfProcedures());  //Keep the interpreter reachable until the end
+    }
+
+    /*
+     * Gets the number of bytes the current thread has allocated so far
+     * @return the allocated bytes, or zero if the JVM can't measure them
+     */
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {  //If the JVM can count allocations per thread
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().threadId());
+        }
+        return 0;
+    }
+
+    /*
+     * Measures the time and the garbage of non-ground queries that join a relation with itself through a rule
+     * Every query enumerates all of its answers, so the cost of backtracking is included
+     */
+    public static void benchmarkResolve() {
+        int[] sizes = {1000, 10000, 100000};  //The numbers of facts to test
+        int queries = 20000;  //The number of queries in a single round
+        System.out.println("facts	ns/query	bytes/query	answers/query");
+        for (int size : sizes) {  //Iterate through the sizes
+            PrologInterpreter interpreter = new PrologInterpreter();  //Create a new interpreter
+            Random random = new Random(42);  //Use a fixed seed so every run loads the same facts
+            int people = size / 4;  //Every person has four children on average
+            for (int i = 0; i < size; i++) {  //Add the facts
+                assertFact(interpreter, "parent", atomName(random.nextInt(people)), atomName(random.nextInt(people)));
+            }
+            consult(interpreter, "grandparent(X, Z) :- parent(X, Y), parent(Y, Z).");  //Add a rule that joins the relation with itself
+            PrologHolder[] grandchildren = new PrologHolder[1024];  //Ask for the grandchildren of random people
+            for (int i = 0; i < grandchildren.length; i++) {
+                grandchildren[i] = query("grandparent", atomName(random.nextInt(people)), "Z");
+            }
+            long answers = 0;  //The number of answers found in the measured rounds
+            long total = 0;  //The total time of the measured rounds
+            long garbage = 0;  //The total bytes allocated in the measured rounds
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+                long allocated = allocatedBytes();  //Start counting allocations
+                long start = System.nanoTime();  //Start the timer
+                long found = 0;
+                for (int i = 0; i < queries; i++) {
+                    PrologHolder answer = interpreter.resolve(grandchildren[i & (grandchildren.length - 1)]);
+                    if (answer.getType().equals("substitutions")) {  //If the query had answers
+                        found += answer.getSubstitutions().get(0).getSize();
+                    }
+                }
+                long elapsed = System.nanoTime() - start;  //Stop the timer
+                if (round >= WARMUP_ROUNDS) {  //If this round is measured
+                    total += elapsed;
+                    garbage += allocatedBytes() - allocated;
+                    answers += found;
+                }
+            }
+            long measured = (long) MEASURED_ROUNDS * queries;  //The number of measured queries
+            System.out.println(size + "\t" + (total / measured) + "\t" + (garbage / measured) + "\t" + ((double) answers / measured));
+        }
+    }
+
+    /*
+     * Compares asking for the first ten answers of a query with a million answers against collecting every answer
+     */
+    public static void benchmarkStream() {
+        int size = 1000000;  //The number of facts, and so the number of answers
+        PrologInterpreter interpreter = new PrologInterpreter();  //Create a new interpreter
+        Random random = new Random(42);  //Use a fixed seed so every run loads the same facts
+        for (int i = 0; i < size; i++) {  //Add the facts
+            assertFact(interpreter, "parent", atomName(random.nextInt(size / 4)), atomName(random.nextInt(size / 4)));
+        }
+        PrologHolder everyone = query("parent", "X", "Y");  //A query whose answers are every fact
+        long first = 0;  //The total time of the measured first ten answers
+        long all = 0;  //The total time of the measured full answer sets
+        long allocated = 0;  //The total bytes allocated while collecting every answer
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+            long start = System.nanoTime();  //Start the timer
+            Iterator<Answer> answers = interpreter.answers(everyone, 10);  //Ask for the first ten answers
+            while (answers.hasNext()) {
+                answers.next();
+            }
+            long middle = System.nanoTime();  //Split the timer
+            long before = allocatedBytes();
+            interpreter.evaluateNonGroundQuery(everyone);  //Collect every answer
+            long end = System.nanoTime();  //Stop the timer
+            if (round >= WARMUP_ROUNDS) {  //If this round is measured
+                first += middle - start;
+                all += end - middle;
+                allocated += allocatedBytes() - before;
+            }
+        }
+        System.out.println("first 10 ns\t" + (first / MEASURED_ROUNDS));
+        System.out.println("all ns\t" + (all / MEASURED_ROUNDS));
+        System.out.println("all bytes\t" + (allocated / MEASURED_ROUNDS));
+    }
+
+    /*
+     * Creates an interpreter holding a ladder graph, where every node links to the next two nodes, and a reach rule
+     * @param size the number of nodes
+     * @param tabled true to table reach and define it left recursively, false to define it right recursively
+     * @return the interpreter
+     */
+    public static PrologInterpreter ladder(int size, boolean tabled) {
+        PrologInterpreter interpreter = new PrologInterpreter();  //Create a new interpreter
+        for (int i = 0; i + 1 < size; i++) {  //Add the edges
+            consult(interpreter, "edge(" + atomName(i) + ", " + atomName(i + 1) + ").");
+            if (i + 2 < size) {
+                consult(interpreter, "edge(" + atomName(i) + ", " + atomName(i + 2) + ").");
+            }
+        }
+        consult(interpreter, "reach(X, Y) :- edge(X, Y).");
+        if (tabled) {  //The left recursive form only terminates when it's tabled
+            consult(interpreter, "reach(X, Y) :- reach(X, Z), edge(Z, Y).");
+            interpreter.table("reach", 2);
+        } else {
+            consult(interpreter, "reach(X, Y) :- edge(X, Z), reach(Z, Y).");
+        }
+        return interpreter;
+    }
+
+    /*
+     * Measures reachability queries over a ladder graph, where the number of paths grows exponentially with the length
+     * Without tabling every path is derived again, so only the short ladders are run that way
+     */
+    public static void benchmarkTabling() {
+        int[] sizes = {10, 20, 25, 1000};  //The numbers of nodes to test
+        System.out.println("nodes\tplain ms\ttabled ms\tanswers");
+        for (int size : sizes) {  //Iterate through the sizes
+            String[] times = new String[2];  //The time of the last round without and with tabling
+            long answers = 0;
+            for (int tabled = 0; tabled < 2; tabled++) {  //Run without tabling, then with it
+                if (tabled == 0 && size > 25) {  //If the ladder is too long to derive every path
+                    times[0] = "-";
+                    continue;
+                }
+                PrologInterpreter interpreter = ladder(size, tabled == 1);
+                PrologHolder reach = query("reach", atomName(0), "Y");  //Ask for every node reachable from the first
+                for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+                    interpreter.clearTables();  //Make every round evaluate the query again
+                    long start = System.nanoTime();
+                    PrologHolder answer = interpreter.evaluateNonGroundQuery(reach);
+                    times[tabled] = String.valueOf((System.nanoTime() - start) / 1000000);
+                    answers = answer.getSubstitutions().get(0).getSize();  //Printed from the tabled run, which finds each node once
+                }
+            }
+            System.out.println(size + "\t" + times[0] + "\t" + times[1] + "\t" + answers);
+        }
+    }
+
+    /*
+     * Measures a three way join over relations of 100,000 facts, written with its most selective goal last
+     * In the written order the first goal scans a whole relation, while the planner starts from the selective goal
+     */
+    public static void benchmarkJoin() {
+        int size = 100000;  //The number of facts in each relation
+        int keys = size / 4;  //The number of distinct atoms in each column
+        PrologInterpreter interpreter = new PrologInterpreter();  //Create a new interpreter
+        Random random = new Random(42);  //Use a fixed seed so every run loads the same facts
+        for (String functor : new String[] {"ra", "rb", "rc"}) {  //Add the relations
+            for (int i = 0; i < size; i++) {
+                assertFact(interpreter, functor, atomName(random.nextInt(keys)), atomName(random.nextInt(keys)));
+            }
+        }
+        PrologHolder join = interpreter.evaluateInput("ra(X, Y), rb(Y, Z), rc(Z, " + atomName(7) + ")?");  //The selective goal is last
+        System.out.println("order\tms\tanswers");
+        for (int planned = 1; planned >= 0; planned--) {  //Run with the planner, then without it
+            interpreter.setPlanning(planned == 1);
+            long elapsed = 0;
+            long answers = 0;
+            int rounds = planned == 1 ? WARMUP_ROUNDS + MEASURED_ROUNDS : 1;  //The written order is too slow to repeat
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                PrologHolder answer = interpreter.evaluateNonGroundQuery(join);
+                elapsed = System.nanoTime() - start;
+                answers = answer.getType().equals("substitutions") ? answer.getSubstitutions().get(0).getSize() : 0;
+            }
+            System.out.println((planned == 1 ? "planned" : "written") + "\t" + (elapsed / 1000000) + "\t" + answers);
+        }
+    }
+
+    /*
+     * Measures the transitive closure of a chain and of a ladder graph, solved top down, top down with tabling, and
+     * bottom up. The whole closure is asked for, so every round derives every pair.
+     * Without tabling the ladder derives every path again, so only the short ladders are run top down
+     */
+    public static void benchmarkDatalog() {
+        int[] sizes = {100, 200, 400};  //The numbers of nodes to test
+        String[] modes = {"top down", "tabled", "bottom up"};
+        System.out.println("graph\tnodes\ttop down ms\ttabled ms\tbottom up ms\tanswers");
+        for (String graph : new String[] {"chain", "ladder"}) {  //Iterate through the graphs
+            for (int size : sizes) {  //Iterate through the sizes
+                String[] times = new String[modes.length];  //The time of the last round in each mode
+                long answers = 0;
+                for (int mode = 0; mode < modes.length; mode++) {  //Run each mode
+                    if (mode == 0 && graph.equals("ladder") && size > 20) {  //If the ladder is too long to derive every path
+                        times[mode] = "-";
+                        continue;
+                    }
+                    PrologInterpreter interpreter = new PrologInterpreter();
+                    for (int i = 0; i + 1 < size; i++) {  //Add the edges
+                        assertFact(interpreter, "edge", atomName(i), atomName(i + 1));
+                        if (graph.equals("ladder") && i + 2 < size) {
+                            assertFact(interpreter, "edge", atomName(i), atomName(i + 2));
+                        }
+                    }
+                    consult(interpreter, "tc(X, Y) :- edge(X, Y).");
+                    if (mode == 0) {  //Plain resolution only terminates on the right recursive form
+                        consult(interpreter, "tc(X, Y) :- edge(X, Z), tc(Z, Y).");
+                    } else {
+                        consult(interpreter, "tc(X, Y) :- tc(X, Z), edge(Z, Y).");
+                    }
+                    if (mode == 1) {
+                        interpreter.table("tc", 2);
+                    } else if (mode == 2) {
+                        interpreter.setEvaluationMode("bottom up");
+                    }
+                    PrologHolder closure = query("tc", "X", "Y");
+                    for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+                        interpreter.clearTables();  //Make every round derive the closure again
+                        long start = System.nanoTime();
+                        PrologHolder answer = interpreter.evaluateNonGroundQuery(closure);
+                        times[mode] = String.valueOf((System.nanoTime() - start) / 1000000);
+                        answers = answer.getSubstitutions().get(0).getSize();
+                    }
+                }
+                System.out.println(graph + "\t" + size + "\t" + times[0] + "\t" + times[1] + "\t" + times[2] + "\t" + answers);
+            }
+        }
+    }
+
+    /*
+     * Measures every reachable pair of an untabled ladder graph, whose paths grow exponentially, as threads are added
+     * The first goal's clauses lead to subtrees of very different sizes, so the search is split into many small tasks
+     */
+    public static void benchmarkParallel() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        PrologInterpreter interpreter = ladder(22, false);
+        PrologHolder reach = query("reach", "X", "Y");
+        System.out.println("cores available: " + cores);
+        System.out.println("threads\tms\tspeedup\tanswers");
+        long base = 0;
+        for (int threads = 1; threads <= Math.max(cores, 1); threads *= 2) {  //Double the threads up to the number of cores
+            interpreter.setParallelism(threads);
+            long elapsed = 0;
+            long answers = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+                long start = System.nanoTime();
+                PrologHolder answer = interpreter.evaluateNonGroundQuery(reach);
+                elapsed = System.nanoTime() - start;
+                answers = answer.getSubstitutions().get(0).getSize();
+            }
+            if (threads == 1) {
+                base = elapsed;
+            }
+            System.out.printf("%d\t%d\t%.2f\t%d%n", threads, elapsed / 1000000, (double) base / elapsed, answers);
+            if (threads < cores && threads * 2 > cores) {  //Finish with every core
+                threads = cores / 2;
+            }
+        }
+        interpreter.setParallelism(1);
+    }
+
+    /*
+     * Measures a query made of three independent joins, each written with its selective goal last, with one thread and
+     * with every core. Planning is off so each join does a full scan. Solved on one thread, the later joins are solved
+     * again for every answer of the earlier ones. Solved in parallel, each join is solved once and at the same time.
+     */
+    public static void benchmarkConjunction() {
+        int size = 20000;  //The number of facts in each relation
+        int keys = size / 4;  //The number of distinct atoms in each column
+        PrologInterpreter interpreter = new PrologInterpreter();
+        interpreter.setPlanning(false);
+        Random random = new Random(42);  //Use a fixed seed so every run loads the same facts
+        String[] functors = {"ra", "rb", "rc", "rd", "re", "rf"};
+        for (String functor : functors) {  //Add the relations
+            for (int i = 0; i < size; i++) {
+                assertFact(interpreter, functor, atomName(random.nextInt(keys)), atomName(random.nextInt(keys)));
+            }
+        }
+        PrologHolder query = interpreter.evaluateInput("ra(A, B), rb(B, " + atomName(1) + "), rc(C, D), rd(D, " + atomName(2) + "), re(E, F), rf(F, " + atomName(3) + ")?");
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("cores available: " + cores);
+        System.out.println("threads\tms\tanswers");
+        for (int threads : new int[] {1, Math.max(cores, 2)}) {  //One thread, then every core
+            interpreter.setParallelism(threads);
+            long elapsed = 0;
+            long answers = 0;
+            int rounds = threads == 1 ? 1 : WARMUP_ROUNDS + MEASURED_ROUNDS;  //One thread is too slow to repeat
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                PrologHolder answer = interpreter.evaluateNonGroundQuery(query);
+                elapsed = System.nanoTime() - start;
+                answers = answer.getType().equals("substitutions") ? answer.getSubstitutions().get(0).getSize() : 0;
+            }
+            System.out.println(threads + "\t" + (elapsed / 1000000) + "\t" + answers);
+        }
+        interpreter.setParallelism(1);
+    }
+
+    /*
+     * Measures how many lines per second a fact file loads at, one line at a time through evaluateInput as PrologRunner
+     * used to, and through the bulk consult path with one thread and with every core
+     */
+    public static void benchmarkConsult() {
+        int lines = 500000;  //The number of facts in the file
+        int cores = Runtime.getRuntime().availableProcessors();
+        try {
+            Path file = Files.createTempFile("consult", ".pl");
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {  //Write the fact file
+                Random random = new Random(42);
+                for (int i = 0; i < lines; i++) {
+                    writer.write("link(" + atomName(random.nextInt(lines)) + ", " + atomName(random.nextInt(lines)) + ", [" + atomName(i % 26) + ", x]).");
+                    writer.newLine();
+                }
+            }
+            System.out.println("cores available: " + cores);
+            System.out.println("path\tthreads\tms\tlines/sec");
+            for (int round = 0; round < 2; round++) {  //The first round warms up the parser
+                long start = System.nanoTime();
+                PrologInterpreter interpreter = new PrologInterpreter();
+                for (String line : Files.readAllLines(file)) {  //The per line path
+                    interpreter.resolve(interpreter.evaluateInput(line));
+                }
+                report(round, "per line", 1, lines, System.nanoTime() - start);
+                for (int threads : new int[] {1, Math.max(cores, 2)}) {  //The bulk path
+                    start = System.nanoTime();
+                    new ConsultLoader(new PrologInterpreter(), threads).consult(file.toString());
+                    report(round, "bulk", threads, lines, System.nanoTime() - start);
+                }
+            }
+            Files.delete(file);
+        } catch (IOException e) {
+            System.out.println("Couldn't write the fact file: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Compares loading a program from its source with loading it from a snapshot of the same program
+     * Both loads run in the same JVM, so the names are already interned when the snapshot is loaded; a fresh process
+     * also interns each name once, which costs about as much as reading it
+     */
+    public static void benchmarkSnapshot() {
+        int lines = 1000000;  //The number of facts in the file
+        try {
+            Path source = Files.createTempFile("snapshot", ".pl");
+            Path snapshot = Files.createTempFile("snapshot", ".bin");
+            try (BufferedWriter writer = Files.newBufferedWriter(source)) {  //Write the program
+                Random random = new Random(42);
+                for (int i = 0; i < lines; i++) {
+                    writer.write("parent(" + atomName(random.nextInt(lines / 4)) + ", " + atomName(random.nextInt(lines / 4)) + ").");
+                    writer.newLine();
+                }
+                writer.write("grandparent(X, Z) :- parent(X, Y), parent(Y, Z).");
+                writer.newLine();
+            }
+            System.out.println("path\tms\tbytes\tanswers");
+            for (int round = 0; round < 2; round++) {  //The first round warms up both loaders
+                long start = System.nanoTime();
+                PrologInterpreter parsed = new PrologInterpreter();
+                parsed.consult(source.toString());
+                long parseTime = System.nanoTime() - start;
+                parsed.saveSnapshot(snapshot.toString());
+                start = System.nanoTime();
+                PrologInterpreter loaded = new PrologInterpreter();
+                loaded.loadSnapshot(snapshot.toString());
+                long loadTime = System.nanoTime() - start;
+                if (round > 0) {  //Print the measured round, checking both programs give the same answers
+                    PrologHolder query = query("grandparent", "b", "Z");
+                    System.out.println("consult\t" + parseTime / 1000000 + "\t" + Files.size(source) + "\t" + count(parsed.answers(query)));
+                    System.out.println("snapshot\t" + loadTime / 1000000 + "\t" + Files.size(snapshot) + "\t" + count(loaded.answers(query)));
+                }
+            }
+            Files.delete(source);
+            Files.delete(snapshot);
+        } catch (IOException e) {
+            System.out.println("Couldn't write the program or its snapshot: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Measures the time of a dashboard that asks the same queries over and over while facts are occasionally added,
+     * with and without the query cache
+     * Each query is parsed every time, as it would be when it arrives as text
+     */
+    public static void benchmarkCache() {
+        int people = 2000;  //The number of people in the family tree
+        int queries = 20000;  //The number of queries in a single round
+        String[] dashboard = new String[64];  //The queries the dashboard repeats
+        Random random = new Random(42);
+        for (int i = 0; i < dashboard.length; i++) {
+            String person = atomName(random.nextInt(people));
+            dashboard[i] = i % 2 == 0 ? "grandparent(" + person + ", Z)?" : "parent(X, " + person + "), male(X)?";
+        }
+        System.out.println("cache\tns/query\thits\tmisses");
+        for (int capacity : new int[] {0, 256}) {
+            PrologInterpreter interpreter = new PrologInterpreter();
+            random = new Random(7);
+            for (int i = 0; i < people * 4; i++) {  //Add the facts
+                assertFact(interpreter, "parent", atomName(random.nextInt(people)), atomName(random.nextInt(people)));
+            }
+            for (int i = 0; i < people; i += 2) {
+                assertFact(interpreter, "male", atomName(i));
+            }
+            consult(interpreter, "grandparent(X, Z) :- parent(X, Y), parent(Y, Z).");
+            interpreter.setCacheCapacity(capacity);
+            long total = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < queries; i++) {
+                    if (i % 1000 == 999) {  //Every thousand queries a male is added, which only affects half the dashboard
+                        assertFact(interpreter, "male", atomName(people + i));
+                    }
+                    interpreter.resolve(interpreter.evaluateInput(dashboard[i & (dashboard.length - 1)]));
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    total += System.nanoTime() - start;
+                }
+            }
+            System.out.println(capacity + "\t" + total / ((long) MEASURED_ROUNDS * queries) + "\t" + interpreter.getCacheHits() + "\t" + interpreter.getCacheMisses());
+        }
+    }
+
+    /*
+     * Measures the query throughput of growing numbers of reader threads while a writer thread keeps adding facts
+     * Each reader checks that the number of answers it sees never goes down, since a query sees every fact added
+     * before it started
+     */
+    public static void benchmarkConcurrent() {
+        int people = 2000;  //The number of people in the family tree
+        long duration = 2000;  //The number of milliseconds each thread count is measured for
+        System.out.println("readers	queries/s	facts added");
+        for (int readers : new int[] {1, 2, 4, 8}) {
+            PrologInterpreter interpreter = new PrologInterpreter();
+            Random random = new Random(7);
+            for (int i = 0; i < people * 4; i++) {  //Add the facts
+                assertFact(interpreter, "parent", atomName(random.nextInt(people)), atomName(random.nextInt(people)));
+            }
+            consult(interpreter, "grandparent(X, Z) :- parent(X, Y), parent(Y, Z).");
+            ConcurrentLoad load = new ConcurrentLoad(interpreter, people, readers, duration);
+            load.run();
+            if (load.getErrors() > 0) {
+                System.out.println("A reader saw answers disappear " + load.getErrors() + " times");
+            }
+            System.out.println(readers + "\t" + (long) (load.getQueries() / (duration / 1000.0)) + "\t" + load.getFacts());
+        }
+    }
+
+    /*
+     * Measures the throughput and latency of a local query server as the number of connected clients grows
+     * The server runs in this process on a free port, and every client sends the same mix of ground and non ground queries
+     */
+    public static void benchmarkServer() {
+        int people = 2000;  //The number of people in the family tree
+        int perClient = 50;  //The number of queries each client sends
+        PrologInterpreter interpreter = new PrologInterpreter();
+        Random random = new Random(7);
+        for (int i = 0; i < people * 4; i++) {  //Add the facts
+            assertFact(interpreter, "parent", atomName(random.nextInt(people)), atomName(random.nextInt(people)));
+        }
+        consult(interpreter, "grandparent(X, Z) :- parent(X, Y), parent(Y, Z).");
+        String[] queries = new String[64];
+        for (int i = 0; i < queries.length; i++) {
+            String person = atomName(random.nextInt(people));
+            queries[i] = i % 2 == 0 ? "grandparent(" + person + ", Z)?" : "parent(" + person + ", " + atomName(random.nextInt(people)) + ")?";
+        }
+        PrologServer server = new PrologServer(interpreter);
+        try {
+            server.bind(PrologServer.address("0"));
+            Thread.ofPlatform().name("prolog-server").start(server);
+            System.out.println("clients\tqueries/s\tp50 us\tp99 us\tmax us\tfailed");
+            new PrologLoadClient(server.getAddress(), queries, 100, perClient).run();  //Warm up
+            for (int clients : new int[] {1, 10, 100, 1000, 5000}) {
+                PrologLoadClient load = new PrologLoadClient(server.getAddress(), queries, clients, perClient);
+                load.run();
+                System.out.println(load.report());
+            }
+            server.close();
+        } catch (IOException e) {
+            System.out.println("Couldn't start the server: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Measures the rate of short queries that only differ in their constants, parsing each one from text against
+     * preparing each shape once and running it with parameters
+     */
+    public static void benchmarkPrepared() {
+        int people = 2000;  //The number of people in the family tree
+        int queries = 100000;  //The number of queries in a single round
+        PrologInterpreter interpreter = new PrologInterpreter();
+        Random random = new Random(7);
+        for (int i = 0; i < people * 4; i++) {  //Add the facts
+            assertFact(interpreter, "parent", atomName(random.nextInt(people)), atomName(random.nextInt(people)));
+        }
+        for (int i = 0; i < people; i += 2) {
+            assertFact(interpreter, "male", atomName(i));
+        }
+        String[] names = new String[people];
+        for (int i = 0; i < people; i++) {
+            names[i] = atomName(i);
+        }
+        PreparedQuery children = interpreter.prepare("parent(?, X)?");
+        PreparedQuery sons = interpreter.prepare("parent(?, X), male(X)?");
+        System.out.println("path\tqueries/s\tanswers");
+        for (String path : new String[] {"parsed", "prepared"}) {
+            long total = 0;
+            long answers = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                answers = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < queries; i++) {
+                    String person = names[i % people];
+                    if (path.equals("parsed")) {  //Parse the query from text, as evaluateInput is given it
+                        String text = i % 2 == 0 ? "parent(" + person + ", X)?" : "parent(" + person + ", X), male(X)?";
+                        answers += count(interpreter.answers(interpreter.evaluateInput(text)));
+                    } else {
+                        answers += count(interpreter.execute(i % 2 == 0 ? children : sons, person));
+                    }
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    total += System.nanoTime() - start;
+                }
+            }
+            System.out.println(path + "\t" + (long) (queries / (total / 1e9 / MEASURED_ROUNDS)) + "\t" + answers);
+        }
+    }
+
+    /*
+     * Measures recursive predicates over one long list and writing the list back out, as the list grows
+     * Every time should grow linearly with the length of the list
+     */
+    public static void benchmarkLists() {
+        System.out.println("elements\twalk ms\tlast ms\twrite ms");
+        for (int size : new int[] {10000, 20000, 50000, 100000}) {
+            PrologInterpreter interpreter = new PrologInterpreter();
+            StringBuilder list = new StringBuilder("big([");
+            for (int i = 0; i < size; i++) {
+                list.append(i == 0 ? "" : ", ").append(atomName(i));
+            }
+            consult(interpreter, list.append("]).").toString());
+            consult(interpreter, "walk([]).");
+            consult(interpreter, "walk([H|T]) :- walk(T).");
+            consult(interpreter, "lastof([X], X).");
+            consult(interpreter, "lastof([H|T], X) :- lastof(T, X).");
+            long walk = 0;
+            long last = 0;
+            long write = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                count(interpreter.answers(interpreter.evaluateInput("big(L), walk(L)?")));
+                long walked = System.nanoTime();
+                count(interpreter.answers(interpreter.evaluateInput("big(L), lastof(L, X)?")));
+                long found = System.nanoTime();
+                interpreter.getFact("big", 1).getPredicate(0).getArgument(0);
+                long written = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    walk += walked - start;
+                    last += found - walked;
+                    write += written - found;
+                }
+            }
+            long rounds = (long) MEASURED_ROUNDS * 1000000;
+            System.out.println(size + "\t" + walk / rounds + "\t" + last / rounds + "\t" + write / rounds);
+        }
+    }
+
+    /*
+     * Measures a procedure with up to a million answers, each derived twice, solved with tabling and bottom up
+     * Every answer is checked against the ones already found, so the time should grow linearly with the answers
+     */
+    public static void benchmarkAnswers() {
+        String[] modes = {"tabled", "bottom up"};
+        System.out.println("answers\ttabled ms\tbottom up ms");
+        for (int size : new int[] {250, 500, 1000}) {  //The numbers of nodes, giving size * size answers
+            String[] times = new String[modes.length];
+            long answers = 0;
+            for (int mode = 0; mode < modes.length; mode++) {
+                PrologInterpreter interpreter = new PrologInterpreter();
+                for (int i = 0; i < size; i++) {
+                    assertFact(interpreter, "node", atomName(i));
+                }
+                consult(interpreter, "pair(X, Y) :- node(X), node(Y).");
+                consult(interpreter, "pair(X, Y) :- node(Y), node(X).");  //Derives every answer a second time
+                if (mode == 0) {
+                    interpreter.table("pair", 2);
+                } else {
+                    interpreter.setEvaluationMode("bottom up");
+                }
+                for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {  //Run every round
+                    interpreter.clearTables();  //Make every round derive the answers again
+                    long start = System.nanoTime();
+                    answers = count(interpreter.answers(interpreter.evaluateInput("pair(X, Y)?")));
+                    times[mode] = String.valueOf((System.nanoTime() - start) / 1000000);
+                }
+            }
+            System.out.println(answers + "\t" + times[0] + "\t" + times[1]);
+        }
+    }
+
+    /*
+     * Measures logical inferences per second with naive reverse, where nearly every inference fires a rule
+     * Reversing a list of n elements takes (n + 1) * (n + 2) / 2 inferences
+     */
+    public static void benchmarkRules() {
+        PrologInterpreter interpreter = new PrologInterpreter();
+        consult(interpreter, "app([], L, L).");
+        consult(interpreter, "app([H|T], L, [H|R]) :- app(T, L, R).");
+        consult(interpreter, "nrev([], []).");
+        consult(interpreter, "nrev([H|T], R) :- nrev(T, RT), app(RT, [H], R).");
+        System.out.println("elements\tinferences/s");
+        for (int size : new int[] {30, 100, 400}) {
+            StringBuilder list = new StringBuilder("[");
+            for (int i = 0; i < size; i++) {
+                list.append(i == 0 ? "" : ", ").append(atomName(i));
+            }
+            PrologHolder reverse = interpreter.evaluateInput("nrev(" + list.append("]") + ", R)?");
+            long inferences = (long) (size + 1) * (size + 2) / 2;
+            int queries = (int) Math.max(1, 2000000 / inferences);  //Do about two million inferences in each round
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < queries; i++) {
+                    interpreter.answers(reverse).next();
+                }
+                if (round >= WARMUP_ROUNDS) {  //Keep the fastest round, which is the least disturbed by other work on the machine
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+            }
+            System.out.println(size + "\t" + inferences * queries * 1000000000L / best);
+        }
+    }
+
+    /*
+     * Measures a baseline of the classic workloads, so a change that slows one of them shows up when the output of two
+     * builds is compared. Each workload runs at knowledge bases of several sizes and reports its latency, the bytes it
+     * allocates per operation, its allocation rate, and the collections the measured rounds caused. The knowledge base is
+     * a tree of parent facts where every person has four children, with every other person male:
+     *   lookup - a ground query of a parent fact that exists
+     *   enumerate - every child of a random person
+     *   ancestor - every descendant of a random person through a recursive rule
+     *   join - the grandsons of a random person through a conjunctive query
+     *   consult - parsing a fact with evaluateInput and adding it, one operation per fact
+     *   nrev - naive reverse of a list, where the size is the number of elements rather than facts
+     */
+    public static void benchmarkSuite() {
+        System.out.println("workload\tsize\tns/op\tops/s\tbytes/op\tMB/s allocated\tcollections\tcollection ms");
+        for (int size : new int[] {1000, 10000, 100000}) {
+            PrologInterpreter interpreter = new PrologInterpreter();
+            for (int i = 1; i < size; i++) {  //Person i's parent is person i / 4, so the tree has no cycles
+                assertFact(interpreter, "parent", atomName(i / 4), atomName(i));
+                if (i % 2 == 0) {
+                    assertFact(interpreter, "male", atomName(i));
+                }
+            }
+            consult(interpreter, "ancestor(X, Y) :- parent(X, Y).");
+            consult(interpreter, "ancestor(X, Y) :- parent(X, Z), ancestor(Z, Y).");
+            Random random = new Random(42);  //Use a fixed seed so every run asks the same queries
+            PrologHolder[] lookups = new PrologHolder[1024];
+            PrologHolder[] children = new PrologHolder[1024];
+            PrologHolder[] descendants = new PrologHolder[1024];
+            PrologHolder[] grandsons = new PrologHolder[1024];
+            for (int i = 0; i < lookups.length; i++) {
+                int person = 1 + random.nextInt(size - 1);
+                lookups[i] = query("parent", atomName(person / 4), atomName(person));
+                String parent = atomName(random.nextInt(size / 4));
+                children[i] = query("parent", parent, "X");
+                descendants[i] = query("ancestor", parent, "Y");
+                grandsons[i] = interpreter.evaluateInput("parent(" + parent + ", Y), parent(Y, Z), male(Z)?");
+            }
+            measureSuite("lookup", size, interpreter, lookups, 100000);
+            measureSuite("enumerate", size, interpreter, children, 100000);
+            measureSuite("ancestor", size, interpreter, descendants, 20000);
+            measureSuite("join", size, interpreter, grandsons, 20000);
+            String[] lines = new String[size];
+            for (int i = 0; i < size; i++) {
+                lines[i] = "parent(" + atomName(random.nextInt(size)) + ", " + atomName(random.nextInt(size)) + ").";
+            }
+            measureConsult(size, lines);
+        }
+        PrologInterpreter interpreter = new PrologInterpreter();
+        consult(interpreter, "app([], L, L).");
+        consult(interpreter, "app([H|T], L, [H|R]) :- app(T, L, R).");
+        consult(interpreter, "nrev([], []).");
+        consult(interpreter, "nrev([H|T], R) :- nrev(T, RT), app(RT, [H], R).");
+        for (int size : new int[] {30, 100, 400}) {
+            StringBuilder list = new StringBuilder("[");
+            for (int i = 0; i < size; i++) {
+                list.append(i == 0 ? "" : ", ").append(atomName(i));
+            }
+            PrologHolder[] reverse = {interpreter.evaluateInput("nrev(" + list.append("]") + ", R)?")};
+            measureSuite("nrev", size, interpreter, reverse, (int) Math.max(1, 2000000L / ((size + 1) * (size + 2) / 2)));
+        }
+    }
+
+    /*
+     * Runs one workload of the suite for the warm up and measured rounds and prints its line
+     * A ground query is answered through resolve, and every answer of a non ground query is enumerated
+     * @param workload the name of the workload
+     * @param size the size printed with the results
+     * @param interpreter the interpreter the queries are asked of
+     * @param queries the queries, asked in turn
+     * @param count the number of queries in each round
+     */
+    private static void measureSuite(String workload, int size, PrologInterpreter interpreter, PrologHolder[] queries, int count) {
+        long total = 0;  //The total time of the measured rounds
+        long garbage = 0;  //The total bytes allocated in the measured rounds
+        long collections = 0;  //The collections during the measured rounds
+        long collecting = 0;  //The time spent collecting during the measured rounds, in milliseconds
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long allocated = allocatedBytes();
+            long collected = collectionCount();
+            long collectedTime = collectionTime();
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                PrologHolder query = queries[i % queries.length];
+                if (query.isVariable()) {
+                    count(interpreter.answers(query));
+                } else {
+                    interpreter.resolve(query);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {  //If this round is measured
+                total += elapsed;
+                garbage += allocatedBytes() - allocated;
+                collections += collectionCount() - collected;
+                collecting += collectionTime() - collectedTime;
+            }
+        }
+        reportSuite(workload, size, (long) MEASURED_ROUNDS * count, total, garbage, collections, collecting);
+    }
+
+    /*
+     * Runs the consult workload of the suite, loading the given lines into a new interpreter in each round
+     * @param size the size printed with the results
+     * @param lines the facts loaded in each round
+     */
+    private static void measureConsult(int size, String[] lines) {
+        long total = 0;
+        long garbage = 0;
+        long collections = 0;
+        long collecting = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            PrologInterpreter interpreter = new PrologInterpreter();
+            long allocated = allocatedBytes();
+            long collected = collectionCount();
+            long collectedTime = collectionTime();
+            long start = System.nanoTime();
+            for (String line : lines) {
+                interpreter.resolve(interpreter.evaluateInput(line));
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {  //If this round is measured
+                total += elapsed;
+                garbage += allocatedBytes() - allocated;
+                collections += collectionCount() - collected;
+                collecting += collectionTime() - collectedTime;
+            }
+        }
+        reportSuite("consult", size, (long) MEASURED_ROUNDS * lines.length, total, garbage, collections, collecting);
+    }
+
+    /*
+     * Prints one line of the suite
+     * @param workload the name of the workload
+     * @param size the size of the knowledge base or list
+     * @param operations the number of measured operations
+     * @param elapsed the time of the measured rounds in nanoseconds
+     * @param garbage the bytes allocated in the measured rounds
+     * @param collections the number of collections in the measured rounds
+     * @param collecting the time spent collecting in the measured rounds in milliseconds
+     */
+    private static void reportSuite(String workload, int size, long operations, long elapsed, long garbage, long collections, long collecting) {
+        long rate = (long) (garbage / 1048576.0 / (elapsed / 1e9));
+        System.out.println(workload + "\t" + size + "\t" + elapsed / operations + "\t" + (long) (operations / (elapsed / 1e9)) + "\t" + garbage / operations + "\t" + rate + "\t" + collections + "\t" + collecting);
+    }
+
+    /*
+     * Gets the number of collections every garbage collector has made so far
+     * @return the number of collections
+     */
+    public static long collectionCount() {
+        long count = 0;
+        for (java.lang.management.GarbageCollectorMXBean bean : java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());  //A collector that can't count returns -1
+        }
+        return count;
+    }
+
+    /*
+     * Gets the time every garbage collector has spent collecting so far
+     * @return the time in milliseconds
+     */
+    public static long collectionTime() {
+        long time = 0;
+        for (java.lang.management.GarbageCollectorMXBean bean : java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, bean.getCollectionTime());
+        }
+        return time;
+    }
+
+    /*
+     * Counts the answers of an iterator
+     * @param answers the answers
+     * @return the number of answers
+     */
+    private static long count(Iterator<Answer> answers) {
+        long count = 0;
+        while (answers.hasNext()) {
+            answers.next();
+            count++;
+        }
+        return count;
+    }
+
+    /*
+     * Prints the time and rate of one load, skipping the warm up round
+     * @param round the round, where round 0 is the warm up
+     * @param path the loading path
+     * @param threads the number of parsing threads
+     * @param lines the number of lines loaded
+     * @param elapsed the time the load took in nanoseconds
+     */
+    private static void report(int round, String path, int threads, int lines, long elapsed) {
+        if (round > 0) {
+            System.out.println(path + "\t" + threads + "\t" + elapsed / 1000000 + "\t" + (long) (lines / (elapsed / 1e9)));
+        }
+    }
+}
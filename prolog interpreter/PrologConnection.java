@@ -0,0 +1,177 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/*
+ * Serves one client of a PrologServer, answering each line it sends until it closes the connection
+ * Solutions are written to a buffer that's sent whenever it fills, so a query with many solutions streams them to the
+ * client while the search goes on, and the rest is sent when the answer's empty line is written.
+ */
+public class PrologConnection implements Runnable {
+    public static final int MAX_LINE_LENGTH = 4096;  //The longest line a client can send, which bounds the names one line interns
+
+    private PrologInterpreter interpreter;  //The interpreter holding the program
+    private SocketChannel channel;  //The client's connection
+    private long queryInferences;  //The most inferences a query can make, or QueryBudget.UNLIMITED
+    private long queryMillis;  //The longest a query can run in milliseconds, or QueryBudget.UNLIMITED
+    private boolean writable;  //Indicates if the client can add facts and rules to the program
+
+    /*
+     * A constructor that creates a PrologConnection given the interpreter and the client's connection
+     * @param interpreter the interpreter holding the program
+     * @param channel the client's connection, which is closed when the client is done
+     */
+    public PrologConnection(PrologInterpreter interpreter, SocketChannel channel) {
+        this(interpreter, channel, QueryBudget.UNLIMITED, QueryBudget.UNLIMITED);
+    }
+
+    /*
+     * A constructor that creates a PrologConnection whose queries are limited
+     * @param interpreter the interpreter holding the program
+     * @param channel the client's connection, which is closed when the client is done
+     * @param queryInferences the most inferences a query can make, or QueryBudget.UNLIMITED
+     * @param queryMillis the longest a query can run in milliseconds, or QueryBudget.UNLIMITED
+     */
+    public PrologConnection(PrologInterpreter interpreter, SocketChannel channel, long queryInferences, long queryMillis) {
+        this(interpreter, channel, queryInferences, queryMillis, false);
+    }
+
+    /*
+     * A constructor that creates a PrologConnection whose queries are limited, and whose client may change the program
+     * @param interpreter the interpreter holding the program
+     * @param channel the client's connection, which is closed when the client is done
+     * @param queryInferences the most inferences a query can make, or QueryBudget.UNLIMITED
+     * @param queryMillis the longest a query can run in milliseconds, or QueryBudget.UNLIMITED
+     * @param writable true if the client can add facts and rules, false if they're answered with an error
+     */
+    public PrologConnection(PrologInterpreter interpreter, SocketChannel channel, long queryInferences, long queryMillis, boolean writable) {
+        this.interpreter = interpreter;
+        this.channel = channel;
+        this.queryInferences = queryInferences;
+        this.queryMillis = queryMillis;
+        this.writable = writable;
+    }
+
+    /*
+     * Reads lines from the client and writes their answers until the client closes the connection
+     */
+    public void run() {
+        try (SocketChannel client = channel) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8), 1 << 13);
+            String line;
+            while ((line = in.readLine()) != null) {  //Until the client closes its side
+                if (line.isBlank()) {  //Blank lines are ignored, not answered
+                    continue;
+                }
+                answer(line, out);
+                out.newLine();  //An empty line ends every answer
+                out.flush();
+            }
+        } catch (IOException e) {  //If the client went away mid answer there's no one to tell
+            return;
+        }
+    }
+
+    /*
+     * Evaluates one line from the client and writes its answer, without the empty line that ends it
+     * Lines longer than MAX_LINE_LENGTH are rejected before they're parsed, since parsing interns every name they hold.
+     * @param line a fact, rule, or query
+     * @param out the buffered connection to the client
+     * @throws IOException if the answer can't be sent
+     */
+    private void answer(String line, BufferedWriter out) throws IOException {
+        if (line.length() > MAX_LINE_LENGTH) {  //If the line is too long to parse
+            out.write("error: lines can't be longer than " + MAX_LINE_LENGTH + " characters");
+            out.newLine();
+            return;
+        }
+        PrologHolder holder;
+        try {
+            holder = interpreter.evaluateInput(line);
+        } catch (IllegalArgumentException e) {  //If the line parsed but isn't allowed, such as a parameter outside a prepared query
+            writeError(out, e);
+            return;
+        } catch (RuntimeException e) {  //If the parser couldn't make a holder from the line
+            holder = null;
+        }
+        if (holder == null || holder.getType() == null) {  //If the line isn't a fact, rule, or query
+            out.write("error: couldn't parse " + line);
+            out.newLine();
+            return;
+        }
+        boolean query = holder.getType().equals("simple query") || holder.getType().equals("conjunctive query");  //Determines if the input is a query
+        if (!query && !writable) {  //If the client can't change the program
+            out.write("error: the server is read only, so facts and rules can't be added");
+            out.newLine();
+            return;
+        }
+        try {
+            if (query && (queryInferences != QueryBudget.UNLIMITED || queryMillis != QueryBudget.UNLIMITED)) {  //If queries are limited
+                answerLimited(holder, out);
+            } else if (query && holder.isVariable()) {  //If the input is a non ground query, stream each solution as it's found
+                Iterator<Answer> answers = interpreter.answers(holder);
+                boolean solved = false;
+                while (answers.hasNext()) {
+                    out.write(answers.next().toString());
+                    out.newLine();
+                    solved = true;
+                }
+                if (!solved) {  //If the query has no solutions
+                    out.write("false");
+                    out.newLine();
+                }
+            } else {  //If the input is a ground query, a fact, or a rule
+                PrologHolder answer = interpreter.resolve(holder);
+                if (query) {
+                    out.write(answer.getAtom());
+                    out.newLine();
+                }
+            }
+        } catch (RuntimeException e) {  //If the line parsed but couldn't be evaluated
+            writeError(out, e);
+        }
+    }
+
+    /*
+     * Writes the answers a query finds within the connection's limits, followed by the limit it reached if it stopped
+     * @param holder a ground or non ground query
+     * @param out the buffered connection to the client
+     * @throws IOException if the answer can't be sent
+     */
+    private void answerLimited(PrologHolder holder, BufferedWriter out) throws IOException {
+        QueryBudget budget = new QueryBudget(queryInferences, queryMillis, QueryBudget.UNLIMITED);
+        Iterator<Answer> answers = interpreter.answers(holder, budget);
+        boolean solved = false;
+        while (answers.hasNext()) {
+            out.write(answers.next().toString());  //A ground query that holds writes true
+            out.newLine();
+            solved = true;
+        }
+        if (budget.isStopped()) {  //If the answers so far may not be all of them
+            out.write("partial: " + budget.getStatus());
+            out.newLine();
+        } else if (!solved) {
+            out.write("false");
+            out.newLine();
+        }
+    }
+
+    /*
+     * Writes an error line for the given exception
+     * @param out the buffered connection to the client
+     * @param e the exception thrown while evaluating a line
+     * @throws IOException if the line can't be sent
+     */
+    private static void writeError(BufferedWriter out, RuntimeException e) throws IOException {
+        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        out.write("error: " + message.replace('\n', ' '));
+        out.newLine();
+    }
+}
@@ -1,5 +1,4 @@
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 /*
  * A class that holds items specific to prolog
@@ -10,13 +9,14 @@ public class PrologHolder {
     private Query query;
     private ConjunctiveQuery queries;
     private String atom;
+    private int atomId;  //The SymbolTable id of the atom, when the holder was made by the parser
     private PrologRule prologRule;
     private String type;
     private boolean variable;
-    private boolean allFound;
+    private boolean tail;
     private String answer;
     private ArrayList<Substitution> substitutions;
-    private LinkedList<String> list;
+    private ListTerm list;
 
 
     /*
@@ -46,6 +46,16 @@ public class PrologHolder {
         variable = false;
     }
 
+    /*
+     * Creates a Holder for a single atom or variable that has been interned
+     * @param atom the table's copy of the name
+     * @param atomId the id of the name in the SymbolTable
+     */
+    public PrologHolder(String atom, int atomId) {
+        this(atom);
+        this.atomId = atomId;
+    }
+
     /*
      * Creates a Holder for a single query
      */
@@ -83,20 +93,10 @@ public class PrologHolder {
         answer = null;
     }
 
-    /*
-     * Creates a Holder for a list of substitutions
-     */
-    public PrologHolder(ArrayList<Substitution> substitutions, boolean allFound) {
-        this.substitutions = substitutions;
-        type = "substitutions";
-        variable = false;
-        this.allFound = allFound;
-    }
-
     /*
      * Creates a Holder for a list
      */
-    public PrologHolder(LinkedList<String> list) {
+    public PrologHolder(ListTerm list) {
         this.list = list;
         type = "list";
         variable = false;
@@ -123,6 +123,13 @@ public class PrologHolder {
         return atom;
     }
 
+    /*
+     * Gets the SymbolTable id of the atom that's being held, so it doesn't have to be looked up again
+     */
+    public int getAtomId() {
+        return atomId;
+    }
+
     /*
      * Gets the query that's being held
      */
@@ -154,7 +161,7 @@ public class PrologHolder {
     /*
      * Gets the list that's being held
      */
-    public LinkedList<String> getList() {
+    public ListTerm getList() {
         return list;
     }
 
@@ -181,11 +188,18 @@ public class PrologHolder {
     }
 
     /*
-     * Returns the boolean allFound
-     * @return the boolean allFound
+     * Sets tail equal to true, indicating that the last element of the held list is the rest of the list ([H|T])
+     */
+    public void changeToTail() {
+        tail = true;
+    }
+
+    /*
+     * Determines if the last element of the held list is the rest of the list
+     * @return true if the held list has a tail
      */
-    public boolean isAllFound() {
-        return allFound;
+    public boolean hasTail() {
+        return tail;
     }
 
     /*
@@ -3,19 +3,47 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Stack;
-
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Holds a program and answers queries against it
+ * Facts and rules are added to a table that only writers use, one writer at a time. Queries run against a published
+ * ProgramVersion, a snapshot of that table that's never changed, so any number of threads can run queries without locking
+ * while clauses are being added. The first query after a clause is added publishes a new version, which shares every
+ * procedure that hasn't changed and the stored predicates and argument indexes of those that have. A query sees every
+ * clause added before it started and none added after.
+ */
 public class PrologInterpreter {
-    private ArrayList<PrologHolder> program;
+    private PredicateTable table;  //Holds the program's facts and rules, indexed by functor and arity, as they're added
+    private volatile ProgramVersion current;  //The newest published version of the program, which queries run against
+    private volatile long changes;  //The number of changes made to the program, which is ahead of the current version's number until it's published
+    private volatile boolean planning;  //Indicates if the goals of conjunctive queries are ordered by how selective they are
+    private volatile String mode;  //How queries are solved: "top down" or "bottom up"
+    private volatile ForkJoinPool pool;  //Searches the clauses of non ground queries in parallel, or null if they're searched on the calling thread
+    private volatile boolean tabling;  //Indicates if any procedure is tabled, which keeps queries on the calling thread
+    private volatile QueryCache cache;  //Holds the answers of recent queries, or null if answers aren't cached
+    private volatile Profiler profiler;  //Counts what queries do for each procedure, or null if profiling is off
 
     /*
-     * A constructor that creates the array list of PrologHolders
+     * A constructor that creates the table of predicates
      */
     public PrologInterpreter() {
-        program = new ArrayList<>();
-
+        table = new PredicateTable();
+        current = new ProgramVersion(new PredicateTable(), 0);
+        changes = 0;
+        planning = true;
+        mode = "top down";
+        pool = null;
+        tabling = false;
+        cache = null;
+        profiler = null;
     }
 
     /*
@@ -24,30 +52,44 @@ public class PrologInterpreter {
      * @return true if the query contains a variable
      */
     public boolean isNonGroundQuery(Query query) {
-        boolean variable = false;  //Initialize variable to false
-        for (int i = 0; i < query.getArity(); i++) {  //Iterate through the query
-            String atom = query.getAtom(i);  //Get each atom in the query
-            if (Character.isUpperCase(atom.charAt(0))) {  //If the first letter is uppercase
-                variable = true;  //Set variable equal to true
-            }
-        }
-        return variable;
+        return query.getVariableIds().size() > 0;  //Check the arguments and the elements of any lists
     }
 
     /*
      * Evaluates the given input
      * @param input the input to be evaluated
      * @return a PrologHolder containing a Fact, Rule, or Query
+     * @throws IllegalArgumentException if a question mark is in place of a term, which only a prepared query can have
      */
     public PrologHolder evaluateInput(String input) {
+        return evaluateInput(input, false);
+    }
+
+    /*
+     * Evaluates the given input
+     * @param input the input to be evaluated
+     * @param parameters true if question marks in place of terms are parameters of a prepared query
+     * @return a PrologHolder containing a Fact, Rule, or Query, or null if the input couldn't be interpreted
+     */
+    private PrologHolder evaluateInput(String input, boolean parameters) {
         CharStream inputStream = CharStreams.fromString(input);  //Create a CharStream
         PrologLexer lexer = new PrologLexer(inputStream);  //Create a lexer form the Infix Grammar and pass the CharStream into it
         CommonTokenStream commonTokenStream = new CommonTokenStream(lexer);  //Create a Common Token Stream and pass the lexer into it
         PrologParser parser = new PrologParser(commonTokenStream);  //Create a parser form the Infix Grammar and pass the token stream into it
         ParseTree tree = parser.input();  //Create a parse tree that starts at the input parse rule
-        GrammarInterpreter eval = new GrammarInterpreter();  //Create an GrammarInterpreter that evaluates the parse tree
+        GrammarInterpreter eval = new GrammarInterpreter(parameters);  //Create an GrammarInterpreter that evaluates the parse tree
         PrologHolder holder = eval.visit(tree);  //Evaluate the parse tree and return the holder
+        if (holder != null) {  //If the input was interpreted
+            markVariables(holder);
+        }
+        return holder;
+    }
 
+    /*
+     * Marks the given holder as holding a variable if its query, or the head or body of its rule, contains one
+     * @param holder the PrologHolder made from an input
+     */
+    public void markVariables(PrologHolder holder) {
         if (holder.getType().equals("simple query") || holder.getType().equals("conjunctive query")) {  //If the input is a query
             if (holder.getType().equals("simple query")) {  //If it is a simple query
                 Query query = holder.getQuery();  //Get the query from the holder
@@ -92,79 +134,79 @@ public class PrologInterpreter {
                 }
             }
         }
-        return holder;
     }
 
     /*
-     * Determines if the program contains a fact that shares the same name as the given functor
+     * Determines if the program contains a fact that shares the same name and arity as the given functor and arity
      * @param functor the name of the fact being searched for
-     * @return true if the program contains a fact with the same name as the given functor
+     * @param arity the number of arguments of the fact being searched for
+     * @return true if the program contains a fact with the same name and arity
      */
-    public boolean containsFact(String functor) {
-        boolean found = false;  //initialize found to false;
-        for (PrologHolder holder : program) {  //Iterate through the holders within the program
-            if (holder.getType().equals("fact")) {  //If the holder contains a fact
-                Fact fact = holder.getFact();  //Get the fact from the holder
-                if (fact.getFunctor().equals(functor)) {  //If the found fact shares the same name as the fact within factHolder
-                    found = true;  //Return true
-                    break;  //Exit the loop
-                }
-            }
-        }
-        return found;
+    public boolean containsFact(String functor, int arity) {
+        Procedure procedure = version().getTable().getProcedure(functor, arity);  //Look up the procedure in the newest version
+        return procedure != null && procedure.containsFacts();
     }
 
     /*
-     * Determines if the program contains the rule that shares the same name as the given functor
+     * Determines if the program contains a rule that shares the same name and arity as the given functor and arity
      * @param functor the name of the rule being searched for
-     * @return true if the program contains a rule with the same name as the given functor
+     * @param arity the number of arguments in the head of the rule being searched for
+     * @return true if the program contains a rule with the same name and arity
      */
-    public boolean containsRule(String functor) {
-        boolean found = false;  //Initialize found to false
-        for (PrologHolder holder : program) {  //Iterate through the holders in the program
-            if (holder.getType().equals("rule")) {  //If the holder contains a rule
-                PrologRule rule = holder.getPrologRule();  //Get the rule from the holder
-                Fact head = rule.getHead();  //Get the head from the rule
-                if (head.getFunctor().equals(functor)) {  //If the name of the head is the same as the given functor
-                    found = true;  //Set found equal to true
-                    break;  //Exit the loop
-                }
-            }
-        }
-        return found;
+    public boolean containsRule(String functor, int arity) {
+        Procedure procedure = version().getTable().getProcedure(functor, arity);  //Look up the procedure in the newest version
+        return procedure != null && procedure.containsRules();
     }
 
     /*
-     * Gets a PrologHolder containing a fact that shares the same name with the given functor
+     * Gets the fact that shares the same name and arity with the given functor and arity
      * @param functor the name of the desired fact
-     * @return a PrologHolder containing the desired fact
+     * @param arity the number of arguments of the desired fact
+     * @return the fact holding every matching predicate, or null if there isn't one
      */
-    public PrologHolder getFactHolder(String functor) {
-        PrologHolder foundFact = null;  //Initialize the holder to null
-        for (PrologHolder holder : program) {  //Iterate through the program
-            if (holder.getType().equals("fact")) {  //If the holder is a fact
-                Fact fact = holder.getFact();  //Get the fact from the holder
-                if (fact.getFunctor().equals(functor)) {  //If the fact shares the same name as the given functor
-                    foundFact = holder;  //Set found fact equal to the holder
-                    break;  //Exit the loop
-                }
-            }
+    public Fact getFact(String functor, int arity) {
+        Procedure procedure = version().getTable().getProcedure(functor, arity);  //Look up the procedure in the newest version
+        if (procedure == null) {  //If no clause has the functor and arity
+            return null;
+        }
+        return procedure.getFact();
+    }
+
+    /*
+     * Gets the rules whose heads share the same name and arity with the given functor and arity
+     * @param functor the name of the desired rules
+     * @param arity the number of arguments in the heads of the desired rules
+     * @return a list of the matching rules, which is empty if there aren't any
+     */
+    public ArrayList<PrologRule> getRules(String functor, int arity) {
+        Procedure procedure = version().getTable().getProcedure(functor, arity);  //Look up the procedure in the newest version
+        if (procedure == null) {  //If no clause has the functor and arity
+            return new ArrayList<>();
         }
-        return foundFact;
+        return procedure.getRules();
+    }
+
+    /*
+     * Gets the table facts and rules are added to, which is only safe to read while no other thread adds to it
+     * @return the table of predicates
+     */
+    public PredicateTable getPredicateTable() {
+        return table;
     }
 
     /*
      * Evaluates the fact within the given PrologHolder
      * @param factHolder the holder containing the fact
      */
-    public void evaluateFact(PrologHolder factHolder) {
-        if (containsFact(factHolder.getFact().getFunctor())) {  //If the name of the fact is already within the program
-            Fact fact = factHolder.getFact();  //Get the fact from the holder
-            String functor = fact.getFunctor();  //Get the functor of the fact
-            Predicate predicate = fact.getPredicate(0);  //Get the fact's predicate
-            getFactHolder(functor).getFact().addPredicate(predicate);  //Add the predicate to the fact within the program
-        } else {  //If the name of the fact is not already in the program
-            program.add(factHolder);  //Add the factHolder to the program
+    public synchronized void evaluateFact(PrologHolder factHolder) {
+        Fact fact = factHolder.getFact();
+        table.addFact(fact);  //Add the fact's predicate to the procedure with the same functor and arity
+        changes++;  //The next query publishes a version with new answer tables and implied facts
+        QueryCache answers = cache;
+        if (answers != null) {  //The fact can change the cached answers of every query that can reach the procedure
+            for (int i = 0; i < fact.getNumberOfPredicates(); i++) {
+                answers.invalidate(fact.getFunctorId(), fact.getArity(i), changes);
+            }
         }
     }
 
@@ -172,762 +214,401 @@ public class PrologInterpreter {
      * Adds the rule to the program
      * @param holder the PrologHolder being added to the program
      */
-    public void evaluateRule(PrologHolder ruleHolder) {
-        program.add(ruleHolder);
+    public synchronized void evaluateRule(PrologHolder ruleHolder) {
+        Fact head = ruleHolder.getPrologRule().getHead();
+        table.addRule(ruleHolder.getPrologRule());  //Add the rule to the procedure with the same functor and arity
+        changes++;  //The next query publishes a version with new answer tables and implied facts
+        QueryCache answers = cache;
+        if (answers != null) {  //The rule can change the cached answers of every query that can reach the procedure
+            answers.invalidate(head.getFunctorId(), head.getArity(0), changes);
+        }
     }
 
     /*
-     * Determines if the given atom is a variable
-     *@param atom the atom being evaluated
-     * @return true if the atom is a variable
+     * Adds the facts and rules within the given holders to the program as one batch, skipping anything else
+     * @param holders the PrologHolders of the clauses, in the order they're added
+     * @return the number of facts and rules added
      */
-    public boolean isVariable(String atom) {
-        //String first = atom.substring(0, 1);
-        boolean upper = false;  //Initialize upper to false
-        if (Character.isUpperCase(atom.charAt(0))) {  //If the first character in the atom is uppercase
-            upper = true;  //Set upper equal to true
+    public synchronized int addClauses(ArrayList<PrologHolder> holders) {
+        int added = 0;
+        for (PrologHolder holder : holders) {  //Iterate through the clauses
+            if (holder.getType().equals("fact")) {  //If the holder contains a fact
+                table.addFact(holder.getFact());
+                added++;
+            } else if (holder.getType().equals("rule")) {  //If the holder contains a rule
+                table.addRule(holder.getPrologRule());
+                added++;
+            }
         }
-        return upper;
+        changes++;  //The next query publishes a version with new answer tables and implied facts
+        clearCache();  //The new clauses can change the answers of any cached query
+        return added;
     }
 
     /*
-     * Determines if the given query matches the given rule
-     * @param query the query being tested to see if it matches the rule
-     * @param prologRule the rule being tested to see if it matches the query
-     * @return true if the query matches the rule
+     * Loads every fact and rule in the given program file, parsing it on every core (see ConsultLoader)
+     * @param path the path of the program file
+     * @return the number of facts and rules added
+     * @throws IOException if the file can't be read
      */
-    public boolean queryMatchesRule(Query query, PrologRule prologRule) {
-        boolean matching = false;  //Initialize matching to false
-        Fact ruleHead = prologRule.getHead();  //Get the head of the rule
-        String queryFunctor = query.getFunctor();  //Get the functor of the query
-        String ruleFunctor = ruleHead.getFunctor();  //Get the functor of the rule
-
-        if (queryFunctor.equals(ruleFunctor) && query.getArity() == ruleHead.getArity(0)) {  //If the query and rule have the same functor and arity
-            Predicate rulePredicate = ruleHead.getPredicate(0);  //Get the predicate of the rule (the index is 0 because the head of every rule is a fact with only 1 predicate)
-            for (int i = 0; i < query.getArity(); i++) {  //Iterate through the query
-                boolean variable = false;  //Initialize variable to false
-                String queryAtom = query.getAtom(i);  //Get the atom at index i in the query
-                String ruleAtom = rulePredicate.getAtom(i);  //Get the atom at index i in the rule
-                if (isVariable(ruleAtom)) {  //If the atom in the rule is a variable
-                    //ruleAtom = queryAtom;
-                    variable = true;  //Set variable equal to true
-                }
-                //If the last atom in the query matches the last atom in the rule's head or the last atom in the rule is a variable
-                if ((i == query.getArity() - 1 && queryAtom.equals(ruleAtom)) || (i == query.getArity() - 1 && variable)) {
-                    matching = true;  //Set matching to true
-                } else if (!queryAtom.equals(ruleAtom) && !variable) {  //If the atoms don't match and the atom in the rule isn't a variable
-                    break;  //Exit the loop
-                }
-            }
-        }
-        return matching;
+    public long consult(String path) throws IOException {
+        return new ConsultLoader(this, Runtime.getRuntime().availableProcessors()).consult(path);
     }
 
     /*
-     * Gets the substitutions for the head of a rule if the rule contains variables
-     * @param prologRule the rule being evaluated
-     * @param a the query that matches the rules head
-     * @return a list of substitutions for the head
+     * Saves the program's facts, rules, and argument indexes to a binary snapshot file (see Snapshot)
+     * @param path the path of the snapshot file
+     * @throws IOException if the file can't be written
      */
-    public ArrayList<Substitution> getHeadSubstitutions(PrologRule prologRule, Query a) {
-        ArrayList<Substitution> headSubstitutions = new ArrayList<>();  //Create a list of substitutions for the head
-        Predicate headPredicate = prologRule.getHead().getPredicate(0);  //Get the predicate from the head
-        if (headPredicate.isVariable()) {  //If the predicate contains variables
-            for (int i = 0; i < a.getArity(); i++) {  //Iterate through the query
-                String atom = a.getAtom(i);  //Get the atom at index i
-                String headAtom = headPredicate.getAtom(i);  //Get the atom in the predicate at index i
-                if (isVariable(headAtom)) {  //If headAtom is a variable
-                    Substitution sub = new Substitution(headAtom);  //Create a substitution for it
-                    sub.addSubstitution(atom);  //Add the query's atom to the substitution
-                    sub.setIndex(i);  //Set the substitution's index
-                    headSubstitutions.add(sub);  //Add the substitution to the list
-                }
-            }
-        }
-        return headSubstitutions;
+    public void saveSnapshot(String path) throws IOException {
+        Snapshot.save(version().getTable(), path);
     }
 
     /*
-     * Checks the substitutions associated with the given body query of a PrologRule
-     * @param bodySubstitutions the substitutions associated with the bodyQuery
-     * @param a the query that matches the head of the rule this bodyQuery belongs to
-     * @param bodyQuery the body of a prologRule
-     * @return true if matching strings are found between the bodySubstitutions and the query A
+     * Replaces the program with the one saved in the given snapshot file, which is much faster than consulting its source
+     * @param path the path of the snapshot file
+     * @throws IOException if the file can't be read or was saved by another version of the snapshot format
      */
-    public boolean checkBodySubstitutions(ArrayList<Substitution> bodySubstitutions, Query a, Query bodyQuery) {
-        boolean allFound = true;  //Indicates that all of the variables we're found
-        for (int i = 0; i < a.getArity(); i++) {  //Iterate through the query
-            String atom = a.getAtom(i);  //Get the atom at index i in the query
-            if (!isVariable(atom)) {
-                if (i < bodyQuery.getArity()) {
-                    String ruleAtom = bodyQuery.getAtom(i);  //Get the atom at index i in the body
-                    if (isVariable(ruleAtom)) {  //If ruleAtom is a variable
-                        Substitution associatedSubstitution = bodySubstitutions.get(i);  //Get the substitution associated with that index
-                        boolean foundSub = false;  //Initialize found to false
-                        for (int j = 0; j < associatedSubstitution.getSize(); j++) {  //Iterate through the substitution
-                            String possibleSubstitution = associatedSubstitution.getSubstitution(j);  //Get the string at index j in the substitution
-                            if (isVariable(possibleSubstitution)) {
-                                foundSub = true;
-                                break;
-                            } else if (atom.equals(possibleSubstitution)) {  //If the strings match
-                                foundSub = true;  //Set foundSub to true
-                                break;  //Exit the loop
-                            }
-                        }
-                        if (!foundSub) {  //If no matching strings are found
-                            allFound = false;  //Set all found to false
-                            break;  //Exit the loop
-                        }
-                    }
-                }
-            }
+    public synchronized void loadSnapshot(String path) throws IOException {
+        table = Snapshot.load(path);
+        tabling = false;
+        for (int i = 0; i < table.getNumberOfProcedures(); i++) {  //Keep queries on the calling thread if anything is tabled
+            tabling |= table.getProcedure(i).isTabled();
         }
-        return allFound;
+        changes++;
+        current = new ProgramVersion(table.snapshot(new PredicateTable()), changes);  //Nothing can be shared with the old program
+        clearCache();
     }
 
     /*
-     * Compares the substitutions associated with the head of a PrologRule to the substitutions associated with a body query of that rule
-     * @param headSubstitutions the substitutions for the head of the PrologRule
-     * @param bodySubstitutions the substitutions for a body query of the PrologRule
-     * @param true if matching strings are found between the headSububstitutions and the bodySubstitutions
+     * Tables the procedure with the given functor and arity, so each distinct call is evaluated once and its answers
+     * are reused by every later call. Tabled procedures can be left recursive, as in path(X, Y) :- path(X, Z), edge(Z, Y).
+     * @param functor the name of the procedure
+     * @param arity the number of arguments of the procedure
      */
-    public boolean checkHeadSubstitutions(ArrayList<Substitution> headSubstitutions, ArrayList<Substitution> bodySubstitutions) {
-        boolean allFound = true;  //Set all found to true
-        for (Substitution headSub : headSubstitutions) {  //Iterate through the substitutions for the head
-            String headVariable = headSub.getName();  //Get the substitution's variable
-            for (int i = 0; i < headSub.getSize(); i++) {  //Iterate through the substitution
-                String headSubSubstitution = headSub.getSubstitution(i);  //Get the string at index i in the substitution
-                if (!isVariable(headSubSubstitution)) {
-                    boolean foundHeadSub = false;  //Initialize foundHeadSub to false
-                    for (Substitution bodySub : bodySubstitutions) {  //Iterate through the bodySubstitutions
-                        String bodyVariable = bodySub.getName();  //Get the bodySub's variable
-                        if (headVariable.equals(bodyVariable)) {  //If the substitutions are for the same variable
-                            for (int j = 0; j < bodySub.getSize(); j++) {  //Iterate through the bodySub
-                                String bodySubSubstitution = bodySub.getSubstitution(j);  //Get the string at index j
-                                if (headSubSubstitution.equals(bodySubSubstitution)) {  //If the strings match
-                                    foundHeadSub = true;  //Set foundHeadSub equal to true
-                                    break;  //Exit the loop
-                                }
-                            }
-                        }
-                    }
-                    if (!foundHeadSub) {  //If a head substitution is not found
-                        allFound = false;  //Set all found to false
-                    }
-                }
-            }
-        }
-        return allFound;
+    public synchronized void table(String functor, int arity) {
+        table.getOrCreateProcedure(functor, arity).setTabled(true);
+        tabling = true;  //Answer tables are shared, so parallel searches are turned off
+        changes++;  //Answers found without tabling aren't stored, so the next query starts over with a new version
+        clearCache();
     }
 
     /*
-     * Evaluates a fact that contains a list
-     * @param Query a ground Query containing a list that matches a fact
-     * @param predicate the predicate from the fact that matches the query
-     * @return true if the query evaluates to true in terms of the given fact
+     * Turns the ordering of the goals of conjunctive queries on or off
+     * @param planning true to solve the most selective goals first, false to solve them in the order they're written
      */
-    public boolean evaluateListFact(Query query, Predicate predicate) {
-        ArrayList<Substitution> substitutions = new ArrayList<>();  //Create a list of substitutions
-        for (int i = 0; i < predicate.getArity(); i++) {  //Iterate through the predicate
-            String predicateAtom = predicate.getAtom(i);  //Get the atom in the predicate at index i
-            String queryAtom = query.getPredicate().getAtom(i);  //Get the atom in the query at index i
-            if (isVariable(predicateAtom)) {  //If the atom in the predicate is a variable
-                Substitution sub = new Substitution(predicateAtom);  //Create a new substitution for the atom
-                sub.addSubstitution(queryAtom);  //Add the query's atom to the substitution
-                substitutions.add(sub);  //Add the substitution to the list of substitutions
-            } else {  //If the atom in the predicate is not a variable
-                if (!predicateAtom.equals(queryAtom)) {  //If the atoms don't match
-                    return false;  //return false;
-                }
-            }
+    public void setPlanning(boolean planning) {
+        this.planning = planning;
+        clearCache();  //The order of the cached answers can depend on the plan
+    }
+
+    /*
+     * Sets the number of threads that search for the answers to a non ground query
+     * With more than one thread the alternative clauses of a goal are split between fork join tasks, each with its own
+     * bindings, and their answers are joined in the order one thread would find them. Every answer is found before the
+     * first is returned, and programs with tabled procedures are always searched on one thread. When every goal of a
+     * conjunctive query calls facts alone, the goals that share no variables are solved at the same time, and their
+     * answers are combined, with the answers of the first group of goals changing slowest. Goals that call rules stay
+     * in order, since a group could run forever where the query fails before it's ever reached. The old pool isn't shut
+     * down, since queries that started before the change may still be running on it, and its threads end once they're idle.
+     * @param parallelism the number of threads, or 1 to search on the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {  //If there wouldn't be any threads
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
         }
-        for (int i = 0; i < predicate.getLists().size(); i++) {  //Iterate through the lists in the predicate
-            LinkedList<String> predicateList = predicate.getLists().get(i);  //Get the list at index i in the predicate
-            LinkedList<String> queryList = query.getPredicate().getLists().get(i);  //Get the list at index i in the query
-            if (predicateList.size() < queryList.size()) {
-                for (int j = 0; j < predicateList.size(); j++) {  //Iterate through the predicate's list
-                    String predicateListAtom = predicateList.get(j);  //Get the atom in the predicate's list at index i
-                    String queryListAtom = queryList.get(j);  //Get the atom in the query's list at index i
-                    if (isVariable(predicateListAtom)) {  //If the atom in the predicates's list is a variable
-                        Substitution sub = new Substitution(predicateListAtom);  //Create a new substitution for the atom
-                        sub.addSubstitution(queryListAtom);  //Add the atom from the query's list to the substitution
-                        substitutions.add(sub);  //Add the substitution to the list of substitutions
-                    } else {  //If the atom in the predicate's list is not a variable
-                        if (!predicateListAtom.equals(queryListAtom)) {  //If the atoms don't match
-                            return false;  //return false
-                        }
-                    }
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        clearCache();  //The order of the cached answers can depend on how the search was split
+    }
 
-                }
-            } else {  //If queryList is smaller than predicateList
-                for (int j = 0; j < queryList.size(); j++) {
-                    String predicateListAtom = predicateList.get(j);  //Get the atom in the predicate's list at index i
-                    String queryListAtom = queryList.get(j);  //Get the atom in the query's list at index i
-                    if (isVariable(predicateListAtom)) {  //If the atom in the predicates's list is a variable
-                        Substitution sub = new Substitution(predicateListAtom);  //Create a new substitution for the atom
-                        sub.addSubstitution(queryListAtom);  //Add the atom from the query's list to the substitution
-                        substitutions.add(sub);  //Add the substitution to the list of substitutions
-                    } else {  //If the atom in the predicate's list is not a variable
-                        if (!predicateListAtom.equals(queryListAtom)) {  //If the atoms don't match
-                            return false;  //return false
-                        }
-                    }
-                }
-            }
+    /*
+     * Gets the number of threads that search for the answers to a non ground query
+     * @return the number of threads
+     */
+    public int getParallelism() {
+        ForkJoinPool workers = pool;
+        return workers == null ? 1 : workers.getParallelism();
+    }
+
+    /*
+     * Sets how queries are solved
+     * In "top down" mode queries are solved by resolution against the rules. In "bottom up" mode every fact the rules
+     * imply is computed first by semi-naive iteration, and queries are answered from those facts. The facts are kept
+     * until a fact or rule is added. A program with lists, non ground facts, or a rule with a head variable its body
+     * doesn't bind is always solved top down.
+     * @param mode "top down" or "bottom up"
+     */
+    public void setEvaluationMode(String mode) {
+        if (!mode.equals("top down") && !mode.equals("bottom up")) {  //If the mode isn't one of the two
+            throw new IllegalArgumentException("Unknown evaluation mode: " + mode);
         }
+        this.mode = mode;
+        clearCache();  //The order of the cached answers can depend on the mode
+    }
 
-        boolean pass = true;  //Initialize pass to true, determines if the query passes the fact
-        outer:
-        for (int i = 0; i < substitutions.size(); i++) {  //Iterate through the list of substitutions
-            Substitution firstSub = substitutions.get(i);  //Get the substitution at index i
-            String firstSubVariable = firstSub.getName();  //Get the name of the variable associated with the substitution
-            for (int j = i + 1; j < substitutions.size(); j++) {  //Iterate through the rest of the substitutions
-                Substitution nextSub = substitutions.get(j);  //Get the substitution at index j
-                String nextSubVariable = nextSub.getName();  //Get the name of the variable associated with the substitution
-                if (firstSubVariable.equals(nextSubVariable)) {  //If the variables are the same
-                    String firstSubSubstitution = firstSub.getSubstitution(0);  //Get the string associated with the first substitution
-                    String nextSubSubstitution = nextSub.getSubstitution(0);  //Get the string associated with the next substitution
-                    if (!firstSubSubstitution.equals(nextSubSubstitution)) {  //If the strings are diferent
-                        pass = false;  //Set pass equal to false
-                        break outer;  //Break out of the loop
-                    }
-                }
-            }
+    /*
+     * Gets how queries are solved
+     * @return "top down" or "bottom up"
+     */
+    public String getEvaluationMode() {
+        return mode;
+    }
+
+    /*
+     * Turns profiling on or off
+     * While profiling is on, every query counts the calls, redos, clauses tried, and time of each procedure in the
+     * profiler (see getProfiler). Queries aren't answered from the cache or split between threads while profiling, so
+     * each inference is counted once. Tabled answers found before profiling was turned on aren't counted again.
+     * @param profiling true to start counting, which keeps the counts of an earlier profile, false to stop
+     */
+    public void setProfiling(boolean profiling) {
+        if (!profiling) {
+            profiler = null;
+        } else if (profiler == null) {
+            profiler = new Profiler();
         }
-        return pass;
     }
 
     /*
-     * Evaluates a rule that contains a list
-     * @param Query a ground Query containing a list that matches a rule
-     * @param prologRule the rule that matches the query
-     * @return true if the query evaluates to true according to the given rule
+     * Gets the profiler queries record into
+     * @return the profiler, or null if profiling is off
      */
-    public boolean evaluateListRule(Query query, PrologRule prologRule) {
-        ArrayList<Substitution> substitutions = new ArrayList<>();  //Create a list of substitutions
-        Predicate ruleHeadPredicate = prologRule.getHead().getPredicate(0);  //Get the predicate in the head of the rule
-        for (int i = 0; i < ruleHeadPredicate.getArity(); i++) {  //Iterate through the predicate
-            String predicateAtom = ruleHeadPredicate.getAtom(i);  //Get the atom in the predicate at index i
-            String queryAtom = query.getPredicate().getAtom(i);  //Get the atom in the query at index i
-            if (isVariable(predicateAtom)) {  //If the atom in the predicate is a variable
-                Substitution sub = new Substitution(predicateAtom);  //Create a new substitution for the atom
-                sub.addSubstitution(queryAtom);  //Add the query's atom to the substitution
-                substitutions.add(sub);  //Add the substitution to the list of substitutions
-            } else {  //If the atom in the predicate is not a variable
-                if (!predicateAtom.equals(queryAtom)) {  //If the atoms don't match
-                    return false;  //return false;
-                }
-            }
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    /*
+     * Makes the given resolver record into the profiler if profiling is on
+     * @param resolver a resolver that hasn't searched yet
+     * @return the resolver
+     */
+    private Resolver profile(Resolver resolver) {
+        Profiler profiler = this.profiler;
+        if (profiler != null) {
+            resolver.setProfiler(profiler, profiler.getRoot());
         }
-        for (int i = 0; i < ruleHeadPredicate.getLists().size(); i++) {
-            LinkedList<String> predicateList = ruleHeadPredicate.getLists().get(i);  //Get the list at index i in the predicate
-            LinkedList<String> queryList = query.getPredicate().getLists().get(i);  //Get the list at index i in the query
-            if (predicateList.size() <= queryList.size()) {
-                for (int j = 0; j < predicateList.size(); j++) {  //Iterate through the predicate's list
-                    String predicateListAtom = predicateList.get(j);  //Get the atom in the predicate's list at index i
-                    String queryListAtom = queryList.get(j);  //Get the atom in the query's list at index i
-                    if (isVariable(predicateListAtom)) {  //If the atom in the predicates's list is a variable
-                        Substitution sub = new Substitution(predicateListAtom);  //Create a new substitution for the atom
-                        sub.addSubstitution(queryListAtom);  //Add the atom from the query's list to the substitution
-                        if (j == predicateList.size() - 1) {  //If we're on the last atom in the predicate's list
-                            for (int k = j + 1; k < queryList.size(); k++) {  //Iterate through the rest of the atoms in the query's list
-                                String restOfQueryAtom = queryList.get(k);  //Get the string at index k in the query's list
-                                sub.addSubstitution(restOfQueryAtom);  //Add the string to the substitution
-                            }
-                        }
-                        substitutions.add(sub);  //Add the substitution to the list of substitutions
-                    } else {  //If the atom in the predicate's list is not a variable
-                        if (!predicateListAtom.equals(queryListAtom)) {  //If the atoms don't match
-                            return false;  //return false
-                        }
-                    }
+        return resolver;
+    }
 
-                }
-            } else {  //If queryList is smaller than predicateList
-                for (int j = 0; j < queryList.size(); j++) {
-                    String predicateListAtom = predicateList.get(j);  //Get the atom in the predicate's list at index i
-                    String queryListAtom = queryList.get(j);  //Get the atom in the query's list at index i
-                    if (isVariable(predicateListAtom)) {  //If the atom in the predicates's list is a variable
-                        Substitution sub = new Substitution(predicateListAtom);  //Create a new substitution for the atom
-                        sub.addSubstitution(queryListAtom);  //Add the atom from the query's list to the substitution
-                        substitutions.add(sub);  //Add the substitution to the list of substitutions
-                    } else {  //If the atom in the predicate's list is not a variable
-                        if (!predicateListAtom.equals(queryListAtom)) {  //If the atoms don't match
-                            return false;  //return false
-                        }
-                    }
-                }
-            }
+    /*
+     * Gets the newest version of the program, publishing one first if the program has changed since the last one
+     * This only locks when a change hasn't been published yet
+     * @return the version to run a query against
+     */
+    private ProgramVersion version() {
+        ProgramVersion version = current;
+        if (version.getNumber() == changes) {  //If nothing has changed since the version was published
+            return version;
         }
+        return publish();
+    }
 
-        Query bodyQuery = prologRule.getSimpleBody();  //Get the body of the rule
-        String functor = bodyQuery.getFunctor();  //Get the name of the query
-        Predicate predicate = new Predicate();  //Create a new predicate
-
-        for (int i = 0; i < bodyQuery.getPredicate().getArity(); i++) {  //Iterate through the query
-            String bodyAtom = bodyQuery.getPredicate().getAtom(i);  //Get the atom in the query
-            if (isVariable(bodyAtom)) {  //If the atom is a variable
-                boolean foundVariable = false;  //Determines if the variable is found within the list of substitutions
-                for (int j = 0; j < substitutions.size(); j++) {  //Iterate through the list of substitutions
-                    Substitution sub = substitutions.get(j);  //Get the substitution at index i
-                    String variable = sub.getName();  //Get the name of the variable associated with the substitution
-                    if (bodyAtom.equals(variable)) {  //If the variables match
-                        foundVariable = true;  //Set foundVariable to true
-                        if (sub.getSize() > 1 || j == substitutions.size() - 1) {  //If the substitution holds more than 1 string or this is the last substitution in the list
-                            LinkedList<String> list = new LinkedList<>();  //Create a new list
-                            for (int k = 0; k < sub.getSize(); k++) {  //Iterate through the substitution
-                                String substitute = sub.getSubstitution(k);  //Get the string at index k
-                                list.add(substitute);  //Add the string to the list
-                            }
-                            predicate.getLists().add(list);  //Add the list to the predicate
-                        } else {  //If the atom is not a variable
-                            String substitute = sub.getSubstitution(0);  //Get the first and only substitution
-                            predicate.addAtom(substitute);  //Add the substitution to the predicate
-                        }
-                    }
-                }
-                if (!foundVariable) {  //If a matching variable is not found
-                    predicate.addAtom(bodyAtom);  //Add the variable to the predicate
-                }
-            } else {  //If the atom is not a variable
-                predicate.addAtom(bodyAtom);  //Add the atom to the predicate
-            }
+    /*
+     * Publishes a snapshot of the program as the newest version
+     * @return the newest version
+     */
+    private synchronized ProgramVersion publish() {
+        if (current.getNumber() != changes) {  //If another thread hasn't published it first
+            current = new ProgramVersion(table.snapshot(current.getTable()), changes);
         }
-        boolean answer = false;  //Determines if the query evaluates to true or false
-        Query testQuery = new Query(functor, predicate);  //Crate a new query with the functor and predicate
-        String stringAnswer = evaluateGroundQuery(new PrologHolder(testQuery));  //Evaluate the query and save the answer in a string
-        if (stringAnswer.equals("true")) {  //If the query evaluates to true
-            answer = true;  //Set answer to true
+        return current;
+    }
+
+    /*
+     * Gets the table queries are solved against: a version of the program itself, or the facts it implies in bottom up mode
+     * @param version the version the query runs against
+     * @return the table of predicates to query
+     */
+    private PredicateTable queryTable(ProgramVersion version) {
+        if (!mode.equals("bottom up")) {  //If the program is solved top down
+            return version.getTable();
         }
-        return answer;
+        return version.getMaterialized();
     }
 
+    /*
+     * Removes every answer table and the facts computed bottom up, so the next query evaluates them again
+     */
+    public synchronized void clearTables() {
+        ProgramVersion version = version();
+        current = new ProgramVersion(version.getTable(), version.getNumber());  //The same clauses with nothing computed from them yet
+        clearCache();
+    }
 
     /*
-     * Evaluates the given ground query
-     * @param queryHolder the PrologHolder containing the query to be evaluated
-     * @return true if the ground query can be solved from the program
+     * Sets the number of queries whose answers resolve keeps, so repeating a query doesn't solve it again
+     * A query is looked up by its goals, ignoring the names of its variables, and its answer is kept until it's the
+     * least recently used one and the cache is full, or until a fact or rule is added to a procedure the query can reach.
+     * Answers are rebuilt from the cache for each caller, so callers can't change them.
+     * @param capacity the largest number of cached queries, or 0 to turn the cache off
      */
-    public String evaluateGroundQuery(PrologHolder queryHolder) {
-        Stack<Query> resolvent = new Stack<>();  //Create the resolvent
-        if (queryHolder.getType().equals("simple query")) {  //If the query is a simple query
-            Query query = queryHolder.getQuery();  //Get the query from the holder
-            resolvent.add(query);  //Add the query to the resolvent
-        } else if (queryHolder.getType().equals("conjunctive query")) {  //If the query is a conjunctive query
-            ConjunctiveQuery queryList = queryHolder.getConjunctiveQuery();  //Get the conjunctive query from the holder
-            for (int i = 0; i < queryList.getNumberOfQueries(); i++) {  //Iterate through the queries
-                resolvent.add(queryList.getQuery(i));  //Add the query at each index to the resolvent
-            }
+    public void setCacheCapacity(int capacity) {
+        if (capacity < 0) {  //If the capacity makes no sense
+            throw new IllegalArgumentException("Cache capacity can't be negative: " + capacity);
         }
-        while (!resolvent.isEmpty()) {
-            boolean factFound = true;
-            Query a = resolvent.peek();  //Set A to the top of the stack
-            if (containsFact(a.getFunctor())) {  //If the given query is a fact in the program
-                PrologHolder factHolder = getFactHolder(a.getFunctor());  //Get the fact from the program and place it into a holder
-                Fact foundFact = factHolder.getFact();  //Get the fact from the holder
-
-                boolean found = false;  //Initialize found to false
-                outer:
-                for (int i = 0; i < foundFact.getNumberOfPredicates(); i++) {  //Iterate through the fact
-                    Predicate predicate = foundFact.getPredicate(i);  //Get the predicate at index i in the fact
-                    if (predicate.containsList()) {  //If the predicate contains a list
-                        if (evaluateListFact(a, predicate)) {  //If the query evaluates to true
-                            found = true;  //Set found to true
-                            break;  //Break the loop
-                        }
-                    } else {  //If the predicate doesn't contain a list
-                        if (predicate.getArity() == a.getArity()) {  //If the fact and the query share the same arity
-                            for (int j = 0; j < predicate.getArity(); j++) {  //Iterate through the predicate
-                                String queryAtom = a.getAtom(j);  //Get the atom at the same index in the query as the predicate
-                                boolean variable = false;  //Initialize variable to false
-                                String factAtom = predicate.getAtom(j);  //get the atom at index i in the predicate
-                                if (isVariable(factAtom)) {  //If the atom is a variable
-                                    variable = true;  //Set variable equal to true
-                                }
-                                //If the last atom in the predicate is equal to the atom in the query or the last atom is a variable
-                                if ((j == predicate.getArity() - 1 && factAtom.equals(queryAtom)) || (j == predicate.getArity() - 1 && variable)) {
-                                    found = true;  //Set found equal to true
-                                    break outer;  //Break out of all the loops
-                                } else if (!predicate.getAtom(j).equals(queryAtom) && !variable) {  //If the the atom in the predicate isn't the same as the atom in the query
-                                    break;  //Search the next predicate
-                                }
-                            }
-                        }
-                    }
-                }
-                if (found) {  //If a matching fact is found
-                    resolvent.pop();  //pop the resolvent
-                }
-                if (!found) {  //If no matching fact is found
-                    factFound = false;
-                }
+        cache = capacity > 0 ? new QueryCache(capacity) : null;
+    }
 
-            }
-            if (containsRule(a.getFunctor()) && !factFound) {  //If the query matches a rule in the program
-                boolean found = false;  //initialize found to false
-                outer2:
-                for (PrologHolder holder : program) {  //Iterate through the program
-                    if (holder.getType().equals("rule")) {  //If the holder contains a rule
-                        PrologRule prologRule = holder.getPrologRule();  //Get the rule from the holder
-                        if (queryMatchesRule(a, prologRule)) {  //If the query matches the rule
-                            if (prologRule.getType().equals("simple query")) {  //If the rule only has one body
-                                if (prologRule.getHead().getPredicate(0).containsList()) {
-                                    if (evaluateListRule(a, prologRule)) {
-                                        found = true;
-                                        break;
-                                    }
-                                } else {
-                                    ArrayList<Substitution> headSubstitutions = getHeadSubstitutions(prologRule, a);  //Get the heads substitutions if it contains variables
-                                    if (prologRule.getSimpleBody().getPredicate().isVariable()) {  //If the body of the rule contains variables
-                                        PrologHolder ruleQueryHolder = new PrologHolder(prologRule.getSimpleBody());  //Put the body in a holder
-                                        PrologHolder substitutionHolder = evaluateNonGroundQuery(ruleQueryHolder);  //Evaluate the body
-                                        if (substitutionHolder.getType().equals("atom")) {  //If the body evaluates to a string (indicating that it failed)
-                                            found = false;  //Set found equal to false
-                                            continue;   //Exit the loop
-                                        }
-                                        ArrayList<Substitution> bodySubstitutions = substitutionHolder.getSubstitutions();  //Get the list of substitutions from the holder
-                                        boolean allFound = true;  //Indicates that all of the variables we're found
-                                        if (!checkBodySubstitutions(bodySubstitutions, a, prologRule.getSimpleBody())) {  //If the strings from the query don't match the substitutions for the body
-                                            allFound = false;  //Set all found to false
-                                        }
-                                        if (!allFound && headSubstitutions.size() > 0) {  //If the strings in the query didn't match with the substitutions, check the head's substitutions
-                                            if (checkHeadSubstitutions(headSubstitutions, bodySubstitutions)) {  //If the substitutions for the head match the substitutions for the body
-                                                allFound = true;  //Set allFound to true
-                                            }
-                                        } else {  //If the head doesn't contain any variables and the body query returned valid substitutions
-                                            allFound = true;
-                                        }
-
-                                        if (allFound) {  //If all found is true
-                                            found = true;  //Set found to true
-                                        }
-                                    } else {  //If the body doesn't contain any variables
-                                        PrologHolder ruleQueryHolder = new PrologHolder(prologRule.getSimpleBody());  //Place the body of the rule into a holder
-                                        if (evaluateGroundQuery(ruleQueryHolder).equals("true")) {  //Evaluate the body, if it is found within the program
-                                            found = true;  //Set found to true
-                                            break;  //Break out of the loop
-                                        }
-                                    }
-                                }
-                            } else if (prologRule.getType().equals("conjunctive query")) {  //If the rule is made up of conjunctive queries
-                                ConjunctiveQuery queries = prologRule.getConjunctiveBody();  //Get the queries from the rule
-                                ArrayList<Substitution> headSubstitutions = getHeadSubstitutions(prologRule, a);  //Get the substitutions for the head if it contains variables
-                                ConjunctiveQuery nonGroundQueries = new ConjunctiveQuery();  //Create a list for non-ground queries
-                                ConjunctiveQuery groundQueries = new ConjunctiveQuery();  //Create a list for ground queries
-                                boolean variableBody = false;   //Indicates if the body queries have variables in them
-                                if (prologRule.getHead().getPredicate(0).containsList()) {
-                                    if (evaluateListRule(a, prologRule)) {   //EVALUATE METHOD
-                                        found = true;
-                                        break;
-                                    }
-                                } else {
-                                    for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                                        Query query = queries.getQuery(i);  //Get the query at index i
-                                        if (query.getPredicate().isVariable()) {  //If the query contains a variable
-                                            variableBody = true;  //Set variableBody to true
-                                            nonGroundQueries.addQuery(query);  //Add the query to the list of nonGroundQueries
-                                        } else {  //If the query is ground
-                                            groundQueries.addQuery(query);  //Add the query to the list of groundQueries
-                                        }
-                                    }
-                                    if (variableBody) {  //If the rule contains variables in its body
-                                        if (groundQueries.getNumberOfQueries() > 0) {  //If there are ground queries in the rule
-                                            String groundEvaluation = evaluateGroundQuery(new PrologHolder(groundQueries));  //Evaluate the ground queries
-                                            if (groundEvaluation.equals("false")) {  //If they evaluate to false
-                                                found = false;  //Set found equal to false
-                                                continue;  //Check the next holder in the program
-                                            }
-                                        }
-                                        PrologHolder nonGroundSubstitutionHolder = evaluateNonGroundQuery(new PrologHolder(nonGroundQueries));  //Evaluate the nonGroundQueries
-                                        if (nonGroundSubstitutionHolder.getType().equals("atom")) {  //If they evaluate to a string
-                                            found = false;  //Set found equal to false
-                                            continue;  //Check the next holder in the program
-                                        }
-                                        boolean allFound = true;  //Initialize allFound to true
-                                        ArrayList<Substitution> nonGroundSubstitutions = nonGroundSubstitutionHolder.getSubstitutions();  //Get the list of nonGround substitutions
-                                        for (int i = 0; i < nonGroundQueries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                                            boolean foundQuery = true;  //Initialize foundQuery to true
-                                            Query bodyQuery = nonGroundQueries.getQuery(i);  //Get the query at index i
-                                            if (!checkBodySubstitutions(nonGroundSubstitutions, a, bodyQuery)) {  //If the strings for the query A don't match the substitutions for the body
-                                                foundQuery = false;  //Set foundQuery to false;
-                                            }
-                                            if (!foundQuery && headSubstitutions.size() > 0) {  //If the strings in the query didn't match with the substitutions, check the head's substitutions
-                                                if (checkHeadSubstitutions(headSubstitutions, nonGroundSubstitutions)) {  //If the substitutions for the head match the substitutions for the body
-                                                    foundQuery = true;  //Set foundQuery to true
-                                                }
-                                            } else {  //If the head doesn't contain any variables and the body query returned valid substitutions
-                                                foundQuery = true;  //Set foundQuery to true
-                                            }
-                                            if (!foundQuery) {  //If all queryFound is false
-                                                allFound = false;  //Set allFound to false
-                                                break;
-                                            }
-                                        }
-                                        if (allFound) {
-                                            found = true;
-                                        }
-
-                                    } else {  //If the rule doesn't contain any variables
-                                        for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                                            Query subQuery = queries.getQuery(i);  //Get the query at index i
-                                            PrologHolder subQueryHolder = new PrologHolder(subQuery);  //Place the query into a holder
-                                            if (i == queries.getNumberOfQueries() - 1 && evaluateGroundQuery(subQueryHolder).equals("true")) {  //If the last query evaluates to true
-                                                found = true;  //Set found equal to true
-                                                break outer2;  //Break out of all the loops
-                                            } else if (evaluateGroundQuery(subQueryHolder).equals("false")) {  //If the query evaluates to false
-                                                break;  //Search the next holder
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                if (found) {  //If a matching rule is found
-                    resolvent.pop();  //pop the resolvent
-                }
-                if (!found) {  //If no matching rule is found
-                    break;  //Break the while loop
-                }
-            } else {  //If the query does not match a fact or rule in the program
-                break;  //Break the while loop
-            }
-        }
+    /*
+     * Gets the number of queries resolve answered from the cache
+     * @return the number of hits since the cache was turned on
+     */
+    public long getCacheHits() {
+        QueryCache answers = cache;
+        return answers == null ? 0 : answers.getHits();
+    }
 
-        String answer = "false";  //Initialize answer to false
-        if (resolvent.isEmpty()) {  //If the resolvent is empty
-            answer = "true";  //Set answer to true
-        }
-        return answer;  //Return the answer
+    /*
+     * Gets the number of queries resolve had to solve while the cache was on
+     * @return the number of misses since the cache was turned on
+     */
+    public long getCacheMisses() {
+        QueryCache answers = cache;
+        return answers == null ? 0 : answers.getMisses();
     }
 
     /*
-     * Gets the Substitution within the given array list that has a name (and possibly index) that matches the given name and index
-     * @param subs a list of substitutions that contain a substitution that matches the given name
-     * @param name the name of the substitution in the list
-     * @param index the index of the variable associated with the substitution within the list
-     * @return a substitution that has the same name (and possible index) as the parameters
+     * Removes every cached answer, if answers are cached
      */
-    public Substitution getSubstitutionFromList(ArrayList<Substitution> subs, String name, int index) {
-        Substitution foundSub = null;  //Initialize the substitution to null
-        for (int i = 0; i < subs.size(); i++) {  //Iterate through the list
-            Substitution substitution = subs.get(i);  //Get the substitution at index i
-            if (substitution.getName().equals(name)) {  //If the substitution's name matches the given name
-                int foundIndex = substitution.getIndex();  //Get the index of the substitution
-                if (foundIndex == -1) {  //If the index is -1 (indicating that this substitution has not been claimed yet)
-                    foundSub = substitution;  //Set foundSub equal to this substitution
-                    break;  //Exit the loop
-                } else if (foundIndex == index) {  //Else if the index of the substitution matches the given index
-                    foundSub = substitution;  //Set foundSub equal to this substitution
-                    break;  //Exit the loop
-                }
-            }
+    private void clearCache() {
+        QueryCache answers = cache;
+        if (answers != null) {
+            answers.clear(changes);
         }
-        return foundSub;
     }
 
     /*
-     * Determines if the given list of substitutions contains a substitution that matches the given name
-     * @param name the name of the substitution to be found within the list
-     * @return true if the list contains a substitution that matches the given name
+     * Determines if the given atom is a variable
+     *@param atom the atom being evaluated
+     * @return true if the atom is a variable
      */
-    public boolean containsSubstitution(ArrayList<Substitution> subs, String name) {
-        boolean foundSub = false;  //Initialize foundSub to false
-        for (int i = 0; i < subs.size(); i++) {  //Iterate through the list
-            Substitution substitution = subs.get(i);  //Get the substitution at index i
-            if (substitution.getName().equals(name)) {  //If the name of the substitution matches the given name
-                foundSub = true;  //Set foundSub equal to true
-            }
+    public boolean isVariable(String atom) {
+        //String first = atom.substring(0, 1);
+        boolean upper = false;  //Initialize upper to false
+        if (Character.isUpperCase(atom.charAt(0))) {  //If the first character in the atom is uppercase
+            upper = true;  //Set upper equal to true
         }
-        return foundSub;
+        return upper;
     }
 
     /*
-     * A helper method that creates a deep copy of the given ArrayList of substitutions
-     * @param substitutions the list of substitutions to be copied
-     * @return a copy of the given list
+     * Determines if the given atom id belongs to a variable
+     * @param atom the id of the atom being evaluated
+     * @return true if the atom is a variable
      */
-    public ArrayList<Substitution> cloneSubstitution(ArrayList<Substitution> substitutions) {
-        ArrayList<Substitution> clone = new ArrayList<Substitution>(substitutions.size());  //Create a new list of substitutions
-        for (Substitution sub : substitutions) {  //Iterate through the given list
-            Substitution clonedSub = new Substitution(sub.getName());  //Create a new substitution that has the same name
-            for (int i = 0; i < sub.getSize(); i++) {  //Iterate through the list of strings in the substitution
-                String realSub = sub.getSubstitution(i);  //Get the string at index i in the substitution
-                clonedSub.addSubstitution(realSub);  //Add the string to the cloned substitution
-            }
-            clonedSub.setIndex(sub.getIndex());  //Set the index of the cloned substitution to the same index of the original substitution
-            clonedSub.setAddCount(sub.getAddCount());  //Set the addCount of the cloned substitution equal to the original substitution
-            clonedSub.setQueryID(sub.getQueryID());  //Set the queryID of the cloned substitution equal to the original substitution
-            clone.add(clonedSub);  //Add the cloned substitution to the cloned list of substitutions
-        }
-        return clone;
+    public boolean isVariable(int atom) {
+        return SymbolTable.isVariable(atom);  //Variables have negative ids
     }
 
     /*
-     * A helper method that checks the strings within 2 substitutions and removes non-matching strings
-     * @param firstSub the first substitution to be compared
-     * @param nextSub the next substitution to be compared
-     * @param substitutionList the list that contains firstSub and nextSub
+     * Compiles the query within the given PrologHolder into a clause with no head
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @return the compiled query
      */
-    public void checkTwoSubstitutions(Substitution firstSub, Substitution nextSub, ArrayList<Substitution> substitutionList) {
-        int firstSubSize = firstSub.getSize();  //Gets the size of the first substitution
-        int nextSubSize = nextSub.getSize();  //Gets the size of the second substitution
-
-        for (int m = firstSubSize - 1; m > -1; m--) {  //Iterate through the first substitution in reverse order
-            boolean found = false;  //Initialize found to false
-            String firstSubString = firstSub.getSubstitution(m);  //Get the string at index m in the first substitution
-            for (int n = nextSubSize - 1; n > -1; n--) {  //Iterate through the next substitution in reverse order
-                String nextSubString = nextSub.getSubstitution(n);  //Get the string at index n in the next substitution
-                if (firstSubString.equals(nextSubString)) {  //If the strings are the same
-                    found = true;  //Set found equal to true
-                    break;  //Exit the loop
-                }
-            }
-            if (!found) {  //If an equal string is not found
-                int queryID = firstSub.getQueryID();  //Get the queryID of the first substitution
-                for (Substitution sub : substitutionList) {  //Iterate through the list of substitution
-                    if (sub.getQueryID() == queryID) {  //If a substitution has a matching queryID
-                        sub.removeSubstitutionAtIndex(m);  //Remove the string at index m from the substitution
-                    }
-                }
-            }
+    public Clause compileQuery(PrologHolder queryHolder) {
+        return compileQuery(queryHolder, version().getTable());
+    }
+
+    /*
+     * Compiles the query within the given PrologHolder into a clause with no head, planned against the given table
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @param program the table the query will be solved against
+     * @return the compiled query
+     */
+    private Clause compileQuery(PrologHolder queryHolder, PredicateTable program) {
+        return compileGoals(getGoals(queryHolder), program);
+    }
+
+    /*
+     * Gets the goals of the query within the given PrologHolder
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @return the goals in the order they're written
+     */
+    private ArrayList<Query> getGoals(PrologHolder queryHolder) {
+        ArrayList<Query> goals;
+        if (queryHolder.getType().equals("simple query")) {  //If the query is a simple query
+            goals = new ArrayList<>();
+            goals.add(queryHolder.getQuery());  //The query is the only goal
+        } else {  //If the query is a conjunctive query
+            goals = queryHolder.getConjunctiveQuery().getQueries();  //Each query is a goal
         }
+        return goals;
     }
 
     /*
-     * A helper method that checks the substitutions of duplicate variables to ensure that they match
-     * @param substitutionList an array list of substitutions
+     * Compiles the given goals into a clause with no head, planned against the given table
+     * @param goals the goals in the order they're written
+     * @param program the table the goals will be solved against
+     * @return the compiled query
      */
-    public void checkDuplicateVariables(ArrayList<Substitution> substitutionList) {
-        for (int i = 0; i < substitutionList.size(); i++) {  //Iterate through the list
-            Substitution firstSub = substitutionList.get(i);  //Get the substitution at index i
-            String firstSubName = firstSub.getName();  //Get the name of the substitution at index i
-            for (int j = i + 1; j < substitutionList.size(); j++) {  //Iterate through the rest of the substitutions
-                Substitution nextSub = substitutionList.get(j);  //Get the substitution at index j
-                String nextSubName = nextSub.getName();  //Get the name of the substitution at index j
-                if (firstSubName.equals(nextSubName)) {  //If the two substitutions share the same name (are associated with the same variable)
-                    if (firstSub.getSize() == nextSub.getSize() && firstSub.getQueryID() == nextSub.getQueryID()) {  //If both substitutions have the same size
-                        int size = firstSub.getSize();  //Get the size of the first substitution
-                        for (int k = size - 1; k > -1; k--) {  //Iterate through the substitution (go backwards because we may delete strings as we go)
-                            String sub1 = firstSub.getSubstitution(k);  //Get the string at index k in the first substitution
-                            String sub2 = nextSub.getSubstitution(k);  //Get the string at index k in the second substitution
-                            if (!sub1.equals(sub2)) {  //If the strings are not equal
-                                int queryID = firstSub.getQueryID();  //Get the queryID of the first substitution
-                                for (Substitution sub : substitutionList) {  //Iterate through the list of substitutions
-                                    if (sub.getQueryID() == queryID) {  //If a substitution has a matching queryID
-                                        sub.removeSubstitutionAtIndex(k);  //Remove the string at index m from the substitution
-                                    }
-                                }
-                            }
-                        }
-                    } else {  //If the substitutions do not have the same size
-                        int firstSubSize = firstSub.getSize();  //Get the size of the first substitution
-                        int nextSubSize = nextSub.getSize();  //Get the size of the next substitution
-                        if (firstSubSize > nextSubSize) {  //If the size of the first substitution is larger than the size of the next substitution
-                            checkTwoSubstitutions(firstSub, nextSub, substitutionList);  //Call checkTwoSubstitutions to remove any strings in firstSub that aren't in nextSub
-                            checkTwoSubstitutions(nextSub, firstSub, substitutionList);  //Call checkTwoSubstitutions again to remove any strings in nextSub that aren't in firstSub
-                        } else {  //If the size of the next substitution is larger than the size of the first substitution
-                            checkTwoSubstitutions(nextSub, firstSub, substitutionList);  //Call checkTwoSubstitutions to remove any strings in nextSub that aren't in firstSub
-                            checkTwoSubstitutions(firstSub, nextSub, substitutionList);  //Call checkTwoSubstitutions again to remove any strings in firstSub that aren't in nextSub
-                        }
-                    }
-                }
-            }
+    private Clause compileGoals(ArrayList<Query> goals, PredicateTable program) {
+        if (!planning) {  //If planning is off, solve the goals from left to right
+            return new Clause(null, goals);
         }
+        return new Clause(null, new QueryPlanner(program).plan(goals), goals);  //Solve the most selective goals first
     }
 
     /*
-     * A helper method that deletes incorrect substitutions from a list of substitutions
-     * @param query a query being checked to see if it can be proven by the program
-     * @param substitutionList a list that contains all of the substitutions
+     * Evaluates the given ground query
+     * @param queryHolder the PrologHolder containing the query to be evaluated
+     * @return true if the ground query can be solved from the program
      */
-    public void deleteWrongSubstitutions(Query query, ArrayList<Substitution> substitutionList) {
-        String functor = query.getFunctor();  //Get the name of the query
-        ArrayList<Substitution> copySubstitutions = cloneSubstitution(substitutionList);  //Copy the list of substitutions
-
-        while (!copySubstitutions.isEmpty()) {  //While the copied list is not empty
-            Predicate predicate = new Predicate();  //Create a new predicate
-            for (int i = 0; i < query.getArity(); i++) {  //Iterate through the query
-                String queryAtom = query.getAtom(i);  //Get the atom at index i in the query
-                if (isVariable(queryAtom)) {  //If the atom is a variable
-                    Substitution substitutions = getSubstitutionFromList(copySubstitutions, queryAtom, i);  //Get the (copied) list of substitutions associated with that variable
-                    String sub = substitutions.getSubstitution(0);  //Get the 1st substitution in the list
-                    predicate.addAtom(sub);  //Add the substitution to the predicate
-                    substitutions.removeSubstitution(sub);  //Remove the substitution from the copied list
-                } else {  //If the atom is not a variable
-                    predicate.addAtom(queryAtom);  //Add it to the predicate
-                }
-            }
-            Query testQuery = new Query(functor, predicate);  //Create a query with the given functor and predicate
-            if (evaluateGroundQuery(new PrologHolder(testQuery)).equals("false")) {  //If the test query evaluates to false
-                for (int i = 0; i < query.getArity(); i++) {  //Iterate through the query
-                    String queryAtom = query.getAtom(i);  //Get the atom at index i in the query
-                    if (isVariable(queryAtom)) {  //If the atom is a variable
-                        Substitution substitutions = getSubstitutionFromList(substitutionList, queryAtom, i);  //Get the real list of substitutions associated with that variable
-                        substitutions.removeSubstitution(testQuery.getAtom(i));  //Remove the substitution from the real list
-                    }
-                }
-            }
-            int copyCount = copySubstitutions.size();  //Get the size of the copied list
-            for (int i = copyCount - 1; i > -1; i--) {  //Iterate through the copied list in reverse
-                Substitution sub = copySubstitutions.get(i);  //Get the substitution at index i
-                if (sub.getSize() == 0) {  //If the substitution is empty
-                    copySubstitutions.remove(sub);  //Remove the substitution from the copied list
-                }
-            }
+    public String evaluateGroundQuery(PrologHolder queryHolder) {
+        return evaluateGroundQuery(queryHolder, version());
+    }
+
+    /*
+     * Evaluates the given ground query against the given version of the program
+     * @param queryHolder the PrologHolder containing the query to be evaluated
+     * @param version the version the query runs against
+     * @return true if the ground query can be solved from the program
+     */
+    private String evaluateGroundQuery(PrologHolder queryHolder, ProgramVersion version) {
+        PredicateTable program = queryTable(version);
+        Resolver resolver = profile(new Resolver(program, version.getTables(), compileQuery(queryHolder, program)));  //Create a resolver for the query
+        if (resolver.next()) {  //If the query has a solution
+            return "true";
         }
+        return "false";
     }
 
     /*
-     * A helper method that checks the substitutions of a variable by testing them on a different query
-     * @param query a query from a conjunctive query that is being tested with different substitutions
-     * @param substitutionList a list that contains the substitutions for query
-     * @param allSubstitutions a list that contains all of the substitutions for all of the conjunctive queries
-     * @param queryID the id of the query these substitutions come from
-     * @param message a string indicating if the substitutions in substitutionList are from the same query
+     * Splits the given goals into groups that share no variables, so each group can be solved on its own
+     * Two goals are in the same group if they share a variable, or both share variables with a third goal in the group
+     * @param goals the goals of a query
+     * @return the groups in the order their first goals are written, each holding its goals in the order they're written
      */
-    public void deleteMoreWrongSubstitutions(Query query, ArrayList<Substitution> substitutionList, ArrayList<Substitution> allSubstitutions, int queryID, String message) {
-        String functor = query.getFunctor();  //Get the name of the query
-        ArrayList<Substitution> copySubstitutions = cloneSubstitution(substitutionList);  //Copy the list of substitutions
-
-        int indexCounter = -1;  //Initialize indexCounter to negative 1
-        while (!copySubstitutions.isEmpty()) {  //While the copied list is not empty
-            Predicate predicate = new Predicate();  //Create a new predicate
-            indexCounter++;  //Increment indexCounter
-            for (int i = 0; i < query.getArity(); i++) {  //Iterate through the query
-                String queryAtom = query.getAtom(i);  //Get the atom at index i in the query
-                if (isVariable(queryAtom)) {  //If the atom is a variable
-                    //Get the list of substitutions associated with that variable from the copied list
-                    Substitution substitutions = getSubstitutionFromList(copySubstitutions, queryAtom, copySubstitutions.get(i).getIndex());  //substitutionList.get(i).getIndex()
-                    String sub = substitutions.getSubstitution(0);  //Get the 1st substitution in the list
-                    predicate.addAtom(sub);  //Add the substitution to the predicate
-                    substitutions.removeSubstitution(sub);  //Remove the substitution from the copied list
-                } else {  //If the atom is not a variable
-                    predicate.addAtom(queryAtom);  //Add it to the predicate
-                }
-            }
-            Query testQuery = new Query(functor, predicate);  //Create a query with the given functor and predicate
-            if (evaluateGroundQuery(new PrologHolder(testQuery)).equals("false") && message.equals("same queryIDs")) {  //If the test query evaluates to false and the substitutions are from the same query
-                for (Substitution sub : allSubstitutions) {  //Iterate through the entire list of substitutions
-                    if (sub.getQueryID() == queryID) {  //If the ID of a substitution matches the queryID
-                        sub.removeSubstitutionAtIndex(indexCounter);  //Remove the substitution at that index
+    public ArrayList<ArrayList<Query>> independentGroups(ArrayList<Query> goals) {
+        int[] group = new int[goals.size()];  //The group of each goal, named by the index of its first goal
+        for (int i = 0; i < goals.size(); i++) {  //Start with every goal in its own group
+            group[i] = i;
+        }
+        for (int i = 0; i < goals.size(); i++) {  //Merge the groups of every pair of goals that share a variable
+            for (int j = i + 1; j < goals.size(); j++) {
+                if (group[i] != group[j] && containSameVariable(goals.get(i), goals.get(j))) {
+                    int from = Math.max(group[i], group[j]);
+                    int to = Math.min(group[i], group[j]);
+                    for (int k = 0; k < goals.size(); k++) {  //Move every goal in the later group into the earlier one
+                        if (group[k] == from) {
+                            group[k] = to;
+                        }
                     }
                 }
-            } else if (evaluateGroundQuery(new PrologHolder(testQuery)).equals("false") && message.equals("different queryIDs")) {  //If the test query evaluates to false and the substitutions are from the different query
-                for (Substitution sub : substitutionList) {  //Iterate through the list of substitutions
-                    sub.removeSubstitutionAtIndex(indexCounter);  //Remove the substitution at that index
-                }
-                indexCounter = indexCounter - 1;  //Decrement the indexCounter because we removed an item from the list
             }
-            int copyCount = copySubstitutions.size();  //Get the size of the copied list
-            for (int i = copyCount - 1; i > -1; i--) {  //Iterate through the copied list in reverse
-                Substitution sub = copySubstitutions.get(i);  //Get the substitution at index i
-                if (sub.getSize() == 0) {  //If the substitution is empty
-                    copySubstitutions.remove(sub);  //Remove the substitution from the copied list
+        }
+        ArrayList<ArrayList<Query>> groups = new ArrayList<>();
+        for (int i = 0; i < goals.size(); i++) {  //Collect the goals of each group
+            if (group[i] == i) {  //If the goal is the first of its group
+                ArrayList<Query> members = new ArrayList<>();
+                for (int j = i; j < goals.size(); j++) {
+                    if (group[j] == i) {
+                        members.add(goals.get(j));
+                    }
                 }
+                groups.add(members);
             }
         }
+        return groups;
     }
 
     /*
@@ -937,293 +618,177 @@ public class PrologInterpreter {
      * @return true if at least 1 identical variable exists in the given queries
      */
     public boolean containSameVariable(Query firstQuery, Query nextQuery) {
-        boolean sameVariable = false;  //Initialize sameVariable to false
-        ArrayList<Substitution> firstQuerySubstitutions = firstQuery.getSubstitutions();  //Get the list of substitutions from the first query
-        ArrayList<Substitution> nextQuerySubstitutions = nextQuery.getSubstitutions();  //Get the list of substitutions from the next query
-        for (Substitution firstSub : firstQuerySubstitutions) {  //Iterate through the first list of substitutions
-            String firstSubVariable = firstSub.getName();  //Get the name of the variable associated with a substitution
-            for (Substitution nextSub : nextQuerySubstitutions) {  //Iterate through the next list of substitutions
-                String nextSubVariable = nextSub.getName();  //Get the name of the variable associated with a substitution
-                if (firstSubVariable.equals(nextSubVariable)) {  //If the names of the variables are the same
-                    sameVariable = true;  //Set sameVariable equal to true
-                    break;  //Exit the loop
+        IntList firstVariables = firstQuery.getVariableIds();  //Get the ids of the variables in each query
+        IntList nextVariables = nextQuery.getVariableIds();
+        for (int i = 0; i < firstVariables.size(); i++) {  //Iterate through the first query's variables
+            for (int j = 0; j < nextVariables.size(); j++) {  //Iterate through the next query's variables
+                if (firstVariables.get(i) == nextVariables.get(j)) {  //If the variables are the same
+                    return true;
                 }
             }
         }
-        return sameVariable;
+        return false;
     }
 
     /*
-     * Makes a deep copy of the given substitution, but leaves it's list of strings empty
-     * @param substitution the substitution to be cloned
-     * @return a copy of the given substitution with an empty list of strings
+     * Gets an iterator over the solutions to the given query, which finds each solution only when it's asked for
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @return an iterator over the answers, in the order Prolog finds them
      */
-    public Substitution makeEmptySubstitutionCopy(Substitution substitution) {
-        Substitution newSubstitution = new Substitution(substitution.getName());
-        newSubstitution.setIndex(substitution.getIndex());  //Set the index of the cloned substitution to the same index of the original substitution
-        newSubstitution.setAddCount(substitution.getAddCount());  //Set the addCount of the cloned substitution equal to the original substitution
-        newSubstitution.setQueryID(substitution.getQueryID());  //Set the queryID of the cloned substitution equal to the original substitution
-        return newSubstitution;
+    public Iterator<Answer> answers(PrologHolder queryHolder) {
+        return answers(queryHolder, Long.MAX_VALUE);
     }
 
     /*
-     * Given 2 queries of different variable substitution sizes, this method makes every substitution the same size
-     * @param substitutions the list of substitutions that contain the substitutions associated with these queries
-     * @param equalizedSubstitutions an empty list of substitutions that gets filled with substitutions of the same size
-     * @param largerQuery the query with more variables
-     * @param smallerQuery the query with less variables (defines the scope)
+     * Gets an iterator over the first solutions to the given query, which finds each solution only when it's asked for
+     * (unless the search is split between threads, see setParallelism)
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @param limit the largest number of answers to return
+     * @return an iterator over at most limit answers
      */
-    public void equalizeSubstitutions(ArrayList<Substitution> substitutions, ArrayList<Substitution> equalizedSubstitutions, Query largerQuery, Query smallerQuery) {
-        int smallerQueryID = smallerQuery.getId();  //Get the id of the smaller query
-        int smallerQuerySize = smallerQuery.getSubstitutions().get(0).getSize();  //Get the size of the smaller query
-        int largerQuerySize = largerQuery.getSubstitutions().get(0).getSize();  //Get the size of the larger query
-
-        int totalSize = largerQuerySize * smallerQuerySize;  //Get the total size each substitution should be
-        for (Substitution sub : substitutions) {  //Iterate through the list of substitutions
-            if (sub.getSize() != totalSize && sub.getQueryID() == smallerQueryID) {  //If the size of a substitution isn't equal to the total size and it's from the smaller query
-                Substitution smallerSub = makeEmptySubstitutionCopy(sub);  //Make a copy of the smaller substitution with an empty list of strings
-                for (int j = 0; j < largerQuerySize; j++) {  //Iterate until the size of the larger copy (Repeat the substitutions of the smaller query as many times as the larger query)
-                    for (int i = 0; i < sub.getSize(); i++) {  //Iterate through the substitution
-                        String substitute = sub.getSubstitution(i);  //Get the substitute at index i
-                        smallerSub.addSubstitution(substitute);  //Add the substitute to the substitution
-                    }
-                }
-                equalizedSubstitutions.add(smallerSub);  //Add the substitution to the list
-            } else if (sub.getSize() != totalSize && sub.getQueryID() != smallerQueryID) {  //If the size of a substitution isn't equal to the total size and it's from the larger query
-                Substitution largerSub = makeEmptySubstitutionCopy(sub);  //Make a copy of the larger substitution with an empty list of strings
-                for (int i = 0; i < sub.getSize(); i++) {  //Iterate through the substitution
-                    String substitute = sub.getSubstitution(i);  //Get the substitute at index i
-                    for (int j = 0; j < smallerQuerySize; j++) {  //Iterate until the size of the smaller copy (Repeat each substitution of the larger query as many times as the smaller query)
-                        largerSub.addSubstitution(substitute);  //Add the substitute to the substitution
-                    }
-                }
-                equalizedSubstitutions.add(largerSub);   //Add the substitution to the list
-            }
-        }
-        deleteMoreWrongSubstitutions(smallerQuery, equalizedSubstitutions, substitutions, largerQuery.getId(), "different queryIDs");  //Call this method to test all of the substitutions
-
-        for (Substitution sub : substitutions) {  //Iterate through the original list of substitutions
-            String subVariable = sub.getName();  //Get the variable associated with a substitution
-            for (int i = 0; i < sub.getSize(); i++) {  //Iterate through the substitution
-                String subSubstitute = sub.getSubstitution(i);  //Get the string at index i
-                boolean found = false;  //Initialize found to false
-                for (Substitution equalizedSub : equalizedSubstitutions) {  //Iterate through the list of equalized substitutions
-                    String equalizedSubVariable = equalizedSub.getName();  //Get the variable associated with a substitution
-                    if (subVariable.equals(equalizedSubVariable)) {  //If the variables are the same
-                        for (int j = 0; j < equalizedSub.getSize(); j++) {  //Iterate through the equalized substitution
-                            String equalizedSubstitute = equalizedSub.getSubstitution(j);  //Get the string at index i
-                            if (subSubstitute.equals(equalizedSubstitute)) {  //If the strings match
-                                found = true;  //Set found equal to true
-                                break;  //Exit the loop
-                            }
-                        }
-                    }
-                }
-                if (!found) {  //If a matching string is not found
-                    sub.removeSubstitutionAtIndex(i);  //Remove the string at index i from the original substitution
-                }
-            }
-        }
+    public Iterator<Answer> answers(PrologHolder queryHolder, long limit) {
+        return answers(queryHolder, limit, version());
     }
 
     /*
-     * A helper method that swaps the substitutions for the smallerQuery with the substitutions for the larger query (if the queries have the same vairables)
-     * @param largerQuery the query with more variables
-     * @param smallerQuery the query with less variables
-     * @return PrologHolder holding a list of substitutions that contain substitutions from the larger query and the boolean allFound
+     * Gets an iterator over the solutions to the given query that stops once the given budget runs out
+     * The query is searched on the calling thread. When a limit is reached or the budget is cancelled from another thread,
+     * the iterator says there are no more answers, and the budget's status tells the answers apart from a complete set.
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query, ground or not
+     * @param budget the limits of the query, made for this query only
+     * @return an iterator over the answers found within the budget, where a ground query that holds has one answer
      */
-    public PrologHolder getSameSubstitutions(Query largerQuery, Query smallerQuery) {
-        ArrayList<Substitution> sameSubstitutions = new ArrayList<>();  //Create a new array List
-        ArrayList<Substitution> equalizedSubstitutions = new ArrayList<>();  //Create a new array list
-        boolean allFound = true;  //Indicates of every substitution in the smaller query appears in the larger query
-        for (Substitution smallerSub : smallerQuery.getSubstitutions()) {  //Iterate through the smaller query's substitutions
-            String smallerVariable = smallerSub.getName();  //Get the name of the variable associated with a substitution
-            boolean found = false;  //Initialize found to false
-            for (Substitution largerSub : largerQuery.getSubstitutions()) {  //Iterate through the larger query's substitutions
-                String largerVariable = largerSub.getName();  //Get the name of the variable associated with a substitution
-                if (smallerVariable.equals(largerVariable)) {  //If the names of the variables are the same
-                    sameSubstitutions.add(largerSub);  //Add the substitution from the larger query to the list
-                    found = true;  //Set found equal to true
-                    break;  //Exit the loop
-                }
-            }
-            if (!found) {  //If a matching variable is not found
-                sameSubstitutions.add(smallerSub);  //Add the substitution from the smaller query
-                allFound = false;  //Set all found to false
-            }
-        }
-        if (!allFound) {  //If a substitution from the smaller query is not found in the larger query
-            equalizeSubstitutions(sameSubstitutions, equalizedSubstitutions, largerQuery, smallerQuery);  //Call this method to make all of the lists of substitutions the same size and check for invalid substitutions
-        }
-        return new PrologHolder(sameSubstitutions, allFound);  //Return a prologHolder containing the boolean and the list of substitutions
+    public Iterator<Answer> answers(PrologHolder queryHolder, QueryBudget budget) {
+        ProgramVersion version = version();
+        PredicateTable program = queryTable(version);
+        Resolver resolver = profile(new Resolver(program, version.getTables(), compileQuery(queryHolder, program)));
+        resolver.setBudget(budget);
+        return new AnswerIterator(resolver, budget.getAnswerLimit(), budget);
     }
 
     /*
-     * Sets the list of substitutions in firstSub equal to the list in testSub
-     * @param firstSub the list of substitutions being modified
-     * @param nextSub the substitution with the correct substitutes
+     * Gets an iterator over the first solutions to the given query against the given version of the program
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @param limit the largest number of answers to return
+     * @param version the version the query runs against
+     * @return an iterator over at most limit answers
      */
-    public void modifySubstitutionList(Substitution firstSub, Substitution testSub) {
-        for (int i = 0; i < firstSub.getSize(); i++) {  //Iterate through the first substitution
-            String newSub = testSub.getSubstitution(i);  //Get the string at index i in testSub
-            firstSub.setSubstitution(i, newSub);  //Set the string at index i in firstSub to newSub
+    private Iterator<Answer> answers(PrologHolder queryHolder, long limit, ProgramVersion version) {
+        PredicateTable program = queryTable(version);
+        ForkJoinPool workers = pool;  //The pool can be replaced while the query runs
+        if (workers != null && !tabling && profiler == null) {  //If the search is split between threads
+            ArrayList<Query> goals = getGoals(queryHolder);
+            ArrayList<ArrayList<Query>> groups = independentGroups(goals);
+            if (groups.size() > 1 && new QueryPlanner(program).callsFactsAlone(goals)) {  //If some goals share no variables with the others, solve each group at the same time
+                Clause whole = new Clause(null, goals);  //Only used for the names of the variables
+                String[] names = new String[whole.getNumberOfVariables()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = whole.getVariableName(i);
+                }
+                ArrayList<Clause> compiled = new ArrayList<>();
+                for (ArrayList<Query> group : groups) {
+                    compiled.add(compileGoals(group, program));
+                }
+                return workers.invoke(new AndParallelTask(program, compiled, names, limit, workers.getParallelism())).iterator();
+            }
+            return workers.invoke(new OrParallelTask(program, compileGoals(goals, program), limit, workers.getParallelism())).iterator();
         }
+        return new AnswerIterator(profile(new Resolver(program, version.getTables(), compileQuery(queryHolder, program))), limit);
     }
 
     /*
-     * A helper method that checks the larger query to ensure that it fits into the scope defined by the smaller query
-     * @param firstQuery the larger query with more variables
-     * @param nextQuery the smaller query with less variables
-     * @param substitutionList a list of all of the substitutions for the conjunctive query
+     * Parses a query template once so it can be run many times without being parsed again (see PreparedQuery)
+     * @param template a simple or conjunctive query with a question mark in place of each parameter, as in parent(?, X)?
+     * @return the prepared query
+     * @throws IllegalArgumentException if the template isn't a query
      */
-    public void checkLargerSubstitutions(Query firstQuery, Query nextQuery, ArrayList<Substitution> substitutionList) {
-        PrologHolder substitutionHolder = getSameSubstitutions(firstQuery, nextQuery);
-        ArrayList<Substitution> testSubs = substitutionHolder.getSubstitutions(); //Swap the substitutions for the larger query into the smaller query (if they share variables)
-
-        if (substitutionHolder.isAllFound()) {
-            deleteMoreWrongSubstitutions(nextQuery, testSubs, substitutionList, firstQuery.getId(), "same queryIDs");  //Check the swapped substitutions
-            for (Substitution firstSub : firstQuery.getSubstitutions()) {  //Iterate through the first substitution
-                String firstVariable = firstSub.getName();  //Get the name of the variable associate with the first substitution
-                for (Substitution testSub : testSubs) {  //Iterate through the test substitutions
-                    String testVariable = testSub.getName();  //Get the name of the variable associate with the test substitution
-                    if (firstVariable.equals(testVariable)) {  //If the names of the variables match
-                        modifySubstitutionList(firstSub, testSub);  //Modify firstSub to equal testSub
-                    }
-                }
-            }
+    public PreparedQuery prepare(String template) {
+        PrologHolder holder;
+        try {
+            holder = evaluateInput(template, true);
+        } catch (RuntimeException e) {  //If the parser couldn't make a holder from the template
+            holder = null;
         }
+        if (holder == null || holder.getType() == null || !(holder.getType().equals("simple query") || holder.getType().equals("conjunctive query"))) {
+            throw new IllegalArgumentException("Not a query: " + template);
+        }
+        return new PreparedQuery(template, getGoals(holder));
     }
 
     /*
-     * Checks the substitutions of all of the queries to ensure that they're valid
-     * @param queries a conjunctive query that holds multiple queries
-     * @param substitutionList a list of all of the substitutions for the conjunctive query
+     * Gets an iterator over the solutions to a prepared query with the given parameter values
+     * @param query the prepared query
+     * @param parameters the atom for each parameter, in the order the parameters are written
+     * @return an iterator over the answers, in the order Prolog finds them
+     * @throws IllegalArgumentException if the number of values is wrong or a value isn't an atom
      */
-    public void checkAllQueries(ConjunctiveQuery queries, ArrayList<Substitution> substitutionList) {
-        for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-            Query firstQuery = queries.getQuery(i);  //Get the query at index i
-            int firstQueryNumberOfVariables = firstQuery.getNumberOfVariables();  //Get the number of variables in the first query
-            for (int j = i + 1; j < queries.getNumberOfQueries(); j++) {  //Iterate through the rest of the queries
-                Query nextQuery = queries.getQuery(j);  //Get the next query in the list
-                int nextQueryNumberOfVariables = nextQuery.getNumberOfVariables();  //Get the number of variables in the next query
-                if (containSameVariable(firstQuery, nextQuery)) {  //If the queries share variables
-                    if (firstQueryNumberOfVariables > nextQueryNumberOfVariables) {  //If the first query has more variables
-                        checkLargerSubstitutions(firstQuery, nextQuery, substitutionList);  //Check the substitutions of the larger query by testing them in the smaller query
-                    } else if ((firstQueryNumberOfVariables < nextQueryNumberOfVariables)) {  //If the next query has more variables
-                        checkLargerSubstitutions(nextQuery, firstQuery, substitutionList);//Check the substitutions of the larger query by testing them in the smaller query
-                    } else {  //If both queries have the same size
-                        checkLargerSubstitutions(firstQuery, nextQuery, substitutionList);  //Check the substitutions for the 1st query by testing them in the next query
-                        checkLargerSubstitutions(nextQuery, firstQuery, substitutionList);  //Check the substitutions for the next query by testing them in the 1st query
-                    }
-                }
-            }
-        }
+    public Iterator<Answer> execute(PreparedQuery query, String... parameters) {
+        return execute(query, Long.MAX_VALUE, parameters);
     }
 
     /*
-     * Removes invalid substitutions from the given prologHolder that either contains a query or a list of queries
-     * @param queryHolder the holder containing the query/queries
+     * Gets an iterator over the first solutions to a prepared query with the given parameter values
+     * The goals are only planned the first time the query runs against a version of the program. Independent goals
+     * aren't split between threads, since the plan covers the whole query, but the search is (see setParallelism).
+     * @param query the prepared query
+     * @param limit the largest number of answers to return
+     * @param parameters the atom for each parameter, in the order the parameters are written
+     * @return an iterator over at most limit answers
+     * @throws IllegalArgumentException if the number of values is wrong or a value isn't an atom
      */
-    public boolean removeInvalidSubstitutions(PrologHolder queryHolder) {
-        if (queryHolder.getType().equals("simple query")) {  //If the holder contains a simple query
-            Query query = queryHolder.getQuery();  //Get the query from the holder
-            ArrayList<Substitution> substitutionList = query.getSubstitutions();  //Get the list of substitutions from the query
-            checkDuplicateVariables(substitutionList);  //Call this method to remove any invalid substitutions for duplicate variables
-            for (Substitution sub : substitutionList) {  //Iterate through the list of substitutions
-                if (sub.getSize() == 0) {  //If a substitution is empty
-                    return false;  //Return false
-                }
-            }
-            deleteWrongSubstitutions(query, substitutionList);  //Call this method to test each substitution and remove invalid ones
-            /*  //MAY NEED TO DO THIS AGAIN
-            for (Substitution sub : substitutionList) {
-                if (sub.getSize() == 0) {
-                    validSubstitutions = false;
-                }
-            }
-             */
-
-        } else if (queryHolder.getType().equals("conjunctive query")) {  //If the prologHolder contains a conjunctive query
-            ConjunctiveQuery queries = queryHolder.getConjunctiveQuery();  //Get the conjunctive query from the holder
-            ArrayList<Substitution> substitutionList = new ArrayList<>();  //Create a list of substitutions to hold all of the substitutions from all of the queries
-            for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                Query subQuery = queries.getQuery(i);  //Get the query at index i
-                for (Substitution sub : subQuery.getSubstitutions()) {  //Iterate through the query's substitutions
-                    substitutionList.add(sub);  //Add the substitution to the list
-                }
-            }
-            checkDuplicateVariables(substitutionList);  //Call this method to remove any invalid substitutions for duplicate variables
-            for (Substitution sub : substitutionList) {  //Iterate through the list of substitutions
-                if (sub.getSize() == 0) {  //If a substitution is empty
-                    return false;  //Return false
-                }
-            }
-
-            for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                Query query = queries.getQuery(i);  //Get the query at index i
-                ArrayList<Substitution> thisSubstitutionList = query.getSubstitutions();  //Get the query's list of substitutions
-                deleteWrongSubstitutions(query, thisSubstitutionList);  //Call this method to test each substitution and remove invalid ones
-            }
-            checkAllQueries(queries, substitutionList);
+    public Iterator<Answer> execute(PreparedQuery query, long limit, String... parameters) {
+        int[] atoms = query.bind(parameters);
+        ProgramVersion version = version();
+        PredicateTable program = queryTable(version);
+        PreparedPlan plan = query.getPlan();
+        boolean ordered = planning;
+        if (plan == null || !plan.isFor(program, ordered)) {  //If the program has changed since the query was planned
+            plan = plan(query, program, ordered);
+            query.setPlan(plan);
         }
-        return true;
+        Clause clause = plan.bind(atoms);
+        ForkJoinPool workers = pool;  //The pool can be replaced while the query runs
+        if (workers != null && !tabling && profiler == null) {  //If the search is split between threads
+            return workers.invoke(new OrParallelTask(program, clause, limit, workers.getParallelism())).iterator();
+        }
+        return new AnswerIterator(profile(new Resolver(program, version.getTables(), clause)), limit);
     }
 
     /*
-     * Tests the given substitutions by swapping them with the previous substitutions in the given query
-     * @param bodyQuery the query being tested with new substitutions
-     * @param newSubstitutions the new Substitutions for the query
-     * @param indices a list that holds the index of the swapped variable in the given query
-     * @return a PrologHolder containing a list of substitutions
+     * Compiles the goals of a prepared query against the given table, finding where each parameter ends up
+     * @param query the prepared query
+     * @param program the table the query will be solved against
+     * @param ordered true to solve the most selective goals first, false to solve them in the order they're written
+     * @return the plan
      */
-    public PrologHolder testSubstitutions(Query bodyQuery, ArrayList<Substitution> newSubstitutions, ArrayList<Integer> indices) {
-        String functor = bodyQuery.getFunctor();  //Get the name of the body query
-        Predicate predicate = new Predicate();  //Create a new predicate
-        for (int i = 0; i < bodyQuery.getArity(); i++) {  //Iterate through the body query
-            String bodyAtom = bodyQuery.getAtom(i);  //Get the atom at index i in the query
-            if (isVariable(bodyAtom)) {  //If the atom is a variable
-                boolean foundVariable = false;
-                for (Substitution headSub : newSubstitutions) {  //Iterate through the substitutions for the head
-                    String variable = headSub.getName();  //Get the variable associated with a substitution
-                    if (bodyAtom.equals(variable)) {  //If the variables are the same
-                        predicate.addAtom(headSub.getSubstitution(0));  //Add the substitution to the predicate
-                        foundVariable = true;
-                        indices.add(i);  //Add the index of the variable to the list
-                    }
-                }
-                if (!foundVariable) {
-                    predicate.addAtom(bodyAtom);
+    private PreparedPlan plan(PreparedQuery query, PredicateTable program, boolean ordered) {
+        ArrayList<Query> goals = query.getGoals();
+        ArrayList<Query> order = ordered ? new QueryPlanner(program).plan(goals) : goals;
+        Clause clause = new Clause(null, order, goals);
+        int parameter = SymbolTable.intern(PreparedQuery.PARAMETER);
+        int[] positions = new int[query.getNumberOfParameters()];
+        int count = 0;
+        for (Query goal : goals) {  //Find each parameter in the order they're written
+            int offset = clause.getGoalOffset(order.indexOf(goal));  //Where the goal was placed by the plan
+            for (int i = 0; i < goal.getArity(); i++) {
+                if (!goal.getPredicate().isList(i) && goal.getAtomId(i) == parameter) {
+                    positions[count] = offset + i;
+                    count++;
                 }
-            } else {  //If the atom is not a variable
-                predicate.addAtom(bodyAtom);  //Add the atom to the predicate
             }
         }
-        Query testQuery = new Query(functor, predicate);  //Create a new query with the functor and predicate
-        return evaluateNonGroundQuery(new PrologHolder(testQuery));
+        return new PreparedPlan(program, ordered, clause, positions);
     }
 
     /*
-     * Fills the substitutions for the query with the given list of substitutions
-     * @param query the query whose substitutions are being modified
-     * @param substitutions the substitutions being added to the query
-     * @param indices a list the holds the indices of the substitutions
+     * Gets a stream of the solutions to the given query, which finds each solution only when it's asked for
+     * Use limit on the stream to get only the first answers
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @return a sequential stream of the answers
      */
-    public void fillSubstitutions(Query a, ArrayList<Substitution> substitutions, ArrayList<Integer> indices) {
-        int indexCounter = -1;  //Counts the index of the variables
-        for (int i = 0; i < a.getArity(); i++) {  //Iterate through the query
-            String atom = a.getAtom(i);  //Get the atom at index i
-            if (isVariable(atom)) {  //If the atom is a variable
-                indexCounter++;  //Increment indexCounter
-                int correctIndex = indices.get(indexCounter);  //Get the correct index form the list of indices
-                Substitution foundSub = substitutions.get(correctIndex);  //Get the substitution at the correct index
-                for (int j = 0; j < foundSub.getSize(); j++) {  //Iterate through the substitution
-                    String bodySubstitute = foundSub.getSubstitution(j);  //Get the string at indx j
-                    Substitution querySub = a.getSubstitutions().get(indexCounter);  //Get the substitution in the query
-                    querySub.addSubstitution(bodySubstitute);  //Add the string to the substitution
-                }
-
-            }
-        }
+    public Stream<Answer> answerStream(PrologHolder queryHolder) {
+        Spliterator<Answer> spliterator = Spliterators.spliteratorUnknownSize(answers(queryHolder), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
     }
 
     /*
@@ -1231,353 +796,54 @@ public class PrologInterpreter {
      * @return false if the query cannot be solved from the program. Otherwise a holder that contains a list of substitutions for the variables within the query
      */
     public PrologHolder evaluateNonGroundQuery(PrologHolder queryHolder) {
-        boolean foundRule = false;  //Determines if a valid rule is found for the query
-        boolean stringAns = true;  //Determines if the answer to the query is the string "true"
-        Stack<Query> resolvent = new Stack<>();  //Create a stack to hold the queries
-        if (queryHolder.getType().equals("simple query")) {  //If the query is a simple query
-            Query query = queryHolder.getQuery();  //Get the query from the holder
-            resolvent.add(query);  //Add the query to the resolvent
-            for (int i = 0; i < query.getArity(); i++) {  //Iterate through the query
-                if (isVariable(query.getAtom(i))) {  //If the atom at index i is a variable
-                    Substitution sub = new Substitution(query.getAtom(i));  //Create a substitution whose name is the variable
-                    query.getSubstitutions().add(sub);  //Add the substitution to the query
+        return evaluateNonGroundQuery(queryHolder, version());
+    }
+
+    /*
+     * Evaluates the given non ground query against the given version of the program
+     * @param queryHolder the PrologHolder containing the query to be evaluated
+     * @param version the version the query runs against
+     * @return false if the query cannot be solved from the program, otherwise a holder of substitutions
+     */
+    private PrologHolder evaluateNonGroundQuery(PrologHolder queryHolder, ProgramVersion version) {
+        Iterator<Answer> answers = answers(queryHolder, Long.MAX_VALUE, version);  //Get the answers to the query
+        if (!answers.hasNext()) {  //If the query has no solutions
+            return new PrologHolder("false");
+        }
+        ArrayList<Substitution> substitutions = new ArrayList<>();  //Holds the values of each variable
+        while (answers.hasNext()) {  //While there's another solution
+            Answer answer = answers.next();
+            if (substitutions.isEmpty()) {  //If this is the first solution, create a substitution for each variable in the query
+                for (int i = 0; i < answer.getNumberOfVariables(); i++) {
+                    Substitution substitution = new Substitution(answer.getName(i));
+                    substitution.setIndex(i);
+                    substitutions.add(substitution);
                 }
             }
-        } else if (queryHolder.getType().equals("conjunctive query")) {  //If the query is a conjunctive query
-            ConjunctiveQuery queryList = queryHolder.getConjunctiveQuery();  //Get the conjunctive query from the holder
-            for (int i = 0; i < queryList.getNumberOfQueries(); i++) {  //Iterate through the queries
-                Query query = queryList.getQuery(i);  //Get the query from the list of queries
-                query.setId(i);  //Set the id of the query to its index i
-                resolvent.add(query);  //Add the query to the resolvent
-
-                for (int j = 0; j < query.getArity(); j++) {  //Iterate through the query
-                    if (isVariable(query.getAtom(j))) {  //If the atom at index j is a variable
-                        Substitution sub = new Substitution(query.getAtom(j));  //create a substitution whose name is the variable
-                        sub.setQueryID(query.getId());  //Set the substitution's queryID
-                        query.getSubstitutions().add(sub);  //Add the substitution to the query
-                    }
-                }
+            for (int i = 0; i < substitutions.size(); i++) {  //Add each variable's value in this solution
+                substitutions.get(i).addSubstitution(answer.getValue(i));
             }
         }
-        while (!resolvent.isEmpty()) {
-            Query a = resolvent.peek();  //Set a equal to the query at the top of the stack
-            if (containsFact(a.getFunctor())) {  //If a fact exists in the program that has the same functor as the query
-                PrologHolder factHolder = getFactHolder(a.getFunctor());  //Get the fact from the program and place it into a holder
-                Fact foundFact = factHolder.getFact();  //Get the fact from the holder
-
-                boolean found = false;  //Initialize found to false
-                for (int i = 0; i < foundFact.getNumberOfPredicates(); i++) {
-                    Predicate predicate = foundFact.getPredicate(i);  //Get the predicate at index i in the fact
-                    for (Substitution substitution : a.getSubstitutions()) {  //Iterate through the list of substitutions
-                        substitution.clearAddCount();  //Clear the addCount for each substitution (indicating that nothing has been added to the substitution's list yet)
-                    }
-                    if (predicate.getArity() == a.getArity()) {  //If the fact and the query share the same arity
-                        for (int j = 0; j < predicate.getArity(); j++) {  //Iterate through the predicate
-                            String queryAtom = a.getAtom(j);  //Get the atom at the same index in the query as the predicate
-                            if (isVariable(queryAtom)) {  //If the atom in the query is a variable
-                                Substitution sub = getSubstitutionFromList(a.getSubstitutions(), queryAtom, j);  //Get the Substitution from the list
-                                if (sub.getIndex() == -1) {  //If the index of the substitution is -1 (indicating that this substitution hasn't been claimed yet)
-                                    sub.setIndex(j);  //Set the index of the substitution to match the index of the variable
-                                }
-
-                                String factAtom = predicate.getAtom(j);  //Get the atom in the predicate at index j
-                                sub.addSubstitution(factAtom);  //Add the atom to the list of substitutions
-                                sub.incrementAddCount();  //Increment the addCount of the substitution
-                                if (j == predicate.getArity() - 1) {  //If we're at the last atom in the predicate
-                                    found = true;  //Set found equal to true;
-                                    break;  //Search the next predicate
-                                }
-                            } else {  //Else if the atom in the query is not a variable
-                                boolean variable = false;  //Initialize variable to false
-                                String factAtom = predicate.getAtom(j);  //get the atom at index i in the predicate
-                                if (isVariable(factAtom)) {  //If the atom is a variable
-                                    variable = true;  //Set variable equal to true
-                                }
-                                //If the last atom in the predicate is equal to the atom in the query or the last atom is a variable
-                                if ((j == predicate.getArity() - 1 && factAtom.equals(queryAtom)) || (j == predicate.getArity() - 1 && variable)) {
-                                    found = true;  //Set found equal to true
-                                    break;  //Break out of all the loops
-                                } else if (!predicate.getAtom(j).equals(queryAtom) && !variable) {  //If the the atom in the predicate isn't the same as the atom in the query
-                                    for (Substitution substitution : a.getSubstitutions()) {  //Iterate through the list of substitutions
-                                        if (substitution.getAddCount() > 0) {  //If the substitution has been added to
-                                            substitution.removeRecent(substitution.getAddCount());  //Delete the incorrect substitutions
-                                        }
-                                    }
-                                    break;  //Search the next predicate
-                                }
-                            }
-                        }
-                    }
-                }
-                if (found) {  //If a matching fact is found
-                    resolvent.pop();  //pop the resolvent
-                    stringAns = false;
-                }
-                if (!found) {  //If no matching fact is found
-                    break;  //Break the while loop
-                }
+        return new PrologHolder(substitutions);
+    }
 
-            } else if (containsRule(a.getFunctor())) {
-                boolean found = false;  //initialize found to false
-                for (PrologHolder holder : program) {
-                    if (holder.getType().equals("rule")) {  //If the holder contains a rule
-                        PrologRule prologRule = holder.getPrologRule();  //Get the rule from the holder
-                        if (queryMatchesRule(a, prologRule)) {  //If the query matches the rule
-                            if (prologRule.getType().equals("simple query")) {  //If the rule only has one body
-                                ArrayList<Substitution> headSubstitutions = getHeadSubstitutions(prologRule, a);  //Get the heads substitutions if it contains variables
-                                if (prologRule.getSimpleBody().getPredicate().isVariable()) {  //If the body contains a variable
-                                    PrologHolder ruleQueryHolder = new PrologHolder(prologRule.getSimpleBody());  //Put the body in a holder
-                                    PrologHolder substitutionHolder;
-                                    ArrayList<Substitution> bodySubstitutions;
-                                    if (prologRule.getSimpleBody().getSubstitutions().size() == 0) {  //If the body doesn't have any substitutions
-                                        substitutionHolder = evaluateNonGroundQuery(ruleQueryHolder);  //Evaluate the body
-                                        if (substitutionHolder.getType().equals("atom")) {  //If the body evaluates to a string (indicating that it failed)
-                                            found = false;  //Set found equal to false
-                                            continue;   //Exit the loop
-                                        }
-                                        bodySubstitutions = substitutionHolder.getSubstitutions();  //Get the list of substitutions from the holder
-                                    } else {  //If the body already contains substitutions
-                                        bodySubstitutions = prologRule.getSimpleBody().getSubstitutions();  //Set bodySubstitutions to the body's substitutions
-                                    }
-                                    ArrayList<Substitution> correctSubstitutions;
-                                    boolean allFound = true;  //Indicates that all of the variables were found
-
-                                    boolean shareVariable = false;  //Indicates that a variable in the head of the rule is also within the body of the rule
-                                    for (Substitution headSub : headSubstitutions) {  //Iterate through the head's substitutions
-                                        String headVariable = headSub.getName();  //Get the variable associated with the substitution
-                                        for (Substitution bodySub : bodySubstitutions) {  //Iterate through the body's substitutions
-                                            String bodyVariable = bodySub.getName();  //Get the variable associated with the substitution
-                                            if (headVariable.equals(bodyVariable)) {  //If the variables match
-                                                shareVariable = true;  //Set shareVariable to true
-                                                break;  //Exit the loop
-                                            }
-                                        }
-                                    }
-
-                                    if (shareVariable) {  //If a variable in the head of the rule is also within the body of the rule
-                                        if (!checkBodySubstitutions(bodySubstitutions, a, prologRule.getSimpleBody())) {  //If the strings from the query don't match the substitutions for the body
-                                            allFound = false;  //Set all found to false
-                                        } else {
-                                            ArrayList<Substitution> substitutions;  //Create an array of substitutions
-                                            Query bodyQuery = prologRule.getSimpleBody();  //Get the body query of the rule
-                                            ArrayList<Integer> indices = new ArrayList<>();  //Create a list that will hold the indices of the substitutions
-                                            PrologHolder tests = testSubstitutions(bodyQuery, headSubstitutions, indices);  //Test the headSubstitutions by swapping them into the query
-                                            if (tests.getType().equals("substitutions")) {  //If the test returns valid substitutions
-                                                substitutions = tests.getSubstitutions();  //Set substitutions equal to the tests
-                                            } else {  //If the test doesn't return a valid substitution
-                                                substitutions = bodySubstitutions;  //Set substitutions equal to body substitutions
-                                            }
-                                            fillSubstitutions(a, substitutions, indices);  //Fill the substitutions for query a with the given substitutions
-                                        }
-                                        if (!allFound && headSubstitutions.size() > 0) {  //If the strings in the query didn't match with the substitutions, check the head's substitutions
-                                            if (checkHeadSubstitutions(headSubstitutions, bodySubstitutions)) {  //If the substitutions for the head match the substitutions for the body
-                                                Query bodyQuery = prologRule.getSimpleBody();  //Get the body query
-                                                ArrayList<Integer> indices = new ArrayList<>();  //Create a list that will hold the indices of the substitutions
-                                                PrologHolder testHolder = testSubstitutions(bodyQuery, headSubstitutions, indices);
-                                                correctSubstitutions = testHolder.getSubstitutions();  //Test the head substitutions and return the valid substitutions
-                                                fillSubstitutions(a, correctSubstitutions, indices);  //Fill the substitutions for query a with the given substitutions
-                                                allFound = true;  //Set allFound to true
-                                            }
-                                        }
-                                        if (allFound) { //&& case1) {  //If a matching rule is found in case 1
-                                            found = true;  //Set found to true
-                                            foundRule = true;  //Set found rule true
-                                            stringAns = false;  //Set stringAns to false
-                                        }
-
-                                    } else {  //If the head doesn't share any variables with the body
-                                        found = true;  //Set found to true because the body evaluates
-                                    }
-                                } else {  //If the body doesn't contain any variables
-                                    if (evaluateGroundQuery(new PrologHolder(prologRule.getSimpleBody())).equals("true")) {  //Evaluate the body and if it returns true
-                                        found = true;  //Set found equal to true
-                                    }
-                                }
-
-                            } else if (prologRule.getType().equals("conjunctive query")) {
-                                ConjunctiveQuery queries = prologRule.getConjunctiveBody();  //Get the queries from the rule
-                                ArrayList<Substitution> headSubstitutions = getHeadSubstitutions(prologRule, a);  //Get the substitutions for the head if it contains variables
-                                ConjunctiveQuery nonGroundQueries = new ConjunctiveQuery();  //Create a list for non-ground queries
-                                ConjunctiveQuery groundQueries = new ConjunctiveQuery();  //Create a list for ground queries
-                                boolean variableBody = false;   //Indicates if the body queries have variables in them
-                                for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                                    Query query = queries.getQuery(i);  //Get the query at index i
-                                    if (query.getPredicate().isVariable()) {  //If the query contains a variable
-                                        variableBody = true;  //Set variableBody to true
-                                        nonGroundQueries.addQuery(query);  //Add the query to the list of nonGroundQueries
-                                    } else {  //If the query is ground
-                                        groundQueries.addQuery(query);  //Add the query to the list of groundQueries
-                                    }
-                                }
-                                if (variableBody) {  //If the rule contains variables in its body
-                                    if (groundQueries.getNumberOfQueries() > 0) {  //If there are ground queries in the rule
-                                        String groundEvaluation = evaluateGroundQuery(new PrologHolder(groundQueries));  //Evaluate the ground queries
-                                        if (groundEvaluation.equals("false")) {  //If they evaluate to false
-                                            found = false;  //Set found equal to false
-                                            continue;  //Check the next holder in the program
-                                        }
-                                    }
-                                    boolean emptySub = false;  //Determines if a query contains substitutions
-                                    for (int i = 0; i < nonGroundQueries.getNumberOfQueries(); i++) {  //Iterate through the non-ground queries
-                                        Query query = nonGroundQueries.getQuery(i);  //Get the query at index i
-                                        if (query.getSubstitutions().size() == 0) {  //If the query doesn't contain any substitutions
-                                            emptySub = true;  //Set emptySub to true
-                                            break;  //Exit the loop
-                                        }
-                                    }
-                                    PrologHolder nonGroundSubstitutionHolder;
-                                    ArrayList<Substitution> nonGroundSubstitutions;
-                                    if (emptySub) {
-                                        nonGroundSubstitutionHolder = evaluateNonGroundQuery(new PrologHolder(nonGroundQueries));  //Evaluate the nonGroundQueries
-                                        if (nonGroundSubstitutionHolder.getType().equals("atom")) {  //If they evaluate to a string
-                                            found = false;  //Set found equal to false
-                                            continue;  //Check the next holder in the program
-                                        }
-                                        nonGroundSubstitutions = nonGroundSubstitutionHolder.getSubstitutions();  //Get the list of nonGround substitutions
-                                    } else {
-                                        nonGroundSubstitutions = new ArrayList<>();
-                                        for (int i = 0; i < nonGroundQueries.getNumberOfQueries(); i++) {
-                                            ArrayList<Substitution> nonGroundSubs = nonGroundQueries.getQuery(i).getSubstitutions();
-                                            for (Substitution sub : nonGroundSubs) {
-                                                if (!containsSubstitution(nonGroundSubstitutions, sub.getName())) {  //If the substitution is not in the list of correct substitutions
-                                                    nonGroundSubstitutions.add(sub);  //Add the substitution to the list
-                                                }
-                                            }
-                                        }
-                                    }
-
-                                    boolean shareVariable = false;  //Indicates that a variable in the head of the rule is also within the body of the rule
-                                    for (Substitution headSub : headSubstitutions) {  //Iterate through the head's substitutions
-                                        String headVariable = headSub.getName();  //Get the variable associated with the substitution
-                                        for (Substitution nonGroundSub : nonGroundSubstitutions) {  //Iterate through the body's substitutions
-                                            String bodyVariable = nonGroundSub.getName();  //Get the variable associated with the substitution
-                                            if (headVariable.equals(bodyVariable)) {  //If the variables match
-                                                shareVariable = true;  //Set shareVariable to true
-                                                break;  //Exit the loop
-                                            }
-                                        }
-                                    }
-
-                                    if (shareVariable) {  //If the rule shares variables between the head and the body
-                                        ArrayList<Substitution> correctSubstitutions = new ArrayList<>();  //Create a new list of substitutions
-                                        for (Substitution headSub : headSubstitutions) {  //Iterate through the head substitutions
-                                            String headVariable = headSub.getName();  //Get the variable associated with the substitution
-                                            String subVariable = headSub.getSubstitution(0);  //Get the string associated with the variable
-                                            Substitution correctSub = new Substitution(subVariable);  //Create a substitution for the string
-
-                                            for (Substitution nonGroundSub : nonGroundSubstitutions) {  //Iterate through the non-ground substitutions
-                                                String nonGroundVariable = nonGroundSub.getName();  //Get the variable associated with the substitution
-                                                if (headVariable.equals(nonGroundVariable)) {  //If the variables match
-                                                    for (int i = 0; i < nonGroundSub.getSize(); i++) {  //Iterate through the non-ground substitution
-                                                        String sub = nonGroundSub.getSubstitution(i);  //Get the string at index i
-                                                        correctSub.addSubstitution(sub);  //Add it to the list of correct substitution
-                                                    }
-                                                    correctSubstitutions.add(correctSub);  //Add the correct substitution to the list
-                                                }
-                                            }
-                                        }
-
-                                        for (Substitution sub : a.getSubstitutions()) {  //Iterate through the query's substitutions
-                                            String variable = sub.getName();  //Get the variable associated with the substitution
-                                            for (Substitution correctSub : correctSubstitutions) {  //Iterate through the list of correct substitutions
-                                                String correctSubVariable = correctSub.getName();  //Get the variable associated with the correct substitution
-                                                if (variable.equals(correctSubVariable)) {  //If the variables match
-                                                    for (int i = 0; i < correctSub.getSize(); i++) {  //Iterate through the correct substitution
-                                                        String correctSubstitute = correctSub.getSubstitution(i);  //Get the string at index i
-                                                        sub.addSubstitution(correctSubstitute);  //Add it to the query's substitution
-                                                    }
-                                                }
-                                            }
-                                        }
-                                        checkDuplicateVariables(correctSubstitutions);  //Check the substituions for duplicates
-                                        boolean allFound = true;  //Determines if every variable in the query has a valid substitution
-                                        for (Substitution sub : correctSubstitutions) {  //Iterate through the correct substitutions
-                                            if (sub.getSize() < 1) {  //If the substitution is empty
-                                                allFound = false;  //Set allFound to false
-                                                break;  //Exit the loop
-                                            }
-                                        }
-                                        if (allFound) {  //If every variable has a valid substitution
-                                            found = true;  //Set found to true
-                                            foundRule = true;  //Set found rule true
-                                            stringAns = false;  //Set stringAns to false
-                                        }
-                                    } else {  //If the rule doesn't share variables between the head and the body
-                                        found = true;
-                                    }
-                                } else { //If the rule doesn't contain any variables
-                                    if (evaluateGroundQuery(new PrologHolder(prologRule.getSimpleBody())).equals("true")) {  //Evaluate the body and if it returns true
-                                        found = true;  //Set found equal to true
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                if (found) {  //If a matching fact is found
-                    resolvent.pop();  //pop the resolvent
-                }
-                if (!found) {  //If no matching fact is found
-                    break;  //Break the while loop
-                }
-            } else {
-                break;
-            }
+    /*
+     * Prints the answers to the given query as they are found, one per line
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @param limit the largest number of answers to print
+     * @return the number of answers printed
+     */
+    public long printAnswers(PrologHolder queryHolder, long limit) {
+        long count = 0;
+        Iterator<Answer> answers = answers(queryHolder, limit);  //Get the answers to the query
+        while (answers.hasNext()) {  //While there's another solution
+            System.out.println(answers.next());  //Print it before searching for the next one
+            count++;
         }
-
-        PrologHolder answer = new PrologHolder("false");
-
-        if (resolvent.isEmpty() && !foundRule && !stringAns) {  //If the resolvent is empty (indicating that the given query / queries were resolved)
-            if (removeInvalidSubstitutions(queryHolder)) {  //If the query has valid substitutions
-                ArrayList<Substitution> correctSubstitutions = new ArrayList<>();  //Create an array list of substitutions to hold all of the correct substitutions from each query
-                if (queryHolder.getType().equals("simple query")) {  //If the query is a simple query
-                    ArrayList<Substitution> substitutions = queryHolder.getQuery().getSubstitutions();  //Get the list of substitutions from the query
-                    for (int i = 0; i < substitutions.size(); i++) {  //Iterate through the substitutions
-                        Substitution sub = substitutions.get(i);  //Get the substitution at index i
-                        if (!containsSubstitution(correctSubstitutions, sub.getName())) {  //If the substitution is not in the list of correct substitutions
-                            correctSubstitutions.add(sub);  //Add the substitution to the list
-                        }
-                    }
-                    answer = new PrologHolder(correctSubstitutions);  //Place the list of correct substitutions in a PrologHolder and set answer equal to it
-                    //answer = new PrologHolder(queryHolder.getQuery().getSubstitutions());  //Place the query's list of substitutions in a PrologHolder and set answer equal to it
-                } else {  //If the query is a conjunctive query
-                    ConjunctiveQuery queries = queryHolder.getConjunctiveQuery();  //Get the conjunctive query from the holder
-                    for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                        Query subQuery = queries.getQuery(i);  //Qet the query at index i
-                        for (Substitution sub : subQuery.getSubstitutions()) {  //Iterate through the query's substitutions
-                            if (!containsSubstitution(correctSubstitutions, sub.getName())) {  //If the substitution is not in the list of correct substitutions
-                                correctSubstitutions.add(sub);  //Add the substitution to the list
-                            }
-                        }
-                    }
-                    answer = new PrologHolder(correctSubstitutions);  //Place the list of correct substitutions in a PrologHolder and set answer equal to it
-                }
-            }
-        } else if (resolvent.isEmpty() && stringAns) {
-            answer = new PrologHolder("true");
-        } else if (resolvent.isEmpty()) {
-            if (queryHolder.getType().equals("simple query")) {
-                answer = new PrologHolder(queryHolder.getQuery().getSubstitutions());
-            } else {
-                ArrayList<Substitution> allSubstitutions = new ArrayList<>();  //Create an array list of substitutions to hold all of the correct substitutions from each query
-                ArrayList<Substitution> correctSubstitutions = new ArrayList<>();  //Create an array list of substitutions to hold all of the correct substitutions from each query
-                ConjunctiveQuery queries = queryHolder.getConjunctiveQuery();  //Get the conjunctive query from the holder
-                for (int i = 0; i < queries.getNumberOfQueries(); i++) {  //Iterate through the queries
-                    Query subQuery = queries.getQuery(i);  //Qet the query at index i
-                    for (Substitution sub : subQuery.getSubstitutions()) {  //Iterate through the query's substitutions
-                        allSubstitutions.add(sub);  //Add the substitution to the list
-                    }
-                }
-                checkDuplicateVariables(allSubstitutions);  //Check the duplicates for all of the substitutions
-                for (Substitution sub : allSubstitutions) {  //Iterate through all of the substitutions
-                    if (!containsSubstitution(correctSubstitutions, sub.getName())) {  //If the substitution is not in the list of correct substitutions
-                        correctSubstitutions.add(sub);  //Add the substitution to the list
-                    }
-                }
-                answer = new PrologHolder(correctSubstitutions);  //Place the list of correct substitutions in a PrologHolder and set answer equal to it
-            }
+        if (count == 0) {  //If the query has no solutions
+            System.out.println("false");
         }
-        return answer;
+        return count;
     }
 
     /*
@@ -1587,7 +853,10 @@ public class PrologInterpreter {
      */
     public PrologHolder resolve(PrologHolder holder) {
         PrologHolder answer = null;  //Initialize answer to null
-        if (holder.getType().equals("fact")) {  //If the holder contains a fact
+        QueryCache answers = cache;  //The cache can be turned off while the query runs
+        if (answers != null && profiler == null && (holder.getType().equals("simple query") || holder.getType().equals("conjunctive query"))) {  //If the answer may be cached
+            answer = resolveCached(holder, answers);
+        } else if (holder.getType().equals("fact")) {  //If the holder contains a fact
             evaluateFact(holder);  //Evaluate the fact
         } else if ((holder.getType().equals("simple query") || holder.getType().equals("conjunctive query")) && !holder.isVariable()) {  //If the holder contains a simple / conjunctive query that is ground
             answer = new PrologHolder(evaluateGroundQuery(holder));  //Evaluate the ground query / queries
@@ -1599,27 +868,53 @@ public class PrologInterpreter {
         return answer;
     }
 
+    /*
+     * Gets the answer to the given query from the cache, solving the query and caching its answer if it isn't there
+     * @param queryHolder the PrologHolder containing a simple or conjunctive query
+     * @param cache the cache the answer is looked for in
+     * @return the same answer resolve would give without the cache
+     */
+    private PrologHolder resolveCached(PrologHolder queryHolder, QueryCache cache) {
+        ArrayList<Query> goals = getGoals(queryHolder);
+        IntList variables = new IntList();
+        Variant key = QueryCache.key(goals, variables);
+        ProgramVersion version = version();
+        CachedAnswer cached = cache.get(key, version.getNumber());
+        if (cached == null) {  //If the query hasn't been answered since the procedures it reaches last changed
+            PrologHolder answer = queryHolder.isVariable() ? evaluateNonGroundQuery(queryHolder, version) : new PrologHolder(evaluateGroundQuery(queryHolder, version));
+            cached = new CachedAnswer(answer, QueryCache.dependencies(version.getTable(), goals), version.getNumber());
+            cache.put(key, cached);
+        }
+        String[] names = new String[variables.size()];
+        for (int i = 0; i < names.length; i++) {  //Answer with the names this query uses
+            names[i] = SymbolTable.getName(variables.get(i));
+        }
+        return cached.toHolder(names);
+    }
+
     /*
      * Prints the list of facts and rules within the program
      */
     public void printProgram() {
-        for (PrologHolder holder : program) {
-            if (holder.getType().equals("fact")) {  //If the holder contains a fact
-                Fact fact = holder.getFact();  //Get the fact from the holder
+        PredicateTable program = version().getTable();
+        for (int i = 0; i < program.getNumberOfProcedures(); i++) {  //Iterate through the procedures in the order they were added
+            Procedure procedure = program.getProcedure(i);  //Get the procedure at index i
+            if (procedure.containsFacts()) {  //If the procedure contains facts
+                Fact fact = procedure.getFact();  //Get the fact from the procedure
                 String functor = fact.getFunctor();  //Get the fact's name
                 System.out.println("Functor: " + functor);  //Print the fact's name
 
                 for (int j = 0; j < fact.getNumberOfPredicates(); j++) {  //Iterate through the fact
                     Predicate predicate = fact.getPredicate(j);  //Get the fact's predicate at index j
                     for (int k = 0; k < predicate.getArity(); k++) {  //Iterate through the predicate
-                        String atom = predicate.getAtom(k);  //Get the atom at index k
+                        String atom = predicate.getArgument(k);  //Get the argument at index k
                         System.out.println("Predicate " + j + "-" + k + ": " + atom);  //Print the atom
                     }
                 }
                 System.out.println("");  //Skip a line
 
-            } else if (holder.getType().equals("rule")) {  //If the holder contains a rule
-                PrologRule rule = holder.getPrologRule();  //Get the rule from the holder
+            }
+            for (PrologRule rule : procedure.getRules()) {  //Iterate through the procedure's rules
                 Fact head = rule.getHead();  //Get the head of the rule
                 String functor = head.getFunctor();  //Get the functor of the rule
                 System.out.println("Rule: " + functor);  //Print the functor
@@ -1627,7 +922,7 @@ public class PrologInterpreter {
                 //for (int j = 0; j < head.getArity(0); j++) {  //Iterate through the head
                 Predicate predicate = head.getPredicate(0);  //Get the predicate of the head
                 for (int k = 0; k < predicate.getArity(); k++) {  //Iterate through the predicate
-                    String atom = predicate.getAtom(k);  //Get the atom at index k of the predicate
+                    String atom = predicate.getArgument(k);  //Get the argument at index k of the predicate
                     System.out.println("Predicate " + k + ": " + atom);  //Print the atom
                 }
                 if (rule.getType().equals("simple query")) {  //If the rule is a simple rule
@@ -1638,7 +933,7 @@ public class PrologInterpreter {
                     //for (int j = 0; j < bodyQuery.getArity(); j++) {  //Iterate through the query
                     Predicate bodyPredicate = bodyQuery.getPredicate();  //Get the predicate of the query
                     for (int k = 0; k < bodyPredicate.getArity(); k++) {  //Iterate through the predicate
-                        String atom = bodyPredicate.getAtom(k);  //Get the atom at index k of the predicate
+                        String atom = bodyPredicate.getArgument(k);  //Get the atom at index k of the predicate
                         System.out.println("Predicate " + k + ": " + atom);  //Print the atom
                     }
                     System.out.println("");  //Skip a line
@@ -1653,7 +948,7 @@ public class PrologInterpreter {
                         //for (int j = 0; j < bodyQuery.getArity(); j++) {  //Iterate through the query
                         Predicate bodyPredicate = bodyQuery.getPredicate();  //Get the predicate of the query
                         for (int k = 0; k < bodyPredicate.getArity(); k++) {  //Iterate through the predicate
-                            String atom = bodyPredicate.getAtom(k);  //Get the atom at index k of the predicate
+                            String atom = bodyPredicate.getArgument(k);  //Get the atom at index k of the predicate
                             System.out.println("Predicate " + k + ": " + atom);  //Print the predicate
                         }
                     }
@@ -1664,22 +959,6 @@ public class PrologInterpreter {
         }
     }
 
-    /*
-     * A helper method that gets the substitutions associated with a given query
-     * @param allSubstitutions a list of all od the substitutions for a conjunctive query
-     * @param queryID the id of the given query
-     * @return a list of substitutions for the given query
-     */
-    public ArrayList<Substitution> getSubstitutionsForQuery(ArrayList<Substitution> allSubstitutions, int queryID) {
-        ArrayList<Substitution> querySubstitutions = new ArrayList<>();  //Create a list of substitutions
-        for (Substitution sub : allSubstitutions) {  //Iterate through all the substitutions
-            if (sub.getQueryID() == queryID) {  //If the substitution's queryID matches the given ID
-                querySubstitutions.add(sub);  //Add the substitution to the created list
-            }
-        }
-        return querySubstitutions;
-    }
-
     /*
      * Prints the given non-ground query
      * @param queryHolder a PrologHolder containing a simple query or conjunctive query
@@ -1687,50 +966,15 @@ public class PrologInterpreter {
      */
     public void printNonGroundQuery(PrologHolder queryHolder, PrologHolder substitutionHolder) {
         ArrayList<Substitution> subs = substitutionHolder.getSubstitutions();  //Get the list of substitutions from the substitutionHolder
-        if (queryHolder.getType().equals("simple query")) {  //If the queryHolder contains a simple query
-            String[] outputs = new String[subs.get(0).getSize()];  //Create an array whose size is the number of substitutions for a variable
-            for (Substitution sub : subs) {  //Iterate through the list of substitutions
-                String variable = sub.getName();  //Get the name of the variable
-                for (int i = 0; i < sub.getSize(); i++) {  //Iterate through the substitution
-                    String newOutput = variable + " = " + sub.getSubstitution(i);  // Get the variable and the substitution at i
-                    String previousOutput = outputs[i];  //Get the previous output
-                    if (previousOutput == null) {  //If the previous output is null
-                        outputs[i] = newOutput;  //Set the string at i equal to the new output
-                    } else {  //If the previous output is a string
-                        outputs[i] = previousOutput + ", " + newOutput;  //Add the new output to the string
-                    }
-                }
-            }
-            for (int i = 0; i < outputs.length; i++) {  //Iterate through the list of outputs
-                System.out.println(outputs[i]);  //Print each output on a new line
-            }
-        } else {  //If the queryHolder contains a conjunctive query
-            int maxID = 0;
-            for (Substitution sub : subs) {
-                if (sub.getQueryID() > maxID) {
-                    maxID = sub.getQueryID();
-                }
-            }
-
-            for (int j = 0; j < maxID + 1; j++) {
-                ArrayList<Substitution> querySubstitutions = getSubstitutionsForQuery(subs, j);
-                String[] outputs = new String[querySubstitutions.get(0).getSize()];
-                for (Substitution sub : querySubstitutions) {
-                    String variable = sub.getName();  //Get the name of the variable
-                    for (int i = 0; i < sub.getSize(); i++) {  //Iterate through the substitution
-                        String newOutput = variable + " = " + sub.getSubstitution(i);  // Get the variable and the substitution at i
-                        String previousOutput = outputs[i];  //Get the previous output
-                        if (previousOutput == null) {  //If the previous output is null
-                            outputs[i] = newOutput;  //Set the string at i equal to the new output
-                        } else {  //If the previous output is a string
-                            outputs[i] = previousOutput + ", " + newOutput;  //Add the new output to the string
-                        }
-                    }
-                }
-                for (int i = 0; i < outputs.length; i++) {  //Iterate through the list of outputs
-                    System.out.println(outputs[i]);  //Print each output on a new line
+        for (int i = 0; i < subs.get(0).getSize(); i++) {  //Iterate through the solutions
+            StringBuilder output = new StringBuilder();
+            for (Substitution sub : subs) {  //Iterate through the variables
+                if (output.length() > 0) {  //If this isn't the first variable
+                    output.append(", ");
                 }
+                output.append(sub.getName()).append(" = ").append(sub.getSubstitution(i));  //Add the variable and its value in solution i
             }
+            System.out.println(output);  //Print each solution on a new line
         }
     }
 }
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/*
+ * Checks behavior of the PrologInterpreter that the benchmarks only measure: each check loads a small program, runs
+ * queries against it, and compares the answers with the ones the interpreter gives without the feature being checked
+ * Usage: java PrologInterpreterTest, which prints each check that failed and exits with status 1 if any did
+ */
+public class PrologInterpreterTest {
+    private static int checks = 0;  //The number of checks run
+    private static int failures = 0;  //The number of checks that failed
+
+    public static void main(String[] args) {
+        checkCacheRenamesVariables();
+        checkNestedVariableNames();
+        checkAnswerLimitStatus();
+        checkSnapshot();
+        checkParameterOutsidePreparedQuery();
+        checkParallelSearch();
+        checkIndependentGoals();
+        checkBottomUpMatchesTabling();
+        System.out.println((checks - failures) + " of " + checks + " checks passed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Checks that queries that only differ in the names of their variables get their own names from the cache, even
+     * where a variable is left unbound or is held in a list
+     */
+    private static void checkCacheRenamesVariables() {
+        String[] program = {"same(A, A).", "wrap(A, [A, b]).", "pair(a, b)."};
+        PrologInterpreter plain = load(program);
+        PrologInterpreter cached = load(program);
+        cached.setCacheCapacity(16);
+        String[] queries = {"same(X, Y)?", "same(P, Q)?", "wrap(X, Y)?", "wrap(P, Q)?", "same(Y, X)?", "pair(X, Y), same(Z, W)?", "pair(A, B), same(C, D)?"};
+        for (String query : queries) {  //Each query after the first of its kind is answered from the cache
+            check("cached " + query, resolve(plain, query), resolve(cached, query));
+        }
+        check("cache hits", "4", Long.toString(cached.getCacheHits()));
+    }
+
+    /*
+     * Checks that an unbound variable of the query is written by its name inside a list, the same as at the top level
+     */
+    private static void checkNestedVariableNames() {
+        PrologInterpreter interpreter = load("pair(A, [A|T]).", "both(A, [A, A]).");
+        String pair = answers(interpreter, "pair(P, Q)?");  //The tail is a fresh variable, whose name depends on its cell
+        check("nested pair(P, Q)?", "P = P, Q = [P|", pair.substring(0, Math.min(14, pair.length())));
+        check("nested both(P, Q)?", "P = P, Q = [P, P]; ", answers(interpreter, "both(P, Q)?"));
+        check("nested both(P, [Q, R])?", "P = P, Q = P, R = P; ", answers(interpreter, "both(P, [Q, R])?"));
+    }
+
+    /*
+     * Checks that a query stopped by its answer limit is only called partial if it had another answer, including with a
+     * limit of 0, and on a table too small to be indexed, where a choice point is left after the last answer
+     */
+    private static void checkAnswerLimitStatus() {
+        PrologInterpreter interpreter = load("edge(a, b).", "edge(a, c).", "edge(b, c).");
+        check("limit 0 with answers", "answer limit", status(interpreter, "edge(a, X)?", 0));
+        check("limit 0 without answers", "complete", status(interpreter, "edge(c, X)?", 0));
+        check("limit 1 with one answer", "complete", status(interpreter, "edge(a, b)?", 1));
+        check("limit 1 with two answers", "answer limit", status(interpreter, "edge(a, X)?", 1));
+        check("limit 2 with two answers", "complete", status(interpreter, "edge(a, X)?", 2));
+    }
+
+    /*
+     * Checks that a program loaded from a snapshot answers queries the same as the program that was saved, and that a
+     * truncated snapshot fails to load with an IOException and leaves the program as it was
+     */
+    private static void checkSnapshot() {
+        PrologInterpreter saved = load("parent(tom, bob).", "parent(bob, ann).", "parent(bob, pat).", "likes(X, [tea, X]).",
+                "grandparent(X, Z) :- parent(X, Y), parent(Y, Z).", "child(X, Y) :- parent(Y, X).");
+        String[] queries = {"parent(X, Y)?", "grandparent(tom, Z)?", "child(X, bob)?", "likes(ann, L)?", "parent(tom, ann)?"};
+        try {
+            Path file = Files.createTempFile("prolog", ".snapshot");
+            try {
+                saved.saveSnapshot(file.toString());
+                PrologInterpreter loaded = new PrologInterpreter();
+                loaded.loadSnapshot(file.toString());
+                for (String query : queries) {
+                    check("snapshot " + query, answers(saved, query), answers(loaded, query));
+                }
+                byte[] bytes = Files.readAllBytes(file);
+                String failed = "";
+                for (int length = 0; length < bytes.length; length++) {  //Cut the file short at every length
+                    Files.write(file, Arrays.copyOf(bytes, length));
+                    try {
+                        loaded.loadSnapshot(file.toString());
+                        failed += length + " loaded, ";
+                    } catch (IOException e) {  //The expected failure
+                    } catch (RuntimeException e) {
+                        failed += length + " threw " + e + ", ";
+                    }
+                }
+                check("truncated snapshots", "", failed);
+                check("program after a failed load", answers(saved, "grandparent(tom, Z)?"), answers(loaded, "grandparent(tom, Z)?"));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            check("snapshot file", "written and read", e.toString());
+        }
+    }
+
+    /*
+     * Checks that a question mark in place of a term is rejected with an error the caller can report, unless it's a
+     * parameter of a prepared query
+     */
+    private static void checkParameterOutsidePreparedQuery() {
+        PrologInterpreter interpreter = load("parent(tom, bob).");
+        check("? in a query", "line 1:7 parameter '?' outside of a prepared query", error(interpreter, "parent(?, X)?"));
+        check("? in a fact", "line 1:12 parameter '?' outside of a prepared query", error(interpreter, "parent(ann, ?)."));
+        check("program after a rejected fact", "X = tom, Y = bob; ", answers(interpreter, "parent(X, Y)?"));
+        check("? in a prepared query", "X = bob; ", join(interpreter.execute(interpreter.prepare("parent(?, X)?"), "tom")));
+    }
+
+    /*
+     * Checks that splitting the search between threads finds the same answers in the same order as one thread, with and
+     * without an answer limit
+     */
+    private static void checkParallelSearch() {
+        String[] program = {"edge(a, b).", "edge(a, c).", "edge(b, d).", "edge(c, d).", "edge(d, e).", "edge(b, e).",
+                "path(X, Y) :- edge(X, Y).", "path(X, Y) :- edge(X, Z), path(Z, Y)."};
+        PrologInterpreter sequential = load(program);
+        PrologInterpreter parallel = load(program);
+        parallel.setParallelism(4);
+        String[] queries = {"edge(X, Y)?", "path(a, Y)?", "path(X, e)?", "path(X, Y), edge(Y, Z)?"};
+        for (String query : queries) {
+            check("parallel " + query, answers(sequential, query), answers(parallel, query));
+            check("parallel " + query + " limit 3", join(sequential.answers(sequential.evaluateInput(query), 3)), join(parallel.answers(parallel.evaluateInput(query), 3)));
+        }
+    }
+
+    /*
+     * Checks that the goals of a conjunctive query that share no variables give the same answers in the same order when
+     * they're solved at the same time as when they're solved one after the other
+     */
+    private static void checkIndependentGoals() {
+        String[] program = {"edge(a, b).", "edge(a, c).", "edge(b, c).", "node(a).", "node(b).", "node(c).",
+                "reach(X, Y) :- edge(X, Y)."};
+        PrologInterpreter sequential = load(program);
+        PrologInterpreter parallel = load(program);
+        parallel.setParallelism(4);
+        String[] queries = {"edge(a, X), node(Y)?", "node(X), edge(Y, Z), node(W)?", "edge(X, Y), node(X), node(Z)?", "edge(a, X), node(d)?", "reach(a, X), node(Y)?"};
+        for (String query : queries) {
+            check("independent " + query, answers(sequential, query), answers(parallel, query));
+            check("independent " + query + " limit 4", join(sequential.answers(sequential.evaluateInput(query), 4)), join(parallel.answers(parallel.evaluateInput(query), 4)));
+        }
+    }
+
+    /*
+     * Checks that the transitive closure of a graph with a cycle, written with left recursion, has the same answers when
+     * its facts are computed bottom up as when the procedure is tabled. The two find them in different orders.
+     */
+    private static void checkBottomUpMatchesTabling() {
+        String[] program = {"edge(a, b).", "edge(b, c).", "edge(c, a).", "edge(c, d).", "edge(e, f).",
+                "tc(X, Y) :- edge(X, Y).", "tc(X, Y) :- tc(X, Z), edge(Z, Y)."};
+        PrologInterpreter tabled = load(program);
+        tabled.table("tc", 2);
+        PrologInterpreter bottomUp = load(program);
+        bottomUp.setEvaluationMode("bottom up");
+        String[] queries = {"tc(a, Y)?", "tc(X, d)?", "tc(X, Y)?", "tc(X, X)?", "tc(d, Y)?", "tc(a, Y), tc(Y, e)?"};
+        for (String query : queries) {
+            check("bottom up " + query, sorted(answers(tabled, query)), sorted(answers(bottomUp, query)));
+        }
+        check("tabled tc(X, Y)?", "13", Integer.toString(answers(tabled, "tc(X, Y)?").split("; ").length));
+        check("bottom up tc(b, a)?", "true", resolve(bottomUp, "tc(b, a)?"));
+        check("bottom up tc(d, a)?", "false", resolve(bottomUp, "tc(d, a)?"));
+    }
+
+    /*
+     * Creates an interpreter holding the given clauses
+     * @param clauses the facts and rules, one to a string
+     * @return the interpreter
+     */
+    private static PrologInterpreter load(String... clauses) {
+        PrologInterpreter interpreter = new PrologInterpreter();
+        for (String clause : clauses) {
+            interpreter.resolve(interpreter.evaluateInput(clause));
+        }
+        return interpreter;
+    }
+
+    /*
+     * Answers the given query with resolve, which uses the cache if it's on
+     * @param interpreter the interpreter the query is asked of
+     * @param query the text of the query
+     * @return the answer, true or false, or each solution's values separated by semicolons
+     */
+    private static String resolve(PrologInterpreter interpreter, String query) {
+        PrologHolder answer = interpreter.resolve(interpreter.evaluateInput(query));
+        if (answer.getType().equals("atom")) {  //If the answer is true or false
+            return answer.getAtom();
+        }
+        ArrayList<Substitution> substitutions = answer.getSubstitutions();
+        StringBuilder solutions = new StringBuilder();
+        for (int i = 0; i < substitutions.get(0).getSize(); i++) {  //Write each solution
+            for (int j = 0; j < substitutions.size(); j++) {
+                solutions.append(j == 0 ? "" : ", ").append(substitutions.get(j).getName()).append(" = ").append(substitutions.get(j).getSubstitution(i));
+            }
+            solutions.append("; ");
+        }
+        return solutions.toString();
+    }
+
+    /*
+     * Finds every answer to the given query with an answer iterator
+     * @param interpreter the interpreter the query is asked of
+     * @param query the text of the query
+     * @return each answer followed by a semicolon and a space
+     */
+    private static String answers(PrologInterpreter interpreter, String query) {
+        return join(interpreter.answers(interpreter.evaluateInput(query)));
+    }
+
+    /*
+     * Gets every answer of the given iterator
+     * @param iterator the answers of a query
+     * @return each answer followed by a semicolon and a space
+     */
+    private static String join(Iterator<Answer> iterator) {
+        StringBuilder answers = new StringBuilder();
+        while (iterator.hasNext()) {
+            answers.append(iterator.next()).append("; ");
+        }
+        return answers.toString();
+    }
+
+    /*
+     * Runs the given query under an answer limit until it stops
+     * @param interpreter the interpreter the query is asked of
+     * @param query the text of the query
+     * @param limit the largest number of answers to return
+     * @return the status of the query's budget once the iterator has no more answers
+     */
+    private static String status(PrologInterpreter interpreter, String query, long limit) {
+        QueryBudget budget = new QueryBudget(QueryBudget.UNLIMITED, QueryBudget.UNLIMITED, limit);
+        Iterator<Answer> iterator = interpreter.answers(interpreter.evaluateInput(query), budget);
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        return budget.getStatus();
+    }
+
+    /*
+     * Sorts answers joined by semicolons, for comparing ways of solving a query that find the answers in different orders
+     * @param answers each answer followed by a semicolon and a space
+     * @return the same answers in sorted order
+     */
+    private static String sorted(String answers) {
+        String[] each = answers.split("; ");
+        Arrays.sort(each);
+        return String.join("; ", each);
+    }
+
+    /*
+     * Evaluates the given input, which is expected to be rejected
+     * @param interpreter the interpreter the input is given to
+     * @param input the text of a fact, rule, or query
+     * @return the message of the error, or "accepted" if the input was evaluated
+     */
+    private static String error(PrologInterpreter interpreter, String input) {
+        try {
+            interpreter.resolve(interpreter.evaluateInput(input));
+            return "accepted";
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    /*
+     * Records a check, printing it if it failed
+     * @param name what was checked
+     * @param expected the expected result
+     * @param actual the result the interpreter gave
+     */
+    private static void check(String name, String expected, String actual) {
+        checks++;
+        if (!expected.equals(actual)) {
+            failures++;
+            System.out.println("FAILED " + name + ": expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A load generator for a PrologServer
+ * Opens a number of connections at once, each on its own virtual thread, and has each one send the given queries in
+ * turn, waiting for every answer before sending the next line. Reports the throughput over every connection and the
+ * percentiles of the time each answer took.
+ * Usage: java PrologLoadClient <port | socket path> <query file> [clients] [queries per client]
+ */
+public class PrologLoadClient implements Runnable {
+    private SocketAddress address;  //The address of the server
+    private String[] queries;  //The lines each client sends, in turn
+    private int clients;  //The number of connections
+    private int perClient;  //The number of lines each connection sends
+    private String role;  //"load" for the object that starts the clients, otherwise "client"
+    private PrologLoadClient load;  //The object that started this client, which holds the results
+    private int client;  //The number of this client, which picks the query it starts at
+    private long[] latencies;  //The nanoseconds each answer took, over every client
+    private AtomicLong answered;  //The number of answers every client received
+    private AtomicLong failures;  //The number of clients that couldn't finish
+    private long elapsed;  //The nanoseconds from the first connection to the last answer
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {  //If the server or the queries weren't given
+            System.out.println("Usage: java PrologLoadClient <port | socket path> <query file> [clients] [queries per client]");
+            return;
+        }
+        ArrayList<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(args[1]))) {  //Read the queries, skipping blank lines
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int perClient = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        PrologLoadClient load = new PrologLoadClient(PrologServer.address(args[0]), lines.toArray(new String[0]), clients, perClient);
+        load.run();
+        System.out.println("clients\tqueries/s\tp50 us\tp99 us\tmax us\tfailed");
+        System.out.println(load.report());
+    }
+
+    /*
+     * A constructor that creates a load of the given shape
+     * @param address the address of the server
+     * @param queries the lines each client sends in turn, starting from a different one for each client
+     * @param clients the number of connections
+     * @param perClient the number of lines each connection sends
+     */
+    public PrologLoadClient(SocketAddress address, String[] queries, int clients, int perClient) {
+        this.address = address;
+        this.queries = queries;
+        this.clients = clients;
+        this.perClient = perClient;
+        this.role = "load";
+        this.load = this;
+        this.latencies = new long[clients * perClient];
+        this.answered = new AtomicLong();
+        this.failures = new AtomicLong();
+    }
+
+    /*
+     * A constructor that creates one client of a load
+     * @param load the object that starts the clients
+     * @param client the number of the client
+     */
+    private PrologLoadClient(PrologLoadClient load, int client) {
+        this.address = load.address;
+        this.queries = load.queries;
+        this.perClient = load.perClient;
+        this.role = "client";
+        this.load = load;
+        this.client = client;
+    }
+
+    /*
+     * Starts every client and waits for them to finish, or sends the lines of one client
+     */
+    public void run() {
+        if (role.equals("client")) {
+            try {
+                send();
+            } catch (IOException e) {  //If the server refused or dropped the connection
+                load.failures.incrementAndGet();
+            }
+            return;
+        }
+        Thread[] threads = new Thread[clients];
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            threads[i] = Thread.ofVirtual().start(new PrologLoadClient(this, i));
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        elapsed = System.nanoTime() - start;
+    }
+
+    /*
+     * Connects to the server and sends this client's lines, timing each answer
+     * @throws IOException if the connection fails
+     */
+    private void send() throws IOException {
+        StandardProtocolFamily family = address instanceof UnixDomainSocketAddress ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET;
+        try (SocketChannel channel = SocketChannel.open(family)) {
+            channel.connect(address);
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            for (int i = 0; i < perClient; i++) {
+                long start = System.nanoTime();
+                out.write(queries[(client + i) % queries.length]);
+                out.newLine();
+                out.flush();
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {  //Read the answer up to its empty line
+                    continue;
+                }
+                if (line == null) {  //If the server closed the connection mid answer
+                    throw new IOException("Connection closed");
+                }
+                load.latencies[client * perClient + i] = System.nanoTime() - start;
+                load.answered.incrementAndGet();
+            }
+        }
+    }
+
+    /*
+     * Gets the number of answers per second over every client
+     * @return the throughput of the load
+     */
+    public double getThroughput() {
+        return answered.get() / (elapsed / 1e9);
+    }
+
+    /*
+     * Gets a percentile of the time the answers took, among the answers that arrived
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency in microseconds
+     */
+    public long getLatency(double percentile) {
+        long[] sorted = new long[(int) answered.get()];
+        int count = 0;
+        for (long latency : latencies) {  //Keep the answers that arrived
+            if (latency > 0 && count < sorted.length) {
+                sorted[count] = latency;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted, 0, count);
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))] / 1000;
+    }
+
+    /*
+     * Gets the number of clients that couldn't finish
+     * @return the number of failed clients
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /*
+     * Writes the results as one tab separated line
+     * @return the clients, the throughput, the 50th and 99th percentile and largest latencies, and the failed clients
+     */
+    public String report() {
+        return clients + "\t" + (long) getThroughput() + "\t" + getLatency(50) + "\t" + getLatency(99) + "\t" + getLatency(100) + "\t" + getFailures();
+    }
+}
@@ -1,8 +1,11 @@
+import java.util.ArrayList;
+
 public class PrologRule {
     private Fact head;
     private Query simpleBody;
     private ConjunctiveQuery conjunctiveBody;
     private String type;
+    private volatile Clause clause;  //The compiled form of this rule, built on first use (volatile so a parallel search sees it whole)
 
     /*
      * Creates a PrologRule given a Fact and a Query
@@ -53,4 +56,22 @@ public class PrologRule {
     public String getType() {
         return type;
     }
+
+    /*
+     * Gets the compiled form of this rule, compiling it the first time it's needed
+     * @return a clause whose head and body are this rule's head and body
+     */
+    public Clause getClause() {
+        if (clause == null) {  //If the rule hasn't been compiled yet
+            ArrayList<Query> body;
+            if (type.equals("simple query")) {  //If the body is a single query
+                body = new ArrayList<>();
+                body.add(simpleBody);
+            } else {  //If the body is a conjunctive query
+                body = conjunctiveBody.getQueries();
+            }
+            clause = new Clause(head.getPredicate(0), body);
+        }
+        return clause;
+    }
 }
@@ -1,22 +1,15 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Scanner;
 
 public class PrologRunner {
-    public static void main(String[] args) throws FileNotFoundException {
-        File inputFile = new File("C:\\Users\\Dayo's XPS\\CS152\\project2\\prologInputs.txt");  //INSERT FILE HERE (an example file is provided)
-        Scanner fileScanner = new Scanner(inputFile);  //Scan the input file
-        PrologInterpreter interpreter = new PrologInterpreter();  //Create a new PrologInterpreter
-        while (fileScanner.hasNextLine()) {  //While the file contains another line
-            String input = fileScanner.nextLine();  //Get the next line from the scanner
-            if (input.isBlank()) {  //If the input is blank
-                continue;  //Skip the line
-            } else {  //If the line isn't blank
-                PrologHolder inputHolder = interpreter.evaluateInput(input);  //Evaluate the line (either a fact or rule)
-                interpreter.resolve(inputHolder);  //Resolve the input (by adding it to the interpreter's program)
-            }
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {  //If no program was given
+            System.out.println("Usage: java PrologRunner <program file>");
+            return;
         }
-        fileScanner.close();  //Close the file scanner
+        String inputFile = args[0];  //The program file to load
+        PrologInterpreter interpreter = new PrologInterpreter();  //Create a new PrologInterpreter
+        interpreter.consult(inputFile);  //Add every fact and rule in the file to the interpreter's program
 
         Scanner in = new Scanner(System.in);  //Create a new scanner to read inputs from the command line
         String prompt = "prolog> ";  //The prompt for the user
@@ -24,30 +17,79 @@ public class PrologRunner {
 
         while (in.hasNextLine()) {
             String input = in.nextLine();  //Get the input from the user (a query)
-            PrologHolder holder = interpreter.evaluateInput(input);  //Resolve the input
-            PrologHolder answer = interpreter.resolve(holder);  //Get the answer to the input
-            if ((holder.getType().equals("simple query") || holder.getType().equals("conjunctive query")) && !holder.isVariable()) {  //If the input is a simple or conjunctive ground query
-                System.out.println(answer.getAtom());  //Print the answer to the query
+            if (isProfileCommand(input)) {  //If the input is a profiling command rather than Prolog
+                profile(interpreter, input.trim());
+                System.out.print(prompt);
+                continue;
+            }
+            PrologHolder holder;
+            try {
+                holder = interpreter.evaluateInput(input);  //Resolve the input
+            } catch (IllegalArgumentException e) {  //If the input parsed but isn't allowed, report it like a syntax error
+                System.err.println(e.getMessage());
+                holder = null;
+            }
+            if (holder == null || holder.getType() == null) {  //If the input couldn't be interpreted, the error was already printed
+                System.out.print(prompt);
+                continue;
+            }
+            boolean query = holder.getType().equals("simple query") || holder.getType().equals("conjunctive query");  //Determines if the input is a query
+            if (query && holder.isVariable()) {  //If the input is a simple or conjunctive non-ground query
+                interpreter.printAnswers(holder, Long.MAX_VALUE);  //Print each answer as soon as it's found
                 System.out.println("");  //Skip a line
-            } else if (holder.getType().equals("simple query") && holder.isVariable()) {  //If the query is a simple, non-ground query
-                if (answer.getType().equals("atom")) {  //If the answer to the query is a string
-                    System.out.println(answer.getAtom());  //Print the answer to the query
-                    System.out.println("");  //Skip a line
-                } else {  //If the answer to the query is a list of substitutions
-                    interpreter.printNonGroundQuery(holder, answer);  //Print the non-ground query
-                    System.out.println("");  //Skip a line
-                }
-            } else if (holder.getType().equals("conjunctive query") && holder.isVariable()) {  //If the query is a conjunctive, non-ground query
-                if (answer.getType().equals("atom")) {  //If the answer to the query is a string
+            } else {  //If the input is a ground query, a fact, or a rule
+                PrologHolder answer = interpreter.resolve(holder);  //Get the answer to the input
+                if (query) {  //If the input is a ground query
                     System.out.println(answer.getAtom());  //Print the answer to the query
                     System.out.println("");  //Skip a line
-                } else {  //If the answer to the query is a list of substitutions
-                    interpreter.printNonGroundQuery(holder, answer);  //Print the-non ground query
-                    System.out.println("");  //Skip a line
                 }
             }
             System.out.print(prompt);  //Print the prompt for the user
         }
         in.close();  //Close the scanner
     }
+
+    /*
+     * Determines if the given input is a profiling command, whose first word is exactly "profile" and which doesn't end
+     * like a query or a clause, so a query such as profile(tom)? is still evaluated
+     * @param input the line the user typed
+     * @return true if the line is a profiling command
+     */
+    private static boolean isProfileCommand(String input) {
+        String line = input.trim();
+        if (line.endsWith("?") || line.endsWith(".")) {  //If the line is Prolog
+            return false;
+        }
+        return line.split("\\s+")[0].equals("profile");
+    }
+
+    /*
+     * Runs a profiling command: "profile on", "profile off", "profile" to print the counts of each procedure,
+     * "profile reset" to start counting over, or "profile save <file>" to write collapsed stacks for a flame graph
+     * @param interpreter the interpreter being profiled
+     * @param command the command the user typed
+     */
+    private static void profile(PrologInterpreter interpreter, String command) {
+        String[] words = command.split("\\s+", 3);
+        if (words.length > 1 && words[1].equals("on")) {
+            interpreter.setProfiling(true);
+        } else if (words.length > 1 && words[1].equals("off")) {
+            interpreter.setProfiling(false);
+        } else if (interpreter.getProfiler() == null) {  //The other commands need the counts
+            System.out.println("Profiling is off");
+        } else if (words.length == 1) {
+            System.out.println(interpreter.getProfiler().report());
+        } else if (words[1].equals("reset")) {
+            interpreter.getProfiler().reset();
+        } else if (words[1].equals("save") && words.length == 3) {
+            try {
+                interpreter.getProfiler().writeCollapsedStacks(words[2]);
+            } catch (IOException e) {  //If the file couldn't be written
+                System.out.println("Couldn't write " + words[2] + ": " + e.getMessage());
+            }
+        } else {
+            System.out.println("Usage: profile [on | off | reset | save <file>]");
+        }
+        System.out.println("");  //Skip a line
+    }
 }
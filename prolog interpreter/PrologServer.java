@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+ * Serves a program loaded once to local clients over a TCP or Unix domain socket
+ * Clients send one query per line, or one fact or rule if the server is writable. The answer to each line is written back as lines of text followed by
+ * an empty line: each solution of a non ground query as soon as it's found (or false), true or false for a ground query,
+ * nothing for a fact or rule, and a line starting with "error: " if the line couldn't be evaluated. Each connection is
+ * served by its own virtual thread, so thousands of clients can wait on the socket at once without a thread each.
+ * Queries from every connection run at the same time against published versions of the program (see PrologInterpreter).
+ * With query limits, a query that reaches one stops with the answers it found, followed by a line starting with
+ * "partial: " and the limit it reached, so one runaway query can't hold its connection forever.
+ * A read only server answers facts and rules with an error line, so clients can't change the program. Every atom and
+ * variable name a client sends is still interned in the SymbolTable for as long as the process runs, so its memory
+ * only grows with the distinct names clients use; lines are limited to PrologConnection.MAX_LINE_LENGTH characters, and
+ * the server is meant for trusted local clients rather than the open network.
+ * Usage: java PrologServer [--writable] <program file> [port | socket path] [query time limit in ms]
+ */
+public class PrologServer implements Runnable {
+    public static final int DEFAULT_PORT = 7070;  //The port used when none is given
+
+    private PrologInterpreter interpreter;  //The interpreter every connection shares
+    private ServerSocketChannel server;  //The socket connections are accepted on, null until the server is bound
+    private SocketAddress address;  //The address the server is bound to
+    private long connections;  //The number of connections accepted so far
+    private long queryInferences;  //The most inferences a query can make, or QueryBudget.UNLIMITED
+    private long queryMillis;  //The longest a query can run in milliseconds, or QueryBudget.UNLIMITED
+    private boolean writable;  //Indicates if clients can add facts and rules to the program
+
+    public static void main(String[] args) throws IOException {
+        boolean writable = args.length > 0 && args[0].equals("--writable");
+        if (writable) {  //The flag only comes first
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length < 1) {  //If no program was given
+            System.out.println("Usage: java PrologServer [--writable] <program file> [port | socket path] [query time limit in ms]");
+            return;
+        }
+        PrologInterpreter interpreter = new PrologInterpreter();
+        long clauses = interpreter.consult(args[0]);  //Load the program once for every client
+        PrologServer server = new PrologServer(interpreter);
+        server.setWritable(writable);
+        if (args.length > 2) {  //If queries are limited
+            server.setQueryLimits(QueryBudget.UNLIMITED, Long.parseLong(args[2]));
+        }
+        server.bind(args.length > 1 ? address(args[1]) : address(String.valueOf(DEFAULT_PORT)));
+        System.out.println("Loaded " + clauses + " clauses, listening on " + server.getAddress());
+        server.serve();
+    }
+
+    /*
+     * Turns a command line argument into the address to listen on
+     * @param argument a port number, or the path of a Unix domain socket
+     * @return a loopback TCP address for a port, otherwise a Unix domain address
+     */
+    public static SocketAddress address(String argument) {
+        if (argument.matches("[0-9]+")) {  //If the argument is a port
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(argument));
+        }
+        return UnixDomainSocketAddress.of(argument);
+    }
+
+    /*
+     * A constructor that creates a PrologServer given the interpreter holding the program
+     * @param interpreter the interpreter every connection shares
+     */
+    public PrologServer(PrologInterpreter interpreter) {
+        this.interpreter = interpreter;
+        this.server = null;
+        this.connections = 0;
+        this.queryInferences = QueryBudget.UNLIMITED;
+        this.queryMillis = QueryBudget.UNLIMITED;
+        this.writable = false;
+    }
+
+    /*
+     * Limits every query of the connections accepted from now on
+     * @param inferences the most calls and redos a query can make, or QueryBudget.UNLIMITED
+     * @param millis the longest a query can run in milliseconds, or QueryBudget.UNLIMITED
+     */
+    public void setQueryLimits(long inferences, long millis) {
+        this.queryInferences = inferences;
+        this.queryMillis = millis;
+    }
+
+    /*
+     * Lets the clients of the connections accepted from now on add facts and rules, or stops them from doing so
+     * @param writable true to add the facts and rules clients send, false to answer them with an error line
+     */
+    public void setWritable(boolean writable) {
+        this.writable = writable;
+    }
+
+    /*
+     * Binds the server to the given address, replacing a stale Unix domain socket file left by an earlier server
+     * @param address a TCP address (port 0 picks a free port) or a Unix domain address
+     * @throws IOException if the socket can't be bound
+     */
+    public void bind(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {  //If the server listens on a socket file
+            Path path = ((UnixDomainSocketAddress) address).getPath();
+            Files.deleteIfExists(path);  //Binding fails if the file already exists
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+        }
+        server.bind(address, 0);  //Use the system's largest backlog, since many clients connect at once
+        this.address = server.getLocalAddress();
+    }
+
+    /*
+     * Accepts connections until the server is closed, serving each one on a new virtual thread
+     * @throws IOException if accepting a connection fails for a reason other than the server being closed
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();  //Wait for the next client
+                connections++;
+                Thread.ofVirtual().name("prolog-connection-" + connections).start(new PrologConnection(interpreter, channel, queryInferences, queryMillis, writable));
+            }
+        } catch (ClosedChannelException e) {  //If close was called
+            return;
+        }
+    }
+
+    /*
+     * Accepts connections until the server is closed, so the server can run on its own thread
+     */
+    public void run() {
+        try {
+            serve();
+        } catch (IOException e) {
+            System.out.println("Server stopped: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Stops accepting connections and removes the socket file of a Unix domain server
+     * Connections that are already open are served until their clients close them
+     * @throws IOException if the socket can't be closed
+     */
+    public void close() throws IOException {
+        server.close();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    /*
+     * Gets the address the server is bound to
+     * @return the local address, with the port the system picked if it was bound to port 0
+     */
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /*
+     * Gets the number of connections accepted so far
+     * @return the number of connections
+     */
+    public long getConnections() {
+        return connections;
+    }
+}
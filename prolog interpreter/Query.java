@@ -1,10 +1,7 @@
-import java.util.ArrayList;
-
 public class Query {
     private String functor;
+    private int functorId;  //The id of the functor in the SymbolTable
     private Predicate predicate;
-    private ArrayList<Substitution> substitutions;
-    private int id;
 
     /*
      * A constructor that creates a query given a functor and a predicate
@@ -13,9 +10,8 @@ public class Query {
      */
     public Query(String functor, Predicate predicate) {
         this.functor = functor;  //Initializes the functor
+        this.functorId = SymbolTable.intern(functor);  //Interns the functor
         this.predicate = predicate;  //Initializes the predicate
-        substitutions = new ArrayList<>();  //Create the array list
-        id = -1;  //Set the id to -1 to indicate that it hasn't been set yet
     }
 
     /*
@@ -26,6 +22,14 @@ public class Query {
         return functor;
     }
 
+    /*
+     * Gets the id of the functor
+     * @return the functor's id in the SymbolTable
+     */
+    public int getFunctorId() {
+        return functorId;
+    }
+
     /*
      * Gets the predicate of the query
      * @return the query's predicate
@@ -44,42 +48,41 @@ public class Query {
     }
 
     /*
-     * Gets the number of arguments this query holds
-     * @return the number of arguments in this query
-     */
-    public int getArity() {
-        return predicate.getArity();
-    }
-
-    /*
-     * Gets the list of substitutions
-     * @return the list of substitutions
-     */
-    public ArrayList<Substitution> getSubstitutions() {
-        return substitutions;
-    }
-
-    /*
-     * Set the id to the given id
-     * @param the new id
+     * Gets the id of the atom at the given index
+     * @param index the index of the desired atom
+     * @return the id of the atom at the given index
      */
-    public void setId(int id) {
-        this.id = id;
+    public int getAtomId(int index) {
+        return predicate.getAtomId(index);
     }
 
     /*
-     * Get the id for this query
-     * @return this query's id
+     * Gets the number of arguments this query holds
+     * @return the number of arguments in this query
      */
-    public int getId() {
-        return this.id;
+    public int getArity() {
+        return predicate.getArity();
     }
 
     /*
-     * Gets the number of variables within the query
-     * @return the size of the list of substitutions
+     * Gets the ids of the variables within the query, including the variables within its lists
+     * @return the ids of the variables in the order they appear (a variable that appears twice is listed twice)
      */
-    public int getNumberOfVariables() {
-        return substitutions.size();
+    public IntList getVariableIds() {
+        IntList variables = new IntList();
+        for (int i = 0; i < predicate.getArity(); i++) {  //Iterate through the query's arguments
+            if (predicate.isList(i)) {  //If the argument is a list
+                ListTerm list = predicate.getList(i);
+                for (int j = 0; j < list.size(); j++) {  //Iterate through the list
+                    int id = list.get(j);
+                    if (SymbolTable.isVariable(id)) {  //If the element is a variable
+                        variables.add(id);
+                    }
+                }
+            } else if (SymbolTable.isVariable(predicate.getAtomId(i))) {  //If the argument is a variable
+                variables.add(predicate.getAtomId(i));
+            }
+        }
+        return variables;
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Limits how much work one query can do: the logical inferences it makes, the wall time it takes, and the answers it
+ * returns, and lets another thread cancel it
+ * A resolver takes inferences from the budget a slice at a time, so the budget is only checked once a slice is used up
+ * and the clock and the cancel flag are read once every SLICE inferences at most. Once a limit is reached or the query is
+ * cancelled, every resolver working on the query stops, its iterator says there are no more answers, and the status
+ * tells the caller the answers it got are partial. A budget is used by one query and can't be reset.
+ */
+public class QueryBudget {
+    public static final long UNLIMITED = Long.MAX_VALUE;  //The limit of a budget that doesn't limit something
+    public static final int SLICE = 1024;  //The most inferences a resolver takes at once
+
+    private long inferences;  //The number of inferences that can still be taken
+    private long deadline;  //The value of System.nanoTime after which the query stops, or UNLIMITED
+    private long answers;  //The largest number of answers the query returns
+    private long used;  //The number of inferences taken so far
+    private volatile String status;  //"running", "complete", "inference limit", "time limit", "answer limit", or "cancelled"
+
+    /*
+     * A constructor that creates a QueryBudget, whose time starts now
+     * @param inferences the largest number of calls and redos the query can make, or UNLIMITED
+     * @param millis the longest the query can run in milliseconds, or UNLIMITED
+     * @param answers the largest number of answers the query returns, or UNLIMITED
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public QueryBudget(long inferences, long millis, long answers) {
+        if (inferences < 0 || millis < 0 || answers < 0) {
+            throw new IllegalArgumentException("Limits can't be negative");
+        }
+        this.inferences = inferences;
+        this.deadline = millis == UNLIMITED ? UNLIMITED : System.nanoTime() + Math.min(millis, UNLIMITED / 2000000) * 1000000;
+        this.answers = answers;
+        this.used = 0;
+        this.status = "running";
+    }
+
+    /*
+     * Takes inferences for a resolver to make, checking the clock and the cancel flag
+     * @param wanted the number of inferences the resolver would like
+     * @return the number of inferences the resolver can make, which is zero once the query has to stop
+     */
+    public synchronized int take(int wanted) {
+        if (!status.equals("running")) {  //If the query has already stopped
+            return 0;
+        }
+        if (deadline != UNLIMITED && System.nanoTime() - deadline > 0) {
+            stop("time limit");
+            return 0;
+        }
+        if (inferences == 0) {
+            stop("inference limit");
+            return 0;
+        }
+        int granted = (int) Math.min(wanted, inferences);
+        inferences -= granted;
+        used += granted;
+        return granted;
+    }
+
+    /*
+     * Gives back inferences a resolver took but didn't make
+     * @param unused the number of inferences left from the resolver's slice
+     */
+    public synchronized void refund(int unused) {
+        inferences += unused;
+        used -= unused;
+    }
+
+    /*
+     * Gets the largest number of answers the query returns
+     * @return the answer limit, or UNLIMITED
+     */
+    public long getAnswerLimit() {
+        return answers;
+    }
+
+    /*
+     * Gets the number of inferences the query has made so far
+     * @return the inferences taken from the budget and not given back
+     */
+    public synchronized long getInferences() {
+        return used;
+    }
+
+    /*
+     * Stops the query from another thread. The query stops within a slice of inferences, and the answers it returned
+     * so far are kept.
+     */
+    public void cancel() {
+        stop("cancelled");
+    }
+
+    /*
+     * Stops the query for the given reason, unless it has already stopped or finished
+     * @param reason the status the query ends with
+     */
+    public synchronized void stop(String reason) {
+        if (status.equals("running")) {
+            status = reason;
+        }
+    }
+
+    /*
+     * Records that the query found every answer without reaching a limit
+     */
+    public synchronized void finish() {
+        if (status.equals("running")) {
+            status = "complete";
+        }
+    }
+
+    /*
+     * Determines if the query was stopped before it could find every answer
+     * @return true if a limit was reached or the query was cancelled
+     */
+    public boolean isStopped() {
+        String current = status;
+        return !current.equals("running") && !current.equals("complete");
+    }
+
+    /*
+     * Gets how the query is doing
+     * @return "running", "complete", or the reason it stopped: "inference limit", "time limit", "answer limit", or "cancelled"
+     */
+    public String getStatus() {
+        return status;
+    }
+}
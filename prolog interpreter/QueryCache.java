@@ -0,0 +1,289 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/*
+ * A bounded cache of the answers to queries, evicting the least recently used entry when it's full
+ * A query is keyed on its goals with its variables numbered in the order they first appear, so queries that only
+ * differ in the names of their variables share an entry. Each entry records every procedure its query can reach
+ * through the rules of the program, including ones that don't exist yet, and adding a clause to one of them removes
+ * the entry.
+ * Queries run against numbered versions of the program, so an answer is only kept if none of its procedures changed
+ * after the version it was computed against, and is only returned to a query running against a version at least as
+ * new as the last change to its procedures. Every method is synchronized, so any number of queries can share a cache.
+ */
+public class QueryCache {
+    private int capacity;  //The largest number of entries
+    private LinkedHashMap<Variant, CachedAnswer> entries;  //The entries, least recently used first
+    private HashMap<Long, HashSet<Variant>> dependents;  //Maps each procedure to the keys of the entries that depend on it
+    private HashMap<Long, Long> lastModified;  //Maps each procedure that has changed to the number of the version that last changed it
+    private long clearedAt;  //The number of the version the cache was last cleared at
+    private long hits;  //The number of queries answered from the cache
+    private long misses;  //The number of queries that had to be resolved
+    private long invalidations;  //The number of entries removed because a clause was added
+
+    /*
+     * A constructor that creates an empty QueryCache
+     * @param capacity the largest number of entries
+     */
+    public QueryCache(int capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<>(16, 0.75f, true);  //Keep the entries in the order they were last used
+        dependents = new HashMap<>();
+        lastModified = new HashMap<>();
+        clearedAt = 0;
+        hits = 0;
+        misses = 0;
+        invalidations = 0;
+    }
+
+    /*
+     * Makes the key of a procedure from its functor and arity
+     * @param functorId the id of the procedure's functor
+     * @param arity the number of arguments of the procedure
+     * @return the key of the procedure
+     */
+    public static long predicateKey(int functorId, int arity) {
+        return ((long) functorId << 32) | (arity & 0xFFFFFFFFL);
+    }
+
+    /*
+     * Makes the key of a query from its goals
+     * Each goal is written as its functor, its arity and its arguments: an atom as its id, a variable as -(slot + 1)
+     * where slot numbers the variables in the order they first appear, and a list as LIST, whether it has a tail,
+     * its size and its elements
+     * @param goals the goals of the query in the order they're written
+     * @param variables the list the ids of the query's variables are added to, in the order of their slots
+     * @return the key of the query
+     */
+    public static Variant key(ArrayList<Query> goals, IntList variables) {
+        IntList cells = new IntList();
+        cells.add(goals.size());
+        for (Query goal : goals) {
+            Predicate predicate = goal.getPredicate();
+            cells.add(goal.getFunctorId());
+            cells.add(predicate.getArity());
+            for (int i = 0; i < predicate.getArity(); i++) {  //Write each argument
+                if (predicate.isList(i)) {  //If the argument is a list, write each element
+                    cells.add(Predicate.LIST);
+                    cells.add(predicate.hasTail(i) ? 1 : 0);
+                    ListTerm list = predicate.getList(i);
+                    cells.add(list.size());
+                    for (int j = 0; j < list.size(); j++) {
+                        cells.add(symbol(list.get(j), variables));
+                    }
+                } else {
+                    cells.add(symbol(predicate.getAtomId(i), variables));
+                }
+            }
+        }
+        int[] template = new int[cells.size()];
+        for (int i = 0; i < template.length; i++) {
+            template[i] = cells.get(i);
+        }
+        return new Variant(template);
+    }
+
+    /*
+     * Writes an atom or a variable within a key
+     * @param id the SymbolTable id of the atom or variable
+     * @param variables the ids of the variables seen so far, in the order of their slots
+     * @return the atom's id, or -(slot + 1) for a variable
+     */
+    private static int symbol(int id, IntList variables) {
+        if (!SymbolTable.isVariable(id)) {  //If the id is an atom
+            return id;
+        }
+        for (int slot = 0; slot < variables.size(); slot++) {  //Look for the variable's slot
+            if (variables.get(slot) == id) {
+                return -(slot + 1);
+            }
+        }
+        variables.add(id);  //Give the variable the next slot
+        return -variables.size();
+    }
+
+    /*
+     * Finds every procedure the given goals can reach through the rules of the program
+     * @param program the table the goals are solved against
+     * @param goals the goals of a query
+     * @return the key of each procedure, including the ones the goals call that have no clauses yet
+     */
+    public static long[] dependencies(PredicateTable program, ArrayList<Query> goals) {
+        HashSet<Long> found = new HashSet<>();
+        ArrayList<Procedure> pending = new ArrayList<>();  //The procedures whose rules haven't been followed yet
+        for (Query goal : goals) {
+            if (found.add(predicateKey(goal.getFunctorId(), goal.getArity()))) {
+                Procedure procedure = program.getProcedure(goal.getFunctorId(), goal.getArity());
+                if (procedure != null) {
+                    pending.add(procedure);
+                }
+            }
+        }
+        while (!pending.isEmpty()) {  //Follow the goals of every rule that can be reached
+            Procedure procedure = pending.remove(pending.size() - 1);
+            for (PrologRule rule : procedure.getRules()) {
+                Clause clause = rule.getClause();
+                for (int i = 0; i < clause.getNumberOfGoals(); i++) {
+                    if (found.add(predicateKey(clause.getGoalFunctor(i), clause.getGoalArity(i)))) {
+                        Procedure callee = program.getProcedure(clause.getGoalFunctor(i), clause.getGoalArity(i));
+                        if (callee != null) {
+                            pending.add(callee);
+                        }
+                    }
+                }
+            }
+        }
+        long[] predicates = new long[found.size()];
+        int i = 0;
+        for (long predicate : found) {
+            predicates[i] = predicate;
+            i++;
+        }
+        return predicates;
+    }
+
+    /*
+     * Gets the answer kept for the given query, counting a hit or a miss
+     * @param key the key of the query
+     * @param version the number of the program version the query runs against
+     * @return the answer, or null if the query isn't in the cache or its answer is newer than the version
+     */
+    public synchronized CachedAnswer get(Variant key, long version) {
+        CachedAnswer answer = entries.get(key);
+        if (answer != null && answer.getValidFrom() > version) {  //If a procedure changed after the query's version was published
+            answer = null;
+        }
+        if (answer == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return answer;
+    }
+
+    /*
+     * Keeps the answer to a query, evicting the least recently used entry if the cache is full
+     * The answer isn't kept if a procedure it depends on changed after the version it was computed against
+     * @param key the key of the query
+     * @param answer the answer to keep
+     */
+    public synchronized void put(Variant key, CachedAnswer answer) {
+        if (capacity == 0) {
+            return;
+        }
+        long validFrom = clearedAt;
+        for (long predicate : answer.getPredicates()) {  //Find the newest change to a procedure the answer depends on
+            Long modified = lastModified.get(predicate);
+            if (modified != null && modified > validFrom) {
+                validFrom = modified;
+            }
+        }
+        if (validFrom > answer.getVersion()) {  //If the answer is already out of date
+            return;
+        }
+        answer.setValidFrom(validFrom);
+        remove(key);  //Replace any older answer
+        if (entries.size() == capacity) {  //If the cache is full
+            remove(entries.keySet().iterator().next());
+        }
+        entries.put(key, answer);
+        for (long predicate : answer.getPredicates()) {  //Let each procedure the answer depends on know about the entry
+            HashSet<Variant> keys = dependents.get(predicate);
+            if (keys == null) {
+                keys = new HashSet<>();
+                dependents.put(predicate, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /*
+     * Removes the entry with the given key, if there is one
+     * @param key the key of the query
+     */
+    private void remove(Variant key) {
+        CachedAnswer answer = entries.remove(key);
+        if (answer == null) {
+            return;
+        }
+        for (long predicate : answer.getPredicates()) {  //The procedures no longer need to know about the entry
+            HashSet<Variant> keys = dependents.get(predicate);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                dependents.remove(predicate);
+            }
+        }
+    }
+
+    /*
+     * Removes every entry whose answer depends on the procedure with the given functor and arity
+     * @param functorId the id of the procedure's functor
+     * @param arity the number of arguments of the procedure
+     * @param version the number of the first version that holds the change
+     */
+    public synchronized void invalidate(int functorId, int arity, long version) {
+        lastModified.put(predicateKey(functorId, arity), version);
+        HashSet<Variant> keys = dependents.get(predicateKey(functorId, arity));
+        if (keys == null) {  //If no entry depends on the procedure
+            return;
+        }
+        for (Variant key : new ArrayList<>(keys)) {
+            remove(key);
+            invalidations++;
+        }
+    }
+
+    /*
+     * Removes every entry
+     * @param version the number of the first version the removed answers don't hold for
+     */
+    public synchronized void clear(long version) {
+        clearedAt = version;
+        lastModified.clear();  //Every answer kept from now on is at least as new as the clear
+        invalidations += entries.size();
+        entries.clear();
+        dependents.clear();
+    }
+
+    /*
+     * Gets the number of queries answered from the cache
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /*
+     * Gets the number of queries that weren't in the cache
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /*
+     * Gets the number of entries removed because a clause they depend on was added, or the cache was cleared
+     * @return the number of invalidated entries
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /*
+     * Gets the number of entries
+     * @return the number of queries whose answers are kept
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /*
+     * Gets the largest number of entries
+     * @return the capacity of the cache
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+}
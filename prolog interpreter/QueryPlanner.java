@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+
+/*
+ * Orders the goals of a conjunctive query so the most selective goals are solved first
+ * Each goal is joined with the goals before it through the hash indexes of the positions they bind, so starting with a
+ * goal that has few matches keeps every later probe small instead of scanning a whole relation for each partial answer
+ */
+public class QueryPlanner {
+    private PredicateTable table;  //The program whose facts supply the statistics
+
+    /*
+     * A constructor that creates a QueryPlanner for the given program
+     * @param table the program being queried
+     */
+    public QueryPlanner(PredicateTable table) {
+        this.table = table;
+    }
+
+    /*
+     * Determines if every one of the given goals calls a procedure made only of facts, so solving the goals in any order,
+     * or each on its own, always finishes and finds the same answers
+     * @param goals the goals of a query
+     * @return true if no goal calls a rule, a tabled procedure, or a procedure that doesn't exist
+     */
+    public boolean callsFactsAlone(ArrayList<Query> goals) {
+        for (Query goal : goals) {
+            Procedure procedure = table.getProcedure(goal.getFunctorId(), goal.getArity());
+            if (procedure == null || !procedure.containsFacts() || procedure.containsRules() || procedure.isTabled()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Orders the given goals by picking, one at a time, the goal with the fewest estimated matches given the variables
+     * bound by the goals already picked. Goals that call rules or tabled procedures could loop forever or run side
+     * effects in a different order, so the goals are only reordered when every one of them calls facts alone.
+     * @param goals the goals in the order they were written
+     * @return the goals in the order they should be solved
+     */
+    public ArrayList<Query> plan(ArrayList<Query> goals) {
+        if (goals.size() < 2) {  //If there's nothing to reorder
+            return goals;
+        }
+        if (!callsFactsAlone(goals)) {  //If a goal could loop forever or run side effects
+            return goals;
+        }
+        ArrayList<Query> remaining = new ArrayList<>(goals);
+        ArrayList<Query> planned = new ArrayList<>();
+        IntList bound = new IntList();  //The ids of the variables bound by the goals picked so far
+        while (!remaining.isEmpty()) {  //While there are goals left to pick
+            int best = 0;
+            long bestEstimate = Long.MAX_VALUE;
+            boolean bestJoined = false;
+            for (int i = 0; i < remaining.size(); i++) {  //Find the goal with the fewest estimated matches
+                Query goal = remaining.get(i);
+                long estimate = estimate(goal, bound);
+                boolean joined = sharesVariable(goal, bound);  //Prefer goals that join with the ones already picked over cross products
+                if (estimate < bestEstimate || (estimate == bestEstimate && joined && !bestJoined)) {
+                    best = i;
+                    bestEstimate = estimate;
+                    bestJoined = joined;
+                }
+            }
+            Query goal = remaining.remove(best);
+            planned.add(goal);
+            IntList variables = goal.getVariableIds();
+            for (int i = 0; i < variables.size(); i++) {  //Every variable of the goal is bound once it's solved
+                bound.add(variables.get(i));
+            }
+        }
+        return planned;
+    }
+
+    /*
+     * Estimates the number of facts that match the given goal
+     * @param goal the goal
+     * @param bound the ids of the variables that are bound when the goal is solved
+     * @return the estimated number of matching facts
+     */
+    private long estimate(Query goal, IntList bound) {
+        boolean[] positions = new boolean[goal.getArity()];  //Indicates which arguments are bound
+        for (int i = 0; i < positions.length; i++) {
+            int atom = goal.getAtomId(i);
+            positions[i] = !SymbolTable.isVariable(atom) || contains(bound, atom);  //Atoms and bound variables narrow the search (lists don't)
+        }
+        return table.getProcedure(goal.getFunctorId(), goal.getArity()).getFact().estimate(positions);
+    }
+
+    /*
+     * Determines if the given goal uses one of the given variables
+     * @param goal the goal
+     * @param bound the ids of the bound variables
+     * @return true if the goal shares a variable with the bound ones
+     */
+    private boolean sharesVariable(Query goal, IntList bound) {
+        IntList variables = goal.getVariableIds();
+        for (int i = 0; i < variables.size(); i++) {
+            if (contains(bound, variables.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Determines if the given list holds the given value
+     * @param list the list
+     * @param value the value
+     * @return true if the value is in the list
+     */
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
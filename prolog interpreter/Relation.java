@@ -0,0 +1,19 @@
+/*
+ * A set of rows of atom ids that can be searched by the atoms bound at some of their positions
+ */
+public interface Relation {
+    /*
+     * Gets the rows that could match a goal whose arguments are the given atoms
+     * @param atoms the id of the atom bound to each argument, or a negative number if the argument isn't bound
+     * @return the indices of the candidate rows, which still have to be checked against every bound argument
+     */
+    IntList getCandidates(int[] atoms);
+
+    /*
+     * Gets the id of the atom at the given position of the given row
+     * @param row the index of the row
+     * @param column the argument position
+     * @return the atom id, or a negative number if the row holds a variable or list there
+     */
+    int getValue(int row, int column);
+}
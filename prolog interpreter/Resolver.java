@@ -0,0 +1,511 @@
+/*
+ * Solves a query against a PredicateTable by SLD resolution, one solution at a time
+ * Variables are bound in a TermStore, and backtracking undoes the bindings recorded on its trail instead of copying state
+ */
+public class Resolver {
+    private static final int COMPACT_REGION = 1 << 16;  //The fewest cells taken between compactions of the store
+
+    private PredicateTable table;  //The program being queried
+    private TableSpace tables;  //The answer tables of the tabled procedures, or null if tabling is off
+    private TermStore store;  //Holds the bindings made while solving the query
+    private Clause query;  //The compiled query
+    private int frame;  //The index of the first of the query's variable cells within the store
+    private Continuation goal;  //The goals left to solve, or null if every goal has been solved
+    private ChoicePoint choicePoint;  //The newest choice point, or null if there are none
+    private boolean started;  //Indicates if the first solution has been searched for
+    private Procedure procedure;  //The procedure whose clauses are run directly when the resolver evaluates a tabled call, otherwise null
+    private int[] arguments;  //The arguments of that call within the store
+    private int[] path;  //The clause tried by each of the first choice points when the search is split, otherwise null
+    private int splitFrom;  //The first clause tried by the choice point after the path
+    private int splitTo;  //The index after the last clause tried by the choice point after the path
+    private int explored;  //The number of choice points created so far
+    private int splitSize;  //The number of clauses the choice point after the path had, or -1 if it hasn't been reached
+    private Profiler profiler;  //Records what the resolver does, or null if it isn't profiling
+    private ProfileNode profileRoot;  //The profile node the query's goals are called from
+    private ProfileNode running;  //The profile node of the call whose clauses are running
+    private long mark;  //The time of the last profiling event, in nanoseconds
+    private QueryBudget budget;  //Limits the inferences and time of the query, or null if it's unlimited
+    private int allowance;  //The inferences left from the slice taken from the budget
+    private int floor;  //The top of the store once the query's variables and arguments are built, which compaction never goes below
+    private int compactAt;  //The top of the store at which the next compaction runs
+    private String[] names;  //The names of the query's variables, or null until the first value is written
+
+    /*
+     * A constructor that creates a Resolver for the given query
+     * @param table the program being queried
+     * @param tables the answer tables of the tabled procedures, or null to resolve every procedure without tabling
+     * @param query the compiled query, a clause with no head
+     */
+    public Resolver(PredicateTable table, TableSpace tables, Clause query) {
+        this.table = table;
+        this.tables = tables;
+        this.store = new TermStore();
+        this.query = query;
+        frame = store.newVariables(query.getNumberOfVariables());  //Create the query's variables
+        goal = query.getNumberOfGoals() > 0 ? new Continuation(query, 0, frame, null) : null;  //Start with the query's first goal
+        choicePoint = null;
+        started = false;
+        procedure = null;
+        arguments = null;
+        path = null;
+        explored = 0;
+        splitSize = -1;
+        profiler = null;
+        budget = null;
+        allowance = 0;
+        floor = store.getTop();
+        compactAt = floor + COMPACT_REGION;
+        names = null;
+    }
+
+    /*
+     * A constructor that creates a Resolver that runs the clauses of a tabled procedure for one call, without looking
+     * up the call's own answer table
+     * @param table the program being queried
+     * @param tables the answer tables of the tabled procedures
+     * @param procedure the procedure being called
+     * @param call the call's arguments, a clause with no body
+     */
+    public Resolver(PredicateTable table, TableSpace tables, Procedure procedure, Clause call) {
+        this(table, tables, call);
+        this.procedure = procedure;
+        arguments = new int[call.getArity()];
+        for (int i = 0; i < arguments.length; i++) {  //Build the call's arguments in the store
+            arguments[i] = call.instantiate(store, i, frame);
+        }
+        floor = store.getTop();
+        compactAt = floor + COMPACT_REGION;
+    }
+
+    /*
+     * Records every call, redo, clause tried, and the time spent in each procedure. Must be called before the first
+     * solution is searched for.
+     * @param profiler the profiler the counts are recorded in
+     * @param root the node the query's goals are counted as calls from, or for a tabled call the node of the call itself
+     */
+    public void setProfiler(Profiler profiler, ProfileNode root) {
+        this.profiler = profiler;
+        profileRoot = root;
+        running = root;
+    }
+
+    /*
+     * Makes the query stop once the given budget runs out or is cancelled. Each call and redo takes an inference from it.
+     * Must be called before the first solution is searched for.
+     * @param budget the budget of the query, which tabled calls evaluated for the query share
+     */
+    public void setBudget(QueryBudget budget) {
+        this.budget = budget;
+    }
+
+    /*
+     * Limits the search to part of the query's search tree, so the other parts can be searched by other resolvers
+     * Each of the first path.length choice points only tries the clause the path gives it, and the choice point after
+     * them only tries the given range of clauses. Must be called before the first solution is searched for.
+     * @param path the index of the clause tried by each of the first choice points
+     * @param from the first clause tried by the choice point after the path
+     * @param to the index after the last clause tried by the choice point after the path
+     */
+    public void split(int[] path, int from, int to) {
+        this.path = path;
+        splitFrom = from;
+        splitTo = to;
+    }
+
+    /*
+     * Determines if the search could still find another solution, which is only ruled out once it has started and no
+     * choice points are left
+     * @return false if next would certainly return false, true if it might find another solution
+     */
+    public boolean hasAlternatives() {
+        return !started || choicePoint != null;
+    }
+
+    /*
+     * Searches for the next solution to the query
+     * @return true if another solution was found, in which case the query's variables hold its bindings
+     */
+    public boolean next() {
+        boolean found;
+        if (profiler == null) {
+            found = search();
+        } else {
+            mark = System.nanoTime();
+            found = search();
+            profiler.spend(running, System.nanoTime() - mark);  //The time since the last event belongs to the call that was running
+        }
+        if (budget != null) {  //Give back what's left of the slice, so other resolvers of the query can use it
+            budget.refund(allowance);
+            allowance = 0;
+        }
+        return found;
+    }
+
+    /*
+     * Takes an inference from the budget, taking a new slice from it when the last one is used up
+     * @return true if the inference can be made, false if the query has to stop
+     */
+    private boolean spend() {
+        if (allowance == 0) {
+            allowance = budget.take(QueryBudget.SLICE);
+            if (allowance == 0) {  //If a limit was reached or the query was cancelled
+                return false;
+            }
+        }
+        allowance--;
+        return true;
+    }
+
+    /*
+     * Searches for the next solution to the query
+     * @return true if another solution was found, in which case the query's variables hold its bindings
+     */
+    private boolean search() {
+        if (started) {  //If a solution has already been returned
+            if (!backtrack()) {  //Undo it and try the next clause of the newest choice point
+                return false;
+            }
+        } else if (procedure != null) {  //If the resolver runs a procedure's clauses directly
+            started = true;
+            if (!explore(procedure, arguments, null, profileRoot) && !backtrack()) {  //If none of the clauses match
+                return false;
+            }
+        }
+        started = true;
+        while (goal != null) {  //While there are goals left to solve
+            if (store.getTop() >= compactAt) {  //If the store has grown enough since the last compaction
+                compact();
+            }
+            if (!call(goal) && !backtrack()) {  //If the goal fails and there's nothing left to try
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Frees the cells above the newest choice point that the remaining goals can't reach, such as the frames of clauses
+     * whose last goal has been called, so a deterministic recursion runs in a bounded store however deep it goes
+     * Calling a clause's last goal already drops its continuation (see call), so the goals left to solve only hold the
+     * frames of clauses that still have goals. Compaction runs between goals, when nothing else holds a cell above the
+     * choice point, and the next one waits until the store has at least doubled, so it costs a constant amount per cell.
+     */
+    private void compact() {
+        int base = choicePoint == null ? floor : Math.max(floor, choicePoint.getTop());  //Cells a choice point can go back to stay put
+        int length = 0;
+        for (Continuation continuation = goal; continuation != null; continuation = continuation.getNext()) {
+            length++;
+        }
+        Continuation[] chain = new Continuation[length];  //The goals left to solve, newest first
+        int[] frames = new int[length];
+        int[] sizes = new int[length];
+        int i = 0;
+        for (Continuation continuation = goal; continuation != null; continuation = continuation.getNext()) {
+            chain[i] = continuation;
+            frames[i] = continuation.getFrame();
+            sizes[i] = continuation.getClause().getNumberOfVariables();
+            i++;
+        }
+        store.compact(base, frames, sizes);
+        Continuation next = null;
+        boolean moved = false;  //Indicates if a continuation older than the one being rebuilt was replaced
+        for (i = length - 1; i >= 0; i--) {  //Replace the continuations whose frames moved, and every newer one, since they're immutable
+            if (moved || frames[i] != chain[i].getFrame()) {
+                next = new Continuation(chain[i].getClause(), chain[i].getGoal(), frames[i], next, chain[i].getNode());
+                moved = true;
+            } else {
+                next = chain[i];
+            }
+        }
+        goal = next;
+        compactAt = store.getTop() + Math.max(COMPACT_REGION, store.getTop());
+    }
+
+    /*
+     * Calls the first goal of the given continuation by trying each clause that could match it
+     * @param continuation the goals left to solve
+     * @return true if a clause matched, in which case goal holds the goals left to solve
+     */
+    private boolean call(Continuation continuation) {
+        if (budget != null && !spend()) {  //If the query has to stop, fail so the search backtracks out
+            return false;
+        }
+        Clause clause = continuation.getClause();
+        int index = continuation.getGoal();
+        int arity = clause.getGoalArity(index);
+        Procedure procedure = clause.getGoalProcedure(table, index);  //Get the goal's clauses
+        if (procedure == null) {  //If no clause has the goal's functor and arity
+            return false;
+        }
+        ProfileNode node = null;
+        if (profiler != null) {  //Count the call and charge the time since the last event to the call that was running
+            long now = System.nanoTime();
+            node = profiler.call(continuation.getNode() != null ? continuation.getNode() : profileRoot, clause.getGoalFunctor(index), arity, running, now - mark);
+            mark = now;
+            running = node;
+        }
+        int[] arguments = new int[arity];
+        int offset = clause.getGoalOffset(index);
+        for (int i = 0; i < arity; i++) {  //Build the goal's arguments in the store
+            arguments[i] = clause.instantiate(store, offset + i, continuation.getFrame());
+        }
+        Continuation next;
+        if (index + 1 < clause.getNumberOfGoals()) {  //If the clause has more goals
+            next = new Continuation(clause, index + 1, continuation.getFrame(), continuation.getNext(), continuation.getNode());
+        } else {  //If this is the clause's last goal, the caller's continuation is used directly
+            next = continuation.getNext();
+        }
+        if (tables != null && procedure.isTabled()) {  //If the procedure's answers are tabled
+            return consume(procedure, arguments, next, node);
+        }
+        return explore(procedure, arguments, next, node);
+    }
+
+    /*
+     * Tries each clause of the given procedure that could match the given arguments
+     * @param procedure the procedure being called
+     * @param arguments the goal's arguments within the store
+     * @param next the goals to solve once a clause matches
+     * @param node the profile node of the call, or null if the resolver isn't profiling
+     * @return true if a clause matched, in which case goal holds the goals left to solve
+     */
+    private boolean explore(Procedure procedure, int[] arguments, Continuation next, ProfileNode node) {
+        IntList candidates = null;
+        if (procedure.containsFacts()) {  //If the procedure has facts, use the indexes to find the ones that could match
+            int[] atoms = new int[arguments.length];  //The id of each argument that is bound to an atom
+            for (int i = 0; i < arguments.length; i++) {
+                int argument = store.deref(arguments[i]);
+                atoms[i] = TermStore.getTag(argument) == TermStore.ATOM ? TermStore.getValue(argument) : -1;
+            }
+            candidates = procedure.getFact().getCandidates(atoms);
+        }
+        choicePoint = new ChoicePoint(procedure, arguments, candidates, next, store.getTop(), store.getTrailTop(), choicePoint);
+        choicePoint.setNode(node);
+        if (path != null && explored <= path.length) {  //If the search is split at this choice point
+            if (explored < path.length) {  //If the path fixes the clause to try
+                choicePoint.restrict(path[explored], path[explored] + 1);
+            } else {
+                splitSize = choicePoint.getNumberOfAlternatives();
+                choicePoint.restrict(splitFrom, splitTo);
+            }
+        }
+        explored++;
+        store.setBoundary(store.getTop());  //Bindings of older variables must be trailed from now on
+        return retry(choicePoint);
+    }
+
+    /*
+     * Tries each answer in the answer table of the given call, evaluating the call first if it's new
+     * @param procedure the tabled procedure being called
+     * @param arguments the goal's arguments within the store
+     * @param next the goals to solve once an answer matches
+     * @param node the profile node of the call, or null if the resolver isn't profiling
+     * @return true if an answer matched, in which case goal holds the goals left to solve
+     */
+    private boolean consume(Procedure procedure, int[] arguments, Continuation next, ProfileNode node) {
+        AnswerTable answers = tables.call(table, procedure, store.export(arguments), budget, profiler, node);
+        if (profiler != null) {  //A new call's evaluation charged its own time
+            mark = System.nanoTime();
+        }
+        choicePoint = new ChoicePoint(procedure, arguments, answers, next, store.getTop(), store.getTrailTop(), choicePoint);
+        choicePoint.setNode(node);
+        store.setBoundary(store.getTop());  //Bindings of older variables must be trailed from now on
+        return retry(choicePoint);
+    }
+
+    /*
+     * Tries the remaining clauses of the newest choice point until one matches
+     * The choice point is removed before its last clause is tried, so a goal with one matching clause leaves nothing behind
+     * @param point the newest choice point
+     * @return true if a clause matched, in which case goal holds the goals left to solve
+     */
+    private boolean retry(ChoicePoint point) {
+        while (point.hasAlternative()) {  //While there are clauses left to try
+            store.undo(point.getTrailTop(), point.getTop());  //Undo the bindings of the previous attempt
+            int alternative = point.nextAlternative();
+            int[] arguments = point.getArguments();
+            int first = arguments.length > 0 ? store.deref(arguments[0]) : 0;
+            if (!mightMatch(point, alternative, first)) {  //If the clause's first argument can't match, don't try it
+                continue;
+            }
+            while (point.hasAlternative() && !mightMatch(point, point.peekAlternative(), first)) {  //Skip the clauses after it that can't match either
+                point.nextAlternative();
+            }
+            if (!point.hasAlternative()) {  //If this is the last clause that could match
+                pop(point);  //Nothing is left to come back to
+            }
+            boolean matched = tryAlternative(point, alternative);
+            if (profiler != null) {
+                profiler.tried(point.getNode(), matched);
+            }
+            if (matched) {  //If the clause matched
+                return true;
+            }
+        }
+        if (choicePoint == point) {  //If the choice point had no clauses at all
+            pop(point);
+        }
+        return false;
+    }
+
+    /*
+     * Checks the first argument of the given clause of a choice point's procedure against the goal's first argument
+     * @param point the choice point
+     * @param alternative the index of the clause, counting the candidate facts first and then the rules
+     * @param first the goal's first argument, dereferenced
+     * @return false if the clause can't match the goal, true if it has to be tried to find out
+     */
+    private boolean mightMatch(ChoicePoint point, int alternative, int first) {
+        if (point.getAnswers() != null || point.getArguments().length == 0) {  //Answers are always tried
+            return true;
+        }
+        IntList candidates = point.getCandidates();
+        int facts = candidates == null ? 0 : candidates.size();
+        if (alternative < facts) {  //If the clause is a fact
+            Fact fact = point.getProcedure().getFact();
+            int row = candidates.get(alternative);
+            if (fact.isGround(row)) {  //If the fact only holds atoms, compare its first column
+                return TermStore.getTag(first) == TermStore.REF || first == TermStore.makeAtom(fact.getValue(row, 0));
+            }
+            return fact.getPredicate(row).getClause().mightMatch(first);
+        }
+        return point.getProcedure().getRules().get(alternative - facts).getClause().mightMatch(first);
+    }
+
+    /*
+     * Removes the given choice point, which is the newest one
+     * @param point the choice point being removed
+     */
+    private void pop(ChoicePoint point) {
+        choicePoint = point.getPrevious();
+        store.setBoundary(choicePoint == null ? 0 : choicePoint.getTop());
+    }
+
+    /*
+     * Tries to match the given clause of a choice point's procedure against its goal
+     * @param point the choice point
+     * @param alternative the index of the clause, counting the candidate facts first and then the rules
+     * @return true if the clause matched, in which case goal holds the goals left to solve
+     */
+    private boolean tryAlternative(ChoicePoint point, int alternative) {
+        Procedure procedure = point.getProcedure();
+        int[] arguments = point.getArguments();
+        if (point.getAnswers() != null) {  //If the choice point holds the answers of a tabled call
+            Clause answer = point.getAnswers().getAnswer(alternative);
+            if (!answer.unifyHead(store, arguments, store.newVariables(answer.getNumberOfVariables()))) {
+                return false;
+            }
+            goal = point.getNext();
+            return true;
+        }
+        IntList candidates = point.getCandidates();
+        int facts = candidates == null ? 0 : candidates.size();
+        if (alternative < facts) {  //If the clause is a fact
+            Fact fact = procedure.getFact();
+            int row = candidates.get(alternative);
+            if (fact.isGround(row)) {  //If the fact only holds atoms, match its columns without compiling it
+                for (int i = 0; i < arguments.length; i++) {  //Iterate through the arguments
+                    int atom = TermStore.makeAtom(fact.getValue(row, i));
+                    int argument = store.deref(arguments[i]);
+                    if (argument == atom) {  //If the atoms are the same
+                        continue;
+                    } else if (TermStore.getTag(argument) == TermStore.REF) {  //If the goal's argument is unbound
+                        store.bind(argument, atom);
+                        continue;
+                    }
+                    return false;
+                }
+            } else {  //If the fact holds variables or lists
+                Clause clause = fact.getPredicate(row).getClause();
+                int clauseFrame = store.newVariables(clause.getNumberOfVariables());
+                if (!clause.unifyHead(store, arguments, clauseFrame)) {
+                    return false;
+                }
+            }
+            goal = point.getNext();  //Move on to the goals after the one that was solved
+            return true;
+        }
+        Clause clause = procedure.getRules().get(alternative - facts).getClause();  //The clause is a rule
+        int clauseFrame = store.newVariables(clause.getNumberOfVariables());  //Give the rule its own variables
+        if (!clause.unifyHead(store, arguments, clauseFrame)) {
+            return false;
+        }
+        if (clause.getNumberOfGoals() > 0) {  //If the rule has a body, solve it before the remaining goals
+            goal = new Continuation(clause, 0, clauseFrame, point.getNext(), point.getNode());
+        } else {
+            goal = point.getNext();
+        }
+        return true;
+    }
+
+    /*
+     * Undoes the current solution and tries the next clause of the newest choice point, going back further as they run out
+     * @return true if a clause matched, false if there are no choice points left
+     */
+    private boolean backtrack() {
+        while (choicePoint != null) {  //While there are choice points left
+            if (budget != null && !spend()) {  //If the query has to stop, leave the choice points as they are
+                break;
+            }
+            if (profiler != null) {  //Count the redo and charge the time since the last event to the call that was running
+                long now = System.nanoTime();
+                profiler.redo(choicePoint.getNode(), running, now - mark);
+                mark = now;
+                running = choicePoint.getNode();
+            }
+            if (retry(choicePoint)) {
+                return true;
+            }
+        }
+        goal = null;
+        return false;
+    }
+
+    /*
+     * Gets the number of clauses the choice point after the split path had before it was limited
+     * @return the number of clauses, or -1 if the search never got past the path
+     */
+    public int getSplitSize() {
+        return splitSize;
+    }
+
+    /*
+     * Copies the arguments of the call run by this resolver out of the store, as they are in the current solution
+     * @return the template of the arguments, made by TermStore.export
+     */
+    public int[] exportArguments() {
+        return store.export(arguments);
+    }
+
+    /*
+     * Gets the number of named variables in the query
+     * @return the number of variables
+     */
+    public int getNumberOfVariables() {
+        return query.getNumberOfVariables();
+    }
+
+    /*
+     * Gets the name of the query's variable at the given index
+     * @param index the index of the variable, in the order it first appears in the query
+     * @return the variable's name
+     */
+    public String getVariableName(int index) {
+        return query.getVariableName(index);
+    }
+
+    /*
+     * Gets the value of the query's variable at the given index in the current solution
+     * @param index the index of the variable, in the order it first appears in the query
+     * @return the value written the way it would appear in a program
+     */
+    public String getValue(int index) {
+        if (names == null) {  //If this is the first value written
+            names = new String[query.getNumberOfVariables()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = query.getVariableName(i);
+            }
+        }
+        return store.toString(TermStore.makeRef(frame + index), frame, names);  //The query's own variables are written by name, even within lists
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+/*
+ * A set of rows of ints that uses open addressing, so adding a row allocates nothing once the arrays have grown
+ * The rows are stored one after another in a single array, in the order they were added, and the hash table only holds
+ * the index of each row, so a set of a million rows is a few flat arrays rather than a million keys and map entries.
+ * Rows don't have to be the same length, so the set can hold exported templates as well as rows of atom ids.
+ */
+public class RowSet {
+    private int[] cells;  //The values of every row, one row after another
+    private int cellCount;  //The number of values in use
+    private int[] starts;  //The index within cells of each row's first value, followed by the end of the last row
+    private int[] hashes;  //The hash of each row, so the table can grow without hashing the rows again
+    private int[] slots;  //The index of the row in each slot plus one, or zero if the slot is empty
+    private int size;  //The number of rows
+
+    /*
+     * A constructor that creates an empty RowSet
+     */
+    public RowSet() {
+        cells = new int[64];
+        cellCount = 0;
+        starts = new int[17];
+        hashes = new int[16];
+        slots = new int[32];  //The capacity is always a power of two
+        size = 0;
+    }
+
+    /*
+     * Adds the given row if it isn't already in the set
+     * @param row the values of the row, which are copied
+     * @return true if the row was added
+     */
+    public boolean add(int[] row) {
+        int hash = Variant.hash(row);
+        int mask = slots.length - 1;
+        int slot = hash & mask;  //Get the first slot the row could be in
+        while (slots[slot] != 0) {  //While the slot is in use
+            if (matches(slots[slot] - 1, row, hash)) {  //If the row is already in the set
+                return false;
+            }
+            slot = (slot + 1) & mask;  //Check the next slot
+        }
+        if (cellCount + row.length > cells.length) {  //If the values don't fit
+            cells = Arrays.copyOf(cells, Math.max(cells.length * 2, cellCount + row.length));
+        }
+        if (size == hashes.length) {  //If there's no room for another row
+            hashes = Arrays.copyOf(hashes, size * 2);
+            starts = Arrays.copyOf(starts, size * 2 + 1);
+        }
+        System.arraycopy(row, 0, cells, cellCount, row.length);
+        cellCount += row.length;
+        hashes[size] = hash;
+        starts[size + 1] = cellCount;
+        slots[slot] = size + 1;
+        size++;
+        if (size * 4 > slots.length * 3) {  //If the table is more than three quarters full
+            grow();  //Double the capacity
+        }
+        return true;
+    }
+
+    /*
+     * Determines if the set holds the given row
+     * @param row the values of the row
+     * @return true if the row is in the set
+     */
+    public boolean contains(int[] row) {
+        return indexOf(row) >= 0;
+    }
+
+    /*
+     * Gets the index of the given row
+     * @param row the values of the row
+     * @return the index of the row, in the order the rows were added, or -1 if it isn't in the set
+     */
+    public int indexOf(int[] row) {
+        int hash = Variant.hash(row);
+        int mask = slots.length - 1;
+        int slot = hash & mask;  //Get the first slot the row could be in
+        while (slots[slot] != 0) {  //While the slot is in use
+            if (matches(slots[slot] - 1, row, hash)) {  //If the row is found
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;  //Check the next slot
+        }
+        return -1;
+    }
+
+    /*
+     * Determines if the row at the given index holds the given values
+     * @param index the index of a row in the set
+     * @param row the values being looked for
+     * @param hash the hash of the values
+     * @return true if the row and the values are the same
+     */
+    private boolean matches(int index, int[] row, int hash) {
+        int start = starts[index];
+        if (hashes[index] != hash || starts[index + 1] - start != row.length) {  //Most different rows are told apart here
+            return false;
+        }
+        for (int i = 0; i < row.length; i++) {  //Compare the values
+            if (cells[start + i] != row[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Doubles the capacity of the table and places every row into its new slot
+     */
+    private void grow() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {  //Iterate through the rows in the order they were added
+            int slot = hashes[i] & mask;  //Find the row's new slot
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /*
+     * Gets a value of the row at the given index
+     * @param row the index of the row
+     * @param column the position of the value within the row
+     * @return the value
+     */
+    public int get(int row, int column) {
+        return cells[starts[row] + column];
+    }
+
+    /*
+     * Gets the number of values in the row at the given index
+     * @param row the index of the row
+     * @return the length of the row
+     */
+    public int length(int row) {
+        return starts[row + 1] - starts[row];
+    }
+
+    /*
+     * Gets a copy of the row at the given index
+     * @param row the index of the row
+     * @return the values of the row
+     */
+    public int[] getRow(int row) {
+        return Arrays.copyOfRange(cells, starts[row], starts[row + 1]);
+    }
+
+    /*
+     * Gets the number of rows within the set
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+}
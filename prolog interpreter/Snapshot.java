@@ -0,0 +1,494 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Saves a PredicateTable to a binary file and loads it back, so a program doesn't have to be parsed again
+ * The file starts with a magic number and a version, followed by the names of the atoms and variables the procedures use
+ * and then each procedure: its ground facts as one column of atom ids per argument, its other facts and its rules as
+ * encoded predicates, and the argument positions that had been indexed. Ids in the file number those names in the order
+ * they're first used, so loading interns each name again and maps each saved id to the new one. The file is memory
+ * mapped while it's loaded and the columns are copied out in bulk, so loading a large program is mostly copying ints.
+ * A snapshot is written to a temporary file that replaces the old one once it's complete, so a crash while saving
+ * leaves the old snapshot as it was, and a truncated or corrupt file fails to load with an IOException.
+ */
+public class Snapshot {
+    public static final int MAGIC = 0x504C5342;  //"PLSB" at the start of every snapshot
+    public static final int VERSION = 1;  //The version of the layout below, checked when a snapshot is loaded
+
+    private int[] atoms;  //Maps each saved atom id to its id in this process
+    private int[] variables;  //Maps each saved variable id (negated, minus one) to its id in this process
+    private IntList usedAtoms;  //While saving, the id in this process of each atom the file names, in the order of their ids in the file
+    private IntList usedVariables;  //While saving, the id in this process of each variable the file names, in the same way
+    private int[] savedAtoms;  //While saving, maps each atom id of this process to its id in the file, or -1 if the file doesn't use it
+    private int[] savedVariables;  //While saving, maps each variable id (negated, minus one) to its id in the file, or -1
+
+    /*
+     * Writes the given table to the file at the given path, replacing it if it exists
+     * The table is written to a temporary file next to the path, which replaces the old file once it's on disk
+     * @param table the table being saved
+     * @param path the path of the snapshot file
+     * @throws IOException if the file can't be written
+     */
+    public static void save(PredicateTable table, String path) throws IOException {
+        Path target = Paths.get(path);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                new Snapshot().write(out, table);
+                out.flush();
+                channel.force(true);  //The new snapshot is on disk before it replaces the old one
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {  //Leave the old snapshot and remove what was written of the new one
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /*
+     * Writes the header, the names the table uses, and the procedures
+     * @param out the stream of the snapshot
+     * @param table the table being saved
+     */
+    private void write(DataOutputStream out, PredicateTable table) throws IOException {
+        usedAtoms = new IntList();
+        usedVariables = new IntList();
+        savedAtoms = new int[SymbolTable.getNumberOfAtoms()];  //Every id the table uses was interned before now
+        savedVariables = new int[SymbolTable.getNumberOfVariables()];
+        Arrays.fill(savedAtoms, -1);
+        Arrays.fill(savedVariables, -1);
+        for (int i = 0; i < table.getNumberOfProcedures(); i++) {  //Number the names the procedures use
+            useProcedure(table.getProcedure(i));
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(usedAtoms.size());  //Write the names, so the ids within the file can be mapped back to names
+        for (int i = 0; i < usedAtoms.size(); i++) {
+            writeName(out, SymbolTable.getName(usedAtoms.get(i)));
+        }
+        out.writeInt(usedVariables.size());
+        for (int i = 0; i < usedVariables.size(); i++) {
+            writeName(out, SymbolTable.getName(usedVariables.get(i)));
+        }
+        out.writeInt(table.getNumberOfProcedures());
+        for (int i = 0; i < table.getNumberOfProcedures(); i++) {  //Write each procedure in the order it was added
+            writeProcedure(out, table.getProcedure(i));
+        }
+    }
+
+    /*
+     * Gives a file id to each atom and variable the given procedure uses that doesn't have one yet
+     * @param procedure the procedure being saved
+     */
+    private void useProcedure(Procedure procedure) {
+        use(SymbolTable.intern(procedure.getFunctor()));
+        Fact fact = procedure.getFact();
+        int rows = fact == null ? 0 : fact.getNumberOfPredicates();
+        for (int row = 0; row < rows; row++) {
+            if (fact.isGround(row)) {
+                for (int column = 0; column < procedure.getArity(); column++) {
+                    use(fact.getValue(row, column));
+                }
+            } else {
+                usePredicate(fact.getPredicate(row));
+            }
+        }
+        for (PrologRule rule : procedure.getRules()) {
+            usePredicate(rule.getHead().getPredicate(0));
+            if (rule.getType().equals("simple query")) {
+                use(rule.getSimpleBody().getFunctorId());
+                usePredicate(rule.getSimpleBody().getPredicate());
+            } else {
+                ConjunctiveQuery body = rule.getConjunctiveBody();
+                for (int i = 0; i < body.getNumberOfQueries(); i++) {
+                    use(body.getQuery(i).getFunctorId());
+                    usePredicate(body.getQuery(i).getPredicate());
+                }
+            }
+        }
+    }
+
+    /*
+     * Gives a file id to each atom and variable argument of the given predicate (list elements are written as names)
+     * @param predicate the predicate being saved
+     */
+    private void usePredicate(Predicate predicate) {
+        for (int i = 0; i < predicate.getArity(); i++) {
+            use(predicate.getAtomId(i));
+        }
+    }
+
+    /*
+     * Gives a file id to the given atom or variable if it doesn't have one yet
+     * @param id an atom or variable id of this process, or LIST
+     */
+    private void use(int id) {
+        if (id == Predicate.LIST) {  //A list isn't a name
+            return;
+        }
+        if (id >= 0 && savedAtoms[id] < 0) {  //If the atom hasn't been numbered
+            savedAtoms[id] = usedAtoms.size();
+            usedAtoms.add(id);
+        } else if (id < 0 && savedVariables[-id - 1] < 0) {
+            savedVariables[-id - 1] = usedVariables.size();
+            usedVariables.add(id);
+        }
+    }
+
+    /*
+     * Maps an id of this process to the id of the same name in the file
+     * @param id an atom or variable id the table uses, or LIST
+     * @return the id written to the file
+     */
+    private int save(int id) {
+        if (id >= 0) {  //If the id is an atom
+            return savedAtoms[id];
+        }
+        return id == Predicate.LIST ? id : -savedVariables[-id - 1] - 1;
+    }
+
+    /*
+     * Writes a procedure
+     * @param out the stream of the snapshot
+     * @param procedure the procedure being written
+     */
+    private void writeProcedure(DataOutputStream out, Procedure procedure) throws IOException {
+        out.writeInt(save(SymbolTable.intern(procedure.getFunctor())));
+        out.writeInt(procedure.getArity());
+        out.writeBoolean(procedure.isTabled());
+        Fact fact = procedure.getFact();
+        int rows = fact == null ? 0 : fact.getNumberOfPredicates();
+        out.writeInt(rows);
+        if (rows > 0) {  //Write the columns, then the predicates they can't describe on their own
+            for (int column = 0; column < procedure.getArity(); column++) {
+                for (int row = 0; row < rows; row++) {  //The rows written as predicates are read from those instead
+                    out.writeInt(fact.isGround(row) ? save(fact.getValue(row, column)) : Predicate.LIST);
+                }
+            }
+            int complex = 0;
+            for (int row = 0; row < rows; row++) {
+                if (!fact.isGround(row)) {
+                    complex++;
+                }
+            }
+            out.writeInt(complex);
+            for (int row = 0; row < rows; row++) {
+                if (!fact.isGround(row)) {
+                    out.writeInt(row);
+                    writePredicate(out, fact.getPredicate(row));
+                }
+            }
+            int indexed = 0;
+            for (int position = 0; position < procedure.getArity(); position++) {
+                if (fact.isIndexed(position)) {
+                    indexed++;
+                }
+            }
+            out.writeInt(indexed);
+            for (int position = 0; position < procedure.getArity(); position++) {
+                if (fact.isIndexed(position)) {
+                    out.writeInt(position);
+                }
+            }
+        }
+        out.writeInt(procedure.getRules().size());
+        for (PrologRule rule : procedure.getRules()) {  //Write each rule as its head and the queries of its body
+            writePredicate(out, rule.getHead().getPredicate(0));
+            if (rule.getType().equals("simple query")) {  //If the body is a single query
+                out.writeInt(-1);  //A simple body is marked so it's rebuilt the same way
+                writeQuery(out, rule.getSimpleBody());
+            } else {
+                ConjunctiveQuery body = rule.getConjunctiveBody();
+                out.writeInt(body.getNumberOfQueries());
+                for (int i = 0; i < body.getNumberOfQueries(); i++) {
+                    writeQuery(out, body.getQuery(i));
+                }
+            }
+        }
+    }
+
+    /*
+     * Writes a query as its functor and its predicate
+     * @param out the stream of the snapshot
+     * @param query the query being written
+     */
+    private void writeQuery(DataOutputStream out, Query query) throws IOException {
+        out.writeInt(save(query.getFunctorId()));
+        writePredicate(out, query.getPredicate());
+    }
+
+    /*
+     * Writes a predicate as its ids, followed by the elements of each list argument
+     * @param out the stream of the snapshot
+     * @param predicate the predicate being written
+     */
+    private void writePredicate(DataOutputStream out, Predicate predicate) throws IOException {
+        out.writeInt(predicate.getArity());
+        out.writeBoolean(predicate.isVariable());
+        for (int i = 0; i < predicate.getArity(); i++) {
+            int id = predicate.getAtomId(i);
+            out.writeInt(save(id));
+            if (id == Predicate.LIST) {  //If the argument is a list, its elements follow as names
+                ListTerm list = predicate.getList(i);
+                out.writeBoolean(predicate.hasTail(i));
+                out.writeInt(list.size());
+                for (int j = 0; j < list.size(); j++) {
+                    writeName(out, list.getName(j));
+                }
+            }
+        }
+    }
+
+    /*
+     * Writes a name as its length followed by its UTF-8 bytes
+     * @param out the stream of the snapshot
+     * @param name the name being written
+     */
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /*
+     * Reads the snapshot at the given path into a new table
+     * @param path the path of the snapshot file
+     * @return a table holding the saved procedures
+     * @throws IOException if the file can't be read, isn't a snapshot, was written by another version, or is truncated
+     * or corrupt
+     */
+    public static PredicateTable load(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {  //A single mapping can't cover more than 2 GB
+                throw new IOException("Snapshot is too large to map: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {  //If the file doesn't start with the magic number
+                throw new IOException("Not a snapshot: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {  //If the layout is different
+                throw new IOException("Unsupported snapshot version " + version + " (expected " + VERSION + "): " + path);
+            }
+            try {
+                return new Snapshot().read(buffer);
+            } catch (BufferUnderflowException e) {  //If the file ends before a value the counts left room for
+                throw new IOException("Truncated snapshot: " + path, e);
+            } catch (IOException e) {
+                throw new IOException(e.getMessage() + ": " + path, e);
+            }
+        }
+    }
+
+    /*
+     * Reads the symbols and procedures that follow the header
+     * @param buffer the mapped file, positioned after the header
+     * @return a table holding the saved procedures
+     * @throws IOException if a count or id doesn't fit the file
+     */
+    private PredicateTable read(ByteBuffer buffer) throws IOException {
+        atoms = new int[count(buffer, 4)];  //Each name takes at least its length
+        for (int i = 0; i < atoms.length; i++) {  //Intern each saved name and remember its new id
+            atoms[i] = SymbolTable.intern(readName(buffer));
+        }
+        variables = new int[count(buffer, 4)];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = SymbolTable.intern(readName(buffer));
+        }
+        PredicateTable table = new PredicateTable();
+        int procedures = count(buffer, 17);  //The functor, arity, tabled flag, row count, and rule count
+        for (int i = 0; i < procedures; i++) {
+            readProcedure(buffer, table);
+        }
+        return table;
+    }
+
+    /*
+     * Reads a procedure and adds it to the table
+     * @param buffer the mapped file, positioned at the procedure
+     * @param table the table being loaded
+     * @throws IOException if a count or id doesn't fit the file
+     */
+    private void readProcedure(ByteBuffer buffer, PredicateTable table) throws IOException {
+        String functor = SymbolTable.getName(atom(buffer.getInt()));
+        int arity = count(buffer, 0);
+        Procedure procedure = table.getOrCreateProcedure(functor, arity);
+        procedure.setTabled(buffer.get() != 0);
+        int rows = buffer.getInt();
+        if (rows < 0 || (long) rows * arity * 4 > buffer.remaining()) {  //If the columns can't be in the file
+            throw new IOException("Corrupt snapshot, bad row count " + rows);
+        }
+        if (rows > 0) {
+            int[][] columns = new int[arity][rows];
+            IntBuffer ints = buffer.asIntBuffer();
+            for (int column = 0; column < arity; column++) {  //Copy each column out of the mapping in one go
+                ints.get(columns[column]);
+            }
+            buffer.position(buffer.position() + arity * rows * 4);
+            IntMap<Predicate> complex = new IntMap<>();
+            int complexRows = count(buffer, 9);  //The row and at least the predicate's arity and variable flag
+            for (int i = 0; i < complexRows; i++) {
+                int row = buffer.getInt();
+                if (row < 0 || row >= rows) {
+                    throw new IOException("Corrupt snapshot, bad row " + row);
+                }
+                complex.put(row, readPredicate(buffer));
+            }
+            int[] row = new int[arity];
+            for (int i = 0; i < rows; i++) {  //Add the rows in their original order
+                Predicate predicate = complexRows == 0 ? null : complex.get(i);
+                if (predicate != null) {
+                    procedure.addFact(predicate);
+                    continue;
+                }
+                for (int column = 0; column < arity; column++) {
+                    row[column] = atom(columns[column][i]);
+                }
+                procedure.addRow(row);
+            }
+            int indexed = count(buffer, 4);
+            for (int i = 0; i < indexed; i++) {  //Rebuild the indexes that had been built, from the new columns
+                int position = buffer.getInt();
+                if (position < 0 || position >= arity) {
+                    throw new IOException("Corrupt snapshot, bad index position " + position);
+                }
+                procedure.getFact().getSegments(position);
+            }
+        }
+        int rules = count(buffer, 9);  //The head's arity and variable flag, and the number of queries in the body
+        for (int i = 0; i < rules; i++) {
+            Fact head = new Fact(functor);
+            head.addPredicate(readPredicate(buffer));
+            int queries = buffer.getInt();
+            if (queries < 0) {  //If the body is a single query
+                procedure.addRule(new PrologRule(head, readQuery(buffer)));
+            } else {
+                if ((long) queries * 9 > buffer.remaining()) {  //If the queries can't be in the file
+                    throw new IOException("Corrupt snapshot, bad query count " + queries);
+                }
+                ConjunctiveQuery body = new ConjunctiveQuery();
+                for (int j = 0; j < queries; j++) {
+                    body.addQuery(readQuery(buffer));
+                }
+                procedure.addRule(new PrologRule(head, body));
+            }
+        }
+    }
+
+    /*
+     * Reads a query
+     * @param buffer the mapped file, positioned at the query
+     * @return the query
+     * @throws IOException if a count or id doesn't fit the file
+     */
+    private Query readQuery(ByteBuffer buffer) throws IOException {
+        String functor = SymbolTable.getName(atom(buffer.getInt()));
+        return new Query(functor, readPredicate(buffer));
+    }
+
+    /*
+     * Reads a predicate
+     * @param buffer the mapped file, positioned at the predicate
+     * @return the predicate
+     * @throws IOException if a count or id doesn't fit the file
+     */
+    private Predicate readPredicate(ByteBuffer buffer) throws IOException {
+        Predicate predicate = new Predicate();
+        int arity = count(buffer, 4);  //An id for each argument
+        if (buffer.get() != 0) {  //If the predicate holds a variable
+            predicate.enableVariable();
+        }
+        for (int i = 0; i < arity; i++) {
+            int id = buffer.getInt();
+            if (id == Predicate.LIST) {  //If the argument is a list
+                boolean tail = buffer.get() != 0;
+                int size = count(buffer, 4);
+                int[] elements = new int[size];
+                for (int j = 0; j < size; j++) {
+                    elements[j] = SymbolTable.intern(readName(buffer));
+                }
+                predicate.addList(size == 0 ? ListTerm.EMPTY : new ListTerm(elements), tail);
+            } else {
+                predicate.addAtomId(map(id));
+            }
+        }
+        return predicate;
+    }
+
+    /*
+     * Maps an id saved in the snapshot to the id of the same name in this process
+     * @param id a saved atom or variable id, or LIST
+     * @return the id in this process
+     * @throws IOException if no name was saved for the id
+     */
+    private int map(int id) throws IOException {
+        if (id >= 0) {  //If the id is an atom
+            return atom(id);
+        }
+        if (id == Predicate.LIST) {
+            return id;
+        }
+        if (-(long) id - 1 >= variables.length) {
+            throw new IOException("Corrupt snapshot, bad variable id " + id);
+        }
+        return variables[-id - 1];
+    }
+
+    /*
+     * Maps an atom id saved in the snapshot to the id of the same atom in this process
+     * @param id a saved atom id
+     * @return the id in this process
+     * @throws IOException if no atom was saved for the id
+     */
+    private int atom(int id) throws IOException {
+        if (id < 0 || id >= atoms.length) {
+            throw new IOException("Corrupt snapshot, bad atom id " + id);
+        }
+        return atoms[id];
+    }
+
+    /*
+     * Reads a count and checks that the file has room for that many values
+     * @param buffer the mapped file, positioned at the count
+     * @param size the fewest bytes each value takes
+     * @return the count
+     * @throws IOException if the count is negative or the rest of the file is too short to hold it
+     */
+    private static int count(ByteBuffer buffer, int size) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * size > buffer.remaining()) {
+            throw new IOException("Corrupt snapshot, bad count " + count);
+        }
+        return count;
+    }
+
+    /*
+     * Reads a name written by writeName
+     * @param buffer the mapped file, positioned at the name
+     * @return the name
+     * @throws IOException if the name is empty or its length doesn't fit the file
+     */
+    private static String readName(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[count(buffer, 1)];
+        if (bytes.length == 0) {  //Every name has at least one character
+            throw new IOException("Corrupt snapshot, empty name");
+        }
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * A global table that interns every atom and variable name to an int id
+ * Atoms get ids from 0 upwards and variables get ids from -1 downwards, so the sign of an id tells them apart
+ */
+public class SymbolTable {
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();  //Maps a name to its id
+    private static volatile String[] atoms = new String[1024];  //Maps an atom id to its name
+    private static volatile String[] variables = new String[64];  //Maps the negated variable id (minus one) to its name
+    private static int atomCount = 0;  //The number of atoms that have been interned
+    private static int variableCount = 0;  //The number of variables that have been interned
+
+    /*
+     * Gets the id of the given name, interning it if it hasn't been seen before
+     * @param name an atom or a variable (variables start with an uppercase letter)
+     * @return the id of the name
+     */
+    public static int intern(String name) {
+        Integer id = ids.get(name);  //Look for the name in the table
+        if (id != null) {  //If the name has already been interned
+            return id;
+        }
+        return add(name);  //Add the name to the table
+    }
+
+    /*
+     * Adds the given name to the table
+     * @param name the name being interned
+     * @return the id of the name
+     */
+    private static synchronized int add(String name) {
+        Integer existing = ids.get(name);  //Check again now that the table is locked
+        if (existing != null) {  //If another thread interned the name first
+            return existing;
+        }
+        int id;
+        if (Character.isUpperCase(name.charAt(0))) {  //If the name is a variable
+            if (variableCount == variables.length) {  //If the array is full
+                String[] grown = new String[variableCount * 2];  //Double its size
+                System.arraycopy(variables, 0, grown, 0, variableCount);
+                variables = grown;
+            }
+            variables[variableCount] = name;  //Save the name
+            variableCount++;
+            id = -variableCount;  //Variables are numbered -1, -2, -3, ...
+        } else {  //If the name is an atom
+            if (atomCount == atoms.length) {  //If the array is full
+                String[] grown = new String[atomCount * 2];  //Double its size
+                System.arraycopy(atoms, 0, grown, 0, atomCount);
+                atoms = grown;
+            }
+            atoms[atomCount] = name;  //Save the name
+            id = atomCount;  //Atoms are numbered 0, 1, 2, ...
+            atomCount++;
+        }
+        ids.put(name, id);  //Publish the id once the name can be looked up
+        return id;
+    }
+
+    /*
+     * Gets the id of the given name without interning it
+     * @param name an atom or a variable
+     * @return the id of the name, or null if it has never been interned
+     */
+    public static Integer lookup(String name) {
+        return ids.get(name);
+    }
+
+    /*
+     * Gets the name of the given id
+     * @param id an id returned by intern
+     * @return the atom or variable with that id
+     */
+    public static String getName(int id) {
+        if (id < 0) {  //If the id belongs to a variable
+            return variables[-id - 1];
+        }
+        return atoms[id];
+    }
+
+    /*
+     * Determines if the given id belongs to a variable
+     * @param id an id returned by intern
+     * @return true if the id belongs to a variable
+     */
+    public static boolean isVariable(int id) {
+        return id < 0;
+    }
+
+    /*
+     * Gets the number of atoms that have been interned
+     * @return the number of atoms
+     */
+    public static synchronized int getNumberOfAtoms() {
+        return atomCount;
+    }
+
+    /*
+     * Gets the number of variables that have been interned
+     * @return the number of variables
+     */
+    public static synchronized int getNumberOfVariables() {
+        return variableCount;
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * Holds the answer tables of every tabled procedure, keyed by call variant
+ * A new call is evaluated by running the procedure's clauses over and over until no new answers are found. Recursive
+ * calls to a variant that's still being evaluated don't evaluate it again: they use the answers found so far, and the
+ * next iteration picks up anything they missed. Tables that depend on each other are completed together by the one that
+ * was called first (the leader), since none of them are finished until all of them are.
+ * Calls from different threads are evaluated one at a time, so a thread only ever sees complete tables unless it's
+ * evaluating them itself.
+ */
+public class TableSpace {
+    private HashMap<Procedure, HashMap<Variant, AnswerTable>> tables;  //Maps each tabled procedure to the tables of its call variants
+    private ArrayList<AnswerTable> stack;  //The tables being evaluated, oldest first
+    private ArrayList<AnswerTable> incomplete;  //The tables that have been evaluated but aren't complete yet, in the order they were created
+    private long additions;  //The number of answers added to every table, used to tell when an iteration found nothing new
+
+    /*
+     * A constructor that creates an empty TableSpace
+     */
+    public TableSpace() {
+        tables = new HashMap<>();
+        stack = new ArrayList<>();
+        incomplete = new ArrayList<>();
+        additions = 0;
+    }
+
+    /*
+     * Gets the answer table for the given call, evaluating the call first if it needs it
+     * @param program the program being queried
+     * @param procedure the tabled procedure being called
+     * @param call the template of the call's arguments, made by TermStore.export
+     * @param budget limits the evaluation of a new call, or null if the caller's query is unlimited
+     * @param profiler records the evaluation of a new call, or null if the caller isn't profiling
+     * @param node the caller's profile node of the call, or null if the caller isn't profiling
+     * @return the call's answer table, which is only incomplete while a recursive evaluation of it is in progress or if
+     * the budget ran out while it was evaluated
+     */
+    public synchronized AnswerTable call(PredicateTable program, Procedure procedure, int[] call, QueryBudget budget, Profiler profiler, ProfileNode node) {
+        HashMap<Variant, AnswerTable> variants = tables.get(procedure);
+        if (variants == null) {  //If the procedure hasn't been called yet
+            variants = new HashMap<>();
+            tables.put(procedure, variants);
+        }
+        Variant variant = new Variant(call);
+        AnswerTable answers = variants.get(variant);
+        if (answers == null) {  //If this is the first call of the variant
+            answers = new AnswerTable(procedure, call);
+            variants.put(variant, answers);
+            evaluate(program, answers, budget, profiler, node);
+        } else if (!answers.isComplete() && answers.getDepth() < 0) {  //If the table depends on a leader that is still iterating
+            evaluate(program, answers, budget, profiler, node);  //Bring it up to date with the leader's latest answers
+        }
+        if (!answers.isComplete() && !stack.isEmpty()) {  //If the caller is using answers that may still grow
+            AnswerTable caller = stack.get(stack.size() - 1);
+            caller.setLeader(Math.min(caller.getLeader(), answers.getDepth() >= 0 ? answers.getDepth() : answers.getLeader()));  //The caller can't finish before this table does
+        }
+        return answers;
+    }
+
+    /*
+     * Runs the clauses of the given table's call until an iteration finds no new answers
+     * @param program the program being queried
+     * @param answers the table being evaluated
+     * @param budget limits the evaluation, or null if it's unlimited
+     * @param profiler records what the evaluation does, or null if it isn't profiled
+     * @param node the profile node the table's clauses are counted in
+     */
+    private void evaluate(PredicateTable program, AnswerTable answers, QueryBudget budget, Profiler profiler, ProfileNode node) {
+        answers.setDepth(stack.size());
+        answers.setLeader(stack.size());  //Until a recursive call says otherwise, the table only depends on itself
+        stack.add(answers);
+        if (!incomplete.contains(answers)) {  //If this is the table's first evaluation
+            incomplete.add(answers);
+        }
+        long before;
+        do {
+            before = additions;
+            Resolver resolver = new Resolver(program, this, answers.getProcedure(), answers.getCall());
+            if (profiler != null) {
+                resolver.setProfiler(profiler, node);
+            }
+            resolver.setBudget(budget);
+            while (resolver.next()) {  //Add every solution of this iteration
+                if (answers.add(resolver.exportArguments())) {
+                    additions++;
+                }
+            }
+            if (budget != null && budget.isStopped()) {  //If the evaluation was cut short, its answers may be missing some
+                abandon(answers);
+                return;
+            }
+        } while (additions != before);  //Go again if any table found a new answer
+        stack.remove(stack.size() - 1);
+        answers.setDepth(-1);
+        if (answers.getLeader() >= stack.size()) {  //If the table doesn't depend on any table below it, it leads its group
+            while (true) {  //Complete the table and every table that depended on it
+                AnswerTable last = incomplete.remove(incomplete.size() - 1);
+                last.complete();
+                if (last == answers) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /*
+     * Removes the given table and every incomplete table made after it, which a stopped query left part way through
+     * evaluating, so the next call of each variant evaluates it from the start. The tables of the evaluations below it
+     * on the stack are removed as their own resolvers stop.
+     * @param answers the table whose evaluation stopped
+     */
+    private void abandon(AnswerTable answers) {
+        stack.remove(stack.size() - 1);
+        answers.setDepth(-1);
+        int first = incomplete.indexOf(answers);
+        while (incomplete.size() > first) {  //Forget the tables that depended on the stopped evaluation
+            AnswerTable last = incomplete.remove(incomplete.size() - 1);
+            tables.get(last.getProcedure()).values().remove(last);
+        }
+    }
+
+    /*
+     * Removes every answer table, since a new fact or rule can change the answers
+     */
+    public synchronized void clear() {
+        tables.clear();
+        incomplete.clear();
+    }
+}
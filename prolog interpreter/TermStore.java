@@ -0,0 +1,515 @@
+import java.util.Arrays;
+
+/*
+ * Holds the terms built while a query is resolved: variable binding cells, list cells, and the trail used to undo bindings
+ * A term is an int whose low two bits are a tag:
+ *   ATOM - the rest of the bits are the atom's id in the SymbolTable
+ *   REF  - the rest of the bits are the index of a variable's cell (an unbound variable's cell refers to itself)
+ *   LIST - the rest of the bits are the index of a pair of cells holding the head and the tail of a list
+ *   NIL  - the empty list
+ */
+public class TermStore {
+    public static final int ATOM = 0;
+    public static final int REF = 1;
+    public static final int LIST = 2;
+    public static final int NIL = 3;
+
+    private int[] cells;  //The binding and list cells
+    private int top;  //The index of the next free cell
+    private int[] trail;  //The cells that were bound while a choice point could still undo them
+    private int trailTop;  //The index of the next free trail entry
+    private int boundary;  //Cells below this index existed when the newest choice point was created and must be trailed when bound
+    private int[] pending;  //A stack of term pairs waiting to be unified
+    private int[] exported;  //The template being built by export
+    private int exportedSize;  //The number of cells in use within the exported template
+    private IntList exportedVariables;  //The cell of each unbound variable found by export, in the order they were found
+
+    /*
+     * A constructor that creates an empty TermStore
+     */
+    public TermStore() {
+        cells = new int[64];
+        top = 0;
+        trail = new int[16];
+        trailTop = 0;
+        boundary = 0;
+        pending = new int[8];
+    }
+
+    /*
+     * Creates a term for the atom with the given id
+     * @param id the id of the atom in the SymbolTable
+     * @return the atom term
+     */
+    public static int makeAtom(int id) {
+        return id << 2;  //The ATOM tag is zero
+    }
+
+    /*
+     * Creates a term that refers to the given cell
+     * @param cell the index of a variable's cell
+     * @return the reference term
+     */
+    public static int makeRef(int cell) {
+        return (cell << 2) | REF;
+    }
+
+    /*
+     * Creates a term for the list whose head and tail are stored at the given cell
+     * @param cell the index of the head cell (the tail is in the next cell)
+     * @return the list term
+     */
+    public static int makeList(int cell) {
+        return (cell << 2) | LIST;
+    }
+
+    /*
+     * Gets the tag of the given term
+     * @param term the term
+     * @return ATOM, REF, LIST, or NIL
+     */
+    public static int getTag(int term) {
+        return term & 3;
+    }
+
+    /*
+     * Gets the value of the given term without its tag
+     * @param term the term
+     * @return the atom id or cell index of the term
+     */
+    public static int getValue(int term) {
+        return term >>> 2;
+    }
+
+    /*
+     * Makes sure there is room for the given number of new cells
+     * @param amount the number of cells about to be allocated
+     */
+    private void reserve(int amount) {
+        if (top + amount > cells.length) {  //If the cells would overflow
+            cells = Arrays.copyOf(cells, Math.max(cells.length * 2, top + amount));  //Grow the array
+        }
+    }
+
+    /*
+     * Allocates a new unbound variable
+     * @return a reference to the variable's cell
+     */
+    public int newVariable() {
+        reserve(1);
+        int ref = makeRef(top);  //An unbound variable refers to itself
+        cells[top] = ref;
+        top++;
+        return ref;
+    }
+
+    /*
+     * Allocates the given number of new unbound variables in consecutive cells
+     * @param count the number of variables
+     * @return the index of the first variable's cell
+     */
+    public int newVariables(int count) {
+        reserve(count);
+        int first = top;
+        for (int i = 0; i < count; i++) {  //Make each cell refer to itself
+            cells[top] = makeRef(top);
+            top++;
+        }
+        return first;
+    }
+
+    /*
+     * Allocates a new list cell pair
+     * @param head the first element of the list
+     * @param tail the rest of the list
+     * @return the list term
+     */
+    public int newList(int head, int tail) {
+        reserve(2);
+        int list = makeList(top);
+        cells[top] = head;
+        cells[top + 1] = tail;
+        top += 2;
+        return list;
+    }
+
+    /*
+     * Copies a block of template cells into new consecutive cells, moving its variables into the given frame and its
+     * lists along with the block, so a compiled list is built with one copy instead of a pair at a time
+     * @param template the cells of a Clause template
+     * @param from the index of the block's first cell within the template
+     * @param count the number of cells in the block, whose lists only point to cells within it
+     * @param frame the index of the first of the clause's variable cells within the store
+     * @return the index of the block's first cell within the store
+     */
+    public int copyCells(int[] template, int from, int count, int frame) {
+        reserve(count);
+        int first = top;
+        for (int i = 0; i < count; i++) {  //Copy each cell, moving what it points to
+            int term = template[from + i];
+            int tag = getTag(term);
+            if (tag == REF) {  //A variable's slot becomes its cell in the frame
+                term = makeRef(frame + getValue(term));
+            } else if (tag == LIST) {  //A pair within the block moves with it
+                term = makeList(first + getValue(term) - from);
+            }
+            cells[first + i] = term;
+        }
+        top += count;
+        return first;
+    }
+
+    /*
+     * Gets the first element of the given list term
+     * @param list a dereferenced LIST term
+     * @return the head of the list
+     */
+    public int getHead(int list) {
+        return cells[getValue(list)];
+    }
+
+    /*
+     * Gets the rest of the given list term
+     * @param list a dereferenced LIST term
+     * @return the tail of the list
+     */
+    public int getTail(int list) {
+        return cells[getValue(list) + 1];
+    }
+
+    /*
+     * Follows the chain of bound variables starting at the given term
+     * @param term the term
+     * @return an atom, a list, the empty list, or a reference to an unbound variable
+     */
+    public int deref(int term) {
+        while (getTag(term) == REF) {  //While the term is a variable
+            int value = cells[getValue(term)];  //Get what the variable is bound to
+            if (value == term) {  //If the variable is unbound
+                return term;
+            }
+            term = value;  //Follow the binding
+        }
+        return term;
+    }
+
+    /*
+     * Binds the given unbound variable to the given term, recording it on the trail if a choice point can undo it
+     * @param variable a dereferenced reference to an unbound variable
+     * @param term the term the variable is being bound to
+     */
+    public void bind(int variable, int term) {
+        int cell = getValue(variable);
+        cells[cell] = term;  //Bind the variable
+        if (cell < boundary) {  //If the variable is older than the newest choice point
+            if (trailTop == trail.length) {  //If the trail is full
+                trail = Arrays.copyOf(trail, trailTop * 2);
+            }
+            trail[trailTop] = cell;  //Remember the binding so backtracking can undo it
+            trailTop++;
+        }
+    }
+
+    /*
+     * Unifies the two given terms, binding variables as needed
+     * If unification fails some bindings may already have been made, and the caller undoes them by backtracking
+     * @param first a term
+     * @param second a term
+     * @return true if the terms unify
+     */
+    public boolean unify(int first, int second) {
+        int pendingTop = 0;  //The stack of pairs still to unify starts out empty
+        while (true) {
+            first = deref(first);
+            second = deref(second);
+            if (first != second) {  //If the terms aren't already identical
+                int firstTag = getTag(first);
+                int secondTag = getTag(second);
+                if (firstTag == REF && secondTag == REF) {  //If both are unbound variables
+                    if (getValue(first) < getValue(second)) {  //Bind the younger variable to the older one
+                        bind(second, first);
+                    } else {
+                        bind(first, second);
+                    }
+                } else if (firstTag == REF) {  //If only the first is an unbound variable
+                    bind(first, second);
+                } else if (secondTag == REF) {  //If only the second is an unbound variable
+                    bind(second, first);
+                } else if (firstTag == LIST && secondTag == LIST) {  //If both are lists
+                    if (pendingTop + 2 > pending.length) {  //If the stack is full
+                        pending = Arrays.copyOf(pending, pending.length * 2);
+                    }
+                    pending[pendingTop] = getTail(first);  //Unify the tails later
+                    pending[pendingTop + 1] = getTail(second);
+                    pendingTop += 2;
+                    first = getHead(first);  //Unify the heads now
+                    second = getHead(second);
+                    continue;
+                } else {  //If the terms are different atoms, or an atom and a list
+                    return false;
+                }
+            }
+            if (pendingTop == 0) {  //If nothing is left to unify
+                return true;
+            }
+            pendingTop -= 2;  //Take the next pair off the stack
+            first = pending[pendingTop];
+            second = pending[pendingTop + 1];
+        }
+    }
+
+    /*
+     * Gets the index of the next free cell, which marks the current size of the store
+     * @return the top of the store
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /*
+     * Gets the index of the next free trail entry
+     * @return the top of the trail
+     */
+    public int getTrailTop() {
+        return trailTop;
+    }
+
+    /*
+     * Sets the boundary below which bindings must be trailed (the top of the store when the newest choice point was made)
+     * @param boundary the top of the store saved by the newest choice point, or zero if there are none
+     */
+    public void setBoundary(int boundary) {
+        this.boundary = boundary;
+    }
+
+    /*
+     * Undoes every binding made since the given trail top and frees every cell allocated since the given store top
+     * @param trailMark the trail top saved by a choice point
+     * @param topMark the store top saved by a choice point
+     */
+    public void undo(int trailMark, int topMark) {
+        while (trailTop > trailMark) {  //While there are bindings to undo
+            trailTop--;
+            int cell = trail[trailTop];
+            cells[cell] = makeRef(cell);  //Make the variable unbound again
+        }
+        top = topMark;  //Free the newer cells
+    }
+
+    /*
+     * Frees the cells at or above the given index that nothing can reach any more, sliding the rest down in order
+     * A deterministic recursion leaves the frames of the clauses it has finished behind, so without this a tail recursive
+     * procedure takes cells in proportion to its depth. The cells below the base are roots and never move, so the base
+     * must be at or above the top saved by the newest choice point, which keeps the trail and every choice point valid.
+     * The frames of the clauses whose goals are still to be solved are roots too, and are kept whole, since their goals
+     * find their variables by position. Lists keep both of their cells together.
+     * @param base the index of the first cell that can be freed
+     * @param frames the index of each frame whose clause still has goals to solve, updated to where the frame moved
+     * @param sizes the number of variables in each frame
+     * @return the number of cells freed
+     */
+    public int compact(int base, int[] frames, int[] sizes) {
+        if (top <= base) {  //If there's nothing above the base
+            return 0;
+        }
+        boolean[] live = new boolean[top - base];
+        for (int i = 0; i < base; i++) {  //Older cells can be bound to newer terms
+            mark(cells[i], base, live);
+        }
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i] >= base) {  //Keep every variable of the frame, bound or not
+                for (int j = frames[i]; j < frames[i] + sizes[i]; j++) {
+                    mark(makeRef(j), base, live);
+                }
+            }
+        }
+        int[] forward = new int[top - base];  //Where each cell moves to
+        int next = base;
+        for (int i = 0; i < forward.length; i++) {
+            forward[i] = next;
+            if (live[i]) {
+                next++;
+            }
+        }
+        for (int i = 0; i < base; i++) {
+            cells[i] = relocate(cells[i], base, forward);
+        }
+        for (int i = 0; i < forward.length; i++) {  //Each cell moves down or stays, so it's read before anything overwrites it
+            if (live[i]) {
+                cells[forward[i]] = relocate(cells[base + i], base, forward);
+            }
+        }
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i] >= base) {
+                frames[i] = forward[frames[i] - base];
+            }
+        }
+        int freed = top - next;
+        top = next;
+        return freed;
+    }
+
+    /*
+     * Marks every cell at or above the base that the given term reaches, for compact
+     * The pending stack is used instead of recursion, so long lists fit on the stack
+     * @param term a root term
+     * @param base the index of the first cell that can be freed
+     * @param live which cells at or above the base have been reached
+     */
+    private void mark(int term, int base, boolean[] live) {
+        int pendingTop = 0;
+        while (true) {
+            int tag = getTag(term);
+            int cell = getValue(term);
+            if ((tag == REF || tag == LIST) && cell >= base) {  //If the term leads to a cell that can move
+                int end = tag == LIST ? cell + 2 : cell + 1;  //A list keeps its tail with its head
+                for (int i = cell; i < end; i++) {
+                    if (!live[i - base]) {
+                        live[i - base] = true;
+                        if (pendingTop == pending.length) {  //If the stack is full
+                            pending = Arrays.copyOf(pending, pending.length * 2);
+                        }
+                        pending[pendingTop] = cells[i];
+                        pendingTop++;
+                    }
+                }
+            }
+            if (pendingTop == 0) {  //If nothing is left to mark
+                return;
+            }
+            pendingTop--;
+            term = pending[pendingTop];
+        }
+    }
+
+    /*
+     * Moves what the given term points to, for compact
+     * @param term a term
+     * @param base the index of the first cell that may have moved
+     * @param forward where each cell at or above the base moves to
+     * @return the term pointing to the cell's new place
+     */
+    private int relocate(int term, int base, int[] forward) {
+        int tag = getTag(term);
+        if ((tag == REF || tag == LIST) && getValue(term) >= base) {
+            return (forward[getValue(term) - base] << 2) | tag;
+        }
+        return term;
+    }
+
+    /*
+     * Copies the given terms out of the store into a template in the same form a Clause uses for its head
+     * Unbound variables are numbered in the order they're found, so two calls that only differ in the names of their
+     * variables give the same template
+     * @param terms the terms being copied
+     * @return the template, whose first cells hold the copied terms and whose remaining cells hold any lists
+     */
+    public int[] export(int[] terms) {
+        exported = new int[Math.max(4, terms.length * 2)];
+        exportedSize = terms.length;  //The terms take up the first cells, the lists go after them
+        exportedVariables = new IntList();
+        for (int i = 0; i < terms.length; i++) {  //Copy each term
+            int term = exportTerm(terms[i]);  //Copying a list can replace the array, so it's only read afterwards
+            exported[i] = term;
+        }
+        int[] template = Arrays.copyOf(exported, exportedSize);
+        exported = null;
+        return template;
+    }
+
+    /*
+     * Copies the given term into the template being built by export
+     * @param term the term being copied
+     * @return the term within the template
+     */
+    private int exportTerm(int term) {
+        term = deref(term);
+        int tag = getTag(term);
+        if (tag == REF) {  //If the term is an unbound variable
+            int cell = getValue(term);
+            for (int slot = 0; slot < exportedVariables.size(); slot++) {  //Look for the variable's slot
+                if (exportedVariables.get(slot) == cell) {
+                    return makeRef(slot);
+                }
+            }
+            exportedVariables.add(cell);  //Give the variable the next slot
+            return makeRef(exportedVariables.size() - 1);
+        } else if (tag == LIST) {  //If the term is a list, walk along its tails instead of recursing so long lists fit on the stack
+            int first = claimPair();
+            int cell = first;
+            while (true) {
+                int head = exportTerm(getHead(term));
+                exported[cell] = head;
+                int tail = deref(getTail(term));
+                if (getTag(tail) != LIST) {  //If this is the last pair
+                    tail = exportTerm(tail);
+                    exported[cell + 1] = tail;
+                    return makeList(first);
+                }
+                int next = claimPair();
+                exported[cell + 1] = makeList(next);
+                cell = next;
+                term = tail;
+            }
+        }
+        return term;  //Atoms and the empty list are the same everywhere
+    }
+
+    /*
+     * Claims the cells of a pair within the template being built by export, before its elements are copied so the
+     * order is always the same
+     * @return the index of the pair's head cell
+     */
+    private int claimPair() {
+        if (exportedSize + 2 > exported.length) {  //If the template is full
+            exported = Arrays.copyOf(exported, exported.length * 2);
+        }
+        int cell = exportedSize;
+        exportedSize += 2;
+        return cell;
+    }
+
+    /*
+     * Writes the given term the way it would appear in a program
+     * @param term the term
+     * @return the term as a string, with unbound variables written as _G followed by their cell index
+     */
+    public String toString(int term) {
+        return toString(term, 0, new String[0]);
+    }
+
+    /*
+     * Writes the given term the way it would appear in a program, writing the variables of a query by name
+     * @param term the term
+     * @param first the index of the cell of the query's first variable
+     * @param names the name of each of the query's variables, whose cells follow the first one
+     * @return the term as a string, with the query's unbound variables written by name wherever they appear and any
+     * other unbound variable written as _G followed by its cell index
+     */
+    public String toString(int term, int first, String[] names) {
+        term = deref(term);
+        int tag = getTag(term);
+        if (tag == ATOM) {  //If the term is an atom
+            return SymbolTable.getName(getValue(term));
+        } else if (tag == REF) {  //If the term is an unbound variable
+            int cell = getValue(term);
+            if (cell >= first && cell < first + names.length) {  //If it's one of the query's own variables
+                return names[cell - first];
+            }
+            return "_G" + cell;
+        } else if (tag == NIL) {  //If the term is the empty list
+            return "[]";
+        }
+        StringBuilder builder = new StringBuilder("[");
+        builder.append(toString(getHead(term), first, names));  //Write the first element
+        term = deref(getTail(term));
+        while (getTag(term) == LIST) {  //While there are more elements
+            builder.append(", ").append(toString(getHead(term), first, names));
+            term = deref(getTail(term));
+        }
+        if (getTag(term) != NIL) {  //If the list ends with something other than the empty list
+            builder.append("|").append(toString(term, first, names));
+        }
+        return builder.append("]").toString();
+    }
+}
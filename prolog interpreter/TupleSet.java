@@ -0,0 +1,118 @@
+/*
+ * A set of rows of atom ids, all with the same arity, with hash indexes on the argument positions
+ * Used by the BottomUpEvaluator to hold the rows derived from rules
+ */
+public class TupleSet implements Relation {
+    private int arity;  //The number of atoms in each row
+    private RowSet values;  //The atoms of every row, hashed so duplicates aren't added
+    private IntList rows;  //The index of every row
+    private IntMap<IntList>[] indexes;  //The hash index for each argument position, null until a lookup binds that position
+
+    /*
+     * A constructor that creates an empty TupleSet
+     * @param arity the number of atoms in each row
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TupleSet(int arity) {
+        this.arity = arity;
+        values = new RowSet();
+        rows = new IntList();
+        indexes = new IntMap[arity];
+    }
+
+    /*
+     * Adds the given row if it isn't already in the set
+     * @param row the atom ids of the row
+     * @return true if the row was added
+     */
+    public boolean add(int[] row) {
+        if (!values.add(row)) {  //If the row is already in the set
+            return false;
+        }
+        int index = rows.size();
+        rows.add(index);
+        for (int i = 0; i < arity; i++) {  //Keep any built index up to date
+            if (indexes[i] != null) {
+                bucket(indexes[i], row[i]).add(index);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Determines if the set holds the given row
+     * @param row the atom ids of the row
+     * @return true if the row is in the set
+     */
+    public boolean contains(int[] row) {
+        return values.contains(row);
+    }
+
+    /*
+     * Gets the rows that could match a goal whose arguments are the given atoms, using the index of the first bound position
+     * @param atoms the id of the atom bound to each argument, or a negative number if the argument isn't bound
+     * @return the indices of the candidate rows
+     */
+    @Override
+    public IntList getCandidates(int[] atoms) {
+        for (int i = 0; i < arity; i++) {  //Find the first bound position
+            if (atoms[i] >= 0) {
+                IntList bucket = getIndex(i).get(atoms[i]);
+                return bucket == null ? new IntList() : bucket;
+            }
+        }
+        return rows;  //With nothing bound, every row is a candidate
+    }
+
+    /*
+     * Gets the hash index for the given argument position, building it the first time it's needed
+     * @param column the argument position
+     * @return a map from each atom to the rows that hold it at the position
+     */
+    private IntMap<IntList> getIndex(int column) {
+        if (indexes[column] == null) {  //If the position hasn't been indexed yet
+            IntMap<IntList> index = new IntMap<>();
+            for (int row = 0; row < rows.size(); row++) {
+                bucket(index, getValue(row, column)).add(row);
+            }
+            indexes[column] = index;
+        }
+        return indexes[column];
+    }
+
+    /*
+     * Gets the bucket of the given index for the given atom, creating it if it doesn't exist
+     * @param index the hash index
+     * @param atom the id of the atom
+     * @return the list of rows that hold the atom
+     */
+    private static IntList bucket(IntMap<IntList> index, int atom) {
+        IntList bucket = index.get(atom);
+        if (bucket == null) {
+            bucket = new IntList();
+            index.put(atom, bucket);
+        }
+        return bucket;
+    }
+
+    @Override
+    public int getValue(int row, int column) {
+        return values.get(row, column);
+    }
+
+    /*
+     * Gets the number of rows within the set
+     * @return the number of rows
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    /*
+     * Gets the number of atoms in each row
+     * @return the arity
+     */
+    public int getArity() {
+        return arity;
+    }
+}
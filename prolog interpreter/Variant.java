@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+/*
+ * A key for a call or an answer made from a template exported from a TermStore
+ * Two terms that only differ in the names of their variables have equal variants
+ */
+public class Variant {
+    private int[] template;  //The exported template
+    private int hash;  //The hash of the template, computed once
+
+    /*
+     * A constructor that creates a Variant given an exported template
+     * @param template the template made by TermStore.export
+     */
+    public Variant(int[] template) {
+        this.template = template;
+        this.hash = hash(template);
+    }
+
+    /*
+     * Hashes the given template, mixing each cell so templates of small, nearby atom ids don't collide the way they do
+     * with Arrays.hashCode (where [a, b] and [a + 1, b - 31] are equal)
+     * @param template the template
+     * @return the hash of the template
+     */
+    public static int hash(int[] template) {
+        int h = template.length;
+        for (int cell : template) {  //Mix in each cell
+            h = (h ^ cell) * 0x9E3779B9;
+            h ^= h >>> 15;
+        }
+        return h;
+    }
+
+    /*
+     * Gets the template of the variant
+     * @return the exported template
+     */
+    public int[] getTemplate() {
+        return template;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Variant)) {  //If the object isn't a variant
+            return false;
+        }
+        Variant variant = (Variant) other;
+        return hash == variant.hash && Arrays.equals(template, variant.template);
+    }
+}